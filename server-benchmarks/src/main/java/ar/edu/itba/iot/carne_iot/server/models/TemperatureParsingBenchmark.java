@@ -0,0 +1,105 @@
+package ar.edu.itba.iot.carne_iot.server.models;
+
+import ar.edu.itba.iot.carne_iot.server.models.constants.ValidationConstants;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the temperature ingestion path using fixed-point centi-degrees (i.e {@link CentiDegrees})
+ * with the previous one, which parsed, validated and kept each reading as a {@link BigDecimal}.
+ * Each invocation parses a raw reading (as received in the API), validates it, and sets it into a {@link Device}.
+ * <p>
+ * Run it with {@code -prof gc} to compare the allocation rate (i.e {@code gc.alloc.rate.norm}, in bytes per reading).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class TemperatureParsingBenchmark {
+
+    /**
+     * Raw readings, as received in the API.
+     */
+    private static final String[] READINGS = {"23.5", "-12.25", "180.75", "4", "65.125", "-0.5", "999.99", "37.03"};
+
+    /**
+     * The {@link Device} whose temperature is set.
+     */
+    private final Device device = new Device(1L);
+
+    /**
+     * Moment in which readings were measured.
+     */
+    private final Instant measuredAt = Instant.now();
+
+    /**
+     * Temperature kept by the {@link BigDecimal} path (as the device used to keep it).
+     */
+    private BigDecimal bigDecimalTemperature;
+
+    /**
+     * Moment in which the temperature kept by the {@link BigDecimal} path was measured.
+     */
+    private Instant bigDecimalTemperatureUpdate;
+
+    /**
+     * Index of the next reading.
+     */
+    private int index;
+
+
+    @Benchmark
+    public int fixedPoint() {
+        final int temperature = CentiDegrees.parse(nextReading());
+        device.setTemperature(temperature, measuredAt);
+        return temperature;
+    }
+
+    @Benchmark
+    public BigDecimal bigDecimal() {
+        final BigDecimal temperature = new BigDecimal(nextReading());
+        // Validation as it was performed before (i.e always creating a list of errors)
+        final List<String> errors = new LinkedList<>();
+        if (temperature.compareTo(ValidationConstants.MIN_TEMPERATURE) < 0) {
+            errors.add("TOO_LOW_TEMPERATURE");
+        } else if (temperature.compareTo(ValidationConstants.MAX_TEMPERATURE) > 0) {
+            errors.add("TOO_HIGH_TEMPERATURE");
+        }
+        if (!errors.isEmpty()) {
+            throw new IllegalStateException("Invalid reading: " + errors);
+        }
+        final Instant now = Instant.now();
+        final Instant moment = measuredAt.isAfter(now) ? now : measuredAt;
+        if (bigDecimalTemperatureUpdate == null || !bigDecimalTemperatureUpdate.isAfter(moment)) {
+            // The value was stored with the column scale
+            bigDecimalTemperature = temperature.setScale(CentiDegrees.SCALE, BigDecimal.ROUND_HALF_UP);
+            bigDecimalTemperatureUpdate = moment;
+        }
+        return bigDecimalTemperature;
+    }
+
+
+    /**
+     * @return The next raw reading.
+     */
+    private String nextReading() {
+        final String reading = READINGS[index];
+        index = (index + 1) % READINGS.length;
+        return reading;
+    }
+}
@@ -0,0 +1,247 @@
+package ar.edu.itba.iot.carne_iot.server.persistence;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.DeviceRegistration;
+import ar.edu.itba.iot.carne_iot.server.models.Session;
+import ar.edu.itba.iot.carne_iot.server.models.User;
+import org.flywaydb.core.Flyway;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.orm.jpa.hibernate.SpringImplicitNamingStrategy;
+import org.springframework.boot.orm.jpa.hibernate.SpringPhysicalNamingStrategy;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Compares the throughput of bulk inserts (i.e user registration, device registration and session creation)
+ * when ids are generated by the database on each insert (i.e {@code IDENTITY}, which disables JDBC batching),
+ * with the one obtained when ids are taken from sequences with a pooled optimizer (i.e batched inserts).
+ * Both modes use the same batching configuration as the application (only the id mapping changes).
+ * Each operation inserts {@link #amount} entities in one transaction.
+ * <p>
+ * It runs against a PostgreSQL database, which is migrated before running. Use a dedicated database,
+ * as inserted data is not removed. For example:
+ * <pre>
+ * java -jar server-benchmarks/target/benchmarks.jar BulkInsertBenchmark \
+ *     -p jdbcUrl=jdbc:postgresql://localhost:5432/carne-iot-benchmarks?reWriteBatchedInserts=true \
+ *     -p username=carne-iot -p password=secret
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class BulkInsertBenchmark {
+
+    /**
+     * Mapping file that overrides the id generation of the entities with {@code IDENTITY} generation.
+     */
+    private static final String IDENTITY_IDS_MAPPING =
+            "ar/edu/itba/iot/carne_iot/server/persistence/identity-ids-orm.xml";
+
+    /**
+     * Birth date of the registered users.
+     */
+    private static final LocalDate BIRTH_DATE = LocalDate.of(1990, 1, 1);
+
+    /**
+     * How ids are generated (i.e {@code identity} before the change, or {@code pooled} after it).
+     */
+    @Param({"identity", "pooled"})
+    public String idGeneration;
+
+    /**
+     * Amount of entities inserted in each operation.
+     */
+    @Param("100")
+    public int amount;
+
+    /**
+     * The JDBC url of the database (batched inserts are rewritten into multi-row inserts, as in the application).
+     */
+    @Param("jdbc:postgresql://localhost:5432/carne-iot-benchmarks?reWriteBatchedInserts=true")
+    public String jdbcUrl;
+
+    /**
+     * The database username.
+     */
+    @Param("carne-iot")
+    public String username;
+
+    /**
+     * The database password (no default value, so it must be given when running the benchmark).
+     */
+    @Param
+    public String password;
+
+    /**
+     * The single connection used (i.e no pool overhead, and no pool contention).
+     */
+    private SingleConnectionDataSource dataSource;
+
+    /**
+     * Bean creating the {@link EntityManagerFactory}.
+     */
+    private LocalContainerEntityManagerFactoryBean entityManagerFactoryBean;
+
+    /**
+     * Factory of the {@link EntityManager} used in each operation.
+     */
+    private EntityManagerFactory entityManagerFactory;
+
+    /**
+     * Prefix of usernames and emails, so trials do not collide with previous ones.
+     */
+    private String prefix;
+
+    /**
+     * Counter used to create unique usernames and emails, and session ids.
+     */
+    private long counter;
+
+    /**
+     * The id of the next device to be registered.
+     */
+    private long nextDeviceId;
+
+    /**
+     * The id of the user owning registered devices and created sessions.
+     */
+    private long ownerId;
+
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final Flyway flyway = new Flyway();
+        flyway.setDataSource(jdbcUrl, username, password);
+        flyway.migrate();
+
+        dataSource = new SingleConnectionDataSource(jdbcUrl, username, password, true);
+
+        final Map<String, Object> properties = new HashMap<>();
+        // Same naming strategies as Spring Boot
+        properties.put("hibernate.physical_naming_strategy", SpringPhysicalNamingStrategy.class.getName());
+        properties.put("hibernate.implicit_naming_strategy", SpringImplicitNamingStrategy.class.getName());
+        // Same id generators and batching configuration as the application
+        properties.put("hibernate.id.new_generator_mappings", "true");
+        properties.put("hibernate.jdbc.batch_size", "50");
+        properties.put("hibernate.jdbc.batch_versioned_data", "true");
+        properties.put("hibernate.order_inserts", "true");
+        properties.put("hibernate.order_updates", "true");
+        // Only inserts are measured
+        properties.put("hibernate.cache.use_second_level_cache", "false");
+        properties.put("hibernate.cache.use_query_cache", "false");
+
+        entityManagerFactoryBean = new LocalContainerEntityManagerFactoryBean();
+        entityManagerFactoryBean.setDataSource(dataSource);
+        entityManagerFactoryBean.setPackagesToScan("ar.edu.itba.iot.carne_iot.server.models");
+        entityManagerFactoryBean.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        entityManagerFactoryBean.setJpaPropertyMap(properties);
+        if ("identity".equals(idGeneration)) {
+            entityManagerFactoryBean.setMappingResources(IDENTITY_IDS_MAPPING);
+        }
+        entityManagerFactoryBean.afterPropertiesSet();
+        entityManagerFactory = entityManagerFactoryBean.getObject();
+
+        prefix = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+        counter = 0;
+        inTransaction(entityManager -> {
+            final User owner = newUser();
+            entityManager.persist(owner);
+            entityManager.flush();
+            ownerId = owner.getId();
+            nextDeviceId = ((Number) entityManager
+                    .createNativeQuery("SELECT coalesce(max(id), 0) + 1 FROM devices")
+                    .getSingleResult()).longValue();
+        });
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        entityManagerFactoryBean.destroy();
+        dataSource.destroy();
+    }
+
+
+    @Benchmark
+    public void registerUsers() {
+        inTransaction(entityManager -> {
+            for (int i = 0; i < amount; i++) {
+                entityManager.persist(newUser());
+            }
+        });
+    }
+
+    @Benchmark
+    public void registerDevices() {
+        inTransaction(entityManager -> {
+            final User owner = entityManager.find(User.class, ownerId);
+            for (int i = 0; i < amount; i++) {
+                final Device device = new Device(nextDeviceId++);
+                entityManager.persist(device);
+                entityManager.persist(new DeviceRegistration(device, owner));
+            }
+        });
+    }
+
+    @Benchmark
+    public void createSessions() {
+        inTransaction(entityManager -> {
+            final User owner = entityManager.getReference(User.class, ownerId);
+            for (int i = 0; i < amount; i++) {
+                entityManager.persist(new Session(owner, counter++));
+            }
+        });
+    }
+
+
+    /**
+     * Performs the given {@code work} in a new transaction, with a new {@link EntityManager}
+     * (i.e as a service method would do).
+     *
+     * @param work A {@link Consumer} of {@link EntityManager} performing the work.
+     */
+    private void inTransaction(Consumer<EntityManager> work) {
+        final EntityManager entityManager = entityManagerFactory.createEntityManager();
+        try {
+            entityManager.getTransaction().begin();
+            work.accept(entityManager);
+            entityManager.getTransaction().commit();
+        } finally {
+            if (entityManager.getTransaction().isActive()) {
+                entityManager.getTransaction().rollback();
+            }
+            entityManager.close();
+        }
+    }
+
+    /**
+     * @return A new {@link User}, with a unique username and email.
+     */
+    private User newUser() {
+        final String name = "bench-" + prefix + "-" + counter++;
+        return new User("Benchmark User", BIRTH_DATE, name, name + "@example.com", "hashed-password");
+    }
+}
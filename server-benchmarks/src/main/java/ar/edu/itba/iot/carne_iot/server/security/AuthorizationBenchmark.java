@@ -0,0 +1,191 @@
+package ar.edu.itba.iot.carne_iot.server.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.expression.method.DefaultMethodSecurityExpressionHandler;
+import org.springframework.security.access.expression.method.ExpressionBasedAnnotationAttributeFactory;
+import org.springframework.security.access.expression.method.ExpressionBasedPreInvocationAdvice;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.access.prepost.PreInvocationAuthorizationAdviceVoter;
+import org.springframework.security.access.prepost.PrePostAnnotationSecurityMetadataSource;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.util.SimpleMethodInvocation;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the per call overhead of authorizing a service method invocation with a typed {@link Authorize} policy,
+ * compared with the {@link PreAuthorize} SpEL expression it replaced (i.e the voter evaluating the attributes
+ * of the method, which is what the method security interceptor does on each call).
+ * Attributes are computed once, as Spring Security caches them per method.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AuthorizationBenchmark {
+
+    /**
+     * The id of the authenticated user (and of the user being read).
+     */
+    private static final long USER_ID = 1L;
+
+    /**
+     * The method being authorized.
+     */
+    @Param({"getUser", "listUsers"})
+    public String methodName;
+
+    /**
+     * Context holding the permission providers (as they are looked up by both the policies and the expressions).
+     */
+    private StaticApplicationContext context;
+
+    /**
+     * The invocation being authorized.
+     */
+    private MethodInvocation invocation;
+
+    /**
+     * The authenticated user.
+     */
+    private Authentication authentication;
+
+    /**
+     * Voter evaluating the typed policies.
+     */
+    private AccessDecisionVoter<MethodInvocation> policyVoter;
+
+    /**
+     * The typed policy attributes of the method.
+     */
+    private Collection<ConfigAttribute> policyAttributes;
+
+    /**
+     * Voter evaluating the SpEL expressions.
+     */
+    private AccessDecisionVoter<MethodInvocation> expressionVoter;
+
+    /**
+     * The SpEL expression attributes of the method.
+     */
+    private Collection<ConfigAttribute> expressionAttributes;
+
+
+    @Setup
+    public void setUp() throws NoSuchMethodException {
+        context = new StaticApplicationContext();
+        context.getBeanFactory().registerSingleton("adminPermissionProvider", new AdminPermissionProviderImpl());
+        context.getBeanFactory().registerSingleton("userPermissionProvider",
+                // Policies by id do not access the database, so no DAO is needed
+                new UserPermissionProviderImpl(null, () -> Optional.of(USER_ID)));
+        context.getBeanFactory().registerSingleton("devicePermissionProvider", new NoDevicePermissionProvider());
+        context.refresh();
+
+        final Method method = SampleService.class.getMethod(methodName,
+                "getUser".equals(methodName) ? new Class<?>[]{long.class} : new Class<?>[0]);
+        final Object[] arguments = "getUser".equals(methodName) ? new Object[]{USER_ID} : new Object[0];
+        invocation = new SimpleMethodInvocation(new SampleService(), method, arguments);
+
+        // Users read themselves (i.e the id is compared), and administrators list users
+        authentication = "getUser".equals(methodName) ? new TestingAuthenticationToken("user", null, "ROLE_USER")
+                : new TestingAuthenticationToken("admin", null, "ROLE_USER", "ROLE_ADMIN");
+        SecurityContextHolder.getContext().setAuthentication(authentication);
+
+        policyVoter = new AuthorizationPolicyVoter(context);
+        policyAttributes = new AuthorizationPolicyMetadataSource().getAttributes(method, SampleService.class);
+
+        final DefaultMethodSecurityExpressionHandler expressionHandler = new DefaultMethodSecurityExpressionHandler();
+        expressionHandler.setApplicationContext(context);
+        final ExpressionBasedPreInvocationAdvice advice = new ExpressionBasedPreInvocationAdvice();
+        advice.setExpressionHandler(expressionHandler);
+        expressionVoter = new PreInvocationAuthorizationAdviceVoter(advice);
+        expressionAttributes = new PrePostAnnotationSecurityMetadataSource(
+                new ExpressionBasedAnnotationAttributeFactory(expressionHandler))
+                .getAttributes(method, SampleService.class);
+
+        if (policyVoter.vote(authentication, invocation, policyAttributes) != AccessDecisionVoter.ACCESS_GRANTED
+                || expressionVoter.vote(authentication, invocation, expressionAttributes)
+                != AccessDecisionVoter.ACCESS_GRANTED) {
+            throw new IllegalStateException("The invocation must be granted");
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+        context.close();
+    }
+
+
+    @Benchmark
+    public int typedPolicy() {
+        return policyVoter.vote(authentication, invocation, policyAttributes);
+    }
+
+    @Benchmark
+    public int spelExpression() {
+        return expressionVoter.vote(authentication, invocation, expressionAttributes);
+    }
+
+
+    /**
+     * Service whose methods are authorized, annotated both ways (as the actual services were, before and after).
+     */
+    public static class SampleService {
+
+        @Authorize(value = AuthorizationPolicy.READ_USER, argument = "id")
+        @PreAuthorize("@userPermissionProvider.readById(#id)")
+        public Object getUser(long id) {
+            return id;
+        }
+
+        @Authorize(AuthorizationPolicy.ADMIN)
+        @PreAuthorize("@adminPermissionProvider.isAdmin()")
+        public Object listUsers() {
+            return null;
+        }
+    }
+
+    /**
+     * {@link DevicePermissionProvider} denying everything (device policies are not benchmarked).
+     */
+    private static final class NoDevicePermissionProvider implements DevicePermissionProvider {
+
+        @Override
+        public boolean isOwnerOrAdmin(long deviceId) {
+            return false;
+        }
+
+        @Override
+        public boolean isOwnDevice(long deviceId) {
+            return false;
+        }
+
+        @Override
+        public boolean areOwnDevices(Collection<Long> deviceIds) {
+            return false;
+        }
+    }
+}
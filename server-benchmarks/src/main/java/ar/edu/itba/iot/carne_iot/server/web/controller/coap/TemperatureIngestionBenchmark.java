@@ -0,0 +1,176 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.coap;
+
+import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.Base64UrlHelper;
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Option;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the throughput of temperature ingestion through CoAP (i.e {@link CoapTemperatureListener})
+ * with the one of the HTTP API (i.e {@code PUT /devices/{id}/temperature}), end to end.
+ * <p>
+ * It runs against an already running server (with the CoAP listener enabled), using a device token obtained by
+ * pairing a device (i.e {@code POST /devices/{id}/pair}). For example:
+ * <pre>
+ * java -jar server-benchmarks/target/benchmarks.jar TemperatureIngestionBenchmark -t 8 \
+ *     -p deviceId=1 -p deviceToken=eyJhbGciOiJIUzUxMiJ9...
+ * </pre>
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 2)
+@Measurement(iterations = 10, time = 2)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class TemperatureIngestionBenchmark {
+
+    /**
+     * Temperature sent in each request, in hundredths of degree.
+     */
+    private static final int CENTI_DEGREES = 2350;
+
+    /**
+     * The URI of the CoAP temperature resource.
+     */
+    @Param("coap://localhost:5683/" + CoapTemperatureListener.TEMPERATURE_RESOURCE)
+    public String coapUri;
+
+    /**
+     * The base URL of the HTTP API.
+     */
+    @Param("http://localhost:8000")
+    public String httpBaseUrl;
+
+    /**
+     * The id of the device whose temperature is updated.
+     */
+    @Param("1")
+    public long deviceId;
+
+    /**
+     * The device token (no default value, so it must be given when running the benchmark).
+     */
+    @Param
+    public String deviceToken;
+
+    /**
+     * The URL to which HTTP requests are sent.
+     */
+    private URL httpUrl;
+
+    /**
+     * The JSON body of HTTP requests.
+     */
+    private byte[] httpBody;
+
+    /**
+     * The binary payload of CoAP requests.
+     */
+    private byte[] coapPayload;
+
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        httpUrl = new URL(httpBaseUrl + "/devices/"
+                + Base64UrlHelper.encodeFromNumber(deviceId, Object::toString) + "/temperature");
+        httpBody = "{\"value\":\"23.50\"}".getBytes(StandardCharsets.UTF_8);
+        coapPayload = ByteBuffer.allocate(Integer.BYTES).putInt(CENTI_DEGREES).array();
+    }
+
+
+    @Benchmark
+    public int coap(CoapClientState state) {
+        final Request request = Request.newPut();
+        request.setURI(coapUri);
+        request.getOptions().addOption(new Option(CoapTemperatureListener.AUTHORIZATION_OPTION, deviceToken));
+        request.setPayload(coapPayload);
+        final CoapResponse response = state.client.advanced(request);
+        if (response == null || response.getCode() != CoAP.ResponseCode.CHANGED) {
+            throw new IllegalStateException("CoAP reading not accepted: "
+                    + (response == null ? "timeout" : response.getCode()));
+        }
+        return response.getCode().value;
+    }
+
+    @Benchmark
+    public int http() throws IOException {
+        // Connections are kept alive (i.e reused) by the HttpURLConnection implementation
+        final HttpURLConnection connection = (HttpURLConnection) httpUrl.openConnection();
+        connection.setRequestMethod("PUT");
+        connection.setDoOutput(true);
+        connection.setRequestProperty("Content-Type", "application/json");
+        connection.setRequestProperty("Authorization", "Bearer " + deviceToken);
+        connection.setFixedLengthStreamingMode(httpBody.length);
+        try (OutputStream outputStream = connection.getOutputStream()) {
+            outputStream.write(httpBody);
+        }
+        final int status = connection.getResponseCode();
+        try (InputStream inputStream = status < 400 ? connection.getInputStream() : connection.getErrorStream()) {
+            if (inputStream != null) {
+                while (inputStream.read() != -1) {
+                    // Fully read, so the connection can be reused
+                }
+            }
+        }
+        if (status != HttpURLConnection.HTTP_NO_CONTENT) {
+            throw new IllegalStateException("HTTP reading not accepted: " + status);
+        }
+        return status;
+    }
+
+
+    /**
+     * Holds a CoAP client per benchmark thread (each of them with its own UDP socket).
+     */
+    @State(Scope.Thread)
+    public static class CoapClientState {
+
+        private CoapEndpoint endpoint;
+
+        private CoapClient client;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            // A NetworkConfig is created in order to avoid Californium reading (and writing) a properties file
+            endpoint = new CoapEndpoint(new NetworkConfig());
+            endpoint.start();
+            client = new CoapClient();
+            client.setEndpoint(endpoint);
+            client.setTimeout(5000);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            client.shutdown();
+            endpoint.destroy();
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package ar.edu.itba.iot.carne_iot.server.web.security.authentication;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.User;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of authenticating a device request (i.e compiling its device token),
+ * with and without the {@link VerifiedDeviceTokenCache}, and with and without the {@link FastJwtVerifier}
+ * (i.e with both disabled, each device token is parsed and verified by jjwt each time it is used).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@Threads(4)
+@State(Scope.Benchmark)
+public class DeviceTokenCompileBenchmark {
+
+    /**
+     * Amount of paired devices (i.e of distinct tokens being used).
+     */
+    private static final int DEVICES = 1000;
+
+    /**
+     * Whether the {@link VerifiedDeviceTokenCache} is enabled.
+     */
+    @Param({"true", "false"})
+    public boolean cacheEnabled;
+
+    /**
+     * Whether the {@link FastJwtVerifier} is enabled.
+     */
+    @Param({"true", "false"})
+    public boolean fastPathEnabled;
+
+    /**
+     * The {@link JwtAgent} compiling the tokens.
+     */
+    private JwtAgent jwtAgent;
+
+    /**
+     * The device tokens.
+     */
+    private String[] tokens;
+
+
+    @Setup
+    public void setUp() {
+        final String signingKey = "benchmark-signing-key";
+        // Sessions are not checked for device tokens, so no session service is needed
+        jwtAgent = new JwtAgent(signingKey, 31536000L, 900L, null,
+                new VerifiedDeviceTokenCache(cacheEnabled, DEVICES),
+                new FastJwtVerifier(signingKey, fastPathEnabled));
+        final User owner = new User("Device Owner", LocalDate.of(1990, 1, 1), "owner", "owner@example.com", "hash");
+        tokens = new String[DEVICES];
+        for (int i = 0; i < DEVICES; i++) {
+            tokens[i] = jwtAgent.generateDeviceToken(owner, new Device(i + 1)).getToken();
+        }
+    }
+
+
+    @Benchmark
+    public JwtCompiler.JwtTokenData compile(ThreadIndex index) {
+        return jwtAgent.compile(tokens[index.next()]);
+    }
+
+
+    /**
+     * Per thread index of the next token to be compiled (i.e devices send readings in turns).
+     */
+    @State(Scope.Thread)
+    public static class ThreadIndex {
+
+        private int index;
+
+        private int next() {
+            index = (index + 1) % DEVICES;
+            return index;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package ar.edu.itba.iot.carne_iot.server.web.security.authentication;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.User;
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares verifying a token generated by the {@link JwtAgent} with the {@link FastJwtVerifier}
+ * with verifying it with the generic jjwt parser (signature check and claims extraction only,
+ * so the difference is not hidden by the rest of the compilation).
+ * <p>
+ * Run it with {@code -prof gc} to also compare the allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtVerificationBenchmark {
+
+    /**
+     * The kind of token being verified (i.e access or device token).
+     */
+    @Param({"access", "device"})
+    public String tokenType;
+
+    /**
+     * The verifier being benchmarked.
+     */
+    private FastJwtVerifier fastJwtVerifier;
+
+    /**
+     * The signing key, encoded in base 64 (as used by the {@link JwtAgent} with jjwt).
+     */
+    private String base64EncodedSecretKey;
+
+    /**
+     * The token being verified.
+     */
+    private String token;
+
+
+    @Setup
+    public void setUp() {
+        final String signingKey = "benchmark-signing-key";
+        fastJwtVerifier = new FastJwtVerifier(signingKey, true);
+        base64EncodedSecretKey = Base64.getEncoder().encodeToString(signingKey.getBytes());
+        // Sessions are not checked when generating tokens, so no session service is needed
+        final JwtAgent jwtAgent = new JwtAgent(signingKey, 31536000L, 900L, null,
+                new VerifiedDeviceTokenCache(false, 1), fastJwtVerifier);
+        final User user = new User("Benchmark User", LocalDate.of(1990, 1, 1), "user", "user@example.com", "hash");
+        token = "device".equals(tokenType) ?
+                jwtAgent.generateDeviceToken(user, new Device(1L)).getToken() : jwtAgent.generateAccessToken(user, 1L);
+        if (fastJwtVerifier.verify(token) == null) {
+            throw new IllegalStateException("The token is not handled by the fast verifier");
+        }
+    }
+
+
+    @Benchmark
+    public FastJwtVerifier.VerifiedClaims fastVerifier() {
+        return fastJwtVerifier.verify(token);
+    }
+
+    @Benchmark
+    public Claims jjwt() {
+        return Jwts.parser()
+                .setSigningKey(base64EncodedSecretKey)
+                .parseClaimsJws(token)
+                .getBody();
+    }
+}
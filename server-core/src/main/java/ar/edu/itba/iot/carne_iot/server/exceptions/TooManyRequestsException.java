@@ -0,0 +1,31 @@
+package ar.edu.itba.iot.carne_iot.server.exceptions;
+
+/**
+ * Exception thrown when an action can not be performed because the system is overloaded
+ * (i.e the request is shed, and should be retried later).
+ */
+public class TooManyRequestsException extends RuntimeException {
+
+    /**
+     * Amount of seconds after which the action can be retried.
+     */
+    private final long retryAfter;
+
+    /**
+     * Constructor which can set a {@code message}.
+     *
+     * @param message    The detail message, which is saved for later retrieval by the {@link #getMessage()} method.
+     * @param retryAfter Amount of seconds after which the action can be retried.
+     */
+    public TooManyRequestsException(String message, long retryAfter) {
+        super(message);
+        this.retryAfter = retryAfter;
+    }
+
+    /**
+     * @return Amount of seconds after which the action can be retried.
+     */
+    public long getRetryAfter() {
+        return retryAfter;
+    }
+}
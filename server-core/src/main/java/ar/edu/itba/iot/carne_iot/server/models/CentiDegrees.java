@@ -0,0 +1,113 @@
+package ar.edu.itba.iot.carne_iot.server.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * Helper class for the fixed-point representation of temperatures (i.e hundredths of degree, as an {@code int}),
+ * used internally to avoid creating {@link BigDecimal}s each time a temperature is read or validated.
+ * {@link BigDecimal}s are only used in the API edges.
+ */
+public final class CentiDegrees {
+
+    /**
+     * Amount of decimal digits kept by the fixed-point representation.
+     */
+    public static final int SCALE = 2;
+
+    /**
+     * Private constructor to avoid instantiation.
+     */
+    private CentiDegrees() {
+    }
+
+    /**
+     * Parses the given decimal {@code value} (e.g {@code "-12.5"}) into hundredths of degree,
+     * without creating intermediate objects for plain decimal notation.
+     * Extra decimal digits are rounded half-up (as the database does when storing a {@code DECIMAL}),
+     * and values out of the {@code int} range are saturated (so they can be rejected when validated).
+     *
+     * @param value The value to be parsed.
+     * @return The parsed value, in hundredths of degree.
+     * @throws NumberFormatException If the given {@code value} is not a valid decimal number.
+     */
+    public static int parse(String value) throws NumberFormatException {
+        if (value == null) {
+            throw new NumberFormatException("The value must not be null");
+        }
+        final int length = value.length();
+        int index = 0;
+        boolean negative = false;
+        if (length > 0 && (value.charAt(0) == '-' || value.charAt(0) == '+')) {
+            negative = value.charAt(0) == '-';
+            index++;
+        }
+        long result = 0;
+        int digits = 0;
+        int decimals = -1; // Amount of decimal digits read, or -1 if the decimal point was not found yet
+        boolean roundUp = false;
+        for (; index < length; index++) {
+            final char c = value.charAt(index);
+            if (c == '.' && decimals < 0) {
+                decimals = 0;
+                continue;
+            }
+            if (c < '0' || c > '9') {
+                // Other notations (e.g exponents) are rare, so they are left to BigDecimal
+                return fromBigDecimal(new BigDecimal(value));
+            }
+            digits++;
+            if (decimals >= SCALE) {
+                // Only the first discarded digit matters when rounding half-up
+                roundUp |= decimals == SCALE && c >= '5';
+                decimals++;
+                continue;
+            }
+            if (decimals >= 0) {
+                decimals++;
+            }
+            if (result <= Integer.MAX_VALUE) {
+                result = result * 10 + (c - '0');
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("Not a decimal number: " + value);
+        }
+        for (int scale = Math.max(decimals, 0); scale < SCALE && result <= Integer.MAX_VALUE; scale++) {
+            result *= 10;
+        }
+        if (roundUp) {
+            result++;
+        }
+        final int magnitude = (int) Math.min(result, Integer.MAX_VALUE);
+        return negative ? -magnitude : magnitude;
+    }
+
+    /**
+     * Converts the given {@code value} into hundredths of degree.
+     * Extra decimal digits are rounded half-up, and values out of the {@code int} range are saturated.
+     *
+     * @param value The value to be converted.
+     * @return The converted value, in hundredths of degree.
+     */
+    public static int fromBigDecimal(BigDecimal value) {
+        final BigDecimal scaled = value.setScale(SCALE, RoundingMode.HALF_UP).movePointRight(SCALE);
+        if (scaled.compareTo(BigDecimal.valueOf(Integer.MAX_VALUE)) > 0) {
+            return Integer.MAX_VALUE;
+        }
+        if (scaled.compareTo(BigDecimal.valueOf(-Integer.MAX_VALUE)) < 0) {
+            return -Integer.MAX_VALUE;
+        }
+        return scaled.intValue();
+    }
+
+    /**
+     * Converts the given {@code centiDegrees} into a {@link BigDecimal}.
+     *
+     * @param centiDegrees The value to be converted, in hundredths of degree.
+     * @return The converted value.
+     */
+    public static BigDecimal toBigDecimal(int centiDegrees) {
+        return BigDecimal.valueOf(centiDegrees, SCALE);
+    }
+}
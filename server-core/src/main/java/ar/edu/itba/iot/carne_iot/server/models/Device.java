@@ -4,23 +4,36 @@ import ar.edu.itba.iot.carne_iot.server.error_handling.errros.ValidationError;
 import ar.edu.itba.iot.carne_iot.server.error_handling.helpers.ValidationExceptionThrower;
 import ar.edu.itba.iot.carne_iot.server.error_handling.helpers.ValidationHelper;
 import ar.edu.itba.iot.carne_iot.server.exceptions.ValidationException;
+import ar.edu.itba.iot.carne_iot.server.models.constants.CacheRegionConstants;
 import ar.edu.itba.iot.carne_iot.server.models.constants.ValidationConstants;
 import ar.edu.itba.iot.carne_iot.server.models.constants.ValidationErrorConstants;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.Column;
 import javax.persistence.Entity;
+import javax.persistence.FetchType;
 import javax.persistence.Id;
+import javax.persistence.OneToMany;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
 import javax.persistence.Table;
 import java.math.BigDecimal;
 import java.time.Instant;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Objects;
 
 /**
  * Class representing a device (i.e a thermometer).
+ * <p>
+ * Devices are kept in the second-level cache. Even though the temperature is written often, writes are coalesced
+ * by the write-behind buffer, so each flush updates the cached devices (instead of evicting them on each reading).
  */
 @Entity
 @Table(name = "devices")
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegionConstants.DEVICES)
 public class Device implements ValidationExceptionThrower {
 
     /**
@@ -31,10 +44,11 @@ public class Device implements ValidationExceptionThrower {
     private long id;
 
     /**
-     * The last temperature measured (and informed) by this device.
+     * The last temperature measured (and informed) by this device, in hundredths of degree
+     * (only meaningful if the {@link #lastTemperatureUpdate} is not null).
      */
-    @Column(name = "temperature", precision = PRECISION, scale = SCALE)
-    private BigDecimal temperature;
+    @Column(name = "temperature_centi_degrees", nullable = false)
+    private int temperature;
 
     /**
      * The moment in which the actual temperature was set.
@@ -48,6 +62,19 @@ public class Device implements ValidationExceptionThrower {
     @Column(name = "target_temperature", precision = PRECISION, scale = SCALE)
     private BigDecimal targetTemperature;
 
+    /**
+     * The moment in which this device was last modified.
+     */
+    @Column(name = "last_modified", nullable = false)
+    private Instant lastModified;
+
+    /**
+     * The {@link DeviceRegistration}s of this device (never loaded, only mapped in order to join them in queries).
+     */
+    @OneToMany(mappedBy = "device", fetch = FetchType.LAZY)
+    @SuppressWarnings("unused")
+    private List<DeviceRegistration> registrations;
+
 
     /* package */ Device() {
         // For Hibernate
@@ -60,7 +87,7 @@ public class Device implements ValidationExceptionThrower {
      */
     public Device(long id) {
         this.id = id;
-        this.temperature = null;
+        this.temperature = 0;
         this.lastTemperatureUpdate = null;
         this.targetTemperature = null;
     }
@@ -77,7 +104,7 @@ public class Device implements ValidationExceptionThrower {
      * or {@code null} if the device did not measure any temperature yet.
      */
     public BigDecimal getTemperature() {
-        return temperature;
+        return lastTemperatureUpdate == null ? null : CentiDegrees.toBigDecimal(temperature);
     }
 
     /**
@@ -94,17 +121,59 @@ public class Device implements ValidationExceptionThrower {
         return targetTemperature;
     }
 
+    /**
+     * @return The moment in which this device was last modified.
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
     /**
      * Sets the actual temperature measured by this device.
      *
-     * @param temperature The actual temperature measured by this device.
+     * @param temperature The actual temperature measured by this device, in hundredths of degree.
+     * @return {@code true} if the temperature was set, or {@code false} if it was discarded.
+     * @throws ValidationException If the temperature is not valid.
+     */
+    public boolean setTemperature(int temperature) throws ValidationException {
+        return setTemperature(temperature, Instant.now());
+    }
+
+    /**
+     * Sets the actual temperature measured by this device at the given {@code measuredAt} moment.
+     * If this device already holds a temperature measured after the given moment,
+     * the value is validated but discarded (i.e readings arriving out of order do not override newer ones).
+     * Moments in the future are truncated to the actual moment.
+     *
+     * @param temperature The temperature measured by this device, in hundredths of degree.
+     * @param measuredAt  The moment in which the temperature was measured.
+     * @return {@code true} if the temperature was set, or {@code false} if it was discarded
+     * (i.e this device holds a newer one).
      * @throws ValidationException If the temperature is not valid.
      */
-    public void setTemperature(BigDecimal temperature) throws ValidationException {
+    public boolean setTemperature(int temperature, Instant measuredAt) throws ValidationException {
+        Objects.requireNonNull(measuredAt, "The measuredAt instant must not be null");
         validateActualTemperature(temperature);
 
+        final Instant now = Instant.now();
+        final Instant moment = measuredAt.isAfter(now) ? now : measuredAt;
+        if (lastTemperatureUpdate != null && lastTemperatureUpdate.isAfter(moment)) {
+            return false;
+        }
         this.temperature = temperature;
-        this.lastTemperatureUpdate = Instant.now();
+        this.lastTemperatureUpdate = moment;
+        return true;
+    }
+
+    /**
+     * Checks that the given {@code temperature} can be set as the actual temperature of a device,
+     * without changing the state of any of them (e.g to validate a value that will be set later).
+     *
+     * @param temperature The temperature to be validated, in hundredths of degree.
+     * @throws ValidationException If the temperature is not valid.
+     */
+    public static void validateTemperatureReading(int temperature) throws ValidationException {
+        new Device().validateActualTemperature(temperature);
     }
 
     /**
@@ -126,23 +195,35 @@ public class Device implements ValidationExceptionThrower {
         this.targetTemperature = null;
     }
 
+    /**
+     * Sets the moment in which this device was last modified.
+     * Executed each time this device is persisted or updated.
+     */
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        this.lastModified = Instant.now();
+    }
+
 
     // ====================
     // Validators
     // ====================
 
     /**
-     * Checks that the given {@code temperature} is valid (i.e not null and between valid ranges).
+     * Checks that the given {@code temperature} is valid (i.e between valid ranges).
      * To be used for te device actual temperature.
+     * As this is executed for each reading, no object is created unless the temperature is not valid.
      *
-     * @param temperature The temperature to be validated.
+     * @param temperature The temperature to be validated, in hundredths of degree.
      * @throws ValidationException If the temperature is not valid.
      */
-    private void validateActualTemperature(BigDecimal temperature) throws ValidationException {
-        validateTemperature(temperature,
-                ValidationErrorConstants.MISSING_TEMPERATURE,
-                ValidationErrorConstants.TOO_LOW_TEMPERATURE,
-                ValidationErrorConstants.TOO_HIGH_TEMPERATURE);
+    private void validateActualTemperature(int temperature) throws ValidationException {
+        if (temperature < ValidationConstants.MIN_TEMPERATURE_CENTI_DEGREES) {
+            throwValidationException(Collections.singletonList(ValidationErrorConstants.TOO_LOW_TEMPERATURE));
+        } else if (temperature > ValidationConstants.MAX_TEMPERATURE_CENTI_DEGREES) {
+            throwValidationException(Collections.singletonList(ValidationErrorConstants.TOO_HIGH_TEMPERATURE));
+        }
     }
 
     /**
@@ -26,7 +26,9 @@ public class DeviceRegistration implements ValidationExceptionThrower {
      * The registration id.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "device_registrations_id_generator")
+    @SequenceGenerator(name = "device_registrations_id_generator", sequenceName = "device_registrations_id_seq",
+            allocationSize = 50)
     @Column(name = "id", updatable = false)
     private long id;
 
@@ -62,6 +64,12 @@ public class DeviceRegistration implements ValidationExceptionThrower {
     @Column(name = "active", nullable = false)
     private boolean active;
 
+    /**
+     * The moment in which this registration was last modified.
+     */
+    @Column(name = "last_modified", nullable = false)
+    private Instant lastModified;
+
 
     /* package */ DeviceRegistration() {
         // For Hibernate
@@ -127,6 +135,13 @@ public class DeviceRegistration implements ValidationExceptionThrower {
         return active;
     }
 
+    /**
+     * @return The moment in which this registration was last modified.
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
     /**
      * Makes this registration inactive (i.e unregisters the device).
      */
@@ -153,6 +168,16 @@ public class DeviceRegistration implements ValidationExceptionThrower {
         this.setNickname(null);
     }
 
+    /**
+     * Sets the moment in which this registration was last modified.
+     * Executed each time this registration is persisted or updated.
+     */
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        this.lastModified = Instant.now();
+    }
+
 
     // ====================
     // Validators
@@ -4,11 +4,15 @@ import ar.edu.itba.iot.carne_iot.server.error_handling.errros.ValidationError;
 import ar.edu.itba.iot.carne_iot.server.error_handling.helpers.ValidationExceptionThrower;
 import ar.edu.itba.iot.carne_iot.server.error_handling.helpers.ValidationHelper;
 import ar.edu.itba.iot.carne_iot.server.exceptions.ValidationException;
+import ar.edu.itba.iot.carne_iot.server.models.constants.CacheRegionConstants;
 import ar.edu.itba.iot.carne_iot.server.models.constants.ValidationConstants;
 import ar.edu.itba.iot.carne_iot.server.models.constants.ValidationErrorConstants;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
@@ -20,13 +24,16 @@ import java.util.Objects;
 @Table(name = "food_preferences", indexes = {
         @Index(name = "food_preferences_name_user_id_unique_index", columnList = "name, user_id", unique = true),
 })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegionConstants.FOOD_PREFERENCES)
 public class FoodPreference implements ValidationExceptionThrower {
 
     /**
      * The preference id.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "food_preferences_id_generator")
+    @SequenceGenerator(name = "food_preferences_id_generator", sequenceName = "food_preferences_id_seq",
+            allocationSize = 50)
     @Column(name = "id")
     private long id;
 
@@ -49,6 +56,12 @@ public class FoodPreference implements ValidationExceptionThrower {
     @ManyToOne(fetch = FetchType.EAGER, optional = false)
     private User owner;
 
+    /**
+     * The moment in which this preference was last modified.
+     */
+    @Column(name = "last_modified", nullable = false)
+    private Instant lastModified;
+
 
     /* package */ FoodPreference() {
         // For Hibernate
@@ -117,6 +130,23 @@ public class FoodPreference implements ValidationExceptionThrower {
         return owner;
     }
 
+    /**
+     * @return The moment in which this preference was last modified.
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Sets the moment in which this preference was last modified.
+     * Executed each time this preference is persisted or updated.
+     */
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        this.lastModified = Instant.now();
+    }
+
     /**
      * Performs validation over the given arguments.
      *
@@ -3,6 +3,7 @@ package ar.edu.itba.iot.carne_iot.server.models;
 import ar.edu.itba.iot.carne_iot.server.exceptions.ValidationException;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.util.Objects;
 
 /**
@@ -18,7 +19,8 @@ public class Session {
      * The user's id.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "sessions_id_generator")
+    @SequenceGenerator(name = "sessions_id_generator", sequenceName = "sessions_id_seq", allocationSize = 50)
     @Column(name = "id")
     private long id;
 
@@ -41,6 +43,19 @@ public class Session {
     @Column(name = "valid")
     private boolean valid;
 
+    /**
+     * The number given to the revocation of this session (i.e increasing numbers given by the database
+     * each time a session is blacklisted), or {@code null} if this session is valid.
+     */
+    @Column(name = "revocation_sequence", insertable = false, updatable = false)
+    private Long revocationSequence;
+
+    /**
+     * The moment in which this session was revoked (given by the database), or {@code null} if this session is valid.
+     */
+    @Column(name = "revoked_at", insertable = false, updatable = false)
+    private Instant revokedAt;
+
     /* package */ Session() {
         // For Hibernate.
     }
@@ -88,8 +103,24 @@ public class Session {
         return valid;
     }
 
+    /**
+     * @return The number given to the revocation of this session, or {@code null} if this session is valid.
+     */
+    public Long getRevocationSequence() {
+        return revocationSequence;
+    }
+
+    /**
+     * @return The moment in which this session was revoked, or {@code null} if this session is valid.
+     */
+    public Instant getRevokedAt() {
+        return revokedAt;
+    }
+
     /**
      * Makes this session invalid (i.e blacklists the JWT representing this session).
+     * Note that the revocation number is given by the database
+     * (see {@code SessionDao#revoke}, which should be used instead).
      */
     public void blacklist() {
         this.valid = false;
@@ -0,0 +1,179 @@
+package ar.edu.itba.iot.carne_iot.server.models;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Class representing the aggregated {@link TemperatureReading}s of a given {@link Device}
+ * measured during a period of time (i.e a bucket), whose length is defined by a {@link Resolution}.
+ * Temperatures are kept in hundredths of degree (see {@link CentiDegrees}).
+ */
+public class TemperatureAggregate {
+
+    /**
+     * The id of the {@link Device} that measured the aggregated temperatures.
+     */
+    private final long deviceId;
+
+    /**
+     * The {@link Resolution} of this aggregate (i.e the length of its bucket).
+     */
+    private final Resolution resolution;
+
+    /**
+     * The moment in which the bucket starts.
+     */
+    private final Instant from;
+
+    /**
+     * The minimum measured temperature, in hundredths of degree.
+     */
+    private final int min;
+
+    /**
+     * The maximum measured temperature, in hundredths of degree.
+     */
+    private final int max;
+
+    /**
+     * The sum of the measured temperatures, in hundredths of degree.
+     */
+    private final long sum;
+
+    /**
+     * The amount of aggregated readings.
+     */
+    private final long count;
+
+    /**
+     * Constructor.
+     *
+     * @param deviceId   The id of the {@link Device} that measured the aggregated temperatures.
+     * @param resolution The {@link Resolution} of this aggregate (i.e the length of its bucket).
+     * @param from       The moment in which the bucket starts.
+     * @param min        The minimum measured temperature, in hundredths of degree.
+     * @param max        The maximum measured temperature, in hundredths of degree.
+     * @param sum        The sum of the measured temperatures, in hundredths of degree.
+     * @param count      The amount of aggregated readings.
+     */
+    public TemperatureAggregate(long deviceId, Resolution resolution, Instant from,
+                                int min, int max, long sum, long count) {
+        this.deviceId = deviceId;
+        this.resolution = resolution;
+        this.from = from;
+        this.min = min;
+        this.max = max;
+        this.sum = sum;
+        this.count = count;
+    }
+
+    /**
+     * @return The id of the {@link Device} that measured the aggregated temperatures.
+     */
+    public long getDeviceId() {
+        return deviceId;
+    }
+
+    /**
+     * @return The {@link Resolution} of this aggregate (i.e the length of its bucket).
+     */
+    public Resolution getResolution() {
+        return resolution;
+    }
+
+    /**
+     * @return The moment in which the bucket starts.
+     */
+    public Instant getFrom() {
+        return from;
+    }
+
+    /**
+     * @return The minimum measured temperature.
+     */
+    public BigDecimal getMin() {
+        return CentiDegrees.toBigDecimal(min);
+    }
+
+    /**
+     * @return The maximum measured temperature.
+     */
+    public BigDecimal getMax() {
+        return CentiDegrees.toBigDecimal(max);
+    }
+
+    /**
+     * @return The average measured temperature.
+     */
+    public BigDecimal getAverage() {
+        return BigDecimal.valueOf(sum)
+                .divide(BigDecimal.valueOf(count), 0, RoundingMode.HALF_UP)
+                .movePointLeft(CentiDegrees.SCALE);
+    }
+
+    /**
+     * @return The minimum measured temperature, in hundredths of degree.
+     */
+    public int getMinCentiDegrees() {
+        return min;
+    }
+
+    /**
+     * @return The maximum measured temperature, in hundredths of degree.
+     */
+    public int getMaxCentiDegrees() {
+        return max;
+    }
+
+    /**
+     * @return The sum of the measured temperatures, in hundredths of degree.
+     */
+    public long getSumCentiDegrees() {
+        return sum;
+    }
+
+    /**
+     * @return The amount of aggregated readings.
+     */
+    public long getCount() {
+        return count;
+    }
+
+
+    /**
+     * Enum containing the resolutions in which readings are aggregated.
+     */
+    public enum Resolution {
+        /**
+         * Readings are aggregated per minute.
+         */
+        MINUTE(ChronoUnit.MINUTES),
+        /**
+         * Readings are aggregated per hour.
+         */
+        HOUR(ChronoUnit.HOURS);
+
+        /**
+         * The {@link ChronoUnit} defining the length of the buckets.
+         */
+        private final ChronoUnit unit;
+
+        /**
+         * Constructor.
+         *
+         * @param unit The {@link ChronoUnit} defining the length of the buckets.
+         */
+        Resolution(ChronoUnit unit) {
+            this.unit = unit;
+        }
+
+        /**
+         * @return The {@link ChronoUnit} defining the length of the buckets.
+         */
+        public ChronoUnit getUnit() {
+            return unit;
+        }
+    }
+}
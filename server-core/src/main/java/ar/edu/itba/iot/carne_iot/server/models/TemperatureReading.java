@@ -0,0 +1,99 @@
+package ar.edu.itba.iot.carne_iot.server.models;
+
+import ar.edu.itba.iot.carne_iot.server.exceptions.ValidationException;
+import ar.edu.itba.iot.carne_iot.server.models.constants.ValidationErrorConstants;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collections;
+
+/**
+ * Class representing a temperature measured by a given {@link Device} at a given moment.
+ * Readings are append-only (i.e they are never modified once created).
+ */
+public class TemperatureReading {
+
+    /**
+     * The id of the {@link Device} that measured the temperature.
+     */
+    private final long deviceId;
+
+    /**
+     * The measured temperature, in hundredths of degree.
+     */
+    private final int value;
+
+    /**
+     * The moment in which the temperature was measured.
+     */
+    private final Instant timestamp;
+
+    /**
+     * Constructor.
+     *
+     * @param deviceId  The id of the {@link Device} that measured the temperature.
+     * @param value     The measured temperature, in hundredths of degree.
+     * @param timestamp The moment in which the temperature was measured
+     *                  (if {@code null}, the actual moment is used).
+     */
+    public TemperatureReading(long deviceId, int value, Instant timestamp) {
+        this.deviceId = deviceId;
+        this.value = value;
+        this.timestamp = timestamp == null ? Instant.now() : timestamp;
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param deviceId  The id of the {@link Device} that measured the temperature.
+     * @param value     The measured temperature.
+     * @param timestamp The moment in which the temperature was measured
+     *                  (if {@code null}, the actual moment is used).
+     * @throws ValidationException If the temperature is missing.
+     */
+    public TemperatureReading(long deviceId, BigDecimal value, Instant timestamp) throws ValidationException {
+        this(deviceId, toCentiDegrees(value), timestamp);
+    }
+
+    /**
+     * @return The id of the {@link Device} that measured the temperature.
+     */
+    public long getDeviceId() {
+        return deviceId;
+    }
+
+    /**
+     * @return The measured temperature.
+     */
+    public BigDecimal getValue() {
+        return CentiDegrees.toBigDecimal(value);
+    }
+
+    /**
+     * @return The measured temperature, in hundredths of degree.
+     */
+    public int getCentiDegrees() {
+        return value;
+    }
+
+    /**
+     * @return The moment in which the temperature was measured.
+     */
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Converts the given {@code value} into hundredths of degree, checking it is present.
+     *
+     * @param value The value to be converted.
+     * @return The converted value.
+     * @throws ValidationException If the value is {@code null}.
+     */
+    private static int toCentiDegrees(BigDecimal value) throws ValidationException {
+        if (value == null) {
+            throw new ValidationException(Collections.singletonList(ValidationErrorConstants.MISSING_TEMPERATURE));
+        }
+        return CentiDegrees.fromBigDecimal(value);
+    }
+}
@@ -4,10 +4,14 @@ import ar.edu.itba.iot.carne_iot.server.error_handling.errros.ValidationError;
 import ar.edu.itba.iot.carne_iot.server.error_handling.helpers.ValidationExceptionThrower;
 import ar.edu.itba.iot.carne_iot.server.error_handling.helpers.ValidationHelper;
 import ar.edu.itba.iot.carne_iot.server.exceptions.ValidationException;
+import ar.edu.itba.iot.carne_iot.server.models.constants.CacheRegionConstants;
 import ar.edu.itba.iot.carne_iot.server.models.constants.ValidationConstants;
 import ar.edu.itba.iot.carne_iot.server.models.constants.ValidationErrorConstants;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 import javax.persistence.*;
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.LinkedList;
 import java.util.List;
@@ -26,13 +30,15 @@ import java.util.stream.Stream;
         @Index(name = "users_email_unique_index", columnList = "email", unique = true),
 
 })
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegionConstants.USERS)
 public class User implements ValidationExceptionThrower {
 
     /**
      * The user's id.
      */
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_generator")
+    @SequenceGenerator(name = "users_id_generator", sequenceName = "users_id_seq", allocationSize = 50)
     @Column(name = "id")
     private long id;
 
@@ -70,11 +76,18 @@ public class User implements ValidationExceptionThrower {
      * The user's authorities.
      */
     @ElementCollection(fetch = FetchType.LAZY)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = CacheRegionConstants.USER_ROLES)
     @CollectionTable(name = "user_roles", joinColumns = @JoinColumn(name = "user_id"))
     @Column(name = "role", nullable = false)
     @Enumerated(EnumType.STRING)
     private Set<Role> roles;
 
+    /**
+     * The moment in which this user was last modified.
+     */
+    @Column(name = "last_modified", nullable = false)
+    private Instant lastModified;
+
 
     /* package */ User() {
         // For Hibernate.
@@ -167,6 +180,13 @@ public class User implements ValidationExceptionThrower {
         return this.roles;
     }
 
+    /**
+     * @return The moment in which this user was last modified.
+     */
+    public Instant getLastModified() {
+        return lastModified;
+    }
+
     /**
      * Changes this user's username.
      *
@@ -209,7 +229,9 @@ public class User implements ValidationExceptionThrower {
         validateRole(role, errorList);
         throwValidationException(errorList);
 
-        this.roles.add(role);
+        if (this.roles.add(role)) {
+            this.lastModified = Instant.now(); // Changes in the roles collection do not trigger the update callback
+        }
     }
 
     /**
@@ -223,7 +245,19 @@ public class User implements ValidationExceptionThrower {
         validateRole(role, errorList);
         throwValidationException(errorList);
 
-        this.roles.remove(role);
+        if (this.roles.remove(role)) {
+            this.lastModified = Instant.now(); // Changes in the roles collection do not trigger the update callback
+        }
+    }
+
+    /**
+     * Sets the moment in which this user was last modified.
+     * Executed each time this user is persisted or updated.
+     */
+    @PrePersist
+    @PreUpdate
+    private void touch() {
+        this.lastModified = Instant.now();
     }
 
 
@@ -0,0 +1,27 @@
+package ar.edu.itba.iot.carne_iot.server.models.constants;
+
+/**
+ * Names of the second-level cache regions holding entities and collections.
+ */
+public class CacheRegionConstants {
+
+    /**
+     * Region holding {@link ar.edu.itba.iot.carne_iot.server.models.User}s.
+     */
+    public final static String USERS = "users";
+
+    /**
+     * Region holding the roles of each {@link ar.edu.itba.iot.carne_iot.server.models.User}.
+     */
+    public final static String USER_ROLES = "user_roles";
+
+    /**
+     * Region holding {@link ar.edu.itba.iot.carne_iot.server.models.Device}s.
+     */
+    public final static String DEVICES = "devices";
+
+    /**
+     * Region holding {@link ar.edu.itba.iot.carne_iot.server.models.FoodPreference}s.
+     */
+    public final static String FOOD_PREFERENCES = "food_preferences";
+}
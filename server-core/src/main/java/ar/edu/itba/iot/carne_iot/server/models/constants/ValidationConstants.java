@@ -28,6 +28,10 @@ public class ValidationConstants {
      */
     public static final int MINIMUM_AGE = 13;
     public final static BigDecimal MIN_TEMPERATURE = new BigDecimal(MIN_TEMPERATURE_STRING);
+    /**
+     * The minimum temperature, in hundredths of degree.
+     */
+    public final static int MIN_TEMPERATURE_CENTI_DEGREES = MIN_TEMPERATURE.movePointRight(2).intValueExact();
     public final static int NICKNAME_MIN_LENGTH = 1;
     public final static int PREFERENCE_NAME_MIN_LENGTH = 1;
 
@@ -40,6 +44,10 @@ public class ValidationConstants {
     public final static int USERNAME_MAX_LENGTH = 64;
     public final static int EMAIL_MAX_LENGTH = 254;
     public final static BigDecimal MAX_TEMPERATURE = new BigDecimal(MAX_TEMPERATURE_STRING);
+    /**
+     * The maximum temperature, in hundredths of degree.
+     */
+    public final static int MAX_TEMPERATURE_CENTI_DEGREES = MAX_TEMPERATURE.movePointRight(2).intValueExact();
     public final static int NICKNAME_MAX_LENGTH = 256;
     public final static int PREFERENCE_NAME_MAX_LENGTH = 256;
 
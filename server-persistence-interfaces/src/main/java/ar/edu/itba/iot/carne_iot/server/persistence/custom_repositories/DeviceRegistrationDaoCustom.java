@@ -0,0 +1,33 @@
+package ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.DeviceRegistration;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Defines behaviour for the custom part of the DAO in charge of managing {@link DeviceRegistration}s data
+ * (i.e access to the log of registration changes, which is filled by the database each time a registration
+ * is created, modified or deleted).
+ */
+public interface DeviceRegistrationDaoCustom {
+
+    /**
+     * Retrieves, in order, the logged changes of {@link DeviceRegistration}s with a change number greater than
+     * the given {@code sequence} (i.e each element contains the change number, and the id of the {@link Device}
+     * whose registration changed, in that order).
+     *
+     * @param sequence The change number after which changes are retrieved.
+     * @return A {@link List} with the data of the said changes.
+     */
+    List<Object[]> findChangesAfter(long sequence);
+
+    /**
+     * Removes the logged changes of {@link DeviceRegistration}s performed before the given {@code moment}.
+     *
+     * @param moment The moment before which changes are removed.
+     * @return The amount of removed changes.
+     */
+    int deleteChangesBefore(Instant moment);
+}
@@ -1,17 +1,22 @@
 package ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.repository.NoRepositoryBean;
 
 import java.io.Serializable;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Defines Behaviour for an Extended {@link JpaRepository}, which also extends {@link JpaSpecificationExecutor}
  * in order to perform queries using {@link Specification}.
- * It also adds a method to get an {@link Optional} of an entity by its id, and by a given {@link Specification}.
+ * It also adds a method to get an {@link Optional} of an entity by its id, and by a given {@link Specification},
+ * a method to get a {@link Slice} of entities (i.e without count query),
+ * and a method to query entities using keyset pagination (i.e without offsets nor count queries).
  */
 @NoRepositoryBean
 public interface ExtendedJpaRepository<T, ID extends Serializable>
@@ -39,4 +44,31 @@ public interface ExtendedJpaRepository<T, ID extends Serializable>
     default Optional<T> findBySpec(Specification<T> spec) {
         return Optional.ofNullable(this.findOne(spec));
     }
+
+    /**
+     * Retrieves a {@link Slice} of entities matching the given {@link Specification}.
+     * As opposed to {@link #findAll(Specification, Pageable)}, no count query is executed
+     * (one more entity than the page size is requested in order to know if there is a next slice).
+     *
+     * @param spec     The {@link Specification} that the resulting entities must match
+     *                 (can be {@code null} to match all entities).
+     * @param pageable The {@link Pageable} object containing pagination stuff.
+     * @return The resulting {@link Slice}.
+     * @throws IllegalArgumentException If the {@code pageable} is {@code null}.
+     */
+    Slice<T> findAllSliced(Specification<T> spec, Pageable pageable) throws IllegalArgumentException;
+
+    /**
+     * Retrieves the entities matching the given {@link Specification} whose id is greater than the given
+     * {@code afterId}, sorted by id (i.e keyset pagination, so the cost of a page does not depend on how deep it is).
+     * No count query is executed.
+     *
+     * @param spec    The {@link Specification} that the resulting entities must match
+     *                (can be {@code null} to match all entities).
+     * @param afterId The id of the last entity of the previous page, or {@code null} to get the first page.
+     * @param limit   The max. amount of entities to be returned (must be positive).
+     * @return A {@link List} with the resulting entities.
+     * @throws IllegalArgumentException If the {@code limit} is not positive.
+     */
+    List<T> findAfter(Specification<T> spec, ID afterId, int limit) throws IllegalArgumentException;
 }
@@ -0,0 +1,59 @@
+package ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories;
+
+import ar.edu.itba.iot.carne_iot.server.models.Session;
+import ar.edu.itba.iot.carne_iot.server.models.User;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Defines behaviour for the custom part of the DAO in charge of managing {@link Session}s data
+ * (i.e statements that can not be expressed with query methods without affecting the second-level cache,
+ * and access to the log of valid sessions deleted together with their {@link User},
+ * which is filled by the database).
+ */
+public interface SessionDaoCustom {
+
+    /**
+     * Creates a valid {@link Session} belonging to the {@link User} with the given {@code ownerId},
+     * and whose session id is the given {@code jti}, unless the {@link User} already has a {@link Session}
+     * with the said {@code jti} (i.e the unique index is used to detect it, instead of checking it beforehand).
+     *
+     * @param ownerId The id of the {@link User} owning the {@link Session}.
+     * @param jti     The unique identifier for the {@link Session}.
+     * @return The amount of created {@link Session}s (i.e 0 if the {@code jti} is already in use).
+     */
+    int createIfAbsent(long ownerId, long jti);
+
+    /**
+     * Revokes (i.e blacklists) the valid {@link Session} belonging to the {@link User} with the given
+     * {@code ownerId}, and whose session id is the given {@code jti}, giving it the next revocation number
+     * (and setting the actual moment as its revocation moment).
+     *
+     * @param ownerId The id of the {@link User} owning the {@link Session}.
+     * @param jti     The unique identifier for the {@link Session}.
+     * @return The amount of revoked {@link Session}s (i.e 0 if it does not exist or if it was already revoked).
+     */
+    int revoke(long ownerId, long jti);
+
+    /**
+     * Retrieves, in order, the data of the {@link Session}s revoked with a revocation number greater than the
+     * given {@code sequence}, and at or after the given {@code revokedSince} moment, without loading the entities
+     * (i.e each element contains the {@link User} id, the {@code jti}, the revocation number,
+     * and the revocation moment, in that order). Valid sessions deleted together with their {@link User}
+     * are included as revoked ones, with the moment of their deletion as their revocation moment.
+     *
+     * @param sequence     The revocation number after which revocations are retrieved.
+     * @param revokedSince The moment since which revocations are retrieved.
+     * @return A {@link List} with the data of the said revocations.
+     */
+    List<Object[]> findRevocationsDataAfter(long sequence, Instant revokedSince);
+
+    /**
+     * Removes the logged deletions of valid {@link Session}s performed before the given {@code moment}.
+     *
+     * @param moment The moment before which deletions are removed.
+     * @return The amount of removed deletions.
+     */
+    int deleteDeletedSessionsBefore(Instant moment);
+}
@@ -2,9 +2,92 @@ package ar.edu.itba.iot.carne_iot.server.persistence.daos;
 
 import ar.edu.itba.iot.carne_iot.server.models.Device;
 import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.ExtendedJpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import javax.persistence.QueryHint;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 
 /**
  * Defines behaviour of the DAO in charge of managing {@link Device}s data.
  */
 public interface DeviceDao extends ExtendedJpaRepository<Device, Long> {
+
+    /**
+     * Retrieves the {@link Device} with the given {@code id} from the database, even if it is in the second-level
+     * cache (which is refreshed with the retrieved state).
+     * Must be used when the actual temperature of the {@link Device} is needed (e.g to return it, or to change it),
+     * as cached devices are not invalidated when another node changes their temperature.
+     *
+     * @param id The {@link Device} id.
+     * @return A <b>nullable</b> {@link Optional} of {@link Device} containing the {@link Device}
+     * if it exists, or {@code null} otherwise.
+     */
+    @Query("SELECT d FROM Device d WHERE d.id = ?1")
+    @QueryHints(@QueryHint(name = "javax.persistence.cache.storeMode", value = "REFRESH"))
+    Optional<Device> findActualById(long id);
+
+    /**
+     * Retrieves the {@link Device}s with the given {@code ids} from the database, even if they are in the
+     * second-level cache (as in {@link #findActualById(long)}).
+     *
+     * @param ids The {@link Device}s ids (must not be empty).
+     * @return A {@link List} with the existing {@link Device}s.
+     */
+    @Query("SELECT d FROM Device d WHERE d.id IN ?1")
+    @QueryHints(@QueryHint(name = "javax.persistence.cache.storeMode", value = "REFRESH"))
+    List<Device> findAllActualById(Collection<Long> ids);
+
+    /**
+     * Retrieves the moment in which the {@link Device} with the given {@code id} was last modified,
+     * without loading the entity.
+     *
+     * @param id The {@link Device} id.
+     * @return A <b>nullable</b> {@link Optional} of {@link Instant} containing the said moment
+     * if the {@link Device} exists, or {@code null} otherwise.
+     */
+    @Query("SELECT d.lastModified FROM Device d WHERE d.id = ?1")
+    Optional<Instant> findLastModifiedById(long id);
+
+    /**
+     * Retrieves a {@link Slice} of {@link Device}s, together with the id and username of the
+     * {@link ar.edu.itba.iot.carne_iot.server.models.User} owning them (if registered), in one query
+     * (i.e owners are not loaded, and no count query is executed).
+     *
+     * @param pageable The {@link Pageable} object containing pagination stuff.
+     * @return A {@link Slice} of arrays containing the {@link Device} in the first position,
+     * and the id and username of its owner in the second and third positions (both {@code null} if not registered).
+     */
+    @Query("SELECT d, o.id, o.username FROM Device d " +
+            "LEFT JOIN d.registrations r ON r.active = true LEFT JOIN r.owner o")
+    Slice<Object[]> findAllWithOwnerData(Pageable pageable);
+
+    /**
+     * Retrieves the first {@link Device}s (sorted by id), together with the id and username of the
+     * {@link ar.edu.itba.iot.carne_iot.server.models.User} owning them (if registered), in one query.
+     *
+     * @param pageable The {@link Pageable} limiting the amount of {@link Device}s (must not be sorted).
+     * @return A {@link List} of arrays, as in {@link #findAllWithOwnerData(Pageable)}.
+     */
+    @Query("SELECT d, o.id, o.username FROM Device d " +
+            "LEFT JOIN d.registrations r ON r.active = true LEFT JOIN r.owner o ORDER BY d.id")
+    List<Object[]> findFirstWithOwnerData(Pageable pageable);
+
+    /**
+     * Retrieves the {@link Device}s whose id is greater than the given {@code afterId} (sorted by id),
+     * together with the id and username of the {@link ar.edu.itba.iot.carne_iot.server.models.User} owning them
+     * (if registered), in one query (i.e keyset pagination, so deep pages cost the same as the first one).
+     *
+     * @param afterId  The id of the last {@link Device} of the previous page.
+     * @param pageable The {@link Pageable} limiting the amount of {@link Device}s (must not be sorted).
+     * @return A {@link List} of arrays, as in {@link #findAllWithOwnerData(Pageable)}.
+     */
+    @Query("SELECT d, o.id, o.username FROM Device d " +
+            "LEFT JOIN d.registrations r ON r.active = true LEFT JOIN r.owner o WHERE d.id > ?1 ORDER BY d.id")
+    List<Object[]> findWithOwnerDataAfter(long afterId, Pageable pageable);
 }
@@ -3,14 +3,19 @@ package ar.edu.itba.iot.carne_iot.server.persistence.daos;
 import ar.edu.itba.iot.carne_iot.server.models.Device;
 import ar.edu.itba.iot.carne_iot.server.models.DeviceRegistration;
 import ar.edu.itba.iot.carne_iot.server.models.User;
+import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.DeviceRegistrationDaoCustom;
 import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.ExtendedJpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 /**
  * Defines behaviour of the DAO in charge of managing {@link DeviceRegistration}s data.
  */
-public interface DeviceRegistrationDao extends ExtendedJpaRepository<DeviceRegistration, Long> {
+public interface DeviceRegistrationDao
+        extends ExtendedJpaRepository<DeviceRegistration, Long>, DeviceRegistrationDaoCustom {
 
     /**
      * Retrieves the active {@link DeviceRegistration} with the given {@link Device}.
@@ -59,6 +64,65 @@ public interface DeviceRegistrationDao extends ExtendedJpaRepository<DeviceRegis
      */
     boolean existsByDeviceIdAndOwnerUsernameAndActiveTrue(long deviceId, String username);
 
+    /**
+     * Retrieves the active {@link DeviceRegistration} for the {@link Device} with the given {@code deviceId}.
+     *
+     * @param deviceId The id of the registered {@link Device}.
+     * @return A <b>nullable</b> {@link Optional} of {@link DeviceRegistration}
+     * containing the {@link DeviceRegistration} for the given {@code deviceId} if it exists,
+     * or {@code null} otherwise.
+     */
+    Optional<DeviceRegistration> findByDeviceIdAndActiveTrue(long deviceId);
+
+    /**
+     * Retrieves the data of all active {@link DeviceRegistration}s, without loading the entities
+     * (i.e each element contains the {@link Device} id, the owner id, and the nickname, in that order).
+     *
+     * @return A {@link List} with the data of all the active {@link DeviceRegistration}s.
+     */
+    @Query("SELECT r.device.id, r.owner.id, r.nickname FROM DeviceRegistration r WHERE r.active = true")
+    List<Object[]> findActiveRegistrationsData();
+
+    /**
+     * Retrieves the data of the active {@link DeviceRegistration}s of the {@link Device}s with the given
+     * {@code deviceIds}, without loading the entities
+     * (i.e each element contains the {@link Device} id, the owner id, and the nickname, in that order).
+     *
+     * @param deviceIds The ids of the registered {@link Device}s.
+     * @return A {@link List} with the data of the said {@link DeviceRegistration}s.
+     */
+    @Query("SELECT r.device.id, r.owner.id, r.nickname FROM DeviceRegistration r " +
+            "WHERE r.active = true AND r.device.id IN ?1")
+    List<Object[]> findActiveRegistrationsData(Collection<Long> deviceIds);
+
+    /**
+     * Retrieves the moments in which the registrations of the {@link Device} with the given {@code deviceId}
+     * (active or not) and their owners were last modified, without loading the entities
+     * (i.e the only element contains the latest modification of a registration,
+     * and the latest modification of an owner, in that order, which are {@code null} if there are no registrations).
+     *
+     * @param deviceId The id of the registered {@link Device}.
+     * @return A {@link List} with the said data.
+     */
+    @Query("SELECT MAX(r.lastModified), MAX(o.lastModified) FROM DeviceRegistration r JOIN r.owner o " +
+            "WHERE r.device.id = ?1")
+    List<Object[]> findRegistrationsLastModifiedData(long deviceId);
+
+    /**
+     * Retrieves the moments in which the active {@link DeviceRegistration} of the {@link Device}
+     * with the given {@code deviceId} to the {@link User} with the given {@code ownerId}, and the {@link Device},
+     * were last modified, without loading the entities
+     * (i.e each element contains the {@link DeviceRegistration} moment and the {@link Device} moment,
+     * in that order, being empty if there is no such registration).
+     *
+     * @param deviceId The id of the registered {@link Device}.
+     * @param ownerId  The id of the {@link User} owning the {@link Device}.
+     * @return A {@link List} with the said data.
+     */
+    @Query("SELECT r.lastModified, d.lastModified FROM DeviceRegistration r JOIN r.device d " +
+            "WHERE d.id = ?1 AND r.owner.id = ?2 AND r.active = true")
+    List<Object[]> findActiveRegistrationLastModifiedData(long deviceId, long ownerId);
+
     /**
      * Indicates if a given {@link User} has a {@link Device} with a given {@code nickname}.
      *
@@ -3,9 +3,13 @@ package ar.edu.itba.iot.carne_iot.server.persistence.daos;
 import ar.edu.itba.iot.carne_iot.server.models.FoodPreference;
 import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.ExtendedJpaRepository;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 
+import javax.persistence.QueryHint;
+import java.time.Instant;
 import java.util.Optional;
 
 /**
@@ -14,13 +18,14 @@ import java.util.Optional;
 public interface FoodPreferenceDao extends ExtendedJpaRepository<FoodPreference, Long> {
 
     /**
-     * Retrieves a {@link Page} of {@link FoodPreference}s belonging to the given {@code user},
-     * according to the given {@code pageable}.
+     * Retrieves a {@link Slice} of {@link FoodPreference}s belonging to the given {@code user},
+     * according to the given {@code pageable} (i.e no count query is executed).
      *
-     * @param user The {@link User} owning the resultant {@link FoodPreference}s.
-     * @return The resultant {@link Page}.
+     * @param user     The {@link User} owning the resultant {@link FoodPreference}s.
+     * @param pageable The {@link Pageable} used to set page stuff.
+     * @return The resultant {@link Slice}.
      */
-    Page<FoodPreference> findByOwner(User user, Pageable pageable);
+    Slice<FoodPreference> findByOwner(User user, Pageable pageable);
 
     /**
      * Retrieves the {@link FoodPreference} with the given {@code name}, belonging to the given {@link User}.
@@ -30,7 +35,9 @@ public interface FoodPreferenceDao extends ExtendedJpaRepository<FoodPreference,
      * @return A <b>nullable</b> {@link Optional} of {@link FoodPreference}
      * containing the {@link FoodPreference} with the given {@code name}, belonging to the given {@link User},
      * if it exists, or {@code null} otherwise.
+     * @implNote The result is kept in the query cache (it is invalidated when food preferences are modified).
      */
+    @QueryHints(@QueryHint(name = "org.hibernate.cacheable", value = "true"))
     Optional<FoodPreference> findByNameAndOwner(String name, User user);
 
     /**
@@ -41,4 +48,16 @@ public interface FoodPreferenceDao extends ExtendedJpaRepository<FoodPreference,
      * @return {@code true} if the {@link User} has the preference, or {@code false} otherwise.
      */
     boolean existsByNameAndOwner(String name, User user);
+
+    /**
+     * Retrieves the moment in which the {@link FoodPreference} with the given {@code name},
+     * belonging to the {@link User} with the given {@code ownerId}, was last modified, without loading the entity.
+     *
+     * @param name    The {@link FoodPreference} name.
+     * @param ownerId The id of the {@link User} owning the preference.
+     * @return A <b>nullable</b> {@link Optional} of {@link Instant} containing the said moment
+     * if the {@link FoodPreference} exists, or {@code null} otherwise.
+     */
+    @Query("SELECT p.lastModified FROM FoodPreference p WHERE p.name = ?1 AND p.owner.id = ?2")
+    Optional<Instant> findLastModifiedByNameAndOwnerId(String name, long ownerId);
 }
@@ -3,9 +3,12 @@ package ar.edu.itba.iot.carne_iot.server.persistence.daos;
 import ar.edu.itba.iot.carne_iot.server.models.Session;
 import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.ExtendedJpaRepository;
-import org.springframework.data.domain.Page;
+import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.SessionDaoCustom;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.Query;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -13,17 +16,17 @@ import java.util.Optional;
  * Note that a {@link Session} has an {@code id}, but it also contains a {@code jti}.
  * Two {@link Session}s can have the same {@code jti} as long as they don't belong to the same {@link User}.
  */
-public interface SessionDao extends ExtendedJpaRepository<Session, Long> {
+public interface SessionDao extends ExtendedJpaRepository<Session, Long>, SessionDaoCustom {
 
     /**
-     * Retrieves a {@link Page} of {@link Session}s belonging to the given {@code owner},
-     * according to the given {@code pageable}.
+     * Retrieves a {@link Slice} of {@link Session}s belonging to the given {@code owner},
+     * according to the given {@code pageable} (i.e no count query is executed).
      *
      * @param owner    The {@link User} owning the resultant {@link Session}s.
      * @param pageable The {@link Pageable} used to set page stuff.
-     * @return The resultant {@link Page}.
+     * @return The resultant {@link Slice}.
      */
-    Page<Session> findByOwner(User owner, Pageable pageable);
+    Slice<Session> findByOwner(User owner, Pageable pageable);
 
     /**
      * Retrieves a single {@link Session} that belongs to the {@link User} with the given {@code ownerId},
@@ -38,12 +41,12 @@ public interface SessionDao extends ExtendedJpaRepository<Session, Long> {
     Optional<Session> findByOwnerIdAndJti(long ownerId, long jti);
 
     /**
-     * Indicates whether a {@link Session} exists, belonging to the given {@link User},
-     * and with the given {@code jti}
+     * Retrieves the {@code jti}s of the valid {@link Session}s belonging to the {@link User} with the given
+     * {@code ownerId}.
      *
-     * @param owner The id of the {@link User} owning the {@link Session}.
-     * @param jti   The unique identifier for the {@link Session}.
-     * @return {@code true} if the {@link Session} exists, or {@code false} otherwise.
+     * @param ownerId The id of the {@link User} owning the {@link Session}s.
+     * @return A {@link List} with the said {@code jti}s.
      */
-    boolean existsByOwnerAndJti(User owner, long jti);
+    @Query("SELECT s.jti FROM Session s WHERE s.owner.id = ?1 AND s.valid = TRUE")
+    List<Long> findValidJtisByOwnerId(long ownerId);
 }
@@ -0,0 +1,47 @@
+package ar.edu.itba.iot.carne_iot.server.persistence.daos;
+
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate.Resolution;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Defines behaviour of the DAO in charge of managing {@link TemperatureAggregate}s data (i.e readings rollups).
+ */
+public interface TemperatureAggregateDao {
+
+    /**
+     * Merges the given partial {@link TemperatureAggregate}s (i.e those built from readings not yet aggregated)
+     * into the stored ones, in a batch. Stored aggregates are created if they do not exist.
+     *
+     * @param aggregates The {@link TemperatureAggregate}s to be merged.
+     */
+    void mergeAll(Collection<TemperatureAggregate> aggregates);
+
+    /**
+     * Recomputes from the readings history all the {@link TemperatureAggregate}s whose bucket starts between the
+     * given moments, replacing the stored ones (e.g after readings were backfilled).
+     * Moments must be aligned to the largest {@link Resolution}, so no bucket is partially recomputed.
+     *
+     * @param from The moment from which aggregates are recomputed (inclusive).
+     * @param to   The moment until which aggregates are recomputed (exclusive).
+     * @return The amount of recomputed {@link TemperatureAggregate}s.
+     */
+    int recompute(Instant from, Instant to);
+
+    /**
+     * Retrieves, in chronological order, the {@link TemperatureAggregate}s with the given {@link Resolution}
+     * of the {@link ar.edu.itba.iot.carne_iot.server.models.Device} with the given {@code deviceId}
+     * whose bucket starts between the given moments, passing them one by one to the given {@code consumer}.
+     *
+     * @param deviceId   The id of the {@link ar.edu.itba.iot.carne_iot.server.models.Device}.
+     * @param resolution The {@link Resolution} of the aggregates.
+     * @param from       The moment from which aggregates are retrieved (inclusive).
+     * @param to         The moment until which aggregates are retrieved (exclusive).
+     * @param consumer   The {@link Consumer} to which each {@link TemperatureAggregate} is passed.
+     */
+    void forEachBetween(long deviceId, Resolution resolution, Instant from, Instant to,
+                        Consumer<TemperatureAggregate> consumer);
+}
@@ -0,0 +1,34 @@
+package ar.edu.itba.iot.carne_iot.server.persistence.daos;
+
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+
+import java.time.Instant;
+import java.util.Collection;
+import java.util.function.Consumer;
+
+/**
+ * Defines behaviour of the DAO in charge of managing {@link TemperatureReading}s data.
+ * As readings are append-only time-series data, they are not managed as entities.
+ */
+public interface TemperatureReadingDao {
+
+    /**
+     * Appends the given {@link TemperatureReading}s, in a batch.
+     *
+     * @param readings The {@link TemperatureReading}s to be appended.
+     */
+    void appendAll(Collection<TemperatureReading> readings);
+
+    /**
+     * Retrieves, in chronological order, the {@link TemperatureReading}s of the
+     * {@link ar.edu.itba.iot.carne_iot.server.models.Device} with the given {@code deviceId}
+     * measured between the given moments, passing them one by one to the given {@code consumer}
+     * (i.e they are not loaded in memory at once).
+     *
+     * @param deviceId The id of the {@link ar.edu.itba.iot.carne_iot.server.models.Device}.
+     * @param from     The moment from which readings are retrieved (inclusive).
+     * @param to       The moment until which readings are retrieved (exclusive).
+     * @param consumer The {@link Consumer} to which each {@link TemperatureReading} is passed.
+     */
+    void forEachBetween(long deviceId, Instant from, Instant to, Consumer<TemperatureReading> consumer);
+}
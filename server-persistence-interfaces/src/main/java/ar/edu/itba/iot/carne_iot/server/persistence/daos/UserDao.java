@@ -2,7 +2,9 @@ package ar.edu.itba.iot.carne_iot.server.persistence.daos;
 
 import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.ExtendedJpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
+import java.time.Instant;
 import java.util.Optional;
 
 /**
@@ -43,4 +45,15 @@ public interface UserDao extends ExtendedJpaRepository<User, Long> {
      * @return {@code true} if a {@link User} exists with the given {@code email}, or {@code false} otherwise.
      */
     boolean existsByEmail(String email);
+
+    /**
+     * Retrieves the moment in which the {@link User} with the given {@code id} was last modified,
+     * without loading the entity.
+     *
+     * @param id The {@link User} id.
+     * @return A <b>nullable</b> {@link Optional} of {@link Instant} containing the said moment
+     * if the {@link User} exists, or {@code null} otherwise.
+     */
+    @Query("SELECT u.lastModified FROM User u WHERE u.id = ?1")
+    Optional<Instant> findLastModifiedById(long id);
 }
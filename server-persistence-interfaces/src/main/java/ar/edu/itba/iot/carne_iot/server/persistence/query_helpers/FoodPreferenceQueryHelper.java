@@ -1,7 +1,10 @@
 package ar.edu.itba.iot.carne_iot.server.persistence.query_helpers;
 
 import ar.edu.itba.iot.carne_iot.server.exceptions.InvalidPropertiesException;
+import ar.edu.itba.iot.carne_iot.server.models.FoodPreference;
+import ar.edu.itba.iot.carne_iot.server.models.User;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 
 /**
  * Defines behaviour of an object in charge of helping the task of querying
@@ -19,4 +22,14 @@ public interface FoodPreferenceQueryHelper {
      *                                    with invalid properties.
      */
     void validatePageable(Pageable pageable) throws InvalidPropertiesException;
+
+    /**
+     * Creates a new {@link Specification} of {@link FoodPreference}
+     * used to query those belonging to the given {@code owner} (e.g to list them using keyset pagination).
+     *
+     * @param owner The {@link User} owning the {@link FoodPreference}s.
+     * @return The {@link Specification} of {@link FoodPreference}.
+     * @throws IllegalArgumentException if the {@code owner} is {@code null}.
+     */
+    Specification<FoodPreference> createOwnerSpecification(User owner) throws IllegalArgumentException;
 }
@@ -4,6 +4,7 @@ import ar.edu.itba.iot.carne_iot.server.exceptions.InvalidPropertiesException;
 import ar.edu.itba.iot.carne_iot.server.models.Session;
 import ar.edu.itba.iot.carne_iot.server.models.User;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 
 /**
  * Defines behaviour of an object in charge of helping the task of querying {@link User}s
@@ -19,4 +20,14 @@ public interface SessionQueryHelper {
      *                                    with invalid properties.
      */
     void validatePageable(Pageable pageable) throws InvalidPropertiesException;
+
+    /**
+     * Creates a new {@link Specification} of {@link Session}
+     * used to query those belonging to the given {@code owner} (e.g to list them using keyset pagination).
+     *
+     * @param owner The {@link User} owning the {@link Session}s.
+     * @return The {@link Specification} of {@link Session}.
+     * @throws IllegalArgumentException if the {@code owner} is {@code null}.
+     */
+    Specification<Session> createOwnerSpecification(User owner) throws IllegalArgumentException;
 }
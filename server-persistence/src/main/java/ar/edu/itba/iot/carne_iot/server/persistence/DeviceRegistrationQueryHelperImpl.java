@@ -41,6 +41,11 @@ public class DeviceRegistrationQueryHelperImpl implements DeviceRegistrationQuer
                     .getDeclaredSingularAttribute("active", Boolean.class));
             Predicate activePredicate = cb.equal(activePath, true);
 
+            // Fetch devices together with their registrations (i.e one query per listing), unless counting
+            if (!Long.class.equals(query.getResultType())) {
+                root.fetch(root.getModel().getDeclaredSingularAttribute("device", Device.class));
+            }
+
             return cb.and(ownerPredicate, activePredicate);
         };
     }
@@ -0,0 +1,92 @@
+package ar.edu.itba.iot.carne_iot.server.persistence;
+
+import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.ExtendedJpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+import org.springframework.util.Assert;
+
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Path;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+import java.io.Serializable;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Concrete implementation of {@link ExtendedJpaRepository}, used as base class of all the repositories.
+ *
+ * @param <T>  The type of entity.
+ * @param <ID> The type of the entity id.
+ */
+/* package */ class ExtendedJpaRepositoryImpl<T, ID extends Serializable>
+        extends SimpleJpaRepository<T, ID> implements ExtendedJpaRepository<T, ID> {
+
+    /**
+     * Information of the managed entity (used to get its id attribute).
+     */
+    private final JpaEntityInformation<T, ?> entityInformation;
+
+    /**
+     * The {@link EntityManager} used to create the keyset queries.
+     */
+    private final EntityManager entityManager;
+
+
+    public ExtendedJpaRepositoryImpl(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+        this.entityInformation = entityInformation;
+        this.entityManager = entityManager;
+    }
+
+
+    @Override
+    public Slice<T> findAllSliced(Specification<T> spec, Pageable pageable) throws IllegalArgumentException {
+        Assert.notNull(pageable, "The pageable must not be null");
+
+        final TypedQuery<T> query = getQuery(spec, pageable.getSort());
+        query.setFirstResult(pageable.getOffset());
+        query.setMaxResults(pageable.getPageSize() + 1); // One more to know whether there is a next slice
+
+        final List<T> content = query.getResultList();
+        final boolean hasNext = content.size() > pageable.getPageSize();
+
+        return new SliceImpl<>(hasNext ? content.subList(0, pageable.getPageSize()) : content, pageable, hasNext);
+    }
+
+    @Override
+    public List<T> findAfter(Specification<T> spec, ID afterId, int limit) throws IllegalArgumentException {
+        Assert.isTrue(limit > 0, "The limit must be positive");
+
+        final CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        final CriteriaQuery<T> query = cb.createQuery(getDomainClass());
+        final Root<T> root = query.from(getDomainClass());
+        final Path<Comparable<Object>> idPath = root.get(entityInformation.getIdAttribute().getName());
+
+        final List<Predicate> predicates = new LinkedList<>();
+        if (spec != null) {
+            final Predicate matching = spec.toPredicate(root, query, cb);
+            if (matching != null) {
+                predicates.add(matching);
+            }
+        }
+        if (afterId != null) {
+            @SuppressWarnings("unchecked") final Comparable<Object> after = (Comparable<Object>) afterId;
+            predicates.add(cb.greaterThan(idPath, after));
+        }
+        query.select(root)
+                .where(predicates.toArray(new Predicate[predicates.size()]))
+                .orderBy(cb.asc(idPath));
+
+        return entityManager.createQuery(query)
+                .setMaxResults(limit)
+                .getResultList();
+    }
+}
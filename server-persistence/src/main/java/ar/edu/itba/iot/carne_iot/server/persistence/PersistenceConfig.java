@@ -1,16 +1,110 @@
 package ar.edu.itba.iot.carne_iot.server.persistence;
 
+import ar.edu.itba.iot.carne_iot.server.models.constants.CacheRegionConstants;
+import net.sf.ehcache.CacheManager;
+import net.sf.ehcache.config.CacheConfiguration;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.data.jpa.EntityManagerFactoryDependsOnPostProcessor;
 import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 /**
  * Configuration class to set up persistence layer.
+ * <p>
+ * It also sets up the regions of the Hibernate second-level cache (i.e users, their roles, devices,
+ * food preferences, and cached queries), each of them with its own size and time-to-live.
  */
 @Configuration
 @EnableJpaRepositories(basePackages = {
         "ar.edu.itba.iot.carne_iot.server.persistence.daos",
-})
+}, repositoryBaseClass = ExtendedJpaRepositoryImpl.class)
 @EntityScan("ar.edu.itba.iot.carne_iot.server.models")
 public class PersistenceConfig {
+
+    /**
+     * Region of the second-level cache holding the results of cacheable queries.
+     */
+    private static final String QUERIES_REGION = "org.hibernate.cache.internal.StandardQueryCache";
+
+    /**
+     * Region of the second-level cache holding the moment in which each table was last modified
+     * (used to invalidate cached queries, so it must never expire nor evict entries).
+     */
+    private static final String UPDATE_TIMESTAMPS_REGION = "org.hibernate.cache.spi.UpdateTimestampsCache";
+
+    /**
+     * Max. amount of entries in regions that are not explicitly configured.
+     */
+    private static final int DEFAULT_REGION_MAX_SIZE = 1000;
+
+    /**
+     * Name of the bean holding the second-level cache {@link CacheManager}.
+     */
+    private static final String SECOND_LEVEL_CACHE_MANAGER = "secondLevelCacheManager";
+
+
+    /**
+     * Creates the {@link CacheManager} used by Hibernate as second-level cache.
+     * It is registered as the singleton {@link CacheManager}, which is the one used by Hibernate's
+     * {@code SingletonEhCacheRegionFactory}.
+     *
+     * @param usersMaxSize           Max. amount of cached users (and of cached users roles).
+     * @param usersTtl               Time-to-live (in seconds) of cached users (and of cached users roles).
+     * @param devicesMaxSize         Max. amount of cached devices.
+     * @param devicesTtl             Time-to-live (in seconds) of cached devices.
+     * @param foodPreferencesMaxSize Max. amount of cached food preferences.
+     * @param foodPreferencesTtl     Time-to-live (in seconds) of cached food preferences.
+     * @param queriesMaxSize         Max. amount of cached query results.
+     * @param queriesTtl             Time-to-live (in seconds) of cached query results.
+     * @return The {@link CacheManager}.
+     */
+    @Bean(name = SECOND_LEVEL_CACHE_MANAGER)
+    public CacheManager secondLevelCacheManager(
+            @Value("${custom.persistence.cache.users.max-size:10000}") int usersMaxSize,
+            @Value("${custom.persistence.cache.users.ttl:600}") long usersTtl,
+            @Value("${custom.persistence.cache.devices.max-size:10000}") int devicesMaxSize,
+            @Value("${custom.persistence.cache.devices.ttl:60}") long devicesTtl,
+            @Value("${custom.persistence.cache.food-preferences.max-size:20000}") int foodPreferencesMaxSize,
+            @Value("${custom.persistence.cache.food-preferences.ttl:600}") long foodPreferencesTtl,
+            @Value("${custom.persistence.cache.queries.max-size:10000}") int queriesMaxSize,
+            @Value("${custom.persistence.cache.queries.ttl:300}") long queriesTtl) {
+        final net.sf.ehcache.config.Configuration configuration = new net.sf.ehcache.config.Configuration()
+                .name(SECOND_LEVEL_CACHE_MANAGER)
+                .updateCheck(false)
+                .defaultCache(new CacheConfiguration().maxElementsInMemory(DEFAULT_REGION_MAX_SIZE))
+                .cache(region(CacheRegionConstants.USERS, usersMaxSize, usersTtl))
+                .cache(region(CacheRegionConstants.USER_ROLES, usersMaxSize, usersTtl))
+                .cache(region(CacheRegionConstants.DEVICES, devicesMaxSize, devicesTtl))
+                .cache(region(CacheRegionConstants.FOOD_PREFERENCES, foodPreferencesMaxSize, foodPreferencesTtl))
+                .cache(region(QUERIES_REGION, queriesMaxSize, queriesTtl))
+                .cache(new CacheConfiguration(UPDATE_TIMESTAMPS_REGION, 0).eternal(true));
+        return CacheManager.create(configuration);
+    }
+
+    /**
+     * Creates the {@link CacheConfiguration} of a second-level cache region.
+     *
+     * @param name    The region name.
+     * @param maxSize Max. amount of entries in the region (least recently used ones are evicted).
+     * @param ttl     Time-to-live (in seconds) of the entries.
+     * @return The {@link CacheConfiguration}.
+     */
+    private static CacheConfiguration region(String name, int maxSize, long ttl) {
+        return new CacheConfiguration(name, maxSize).timeToLiveSeconds(ttl);
+    }
+
+
+    /**
+     * Makes the entity manager factory depend on the second-level cache {@link CacheManager},
+     * so it is created before Hibernate starts (i.e Hibernate uses it instead of creating a default one).
+     */
+    @Configuration
+    /* package */ static class SecondLevelCacheDependencyConfig extends EntityManagerFactoryDependsOnPostProcessor {
+
+        /* package */ SecondLevelCacheDependencyConfig() {
+            super(SECOND_LEVEL_CACHE_MANAGER);
+        }
+    }
 }
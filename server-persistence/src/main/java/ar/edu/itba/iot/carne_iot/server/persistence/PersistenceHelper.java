@@ -11,6 +11,11 @@ import javax.persistence.criteria.Predicate;
 import javax.persistence.criteria.Root;
 import javax.persistence.metamodel.EntityType;
 import java.lang.reflect.Field;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
 import java.util.*;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
@@ -20,6 +25,39 @@ import java.util.stream.StreamSupport;
  */
 /* package */ class PersistenceHelper {
 
+    /**
+     * The UTC {@link TimeZone}, in which moments without time zone are stored.
+     */
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+
+    /**
+     * Sets the given {@code instant} as the parameter with the given {@code index} of the given
+     * {@link PreparedStatement}, as a UTC timestamp (i.e regardless of the time zone of the host).
+     *
+     * @param ps      The {@link PreparedStatement}.
+     * @param index   The index of the parameter.
+     * @param instant The {@link Instant} to be set.
+     * @throws SQLException If the parameter could not be set.
+     */
+    /* package */
+    static void setUtcTimestamp(PreparedStatement ps, int index, Instant instant) throws SQLException {
+        // A new calendar is used each time, as calendars are not thread safe
+        ps.setTimestamp(index, Timestamp.from(instant), Calendar.getInstance(UTC));
+    }
+
+    /**
+     * Gets the value of the given {@code column} of the given {@link ResultSet}, stored as a UTC timestamp.
+     *
+     * @param rs     The {@link ResultSet}.
+     * @param column The name of the column.
+     * @return The {@link Instant} represented by the timestamp.
+     * @throws SQLException If the value could not be got.
+     */
+    /* package */
+    static Instant getUtcTimestamp(ResultSet rs, String column) throws SQLException {
+        return rs.getTimestamp(column, Calendar.getInstance(UTC)).toInstant();
+    }
+
     /**
      * Creates a {@link Predicate} representing a "like",
      * which matches the given {@code attributeName}
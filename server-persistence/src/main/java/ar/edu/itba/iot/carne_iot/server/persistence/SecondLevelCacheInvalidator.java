@@ -0,0 +1,235 @@
+package ar.edu.itba.iot.carne_iot.server.persistence;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.FoodPreference;
+import ar.edu.itba.iot.carne_iot.server.models.User;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Evicts from the second-level cache of this node the entities changed by other nodes,
+ * as each node has its own cache, which is only kept up to date with the changes performed through it.
+ * <p>
+ * Changes in cached entities are logged by the database with an increasing number,
+ * and the log is periodically polled for those with a change number greater than the last one seen
+ * (changes performed by this node are also evicted, which only costs loading them again).
+ * Cached entries still expire after their time-to-live, in case a change is missed.
+ * <p>
+ * Device temperatures are not logged, as they are written too often. Devices are read from the database
+ * when their actual temperature is needed (see
+ * {@link ar.edu.itba.iot.carne_iot.server.persistence.daos.DeviceDao#findActualById(long)}).
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=SecondLevelCacheInvalidator")
+/* package */ class SecondLevelCacheInvalidator {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(SecondLevelCacheInvalidator.class);
+
+    /**
+     * Amount of change numbers before the last one seen that are polled again,
+     * as numbers are taken before the changing transaction commits (i.e a smaller number can be committed later).
+     */
+    private static final long IN_FLIGHT_MARGIN = 1000;
+
+    /**
+     * Role of the collection holding the roles of each {@link User}.
+     */
+    private static final String USER_ROLES_COLLECTION = User.class.getName() + ".roles";
+
+    private static final String FIND_LAST_SEQUENCE_SQL = "SELECT coalesce(max(sequence), 0) FROM cached_entity_changes";
+
+    private static final String FIND_CHANGES_AFTER_SQL = "SELECT sequence, entity_type, entity_id " +
+            "FROM cached_entity_changes WHERE sequence > ? ORDER BY sequence";
+
+    private static final String DELETE_CHANGES_BEFORE_SQL = "DELETE FROM cached_entity_changes " +
+            "WHERE changed_at < now() - ? * INTERVAL '1 millisecond'";
+
+    /**
+     * The {@link JdbcTemplate} used to access the log of changes
+     * (i.e not through Hibernate, which would evict the whole cache after executing a native statement).
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * The second-level cache from which changed entities are evicted.
+     */
+    private final Cache cache;
+
+    /**
+     * Amount of milliseconds during which changes are kept in the log (i.e nodes must poll more often than this).
+     */
+    private final long changesRetention;
+
+    /**
+     * The change numbers seen that are polled again (i.e those within the in-flight margin).
+     * Only accessed by the polling task.
+     */
+    private final NavigableSet<Long> seenChanges;
+
+    /**
+     * The greatest change number seen (negative until the first poll).
+     */
+    private volatile long lastSequence;
+
+    /**
+     * Amount of changes learned by polling.
+     */
+    private final AtomicLong polledChanges;
+
+
+    @Autowired
+    /* package */ SecondLevelCacheInvalidator(
+            DataSource dataSource, EntityManagerFactory entityManagerFactory,
+            @Value("${custom.persistence.cache.invalidation.changes-retention:3600000}") long changesRetention) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.changesRetention = changesRetention;
+        this.seenChanges = new TreeSet<>();
+        this.lastSequence = -1; // Not known until the first poll
+        this.polledChanges = new AtomicLong();
+    }
+
+
+    @ManagedAttribute(description = "The greatest cached entity change number seen")
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    @ManagedAttribute(description = "Amount of cached entity changes learned by polling " +
+            "(including those performed by this node)")
+    public long getPolledChanges() {
+        return polledChanges.get();
+    }
+
+
+    /**
+     * Polls the changes in cached entities performed since the last poll (e.g by other nodes),
+     * evicting the changed entities from the cache.
+     */
+    @Scheduled(fixedDelayString = "${custom.persistence.cache.invalidation.poll-interval:1000}")
+    /* package */ void poll() {
+        if (lastSequence < 0) {
+            // First poll: starts from the last logged change, as the cache is empty when the application starts
+            this.lastSequence = jdbcTemplate.queryForObject(FIND_LAST_SEQUENCE_SQL, Long.class);
+            LOGGER.debug("Polling cached entity changes after change number {}", lastSequence);
+            return;
+        }
+        final long from = Math.max(0, lastSequence - IN_FLIGHT_MARGIN);
+        final List<Change> changes = jdbcTemplate.query(FIND_CHANGES_AFTER_SQL,
+                (resultSet, rowNumber) -> new Change(resultSet.getLong(1), resultSet.getString(2),
+                        resultSet.getLong(3)),
+                from);
+        long greatest = lastSequence;
+        boolean foodPreferencesChanged = false;
+        int evicted = 0;
+        for (Change change : changes) {
+            if (!seenChanges.add(change.sequence)) {
+                continue;
+            }
+            greatest = Math.max(greatest, change.sequence);
+            foodPreferencesChanged |= evict(change);
+            evicted++;
+        }
+        if (foodPreferencesChanged) {
+            // Cached query results (i.e those of food preferences) might include (or miss) the changed ones
+            cache.evictDefaultQueryRegion();
+        }
+        seenChanges.headSet(greatest - IN_FLIGHT_MARGIN).clear();
+        this.lastSequence = greatest;
+        polledChanges.addAndGet(evicted);
+    }
+
+    /**
+     * Removes changes older than the retention time from the log.
+     */
+    @Scheduled(initialDelayString = "${custom.persistence.cache.invalidation.cleanup-interval:300000}",
+            fixedDelayString = "${custom.persistence.cache.invalidation.cleanup-interval:300000}")
+    /* package */ void removeOldChanges() {
+        final int removed = jdbcTemplate.update(DELETE_CHANGES_BEFORE_SQL, changesRetention);
+        LOGGER.debug("Removed {} old cached entity changes", removed);
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Evicts the entity (or collection) changed by the given {@link Change} from the cache.
+     *
+     * @param change The {@link Change}.
+     * @return {@code true} if the change is a change in a {@link FoodPreference}, or {@code false} otherwise.
+     */
+    private boolean evict(Change change) {
+        switch (change.entityType) {
+            case "users":
+                cache.evictEntity(User.class, change.entityId);
+                return false;
+            case "user_roles":
+                cache.evictCollection(USER_ROLES_COLLECTION, change.entityId);
+                return false;
+            case "devices":
+                cache.evictEntity(Device.class, change.entityId);
+                return false;
+            case "food_preferences":
+                cache.evictEntity(FoodPreference.class, change.entityId);
+                return true;
+            default:
+                LOGGER.warn("Ignoring change in unknown cached entity type {}", change.entityType);
+                return false;
+        }
+    }
+
+    /**
+     * Container class for a logged change.
+     */
+    private static final class Change {
+
+        /**
+         * The change number.
+         */
+        private final long sequence;
+
+        /**
+         * The type of the changed entity (i.e its table).
+         */
+        private final String entityType;
+
+        /**
+         * The id of the changed entity (or of the user owning the changed role).
+         */
+        private final long entityId;
+
+        /**
+         * Constructor.
+         *
+         * @param sequence   The change number.
+         * @param entityType The type of the changed entity (i.e its table).
+         * @param entityId   The id of the changed entity (or of the user owning the changed role).
+         */
+        private Change(long sequence, String entityType, long entityId) {
+            this.sequence = sequence;
+            this.entityType = entityType;
+            this.entityId = entityId;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ar.edu.itba.iot.carne_iot.server.persistence;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.SecondLevelCacheStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.Optional;
+
+/**
+ * Exposes the Hibernate second-level and query cache statistics
+ * (only gathered if the {@code custom.persistence.cache.statistics-enabled} property is set,
+ * or once they are enabled through this bean, as gathering them has a cost on each operation).
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=SecondLevelCache")
+/* package */ class SecondLevelCacheMetrics {
+
+    /**
+     * The {@link SessionFactory} whose cache is exposed.
+     */
+    private final SessionFactory sessionFactory;
+
+
+    @Autowired
+    /* package */ SecondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+    }
+
+
+    @ManagedAttribute(description = "Whether statistics are being gathered")
+    public boolean isStatisticsEnabled() {
+        return getStatistics().isStatisticsEnabled();
+    }
+
+    @ManagedAttribute(description = "Enables or disables gathering statistics")
+    public void setStatisticsEnabled(boolean enabled) {
+        getStatistics().setStatisticsEnabled(enabled);
+    }
+
+    @ManagedAttribute(description = "Amount of entity and collection lookups answered by the cache")
+    public long getHits() {
+        return getStatistics().getSecondLevelCacheHitCount();
+    }
+
+    @ManagedAttribute(description = "Amount of entity and collection lookups that required querying the database")
+    public long getMisses() {
+        return getStatistics().getSecondLevelCacheMissCount();
+    }
+
+    @ManagedAttribute(description = "Amount of entities and collections put in the cache")
+    public long getPuts() {
+        return getStatistics().getSecondLevelCachePutCount();
+    }
+
+    @ManagedAttribute(description = "Amount of cacheable queries answered by the query cache")
+    public long getQueryHits() {
+        return getStatistics().getQueryCacheHitCount();
+    }
+
+    @ManagedAttribute(description = "Amount of cacheable queries that required querying the database")
+    public long getQueryMisses() {
+        return getStatistics().getQueryCacheMissCount();
+    }
+
+    @ManagedAttribute(description = "Names of the cache regions")
+    public String[] getRegionNames() {
+        return getStatistics().getSecondLevelCacheRegionNames();
+    }
+
+    @ManagedOperation(description = "Amount of lookups answered by the given cache region")
+    public long getRegionHits(String region) {
+        return getRegionStatistics(region).map(SecondLevelCacheStatistics::getHitCount).orElse(0L);
+    }
+
+    @ManagedOperation(description = "Amount of lookups that missed the given cache region")
+    public long getRegionMisses(String region) {
+        return getRegionStatistics(region).map(SecondLevelCacheStatistics::getMissCount).orElse(0L);
+    }
+
+    @ManagedOperation(description = "Amount of entries held in memory by the given cache region")
+    public long getRegionSize(String region) {
+        return getRegionStatistics(region).map(SecondLevelCacheStatistics::getElementCountInMemory).orElse(0L);
+    }
+
+    @ManagedOperation(description = "Removes all cached entities, collections and query results")
+    public void clear() {
+        sessionFactory.getCache().evictAllRegions();
+    }
+
+    @ManagedOperation(description = "Resets the statistics")
+    public void resetStatistics() {
+        getStatistics().clear();
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * @return The {@link Statistics} of the {@link SessionFactory}.
+     */
+    private Statistics getStatistics() {
+        return sessionFactory.getStatistics();
+    }
+
+    /**
+     * Returns the statistics of the given {@code region}.
+     *
+     * @param region The region name.
+     * @return An {@link Optional} containing the statistics of the region, or empty if there is no such region.
+     */
+    private Optional<SecondLevelCacheStatistics> getRegionStatistics(String region) {
+        return Optional.ofNullable(getStatistics().getSecondLevelCacheStatistics(region));
+    }
+}
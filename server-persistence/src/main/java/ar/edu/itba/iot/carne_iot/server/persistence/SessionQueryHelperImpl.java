@@ -2,9 +2,12 @@ package ar.edu.itba.iot.carne_iot.server.persistence;
 
 import ar.edu.itba.iot.carne_iot.server.exceptions.InvalidPropertiesException;
 import ar.edu.itba.iot.carne_iot.server.models.Session;
+import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.persistence.query_helpers.SessionQueryHelper;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
 
 /**
  * Concrete implementation of a {@link SessionQueryHelper}.
@@ -16,4 +19,12 @@ public class SessionQueryHelperImpl implements SessionQueryHelper {
     public void validatePageable(Pageable pageable) throws InvalidPropertiesException {
         PersistenceHelper.validatePageable(pageable, Session.class);
     }
+
+    @Override
+    public Specification<Session> createOwnerSpecification(User owner) throws IllegalArgumentException {
+        Assert.notNull(owner, "The owner can not be null.");
+
+        return (root, query, cb) -> cb.equal(root.get(root.getModel()
+                .getDeclaredSingularAttribute("owner", User.class)), owner);
+    }
 }
@@ -0,0 +1,156 @@
+package ar.edu.itba.iot.carne_iot.server.persistence;
+
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate.Resolution;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.TemperatureAggregateDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Concrete implementation of {@link TemperatureAggregateDao}, using plain JDBC.
+ * Aggregates of each {@link Resolution} are stored in their own table, and their moments are stored as UTC timestamps
+ * (i.e buckets are aligned in UTC).
+ */
+@Repository
+/* package */ class TemperatureAggregateDaoImpl implements TemperatureAggregateDao {
+
+    /**
+     * Amount of rows fetched from the database at once when streaming aggregates.
+     */
+    private static final int FETCH_SIZE = 500;
+
+    private static final String MERGE_SQL =
+            "INSERT INTO %1$s (device_id, bucket_start, min_centi_degrees, max_centi_degrees, " +
+                    "sum_centi_degrees, readings) VALUES (?, ?, ?, ?, ?, ?) " +
+                    "ON CONFLICT (device_id, bucket_start) DO UPDATE SET " +
+                    "min_centi_degrees = LEAST(%1$s.min_centi_degrees, EXCLUDED.min_centi_degrees), " +
+                    "max_centi_degrees = GREATEST(%1$s.max_centi_degrees, EXCLUDED.max_centi_degrees), " +
+                    "sum_centi_degrees = %1$s.sum_centi_degrees + EXCLUDED.sum_centi_degrees, " +
+                    "readings = %1$s.readings + EXCLUDED.readings";
+
+    private static final String DELETE_BETWEEN_SQL =
+            "DELETE FROM %s WHERE bucket_start >= ? AND bucket_start < ?";
+
+    private static final String RECOMPUTE_MINUTES_SQL =
+            "INSERT INTO temperature_minute_rollups (device_id, bucket_start, min_centi_degrees, max_centi_degrees, " +
+                    "sum_centi_degrees, readings) " +
+                    "SELECT device_id, date_trunc('minute', measured_at), MIN(temperature_centi_degrees), " +
+                    "MAX(temperature_centi_degrees), SUM(temperature_centi_degrees), COUNT(*) " +
+                    "FROM temperature_readings WHERE measured_at >= ? AND measured_at < ? " +
+                    "GROUP BY device_id, date_trunc('minute', measured_at)";
+
+    // Hours are recomputed from minutes (i.e the raw readings are scanned once)
+    private static final String RECOMPUTE_HOURS_SQL =
+            "INSERT INTO temperature_hour_rollups (device_id, bucket_start, min_centi_degrees, max_centi_degrees, " +
+                    "sum_centi_degrees, readings) " +
+                    "SELECT device_id, date_trunc('hour', bucket_start), MIN(min_centi_degrees), " +
+                    "MAX(max_centi_degrees), SUM(sum_centi_degrees), SUM(readings) " +
+                    "FROM temperature_minute_rollups WHERE bucket_start >= ? AND bucket_start < ? " +
+                    "GROUP BY device_id, date_trunc('hour', bucket_start)";
+
+    private static final String SELECT_BETWEEN_SQL =
+            "SELECT device_id, bucket_start, min_centi_degrees, max_centi_degrees, sum_centi_degrees, readings " +
+                    "FROM %s WHERE device_id = ? AND bucket_start >= ? AND bucket_start < ? ORDER BY bucket_start";
+
+    /**
+     * The {@link JdbcTemplate} used to access the database.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+
+    @Autowired
+    /* package */ TemperatureAggregateDaoImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+
+    @Override
+    public void mergeAll(Collection<TemperatureAggregate> aggregates) {
+        final Map<Resolution, List<TemperatureAggregate>> byResolution = aggregates.stream()
+                .collect(Collectors.groupingBy(TemperatureAggregate::getResolution));
+        byResolution.forEach((resolution, list) -> jdbcTemplate
+                .batchUpdate(String.format(MERGE_SQL, tableName(resolution)), new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        final TemperatureAggregate aggregate = list.get(i);
+                        ps.setLong(1, aggregate.getDeviceId());
+                        PersistenceHelper.setUtcTimestamp(ps, 2, aggregate.getFrom());
+                        ps.setInt(3, aggregate.getMinCentiDegrees());
+                        ps.setInt(4, aggregate.getMaxCentiDegrees());
+                        ps.setLong(5, aggregate.getSumCentiDegrees());
+                        ps.setLong(6, aggregate.getCount());
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return list.size();
+                    }
+                }));
+    }
+
+    @Override
+    public int recompute(Instant from, Instant to) {
+        final PreparedStatementSetter range = ps -> {
+            PersistenceHelper.setUtcTimestamp(ps, 1, from);
+            PersistenceHelper.setUtcTimestamp(ps, 2, to);
+        };
+        // Minutes must be recomputed first, as hours are recomputed from them
+        int recomputed = 0;
+        for (Resolution resolution : Resolution.values()) {
+            jdbcTemplate.update(String.format(DELETE_BETWEEN_SQL, tableName(resolution)), range);
+            final String recomputeSql = resolution == Resolution.MINUTE ? RECOMPUTE_MINUTES_SQL : RECOMPUTE_HOURS_SQL;
+            recomputed += jdbcTemplate.update(recomputeSql, range);
+        }
+        return recomputed;
+    }
+
+    @Override
+    public void forEachBetween(long deviceId, Resolution resolution, Instant from, Instant to,
+                               Consumer<TemperatureAggregate> consumer) {
+        jdbcTemplate.query(String.format(SELECT_BETWEEN_SQL, tableName(resolution)),
+                ps -> {
+                    ps.setLong(1, deviceId);
+                    PersistenceHelper.setUtcTimestamp(ps, 2, from);
+                    PersistenceHelper.setUtcTimestamp(ps, 3, to);
+                },
+                (RowCallbackHandler) rs -> consumer.accept(new TemperatureAggregate(rs.getLong("device_id"),
+                        resolution,
+                        PersistenceHelper.getUtcTimestamp(rs, "bucket_start"),
+                        rs.getInt("min_centi_degrees"),
+                        rs.getInt("max_centi_degrees"),
+                        rs.getLong("sum_centi_degrees"),
+                        rs.getLong("readings"))));
+    }
+
+    /**
+     * Returns the name of the table holding aggregates with the given {@link Resolution}.
+     *
+     * @param resolution The {@link Resolution}.
+     * @return The name of the table.
+     */
+    private static String tableName(Resolution resolution) {
+        switch (resolution) {
+            case MINUTE:
+                return "temperature_minute_rollups";
+            case HOUR:
+                return "temperature_hour_rollups";
+            default:
+                throw new IllegalArgumentException("Unknown resolution " + resolution);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package ar.edu.itba.iot.carne_iot.server.persistence;
+
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.TemperatureReadingDao;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Concrete implementation of {@link TemperatureReadingDao}, using plain JDBC
+ * (readings are not entities, and JDBC allows batched appends and streamed reads).
+ * Moments are stored as UTC timestamps, so partitions are monthly in UTC.
+ */
+@Repository
+/* package */ class TemperatureReadingDaoImpl implements TemperatureReadingDao {
+
+    /**
+     * Amount of rows fetched from the database at once when streaming readings.
+     */
+    private static final int FETCH_SIZE = 500;
+
+    private static final String INSERT_SQL =
+            "INSERT INTO temperature_readings (device_id, measured_at, temperature_centi_degrees) VALUES (?, ?, ?)";
+
+    private static final String SELECT_BETWEEN_SQL =
+            "SELECT device_id, measured_at, temperature_centi_degrees FROM temperature_readings " +
+                    "WHERE device_id = ? AND measured_at >= ? AND measured_at < ? ORDER BY measured_at";
+
+    private static final String CREATE_PARTITION_SQL = "SELECT create_temperature_readings_partition(?)";
+
+    /**
+     * The {@link JdbcTemplate} used to access the database.
+     */
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Months whose partition is known to exist, in order to avoid checking them in each append.
+     */
+    private final Set<YearMonth> existingPartitions;
+
+
+    @Autowired
+    /* package */ TemperatureReadingDaoImpl(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.existingPartitions = ConcurrentHashMap.newKeySet();
+    }
+
+
+    @Override
+    public void appendAll(Collection<TemperatureReading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        ensurePartitions(readings);
+
+        final List<TemperatureReading> list = new ArrayList<>(readings);
+        jdbcTemplate.batchUpdate(INSERT_SQL, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement ps, int i) throws SQLException {
+                final TemperatureReading reading = list.get(i);
+                ps.setLong(1, reading.getDeviceId());
+                PersistenceHelper.setUtcTimestamp(ps, 2, reading.getTimestamp());
+                ps.setInt(3, reading.getCentiDegrees());
+            }
+
+            @Override
+            public int getBatchSize() {
+                return list.size();
+            }
+        });
+    }
+
+    @Override
+    public void forEachBetween(long deviceId, Instant from, Instant to, Consumer<TemperatureReading> consumer) {
+        jdbcTemplate.query(SELECT_BETWEEN_SQL,
+                ps -> {
+                    ps.setLong(1, deviceId);
+                    PersistenceHelper.setUtcTimestamp(ps, 2, from);
+                    PersistenceHelper.setUtcTimestamp(ps, 3, to);
+                },
+                (RowCallbackHandler) rs -> consumer.accept(new TemperatureReading(rs.getLong("device_id"),
+                        rs.getInt("temperature_centi_degrees"),
+                        PersistenceHelper.getUtcTimestamp(rs, "measured_at"))));
+    }
+
+    /**
+     * Makes sure that the partitions that will hold the given {@code readings} exist.
+     *
+     * @param readings The {@link TemperatureReading}s to be appended.
+     */
+    private void ensurePartitions(Collection<TemperatureReading> readings) {
+        final Set<YearMonth> months = readings.stream()
+                .map(TemperatureReading::getTimestamp)
+                .map(instant -> YearMonth.from(instant.atOffset(ZoneOffset.UTC)))
+                .filter(month -> !existingPartitions.contains(month))
+                .collect(Collectors.toSet());
+        for (YearMonth month : months) {
+            final Instant moment = month.atDay(1).atStartOfDay().toInstant(ZoneOffset.UTC);
+            jdbcTemplate.query(CREATE_PARTITION_SQL, ps -> PersistenceHelper.setUtcTimestamp(ps, 1, moment),
+                    (RowCallbackHandler) rs -> {
+                    });
+            existingPartitions.add(month);
+        }
+    }
+}
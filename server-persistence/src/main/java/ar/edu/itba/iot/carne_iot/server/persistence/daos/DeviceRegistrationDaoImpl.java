@@ -0,0 +1,64 @@
+package ar.edu.itba.iot.carne_iot.server.persistence.daos;
+
+import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.DeviceRegistrationDaoCustom;
+import org.hibernate.SQLQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Concrete implementation of {@link DeviceRegistrationDaoCustom}, used by Spring Data as the custom part of the
+ * {@link DeviceRegistrationDao} (i.e it must be in the same package as it to be detected).
+ * <p>
+ * Statements are native queries synchronized with the {@code device_registration_changes} table only.
+ * Otherwise, Hibernate would evict all the second-level cache regions each time one of them is executed.
+ */
+@Transactional
+/* package */ class DeviceRegistrationDaoImpl implements DeviceRegistrationDaoCustom {
+
+    /**
+     * The table affected by the statements.
+     */
+    private static final String CHANGES_TABLE = "device_registration_changes";
+
+    private static final String FIND_CHANGES_AFTER_SQL = "SELECT sequence, device_id " +
+            "FROM device_registration_changes WHERE sequence > ?1 ORDER BY sequence";
+
+    private static final String DELETE_CHANGES_BEFORE_SQL = "DELETE FROM device_registration_changes " +
+            "WHERE changed_at < ?1";
+
+    /**
+     * The {@link EntityManager} used to execute the statements.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findChangesAfter(long sequence) {
+        final List<Object[]> rows = entityManager.createNativeQuery(FIND_CHANGES_AFTER_SQL)
+                .setParameter(1, sequence)
+                .getResultList();
+        // Native queries return the database numeric types (i.e not necessarily longs)
+        return rows.stream()
+                .map(row -> new Object[]{((Number) row[0]).longValue(), ((Number) row[1]).longValue()})
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int deleteChangesBefore(Instant moment) {
+        // The column holds moments with time zone, so the timestamp is compared as an absolute moment
+        final Query query = entityManager.createNativeQuery(DELETE_CHANGES_BEFORE_SQL)
+                .setParameter(1, Timestamp.from(moment));
+        query.unwrap(SQLQuery.class).addSynchronizedQuerySpace(CHANGES_TABLE);
+        return query.executeUpdate();
+    }
+}
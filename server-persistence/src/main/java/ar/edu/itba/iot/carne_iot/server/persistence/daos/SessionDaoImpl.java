@@ -0,0 +1,109 @@
+package ar.edu.itba.iot.carne_iot.server.persistence.daos;
+
+import ar.edu.itba.iot.carne_iot.server.persistence.custom_repositories.SessionDaoCustom;
+import org.hibernate.SQLQuery;
+import org.springframework.transaction.annotation.Transactional;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Query;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Concrete implementation of {@link SessionDaoCustom}, used by Spring Data as the custom part of the
+ * {@link SessionDao} (i.e it must be in the same package as it to be detected).
+ * <p>
+ * Statements are native queries synchronized with the {@code sessions} and {@code deleted_sessions} tables only.
+ * Otherwise, Hibernate would evict all the second-level cache regions each time one of them is executed.
+ */
+@Transactional
+/* package */ class SessionDaoImpl implements SessionDaoCustom {
+
+    /**
+     * The table affected by the session statements.
+     */
+    private static final String SESSIONS_TABLE = "sessions";
+
+    /**
+     * The table holding the log of valid sessions deleted together with their user.
+     */
+    private static final String DELETED_SESSIONS_TABLE = "deleted_sessions";
+
+    private static final String CREATE_IF_ABSENT_SQL = "INSERT INTO sessions (user_id, jti, valid) " +
+            "VALUES (?1, ?2, TRUE) ON CONFLICT (user_id, jti) DO NOTHING";
+
+    private static final String REVOKE_SQL = "UPDATE sessions " +
+            "SET valid = FALSE, revocation_sequence = nextval('sessions_revocation_sequence'), revoked_at = now() " +
+            "WHERE user_id = ?1 AND jti = ?2 AND valid = TRUE";
+
+    private static final String FIND_REVOCATIONS_AFTER_SQL = "SELECT user_id, jti, revocation_sequence, revoked_at " +
+            "FROM sessions WHERE revocation_sequence > ?1 AND revoked_at >= ?2 " +
+            "UNION ALL SELECT user_id, jti, revocation_sequence, revoked_at " +
+            "FROM deleted_sessions WHERE revocation_sequence > ?1 AND revoked_at >= ?2 " +
+            "ORDER BY revocation_sequence";
+
+    private static final String DELETE_DELETED_SESSIONS_BEFORE_SQL = "DELETE FROM deleted_sessions " +
+            "WHERE revoked_at < ?1";
+
+    /**
+     * The {@link EntityManager} used to execute the statements.
+     */
+    @PersistenceContext
+    private EntityManager entityManager;
+
+
+    @Override
+    public int createIfAbsent(long ownerId, long jti) {
+        return executeUpdate(CREATE_IF_ABSENT_SQL, ownerId, jti);
+    }
+
+    @Override
+    public int revoke(long ownerId, long jti) {
+        return executeUpdate(REVOKE_SQL, ownerId, jti);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    @SuppressWarnings("unchecked")
+    public List<Object[]> findRevocationsDataAfter(long sequence, Instant revokedSince) {
+        final Query query = entityManager.createNativeQuery(FIND_REVOCATIONS_AFTER_SQL)
+                .setParameter(1, sequence)
+                .setParameter(2, Timestamp.from(revokedSince));
+        query.unwrap(SQLQuery.class)
+                .addSynchronizedQuerySpace(SESSIONS_TABLE)
+                .addSynchronizedQuerySpace(DELETED_SESSIONS_TABLE);
+        final List<Object[]> rows = query.getResultList();
+        // Native queries return the database types (i.e not necessarily longs, and timestamps instead of instants)
+        return rows.stream()
+                .map(row -> new Object[]{((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                        ((Number) row[2]).longValue(), ((Timestamp) row[3]).toInstant()})
+                .collect(Collectors.toList());
+    }
+
+    @Override
+    public int deleteDeletedSessionsBefore(Instant moment) {
+        final Query query = entityManager.createNativeQuery(DELETE_DELETED_SESSIONS_BEFORE_SQL)
+                .setParameter(1, Timestamp.from(moment));
+        query.unwrap(SQLQuery.class).addSynchronizedQuerySpace(DELETED_SESSIONS_TABLE);
+        return query.executeUpdate();
+    }
+
+    /**
+     * Executes the given {@code sql} statement, affecting only the {@code sessions} table.
+     *
+     * @param sql     The statement to be executed.
+     * @param ownerId The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User} owning the session.
+     * @param jti     The unique identifier of the session.
+     * @return The amount of affected rows.
+     */
+    private int executeUpdate(String sql, long ownerId, long jti) {
+        final Query query = entityManager.createNativeQuery(sql)
+                .setParameter(1, ownerId)
+                .setParameter(2, jti);
+        query.unwrap(SQLQuery.class).addSynchronizedQuerySpace(SESSIONS_TABLE);
+        return query.executeUpdate();
+    }
+}
@@ -0,0 +1,212 @@
+package ar.edu.itba.iot.carne_iot.server.persistence;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.DeviceRegistration;
+import ar.edu.itba.iot.carne_iot.server.models.FoodPreference;
+import ar.edu.itba.iot.carne_iot.server.models.Session;
+import ar.edu.itba.iot.carne_iot.server.models.User;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.DeviceDao;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.DeviceRegistrationDao;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.FoodPreferenceDao;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.SessionDao;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.UserDao;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests that each offset listing (i.e those returning a {@link Slice}) executes a single SQL statement
+ * (i.e no count query is executed, and no association is loaded afterwards).
+ * <p>
+ * Statements are counted with Hibernate statistics, against an embedded database whose schema is created from the
+ * entities. The second-level cache is not enabled, so cached entities can not hide extra statements.
+ * <p>
+ * The whole persistence configuration is loaded, so the tests also fail if any DAO can not be created
+ * (e.g its custom part is not detected because it is not in the package of the DAO).
+ */
+@RunWith(SpringRunner.class)
+@DataJpaTest
+@TestPropertySource(properties = {
+        "spring.jpa.hibernate.use-new-id-generator-mappings=true",
+        "spring.jpa.properties.hibernate.cache.use_second_level_cache=false",
+        "spring.jpa.properties.hibernate.generate_statistics=true",
+})
+public class SliceListingsQueryCountTest {
+
+    /**
+     * Amount of elements stored for each listing (more than a page, so the first slice has a next one).
+     */
+    private static final int AMOUNT = 15;
+
+    /**
+     * The page size used to list.
+     */
+    private static final int PAGE_SIZE = 10;
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private UserDao userDao;
+
+    @Autowired
+    private DeviceDao deviceDao;
+
+    @Autowired
+    private DeviceRegistrationDao deviceRegistrationDao;
+
+    @Autowired
+    private FoodPreferenceDao foodPreferenceDao;
+
+    @Autowired
+    private SessionDao sessionDao;
+
+    private Statistics statistics;
+
+    private long ownerId;
+
+
+    @Before
+    public void setUp() {
+        final User owner = entityManager.persist(user(0));
+        for (int i = 1; i < AMOUNT; i++) {
+            entityManager.persist(user(i));
+        }
+        for (int i = 0; i < AMOUNT; i++) {
+            final Device device = entityManager.persist(new Device(i + 1));
+            entityManager.persist(new DeviceRegistration(device, owner));
+            entityManager.persist(new FoodPreference("Preference " + i, new BigDecimal("60.00"), owner));
+            entityManager.persist(new Session(owner, i));
+        }
+        entityManager.flush();
+        entityManager.clear();
+        ownerId = owner.getId();
+
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+
+    @Test
+    public void testUsersListingExecutesOneStatement() {
+        assertSingleStatement(() -> userDao.findAllSliced(null, firstPage("username")));
+    }
+
+    @Test
+    public void testDevicesListingExecutesOneStatement() {
+        final Slice<Object[]> devices = assertSingleStatement(() -> deviceDao.findAllWithOwnerData(firstPage("id")));
+
+        // Owner data comes in the same row as the device
+        devices.forEach(row -> assertEquals(ownerId, row[1]));
+    }
+
+    @Test
+    public void testUserDevicesListingExecutesOneStatement() {
+        // Services load the owner (in the same transaction) before listing
+        final User owner = userDao.findOne(ownerId);
+        final DeviceRegistrationQueryHelperImpl queryHelper = new DeviceRegistrationQueryHelperImpl();
+        final Pageable pageable = new PageRequest(0, PAGE_SIZE, queryHelper.adaptSort(new Sort("id")));
+
+        final Slice<DeviceRegistration> registrations = assertSingleStatement(() -> deviceRegistrationDao
+                .findAllSliced(queryHelper.createDeviceSpecification(owner), pageable));
+
+        // Devices were fetched together with their registrations
+        registrations.forEach(registration -> registration.getDevice().getTemperature());
+        assertEquals(0, statistics.getPrepareStatementCount());
+    }
+
+    @Test
+    public void testFoodPreferencesListingExecutesOneStatement() {
+        final User owner = userDao.findOne(ownerId);
+
+        assertSingleStatement(() -> foodPreferenceDao.findByOwner(owner, firstPage("name")));
+    }
+
+    @Test
+    public void testSessionsListingExecutesOneStatement() {
+        final User owner = userDao.findOne(ownerId);
+
+        assertSingleStatement(() -> sessionDao.findByOwner(owner, firstPage("jti")));
+    }
+
+    @Test
+    public void testLastSliceHasNoNextOne() {
+        final Slice<User> users = userDao.findAllSliced(null, new PageRequest(1, PAGE_SIZE, new Sort("username")));
+
+        assertEquals(AMOUNT - PAGE_SIZE, users.getNumberOfElements());
+        assertFalse(users.hasNext());
+    }
+
+
+    /**
+     * Performs the given {@code listing}, asserting that exactly one statement is executed,
+     * and that the resultant {@link Slice} is a full one with a next one.
+     * Statistics are cleared after performing the listing.
+     *
+     * @param listing A {@link Supplier} performing the listing.
+     * @param <T>     The type of element in the {@link Slice}.
+     * @return The resultant {@link Slice}.
+     */
+    private <T> Slice<T> assertSingleStatement(Supplier<Slice<T>> listing) {
+        statistics.clear();
+        final Slice<T> slice = listing.get();
+        assertEquals("Listing must execute one statement", 1, statistics.getPrepareStatementCount());
+        statistics.clear();
+
+        assertEquals(PAGE_SIZE, slice.getNumberOfElements());
+        assertTrue(slice.hasNext());
+        return slice;
+    }
+
+    /**
+     * Creates a {@link Pageable} for the first page, sorted by the given {@code property}.
+     *
+     * @param property The property by which elements are sorted.
+     * @return The {@link Pageable}.
+     */
+    private static Pageable firstPage(String property) {
+        return new PageRequest(0, PAGE_SIZE, new Sort(property));
+    }
+
+    /**
+     * Creates a valid {@link User}, whose username and email are built with the given {@code index}.
+     *
+     * @param index The index of the user (used to create a unique username and email).
+     * @return The created {@link User}.
+     */
+    private static User user(int index) {
+        return new User("User " + index, LocalDate.of(1990, 1, 1),
+                "user" + index, "user" + index + "@example.com", "hashed-password");
+    }
+
+
+    /**
+     * Configuration of the test (i.e the persistence layer only).
+     */
+    @Configuration
+    @Import(PersistenceConfig.class)
+    /* package */ static class Config {
+    }
+}
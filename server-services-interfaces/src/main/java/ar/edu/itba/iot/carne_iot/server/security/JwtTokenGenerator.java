@@ -9,12 +9,24 @@ import ar.edu.itba.iot.carne_iot.server.models.User;
 public interface JwtTokenGenerator {
 
     /**
-     * Generates a token based on the given {@link User}.
+     * Generates a refresh token based on the given {@link User}, for the session with the given {@code jti}
+     * (i.e a long-lived token representing the session, which can only be used to obtain access tokens).
      *
      * @param user The {@link User} to which the generated token belongs to.
-     * @return The generated token together with its jti.
+     * @param jti  The id of the session the generated token represents.
+     * @return The generated token.
+     */
+    String generateRefreshToken(final User user, final long jti);
+
+    /**
+     * Generates an access token based on the given {@link User}, for the session with the given {@code jti}
+     * (i.e a short-lived token, verified without checking the session).
+     *
+     * @param user The {@link User} to which the generated token belongs to.
+     * @param jti  The id of the session to which the generated token belongs to.
+     * @return The generated token.
      */
-    TokenAndSessionContainer generateUserToken(final User user);
+    String generateAccessToken(final User user, final long jti);
 
     /**
      * Generates a token based on the given {@link User}, and the given {@link Device}.
@@ -0,0 +1,22 @@
+package ar.edu.itba.iot.carne_iot.server.security;
+
+import ar.edu.itba.iot.carne_iot.server.exceptions.TooManyRequestsException;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+/**
+ * A {@link PasswordEncoder} that can tell whether an already hashed password must be hashed again
+ * (e.g the hashing cost changed since it was hashed).
+ * Implementations might reject hashing operations when overloaded,
+ * throwing a {@link TooManyRequestsException}.
+ */
+public interface RehashingPasswordEncoder extends PasswordEncoder {
+
+    /**
+     * Indicates whether the given {@code encodedPassword} must be hashed again with the actual settings
+     * (i.e the password should be encoded again the next time it is available in plain text, such as in a login).
+     *
+     * @param encodedPassword The hashed password.
+     * @return {@code true} if the password must be hashed again, or {@code false} otherwise.
+     */
+    boolean needsRehash(String encodedPassword);
+}
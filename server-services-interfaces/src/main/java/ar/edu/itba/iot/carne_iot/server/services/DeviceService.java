@@ -2,12 +2,18 @@ package ar.edu.itba.iot.carne_iot.server.services;
 
 import ar.edu.itba.iot.carne_iot.server.models.Device;
 import ar.edu.itba.iot.carne_iot.server.models.DeviceRegistration;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate.Resolution;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
 import ar.edu.itba.iot.carne_iot.server.models.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 /**
  * Defines behaviour of the service in charge of managing {@link Device}s and {@link DeviceRegistration}s.
@@ -18,9 +24,20 @@ public interface DeviceService {
      * List all {@link Device}s stored in the system, in a paginated view.
      *
      * @param pageable The {@link Pageable} object containing pagination stuff.
-     * @return The resulting {@link Page}.
+     * @return The resulting {@link Slice}.
      */
-    Page<RegisteredDeviceWrapper> listDevices(Pageable pageable);
+    Slice<RegisteredDeviceWrapper> listDevices(Pageable pageable);
+
+    /**
+     * List {@link Device}s stored in the system sorted by id, using keyset pagination
+     * (i.e the cost of a page does not depend on how deep it is).
+     *
+     * @param afterId The id of the last {@link Device} of the previous page,
+     *                or {@code null} to get the first page.
+     * @param limit   The max. amount of {@link Device}s to be returned.
+     * @return The resulting {@link List}.
+     */
+    List<RegisteredDeviceWrapper> listDevicesAfter(Long afterId, int limit);
 
     /**
      * Gets a specific {@link Device}, together with registration data.
@@ -31,6 +48,17 @@ public interface DeviceService {
      */
     Optional<RegisteredDeviceWrapper> getDeviceWithRegistrationData(long deviceId);
 
+    /**
+     * Gets the moment in which the data returned by {@link #getDeviceWithRegistrationData(long)} was last modified
+     * (i.e the latest modification of the {@link Device}, its registrations, or its owners),
+     * without loading the {@link Device} (e.g to answer conditional requests).
+     *
+     * @param deviceId The id of the {@link Device}.
+     * @return A nullable {@link Optional} of {@link Instant} containing the said moment,
+     * or empty if the {@link Device} is not present.
+     */
+    Optional<Instant> getDeviceLastModified(long deviceId);
+
     /**
      * Creates a new {@link Device} in the system.
      *
@@ -45,9 +73,23 @@ public interface DeviceService {
      * @param ownerId  The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User}
      *                 whose {@link Device}s are being returned.
      * @param pageable The {@link Pageable} object containing pagination stuff.
-     * @return The resulting {@link Page}.
+     * @return The resulting {@link Slice}.
      */
-    Page<DeviceWithNicknameWrapper> listUserDevices(long ownerId, Pageable pageable);
+    Slice<DeviceWithNicknameWrapper> listUserDevices(long ownerId, Pageable pageable);
+
+    /**
+     * List {@link Device}s belonging to a given {@link ar.edu.itba.iot.carne_iot.server.models.User}
+     * sorted by registration, using keyset pagination (i.e no count query is executed).
+     *
+     * @param ownerId The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User}
+     *                whose {@link Device}s are being returned.
+     * @param afterId The registration id of the last {@link Device} of the previous page
+     *                (see {@link DeviceWithNicknameWrapper#getRegistrationId()}),
+     *                or {@code null} to get the first page.
+     * @param limit   The max. amount of {@link Device}s to be returned.
+     * @return The resulting {@link List}.
+     */
+    List<DeviceWithNicknameWrapper> listUserDevicesAfter(long ownerId, Long afterId, int limit);
 
     /**
      * Gets a specific {@link Device} if registered.
@@ -59,6 +101,18 @@ public interface DeviceService {
      */
     Optional<DeviceWithNicknameWrapper> getRegisteredDevice(long ownerId, long deviceId);
 
+    /**
+     * Gets the moment in which the data returned by {@link #getRegisteredDevice(long, long)} was last modified
+     * (i.e the latest modification of the {@link Device} or its registration),
+     * without loading the {@link Device} (e.g to answer conditional requests).
+     *
+     * @param ownerId  The id of the {@link User} that owns the device.
+     * @param deviceId The id of the {@link Device}.
+     * @return A nullable {@link Optional} of {@link Instant} containing the said moment,
+     * or empty if the {@link Device} is not present or not registered.
+     */
+    Optional<Instant> getRegisteredDeviceLastModified(long ownerId, long deviceId);
+
     /**
      * Sets the given {@code nickname} to the {@link Device} with the given id,
      * belonging to the {@link User} with the given {@code ownerId}.
@@ -116,12 +170,56 @@ public interface DeviceService {
      * Updates the temperature of a given {@link Device}.
      *
      * @param deviceId    The id of the device being updated.
-     * @param temperature The new temperature for the device.
+     * @param temperature The new temperature for the device, in hundredths of degree.
+     */
+    void updateTemperature(long deviceId, int temperature);
+
+    /**
+     * Updates the temperature of several {@link Device}s at once, in a single operation.
+     * All the readings are authorized as a set (i.e if any of them can not be applied, none of them is).
+     * Readings belonging to the same {@link Device} are applied in chronological order,
+     * so the one with the latest timestamp is the one that remains.
+     * Readings older than the temperature held by their {@link Device} are discarded
+     * (i.e they are neither notified nor stored in the history).
+     *
+     * @param readings The {@link TemperatureReading}s to be applied.
+     */
+    void updateTemperatures(List<TemperatureReading> readings);
+
+    /**
+     * Retrieves, in chronological order, the {@link TemperatureReading}s of a given {@link Device}
+     * measured between the given moments, passing them one by one to the given {@code consumer}
+     * (i.e readings are streamed, instead of being loaded in memory at once).
+     *
+     * @param ownerId  The id of the {@link User} that owns the device.
+     * @param deviceId The id of the {@link Device} whose readings are being retrieved.
+     * @param from     The moment from which readings are retrieved (inclusive).
+     * @param to       The moment until which readings are retrieved (exclusive).
+     * @param consumer The {@link Consumer} to which each {@link TemperatureReading} is passed.
      */
-    void updateTemperature(long deviceId, BigDecimal temperature);
+    void streamTemperatureReadings(long ownerId, long deviceId, Instant from, Instant to,
+                                   Consumer<TemperatureReading> consumer);
+
+    /**
+     * Retrieves, in chronological order, the {@link TemperatureAggregate}s with the given {@link Resolution}
+     * of a given {@link Device} for the given period of time, passing them one by one to the given {@code consumer}
+     * (i.e a cheaper version of {@link #streamTemperatureReadings(long, long, Instant, Instant, Consumer)}
+     * for long periods of time).
+     *
+     * @param ownerId    The id of the {@link User} that owns the device.
+     * @param deviceId   The id of the {@link Device} whose aggregates are being retrieved.
+     * @param resolution The {@link Resolution} of the aggregates.
+     * @param from       The moment from which aggregates are retrieved
+     *                   (inclusive, i.e the aggregate containing it is retrieved).
+     * @param to         The moment until which aggregates are retrieved (exclusive).
+     * @param consumer   The {@link Consumer} to which each {@link TemperatureAggregate} is passed.
+     */
+    void streamTemperatureAggregates(long ownerId, long deviceId, Resolution resolution, Instant from, Instant to,
+                                     Consumer<TemperatureAggregate> consumer);
 
     /**
      * Updates the target temperature of a given {@link Device}.
+     * A {@link TargetTemperatureChangedEvent} is published once the change is committed.
      *
      * @param deviceId          The id of the device being updated.
      * @param targetTemperature The new target temperature for the device.
@@ -130,13 +228,15 @@ public interface DeviceService {
 
     /**
      * Removes the target temperature of a given {@link Device}.
+     * A {@link TargetTemperatureChangedEvent} is published once the change is committed.
      *
      * @param deviceId The id of the device being updated.
      */
     void clearTargetTemperature(long deviceId);
 
     /**
-     * Wrapper class that holds {@link Device} data, possibly together with a {@link User} owning the Device.
+     * Wrapper class that holds {@link Device} data, possibly together with data of the {@link User} owning the Device.
+     * Only the id and username of the owner are held, so listings do not need to load owners.
      */
     class RegisteredDeviceWrapper {
 
@@ -146,19 +246,36 @@ public interface DeviceService {
         private final Device device;
 
         /**
-         * The wrapped user (must be null if the {@link #device} is not registered.
+         * The id of the owner (must be null if the {@link #device} is not registered).
+         */
+        private final Long ownerId;
+
+        /**
+         * The username of the owner (must be null if the {@link #device} is not registered).
+         */
+        private final String ownerUsername;
+
+        /**
+         * Constructor.
+         *
+         * @param device        The wrapped device.
+         * @param ownerId       The id of the owner (must be null if the {@code device} is not registered).
+         * @param ownerUsername The username of the owner (must be null if the {@code device} is not registered).
          */
-        private final User user;
+        /* package */ RegisteredDeviceWrapper(Device device, Long ownerId, String ownerUsername) {
+            this.device = device;
+            this.ownerId = ownerId;
+            this.ownerUsername = ownerUsername;
+        }
 
         /**
          * Constructor for registered devices.
          *
          * @param device The wrapped device.
-         * @param user   The wrapped user (must be null if the {@code device} is not registered.
+         * @param user   The user owning the device.
          */
         /* package */ RegisteredDeviceWrapper(Device device, User user) {
-            this.device = device;
-            this.user = user;
+            this(device, user.getId(), user.getUsername());
         }
 
         /**
@@ -167,7 +284,7 @@ public interface DeviceService {
          * @param device The wrapped device.
          */
         /* package */ RegisteredDeviceWrapper(Device device) {
-            this(device, null);
+            this(device, null, null);
         }
 
         /**
@@ -178,10 +295,58 @@ public interface DeviceService {
         }
 
         /**
-         * @return The wrapped user (will be null if the {@code device} is not registered.
+         * @return The id of the owner (will be empty if the {@code device} is not registered).
+         */
+        public Optional<Long> getOwnerId() {
+            return Optional.ofNullable(ownerId);
+        }
+
+        /**
+         * @return The username of the owner (will be empty if the {@code device} is not registered).
+         */
+        public Optional<String> getOwnerUsername() {
+            return Optional.ofNullable(ownerUsername);
+        }
+    }
+
+    /**
+     * Event published when the target temperature of a {@link Device} changes (i.e it is set or removed).
+     */
+    class TargetTemperatureChangedEvent {
+
+        /**
+         * The id of the {@link Device} whose target temperature changed.
+         */
+        private final long deviceId;
+
+        /**
+         * The new target temperature (null if it was removed).
+         */
+        private final BigDecimal targetTemperature;
+
+        /**
+         * Constructor.
+         *
+         * @param deviceId          The id of the {@link Device} whose target temperature changed.
+         * @param targetTemperature The new target temperature (null if it was removed).
+         */
+        /* package */ TargetTemperatureChangedEvent(long deviceId, BigDecimal targetTemperature) {
+            this.deviceId = deviceId;
+            this.targetTemperature = targetTemperature;
+        }
+
+        /**
+         * @return The id of the {@link Device} whose target temperature changed.
          */
-        public Optional<User> getUser() {
-            return Optional.ofNullable(user);
+        public long getDeviceId() {
+            return deviceId;
+        }
+
+        /**
+         * @return The new target temperature (empty if it was removed).
+         */
+        public Optional<BigDecimal> getTargetTemperature() {
+            return Optional.ofNullable(targetTemperature);
         }
     }
 
@@ -190,6 +355,11 @@ public interface DeviceService {
      */
     class DeviceWithNicknameWrapper {
 
+        /**
+         * The id of the {@link DeviceRegistration} from where data was taken.
+         */
+        private final long registrationId;
+
         /**
          * The wrapped device.
          */
@@ -206,6 +376,7 @@ public interface DeviceService {
          * @param deviceRegistration The {@link DeviceRegistration} containing data to be wrapped.
          */
         /* package */ DeviceWithNicknameWrapper(DeviceRegistration deviceRegistration) {
+            this.registrationId = deviceRegistration.getId();
             this.device = deviceRegistration.getDevice();
             this.nickname = deviceRegistration.getNickname();
         }
@@ -223,5 +394,12 @@ public interface DeviceService {
         public String getNickname() {
             return nickname;
         }
+
+        /**
+         * @return The id of the {@link DeviceRegistration} from where data was taken (used as keyset cursor).
+         */
+        public long getRegistrationId() {
+            return registrationId;
+        }
     }
 }
@@ -2,10 +2,12 @@ package ar.edu.itba.iot.carne_iot.server.services;
 
 import ar.edu.itba.iot.carne_iot.server.models.FoodPreference;
 import ar.edu.itba.iot.carne_iot.server.models.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -20,9 +22,22 @@ public interface FoodPreferencesService {
      * @param userId   The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User}
      *                 whose {@link FoodPreference}s are being returned.
      * @param pageable The {@link Pageable} object containing pagination stuff.
-     * @return The resulting {@link Page}.
+     * @return The resulting {@link Slice}.
      */
-    Page<FoodPreference> findByOwner(long userId, Pageable pageable);
+    Slice<FoodPreference> findByOwner(long userId, Pageable pageable);
+
+    /**
+     * List {@link FoodPreference}s belonging to a given {@link ar.edu.itba.iot.carne_iot.server.models.User}
+     * sorted by id, using keyset pagination (i.e no count query is executed).
+     *
+     * @param userId  The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User}
+     *                whose {@link FoodPreference}s are being returned.
+     * @param afterId The id of the last {@link FoodPreference} of the previous page,
+     *                or {@code null} to get the first page.
+     * @param limit   The max. amount of {@link FoodPreference}s to be returned.
+     * @return The resulting {@link List}.
+     */
+    List<FoodPreference> findByOwnerAfter(long userId, Long afterId, int limit);
 
     /**
      * Gets a {@link FoodPreference} with the given {@code name},
@@ -37,6 +52,18 @@ public interface FoodPreferencesService {
      */
     Optional<FoodPreference> findByNameAndOwner(String name, long userId);
 
+    /**
+     * Gets the moment in which the {@link FoodPreference} with the given {@code name},
+     * belonging to the given {@link ar.edu.itba.iot.carne_iot.server.models.User}, was last modified,
+     * without loading the {@link FoodPreference} (e.g to answer conditional requests).
+     *
+     * @param name   The {@link FoodPreference} name.
+     * @param userId The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User} owning the preference.
+     * @return A <b>nullable</b> {@link Optional} of {@link Instant} containing the said moment
+     * if the {@link FoodPreference} exists, or {@code null} otherwise.
+     */
+    Optional<Instant> getLastModified(String name, long userId);
+
     /**
      * Creates a new {@link FoodPreference}.
      *
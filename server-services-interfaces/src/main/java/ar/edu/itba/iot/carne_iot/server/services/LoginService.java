@@ -11,15 +11,26 @@ public interface LoginService {
 
     /**
      * Performs the login process (i.e username and password authentication),
-     * returning a token that represents the session.
+     * returning a refresh token that represents the session, and a short-lived access token for it.
      *
      * @param username The user's username.
      * @param password The user's password.
-     * @return A JWT in string representation.
+     * @return A container with the JWTs in string representation.
      * @throws InvalidCredentialsException In cae the user does not exists, or if the password is not the correct one.
      */
     UserTokenAndJtiContainer login(String username, String password) throws InvalidCredentialsException;
 
+    /**
+     * Issues a new access token for the given session, if it is still valid (i.e not blacklisted).
+     * This is the only moment in which the session is checked, as access tokens are verified without checking it.
+     *
+     * @param ownerId The id of the {@link User} owning the session.
+     * @param jti     The unique identifier for the session.
+     * @return The new access token in string representation.
+     * @throws InvalidCredentialsException In case the session does not exist, or if it is not valid.
+     */
+    String refresh(long ownerId, long jti) throws InvalidCredentialsException;
+
     /**
      * Class wrapping a {@link User} and a token (in {@link String} representation) for it.
      */
@@ -30,25 +41,32 @@ public interface LoginService {
          */
         private final User user;
         /**
-         * The token belonging to the {@link User}.
+         * The (access) token belonging to the {@link User}.
          */
         private final String token;
 
         /**
-         * The JWT id of the token.
+         * The refresh token belonging to the {@link User} (i.e the one representing the session).
+         */
+        private final String refreshToken;
+
+        /**
+         * The JWT id of the tokens.
          */
         private final long jti;
 
         /**
          * Constructor.
          *
-         * @param user  The wrapped user.
-         * @param token The token belonging to the {@link User}.
-         * @param jti   The JWT id of the token.
+         * @param user         The wrapped user.
+         * @param token        The (access) token belonging to the {@link User}.
+         * @param refreshToken The refresh token belonging to the {@link User}.
+         * @param jti          The JWT id of the tokens.
          */
-        /* package */ UserTokenAndJtiContainer(User user, String token, long jti) {
+        /* package */ UserTokenAndJtiContainer(User user, String token, String refreshToken, long jti) {
             this.user = user;
             this.token = token;
+            this.refreshToken = refreshToken;
             this.jti = jti;
         }
 
@@ -60,14 +78,21 @@ public interface LoginService {
         }
 
         /**
-         * @return The token belonging to the {@link User}.
+         * @return The (access) token belonging to the {@link User}.
          */
         public String getToken() {
             return token;
         }
 
         /**
-         * @return The JWT id of the token.
+         * @return The refresh token belonging to the {@link User}.
+         */
+        public String getRefreshToken() {
+            return refreshToken;
+        }
+
+        /**
+         * @return The JWT id of the tokens.
          */
         public long getJti() {
             return jti;
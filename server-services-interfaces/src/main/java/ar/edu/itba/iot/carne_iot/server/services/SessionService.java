@@ -2,9 +2,10 @@ package ar.edu.itba.iot.carne_iot.server.services;
 
 import ar.edu.itba.iot.carne_iot.server.models.Session;
 import ar.edu.itba.iot.carne_iot.server.models.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -14,14 +15,25 @@ import java.util.Optional;
 public interface SessionService {
 
     /**
-     * Retrieves a {@link Page} of {@link Session}s belonging to the given {@code owner},
+     * Retrieves a {@link Slice} of {@link Session}s belonging to the given {@code owner},
      * according to the given {@code pageable}.
      *
      * @param owner    The {@link User} owning the resultant {@link Session}s.
      * @param pageable The {@link Pageable} used to set page stuff.
-     * @return The resultant {@link Page}.
+     * @return The resultant {@link Slice}.
      */
-    Page<Session> listSessions(User owner, Pageable pageable);
+    Slice<Session> listSessions(User owner, Pageable pageable);
+
+    /**
+     * Retrieves the {@link Session}s belonging to the given {@code owner} sorted by id,
+     * using keyset pagination (i.e no count query is executed).
+     *
+     * @param owner   The {@link User} owning the resultant {@link Session}s.
+     * @param afterId The id of the last {@link Session} of the previous page, or {@code null} to get the first page.
+     * @param limit   The max. amount of {@link Session}s to be returned.
+     * @return The resultant {@link List}.
+     */
+    List<Session> listSessionsAfter(User owner, Long afterId, int limit);
 
     /**
      * Indicates whether a {@link Session} is valid (i.e not blacklisted).
@@ -32,6 +44,19 @@ public interface SessionService {
      */
     boolean validSession(long ownerId, long jti);
 
+    /**
+     * Indicates whether a {@link Session} was recently revoked (i.e blacklisted), without accessing the database
+     * (i.e revocations performed by other nodes are known within seconds, while {@link #validSession(long, long)}
+     * can answer with cached data). Valid sessions deleted together with their {@link User} are reported as revoked.
+     * Note that this method does not check that the {@link Session} exists,
+     * and that sessions revoked longer than an access token lifetime ago are not reported.
+     *
+     * @param ownerId The id of the {@link User} owning the {@link Session}.
+     * @param jti     The unique identifier for the {@link Session}.
+     * @return {@code true} if the {@link Session} is revoked, or {@code false} otherwise.
+     */
+    boolean revokedSession(long ownerId, long jti);
+
     /**
      * Invalidates a {@link Session} (i.e blacklists it).
      *
@@ -2,10 +2,12 @@ package ar.edu.itba.iot.carne_iot.server.services;
 
 import ar.edu.itba.iot.carne_iot.server.models.Role;
 import ar.edu.itba.iot.carne_iot.server.models.User;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -24,11 +26,29 @@ public interface UserService {
      * @param username     A filter for the {@link User}'s username.
      * @param email        A filter for the {@link User}'s email.
      * @param pageable     An {@link Object} implementing the {@link Pageable} interface.
-     * @return The resulting {@link Page}.
+     * @return The resulting {@link Slice}.
      * @apiNote Those parameter that are {@code null} must not be taken into account (they are optional).
      */
-    Page<User> findMatching(String fullName, LocalDate minBirthDate, LocalDate maxBirthDate,
-                            String username, String email, Pageable pageable);
+    Slice<User> findMatching(String fullName, LocalDate minBirthDate, LocalDate maxBirthDate,
+                             String username, String email, Pageable pageable);
+
+    /**
+     * Finds stored {@link User}s sorted by id, applying optional filters and keyset pagination
+     * (i.e the cost of a page does not depend on how deep it is, and no count query is executed).
+     * String filters are compared with the "like" keyword, matching anywhere.
+     *
+     * @param fullName     A filter for the {@link User}'s full name.
+     * @param minBirthDate The minimum age of the retrieved {@link User}s
+     * @param maxBirthDate The maximum age of the retrieved {@link User}s
+     * @param username     A filter for the {@link User}'s username.
+     * @param email        A filter for the {@link User}'s email.
+     * @param afterId      The id of the last {@link User} of the previous page, or {@code null} to get the first page.
+     * @param limit        The max. amount of {@link User}s to be returned.
+     * @return The resulting {@link List}.
+     * @apiNote Those filters that are {@code null} must not be taken into account (they are optional).
+     */
+    List<User> findMatchingAfter(String fullName, LocalDate minBirthDate, LocalDate maxBirthDate,
+                                 String username, String email, Long afterId, int limit);
 
     /**
      * Gets a specific {@link User} by it's {@code id}.
@@ -39,6 +59,16 @@ public interface UserService {
      */
     Optional<User> getById(long id);
 
+    /**
+     * Gets the moment in which the {@link User} with the given {@code id} was last modified,
+     * without loading the {@link User} (e.g to answer conditional requests).
+     *
+     * @param id The {@link User}'s id.
+     * @return A <b>nullable</b> {@link Optional} of {@link Instant} containing the said moment
+     * if the {@link User} exists, or {@code null} otherwise.
+     */
+    Optional<Instant> getLastModified(long id);
+
     /**
      * Retrieves the {@link User} with the given {@code username}.
      *
@@ -0,0 +1,190 @@
+package ar.edu.itba.iot.carne_iot.server.security;
+
+import ar.edu.itba.iot.carne_iot.server.models.Role;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Collection;
+
+/**
+ * Enum containing the authorization policies that can be applied to a method invocation
+ * through the {@link Authorize} annotation.
+ * <p>
+ * Each policy is evaluated with the permission providers, and (if it takes one) with the argument of the invocation
+ * specified in the annotation, already adapted to the type returned by {@link #getArgumentType()}.
+ */
+public enum AuthorizationPolicy {
+
+    /**
+     * The currently authenticated user is admin.
+     */
+    ADMIN(null) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return providers.getAdminPermissionProvider().isAdmin();
+        }
+    },
+    /**
+     * The currently authenticated user can read the user with the given id.
+     */
+    READ_USER(Long.class) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return providers.getUserPermissionProvider().readById((Long) argument);
+        }
+    },
+    /**
+     * The currently authenticated user can read the user with the given username.
+     */
+    READ_USER_BY_USERNAME(String.class) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return providers.getUserPermissionProvider().readByUsername((String) argument);
+        }
+    },
+    /**
+     * The currently authenticated user can read the user with the given email.
+     */
+    READ_USER_BY_EMAIL(String.class) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return providers.getUserPermissionProvider().readByEmail((String) argument);
+        }
+    },
+    /**
+     * The currently authenticated user can write the user with the given id.
+     */
+    WRITE_USER(Long.class) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return providers.getUserPermissionProvider().writeById((Long) argument);
+        }
+    },
+    /**
+     * The currently authenticated user can delete the user with the given id.
+     */
+    DELETE_USER(Long.class) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return providers.getUserPermissionProvider().deleteById((Long) argument);
+        }
+    },
+    /**
+     * The currently authenticated user can delete the user with the given username.
+     */
+    DELETE_USER_BY_USERNAME(String.class) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return providers.getUserPermissionProvider().deleteByUsername((String) argument);
+        }
+    },
+    /**
+     * The currently authenticated user can delete the user with the given email.
+     */
+    DELETE_USER_BY_EMAIL(String.class) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return providers.getUserPermissionProvider().deleteByEmail((String) argument);
+        }
+    },
+    /**
+     * The currently authenticated user owns the device with the given id, or is admin.
+     */
+    DEVICE_OWNER_OR_ADMIN(Long.class) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return providers.getDevicePermissionProvider().isOwnerOrAdmin((Long) argument);
+        }
+    },
+    /**
+     * The currently authenticated device is the device with the given id.
+     */
+    OWN_DEVICE(Long.class) {
+        @Override
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return hasRole(authentication, Role.ROLE_DEVICE)
+                    && providers.getDevicePermissionProvider().isOwnDevice((Long) argument);
+        }
+    },
+    /**
+     * The currently authenticated device can operate over each of the devices with the given ids.
+     * <p>
+     * Note that this is wider than {@link #OWN_DEVICE}: a device acts as a gateway for the devices registered to
+     * the same user (i.e a device token can write readings of any device of the user that paired it),
+     * so a gateway multiplexing probes does not need one token per probe. Registrations are checked
+     * against the {@link ar.edu.itba.iot.carne_iot.server.services.DeviceRegistrationIndex}.
+     */
+    OWN_DEVICES(Collection.class) {
+        @Override
+        @SuppressWarnings("unchecked")
+        /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                        Object argument) {
+            return hasRole(authentication, Role.ROLE_DEVICE)
+                    && providers.getDevicePermissionProvider().areOwnDevices((Collection<Long>) argument);
+        }
+    };
+
+    /**
+     * The type of argument taken by the policy (i.e {@code null} if it does not take any).
+     * A {@link Collection} type means a collection of ids.
+     */
+    private final Class<?> argumentType;
+
+    /**
+     * Constructor.
+     *
+     * @param argumentType The type of argument taken by the policy (i.e {@code null} if it does not take any).
+     */
+    AuthorizationPolicy(Class<?> argumentType) {
+        this.argumentType = argumentType;
+    }
+
+    /**
+     * @return The type of argument taken by the policy (i.e {@code null} if it does not take any).
+     * A {@link Collection} type means a collection of ids.
+     */
+    public Class<?> getArgumentType() {
+        return argumentType;
+    }
+
+    /**
+     * Evaluates this policy.
+     *
+     * @param providers      The permission providers.
+     * @param authentication The {@link Authentication} of the current invocation.
+     * @param argument       The (already adapted) argument checked by the policy.
+     * @return {@code true} if the policy is satisfied, or {@code false} otherwise.
+     */
+    /* package */
+    abstract boolean isGranted(PermissionProviders providers, Authentication authentication, Object argument);
+
+    /**
+     * Checks whether the given {@code authentication} has the given {@code role}.
+     *
+     * @param authentication The {@link Authentication} to be checked.
+     * @param role           The {@link Role} to be checked.
+     * @return {@code true} if the authentication has the role, or {@code false} otherwise.
+     */
+    private static boolean hasRole(Authentication authentication, Role role) {
+        if (authentication == null) {
+            return false;
+        }
+        final String authority = role.toString();
+        for (GrantedAuthority grantedAuthority : authentication.getAuthorities()) {
+            if (authority.equals(grantedAuthority.getAuthority())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
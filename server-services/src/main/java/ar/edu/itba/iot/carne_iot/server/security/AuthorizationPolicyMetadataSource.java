@@ -0,0 +1,126 @@
+package ar.edu.itba.iot.carne_iot.server.security;
+
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+import ar.edu.itba.iot.carne_iot.server.models.User;
+import org.springframework.core.MethodParameter;
+import org.springframework.core.ParameterNameDiscoverer;
+import org.springframework.core.ResolvableType;
+import org.springframework.core.annotation.AnnotationUtils;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.access.method.AbstractFallbackMethodSecurityMetadataSource;
+import org.springframework.security.core.parameters.DefaultSecurityParameterNameDiscoverer;
+import org.springframework.util.ClassUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link org.springframework.security.access.method.MethodSecurityMetadataSource} that compiles the
+ * {@link Authorize} annotations into {@link CompiledAuthorizationPolicy} attributes.
+ * <p>
+ * Attributes are computed once per method (when the annotated bean is proxied), and cached by Spring Security.
+ * A policy that can not be bound to the annotated method fails the startup.
+ */
+/* package */ class AuthorizationPolicyMetadataSource extends AbstractFallbackMethodSecurityMetadataSource {
+
+    /**
+     * Discovers parameter names the same way they were discovered for expression based annotations.
+     */
+    private static final ParameterNameDiscoverer PARAMETER_NAME_DISCOVERER =
+            new DefaultSecurityParameterNameDiscoverer();
+
+    @Override
+    protected Collection<ConfigAttribute> findAttributes(Method method, Class<?> targetClass) {
+        final Authorize annotation = AnnotationUtils.findAnnotation(method, Authorize.class);
+        if (annotation == null) {
+            return null;
+        }
+        return Collections.singletonList(compile(annotation, method));
+    }
+
+    @Override
+    protected Collection<ConfigAttribute> findAttributes(Class<?> clazz) {
+        // Policies are only applied to methods
+        return null;
+    }
+
+    @Override
+    public Collection<ConfigAttribute> getAllConfigAttributes() {
+        return null;
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Binds the policy in the given {@code annotation} to the given {@code method}.
+     *
+     * @param annotation The {@link Authorize} annotation.
+     * @param method     The annotated method.
+     * @return The {@link CompiledAuthorizationPolicy}.
+     * @throws IllegalStateException If the policy can not be bound to the method.
+     */
+    private static CompiledAuthorizationPolicy compile(Authorize annotation, Method method)
+            throws IllegalStateException {
+        final AuthorizationPolicy policy = annotation.value();
+        final String description = method.getDeclaringClass().getSimpleName() + "#" + method.getName();
+        if (policy.getArgumentType() == null) {
+            return new CompiledAuthorizationPolicy(policy, -1, Function.identity(), description);
+        }
+        final String[] names = PARAMETER_NAME_DISCOVERER.getParameterNames(method);
+        if (names == null) {
+            throw new IllegalStateException("Could not discover parameter names of " + description);
+        }
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(annotation.argument())) {
+                final Function<Object, Object> adapter = adapter(policy, new MethodParameter(method, i));
+                if (adapter == null) {
+                    throw new IllegalStateException("Parameter \"" + names[i] + "\" of " + description
+                            + " can not be checked by policy " + policy);
+                }
+                return new CompiledAuthorizationPolicy(policy, i, adapter, description);
+            }
+        }
+        throw new IllegalStateException("No parameter named \"" + annotation.argument() + "\" in " + description);
+    }
+
+    /**
+     * Returns a {@link Function} that adapts arguments of the given {@code parameter}
+     * to the type taken by the given {@code policy}.
+     *
+     * @param policy    The {@link AuthorizationPolicy}.
+     * @param parameter The {@link MethodParameter} whose arguments are checked.
+     * @return The adapter, or {@code null} if the parameter can not be checked by the policy.
+     */
+    private static Function<Object, Object> adapter(AuthorizationPolicy policy, MethodParameter parameter) {
+        final Class<?> expected = policy.getArgumentType();
+        final Class<?> actual = ClassUtils.resolvePrimitiveIfNecessary(parameter.getParameterType());
+        if (expected == Collection.class) {
+            if (!Collection.class.isAssignableFrom(actual)) {
+                return null;
+            }
+            final Class<?> elementType = ResolvableType.forMethodParameter(parameter).asCollection().resolveGeneric();
+            if (elementType == Long.class) {
+                return Function.identity();
+            }
+            if (elementType != null && TemperatureReading.class.isAssignableFrom(elementType)) {
+                return readings -> ((Collection<?>) readings).stream()
+                        .map(reading -> ((TemperatureReading) reading).getDeviceId())
+                        .collect(Collectors.toList());
+            }
+            return null;
+        }
+        if (expected.isAssignableFrom(actual)) {
+            return Function.identity();
+        }
+        if (expected == Long.class && User.class.isAssignableFrom(actual)) {
+            return user -> ((User) user).getId();
+        }
+        return null;
+    }
+}
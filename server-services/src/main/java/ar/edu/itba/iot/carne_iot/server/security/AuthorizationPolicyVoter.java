@@ -0,0 +1,74 @@
+package ar.edu.itba.iot.carne_iot.server.security;
+
+import org.aopalliance.intercept.MethodInvocation;
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.core.Authentication;
+
+import java.util.Collection;
+
+/**
+ * {@link AccessDecisionVoter} that evaluates {@link CompiledAuthorizationPolicy} attributes.
+ * <p>
+ * The permission providers are looked up the first time a policy is evaluated (and then reused),
+ * as the method security infrastructure is created before the rest of the beans.
+ */
+/* package */ class AuthorizationPolicyVoter implements AccessDecisionVoter<MethodInvocation> {
+
+    /**
+     * {@link BeanFactory} from where the permission providers are taken.
+     */
+    private final BeanFactory beanFactory;
+
+    /**
+     * The permission providers (lazily initialized).
+     */
+    private volatile PermissionProviders providers;
+
+    /**
+     * Constructor.
+     *
+     * @param beanFactory {@link BeanFactory} from where the permission providers are taken.
+     */
+    /* package */ AuthorizationPolicyVoter(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    public boolean supports(ConfigAttribute attribute) {
+        return attribute instanceof CompiledAuthorizationPolicy;
+    }
+
+    @Override
+    public boolean supports(Class<?> clazz) {
+        return MethodInvocation.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public int vote(Authentication authentication, MethodInvocation invocation,
+                    Collection<ConfigAttribute> attributes) {
+        for (ConfigAttribute attribute : attributes) {
+            if (attribute instanceof CompiledAuthorizationPolicy) {
+                return ((CompiledAuthorizationPolicy) attribute)
+                        .isGranted(getProviders(), authentication, invocation.getArguments())
+                        ? ACCESS_GRANTED : ACCESS_DENIED;
+            }
+        }
+        return ACCESS_ABSTAIN;
+    }
+
+    /**
+     * @return The permission providers.
+     */
+    private PermissionProviders getProviders() {
+        PermissionProviders actual = providers;
+        if (actual == null) {
+            actual = new PermissionProviders(beanFactory.getBean(AdminPermissionProvider.class),
+                    beanFactory.getBean(UserPermissionProvider.class),
+                    beanFactory.getBean(DevicePermissionProvider.class));
+            providers = actual;
+        }
+        return actual;
+    }
+}
@@ -0,0 +1,30 @@
+package ar.edu.itba.iot.carne_iot.server.security;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Annotation for specifying the {@link AuthorizationPolicy} a method invocation must satisfy.
+ * <p>
+ * The policy and the binding of its argument are resolved once (when the annotated bean is proxied),
+ * so each invocation is authorized with plain method calls (i.e no expression is parsed or evaluated).
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+@Documented
+public @interface Authorize {
+
+    /**
+     * @return The {@link AuthorizationPolicy} the invocation must satisfy.
+     */
+    AuthorizationPolicy value();
+
+    /**
+     * @return The name of the parameter whose argument is checked by the policy
+     * (ignored by policies not taking an argument).
+     */
+    String argument() default "";
+}
@@ -0,0 +1,75 @@
+package ar.edu.itba.iot.carne_iot.server.security;
+
+import org.springframework.security.access.ConfigAttribute;
+import org.springframework.security.core.Authentication;
+
+import java.util.function.Function;
+
+/**
+ * {@link ConfigAttribute} holding an {@link AuthorizationPolicy} already bound to the argument it checks
+ * (i.e the position of the parameter, and how the argument is adapted to the type taken by the policy).
+ */
+/* package */ final class CompiledAuthorizationPolicy implements ConfigAttribute {
+
+    /**
+     * The policy to be evaluated.
+     */
+    private final AuthorizationPolicy policy;
+
+    /**
+     * The position of the parameter whose argument is checked by the policy (i.e negative if it takes none).
+     */
+    private final int argumentIndex;
+
+    /**
+     * Adapts the argument to the type taken by the policy.
+     */
+    private final Function<Object, Object> adapter;
+
+    /**
+     * A description of the annotated method, used to describe this attribute.
+     */
+    private final String description;
+
+    /**
+     * Constructor.
+     *
+     * @param policy        The policy to be evaluated.
+     * @param argumentIndex The position of the parameter whose argument is checked by the policy
+     *                      (i.e negative if it takes none).
+     * @param adapter       Adapts the argument to the type taken by the policy.
+     * @param description   A description of the annotated method, used to describe this attribute.
+     */
+    /* package */ CompiledAuthorizationPolicy(AuthorizationPolicy policy, int argumentIndex,
+                                              Function<Object, Object> adapter, String description) {
+        this.policy = policy;
+        this.argumentIndex = argumentIndex;
+        this.adapter = adapter;
+        this.description = description;
+    }
+
+    /**
+     * Evaluates the policy for an invocation with the given {@code arguments}.
+     *
+     * @param providers      The permission providers.
+     * @param authentication The {@link Authentication} of the invocation.
+     * @param arguments      The arguments of the invocation.
+     * @return {@code true} if the policy is satisfied, or {@code false} otherwise.
+     */
+    /* package */ boolean isGranted(PermissionProviders providers, Authentication authentication,
+                                    Object[] arguments) {
+        final Object argument = argumentIndex < 0 ? null : adapter.apply(arguments[argumentIndex]);
+        return policy.isGranted(providers, authentication, argument);
+    }
+
+    @Override
+    public String getAttribute() {
+        // Can not be represented as a String
+        return null;
+    }
+
+    @Override
+    public String toString() {
+        return policy + " on " + description;
+    }
+}
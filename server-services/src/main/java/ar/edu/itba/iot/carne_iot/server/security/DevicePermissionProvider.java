@@ -1,5 +1,7 @@
 package ar.edu.itba.iot.carne_iot.server.security;
 
+import java.util.Collection;
+
 /**
  * Defines behaviour for an object that provides authorization for operating over
  * {@link ar.edu.itba.iot.carne_iot.server.models.Device} instances.
@@ -23,4 +25,17 @@ public interface DevicePermissionProvider {
      * @return {@code true} if it is the own device, or {@code false} otherwise.
      */
     boolean isOwnDevice(long deviceId);
+
+    /**
+     * Tells whether the currently authenticated {@link ar.edu.itba.iot.carne_iot.server.models.Device}
+     * can operate over all the {@link ar.edu.itba.iot.carne_iot.server.models.Device}s with the given ids
+     * (i.e each of them is either the own device,
+     * or is registered to the {@link ar.edu.itba.iot.carne_iot.server.models.User} that paired the own device).
+     * This is intentionally wider than {@link #isOwnDevice(long)}: any device of a user can act as a gateway
+     * for the rest of that user's devices (e.g to write their readings in bulk).
+     *
+     * @param deviceIds The ids of the {@link ar.edu.itba.iot.carne_iot.server.models.Device}s to be operated.
+     * @return {@code true} if all the devices can be operated, or {@code false} otherwise.
+     */
+    boolean areOwnDevices(Collection<Long> deviceIds);
 }
@@ -1,6 +1,6 @@
 package ar.edu.itba.iot.carne_iot.server.security;
 
-import ar.edu.itba.iot.carne_iot.server.persistence.daos.DeviceRegistrationDao;
+import ar.edu.itba.iot.carne_iot.server.services.DeviceRegistrationIndex;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,6 +8,10 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
 
+import java.util.Collection;
+import java.util.Set;
+import java.util.stream.Collectors;
+
 /**
  * Concrete implementation of {@link UserPermissionProvider}.
  */
@@ -20,14 +24,21 @@ import org.springframework.stereotype.Component;
     private final static Logger LOGGER = LoggerFactory.getLogger(DevicePermissionProviderImpl.class);
 
     /**
-     * A {@link DeviceRegistrationDao} used to retrieve
-     * {@link ar.edu.itba.iot.carne_iot.server.models.DeviceRegistration} to check ownership.
+     * A {@link DeviceRegistrationIndex} used to check ownership
+     * (i.e active {@link ar.edu.itba.iot.carne_iot.server.models.DeviceRegistration}s) without accessing the database.
+     */
+    private final DeviceRegistrationIndex deviceRegistrationIndex;
+
+    /**
+     * {@link CurrentUserIdProvider} to know the currently authenticated user id.
      */
-    private final DeviceRegistrationDao deviceRegistrationDao;
+    private final CurrentUserIdProvider currentUserIdProvider;
 
     @Autowired
-    /* package */ DevicePermissionProviderImpl(DeviceRegistrationDao deviceRegistrationDao) {
-        this.deviceRegistrationDao = deviceRegistrationDao;
+    /* package */ DevicePermissionProviderImpl(DeviceRegistrationIndex deviceRegistrationIndex,
+                                               CurrentUserIdProvider currentUserIdProvider) {
+        this.deviceRegistrationIndex = deviceRegistrationIndex;
+        this.currentUserIdProvider = currentUserIdProvider;
     }
 
 
@@ -41,18 +52,29 @@ import org.springframework.stereotype.Component;
             return true;
         }
 
-        final Object principal = authentication.getPrincipal();
-        if (principal == null || !(principal instanceof String)) {
-            LOGGER.error("An Authentication instance has reached the service layer " +
-                    "having its principal being null or without having a String as a principal.");
+        return currentUserIdProvider.currentUserIdOptional()
+                .map(userId -> deviceRegistrationIndex.isRegisteredTo(deviceId, userId))
+                .orElse(false);
+    }
+
+    @Override
+    public boolean isOwnDevice(long deviceId) {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return false;
+        }
+        final Object details = authentication.getDetails();
+        if (details == null || !(details instanceof Long)) {
+            LOGGER.error("An Authentication instance for devices has reached the service layer " +
+                    "having its details being null or without having a long as a principal.");
             return false;
         }
 
-        return deviceRegistrationDao.existsByDeviceIdAndOwnerUsernameAndActiveTrue(deviceId, (String) principal);
+        return ((Long) details) == deviceId; // TODO: maybe some more checks should be made
     }
 
     @Override
-    public boolean isOwnDevice(long deviceId) {
+    public boolean areOwnDevices(Collection<Long> deviceIds) {
         final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null) {
             return false;
@@ -63,7 +85,18 @@ import org.springframework.stereotype.Component;
                     "having its details being null or without having a long as a principal.");
             return false;
         }
+        final long ownDeviceId = (Long) details;
+        final Set<Long> otherDevices = deviceIds.stream()
+                .filter(deviceId -> deviceId != ownDeviceId)
+                .collect(Collectors.toSet());
+        if (otherDevices.isEmpty()) {
+            return true;
+        }
 
-        return ((Long) details) == deviceId; // TODO: maybe some more checks should be made
+        // All the other devices must be registered to the user that paired the authenticated device
+        return currentUserIdProvider.currentUserIdOptional()
+                .map(userId -> otherDevices.stream()
+                        .allMatch(deviceId -> deviceRegistrationIndex.isRegisteredTo(deviceId, userId)))
+                .orElse(false);
     }
 }
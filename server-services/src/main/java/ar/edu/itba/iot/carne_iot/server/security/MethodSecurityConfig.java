@@ -1,13 +1,47 @@
 package ar.edu.itba.iot.carne_iot.server.security;
 
+import org.springframework.beans.factory.BeanFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.security.access.AccessDecisionManager;
+import org.springframework.security.access.AccessDecisionVoter;
+import org.springframework.security.access.method.MethodSecurityMetadataSource;
+import org.springframework.security.access.vote.AffirmativeBased;
+import org.springframework.security.access.vote.AuthenticatedVoter;
+import org.springframework.security.access.vote.RoleVoter;
 import org.springframework.security.config.annotation.method.configuration.EnableGlobalMethodSecurity;
 import org.springframework.security.config.annotation.method.configuration.GlobalMethodSecurityConfiguration;
 
+import java.util.Arrays;
+import java.util.List;
+
 /**
- * Configuration class for Global Method Security
+ * Configuration class for Global Method Security.
+ * Methods are authorized with {@link Authorize} annotations (besides the {@code Secured} ones).
  */
 @Configuration
-@EnableGlobalMethodSecurity(securedEnabled = true, prePostEnabled = true)
+@EnableGlobalMethodSecurity(securedEnabled = true)
 public class MethodSecurityConfig extends GlobalMethodSecurityConfiguration {
+
+    /**
+     * {@link BeanFactory} from where the permission providers are taken.
+     */
+    private final BeanFactory beanFactory;
+
+    @Autowired
+    public MethodSecurityConfig(BeanFactory beanFactory) {
+        this.beanFactory = beanFactory;
+    }
+
+    @Override
+    protected MethodSecurityMetadataSource customMethodSecurityMetadataSource() {
+        return new AuthorizationPolicyMetadataSource();
+    }
+
+    @Override
+    protected AccessDecisionManager accessDecisionManager() {
+        final List<AccessDecisionVoter<?>> voters = Arrays.asList(new AuthorizationPolicyVoter(beanFactory),
+                new RoleVoter(), new AuthenticatedVoter());
+        return new AffirmativeBased(voters);
+    }
 }
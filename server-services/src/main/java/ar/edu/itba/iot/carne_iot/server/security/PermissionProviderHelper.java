@@ -6,8 +6,6 @@ import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 
 import java.util.Objects;
-import java.util.Set;
-import java.util.stream.Collectors;
 
 /**
  * Helper class for authorization tasks.
@@ -23,10 +21,8 @@ import java.util.stream.Collectors;
     /* package */
     static boolean isAdmin(Authentication authentication) {
         Objects.requireNonNull(authentication, "The authentication must not be null");
-        final Set<String> roles = authentication.getAuthorities().stream()
+        return authentication.getAuthorities().stream()
                 .map(GrantedAuthority::getAuthority)
-                .collect(Collectors.toSet());
-
-        return roles.contains(Role.ROLE_ADMIN.toString());
+                .anyMatch(Role.ROLE_ADMIN.toString()::equals);
     }
 }
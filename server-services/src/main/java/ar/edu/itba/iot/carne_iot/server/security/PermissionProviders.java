@@ -0,0 +1,58 @@
+package ar.edu.itba.iot.carne_iot.server.security;
+
+/**
+ * Container class wrapping the permission providers used to evaluate {@link AuthorizationPolicy} instances.
+ */
+/* package */ final class PermissionProviders {
+
+    /**
+     * The {@link AdminPermissionProvider}.
+     */
+    private final AdminPermissionProvider adminPermissionProvider;
+
+    /**
+     * The {@link UserPermissionProvider}.
+     */
+    private final UserPermissionProvider userPermissionProvider;
+
+    /**
+     * The {@link DevicePermissionProvider}.
+     */
+    private final DevicePermissionProvider devicePermissionProvider;
+
+    /**
+     * Constructor.
+     *
+     * @param adminPermissionProvider  The {@link AdminPermissionProvider}.
+     * @param userPermissionProvider   The {@link UserPermissionProvider}.
+     * @param devicePermissionProvider The {@link DevicePermissionProvider}.
+     */
+    /* package */ PermissionProviders(AdminPermissionProvider adminPermissionProvider,
+                                      UserPermissionProvider userPermissionProvider,
+                                      DevicePermissionProvider devicePermissionProvider) {
+        this.adminPermissionProvider = adminPermissionProvider;
+        this.userPermissionProvider = userPermissionProvider;
+        this.devicePermissionProvider = devicePermissionProvider;
+    }
+
+    /**
+     * @return The {@link AdminPermissionProvider}.
+     */
+    /* package */ AdminPermissionProvider getAdminPermissionProvider() {
+        return adminPermissionProvider;
+    }
+
+    /**
+     * @return The {@link UserPermissionProvider}.
+     */
+    /* package */ UserPermissionProvider getUserPermissionProvider() {
+        return userPermissionProvider;
+    }
+
+    /**
+     * @return The {@link DevicePermissionProvider}.
+     */
+    /* package */ DevicePermissionProvider getDevicePermissionProvider() {
+        return devicePermissionProvider;
+    }
+}
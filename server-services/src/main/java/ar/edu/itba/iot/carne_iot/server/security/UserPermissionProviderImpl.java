@@ -24,20 +24,26 @@ import java.util.function.Function;
     private final static Logger LOGGER = LoggerFactory.getLogger(UserPermissionProviderImpl.class);
 
     /**
-     * A {@link UserDao} used to retrieve a {@link User} by its id.
+     * A {@link UserDao} used to retrieve a {@link User} by its username or email.
      */
     private final UserDao userDao;
 
+    /**
+     * {@link CurrentUserIdProvider} to know the currently authenticated user id (taken from the token).
+     */
+    private final CurrentUserIdProvider currentUserIdProvider;
+
 
     @Autowired
-    /* package */ UserPermissionProviderImpl(UserDao userDao) {
+    /* package */ UserPermissionProviderImpl(UserDao userDao, CurrentUserIdProvider currentUserIdProvider) {
         this.userDao = userDao;
+        this.currentUserIdProvider = currentUserIdProvider;
     }
 
 
     @Override
     public boolean readById(long id) {
-        return performAuthorization(userDao::findById, id);
+        return performAuthorization(id);
     }
 
     @Override
@@ -52,12 +58,12 @@ import java.util.function.Function;
 
     @Override
     public boolean writeById(long id) {
-        return performAuthorization(userDao::findById, id);
+        return performAuthorization(id);
     }
 
     @Override
     public boolean deleteById(long id) {
-        return performAuthorization(userDao::findById, id);
+        return performAuthorization(id);
     }
 
     @Override
@@ -70,11 +76,32 @@ import java.util.function.Function;
         return performAuthorization(userDao::findByEmail, email);
     }
 
+    /**
+     * Performs authorization over the {@link User} with the given {@code id}, without accessing the database.
+     * The one performing the operation is the {@link User} whose {@code id} is stored in the authentication token.
+     *
+     * @param id The id of the {@link User} to which the operation is going to be applied.
+     * @return {@code true} if it is authorized, or {@code false} otherwise.
+     */
+    private boolean performAuthorization(long id) {
+        final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null) {
+            return false;
+        }
+        if (PermissionProviderHelper.isAdmin(authentication)) {
+            return true;
+        }
+
+        return currentUserIdProvider.currentUserIdOptional()
+                .map(currentUserId -> currentUserId == id)
+                .orElse(false);
+    }
+
     /**
      * Performs authorization over the {@link User} contained in the {@link Optional}
      * retrieved by the given {@code userGetterFunction}, which takes the given {@code searchCriteria}.
-     * The one performing the operation is the {@link User} whose {@code username} is stored
-     * in the {@link Authentication} retrieved by the {@link SecurityContextHolder#getContext()} method.
+     * The one performing the operation is the {@link User} whose {@code id} is stored in the authentication token.
+     * The {@link User} is only retrieved if the operation is not performed by an administrator.
      *
      * @param userGetterFunction {@link Function} that takes a {@code T} an returns an {@link Optional} of {@link User}.
      *                           This {@link Function} is used to query the {@link User}
@@ -84,7 +111,7 @@ import java.util.function.Function;
      * @param <T>                The concrete type for the {@code searchCriteria} element.
      * @return {@code true} if it is authorized, or {@code false} otherwise.
      */
-    private static <T> boolean performAuthorization(Function<T, Optional<User>> userGetterFunction, T searchCriteria) {
+    private <T> boolean performAuthorization(Function<T, Optional<User>> userGetterFunction, T searchCriteria) {
         final Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         if (authentication == null) {
             return false;
@@ -93,15 +120,14 @@ import java.util.function.Function;
             return true;
         }
 
-        final Object principal = authentication.getPrincipal();
-        if (principal == null || !(principal instanceof String)) {
-            LOGGER.error("An Authentication instance has reached the service layer " +
-                    "having its principal being null or without having a String as a principal.");
+        final Optional<Long> currentUserId = currentUserIdProvider.currentUserIdOptional();
+        if (!currentUserId.isPresent()) {
+            LOGGER.error("An Authentication instance has reached the service layer without a user id.");
             return false;
         }
 
         return userGetterFunction.apply(searchCriteria)
-                .map(user -> user.getUsername().equals(principal))
+                .map(user -> user.getId() == currentUserId.get())
                 .orElse(false);
     }
 }
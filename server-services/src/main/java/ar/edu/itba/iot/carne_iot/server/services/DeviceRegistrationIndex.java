@@ -0,0 +1,424 @@
+package ar.edu.itba.iot.carne_iot.server.services;
+
+import ar.edu.itba.iot.carne_iot.server.models.DeviceRegistration;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.DeviceRegistrationDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * In-memory index of active {@link DeviceRegistration}s, keyed by device id.
+ * Allows checking registration and ownership of devices without accessing the database.
+ * <p>
+ * The index is loaded at startup, and kept up to date by the operations that change registrations in this node.
+ * Changes performed by other nodes are learned by periodically polling the log of registration changes
+ * (filled by the database) for those with a change number greater than the last one seen.
+ * The whole index is also reloaded periodically, applying changes performed while reloading once it finishes.
+ * <p>
+ * Entries are held in a {@link ConcurrentHashMap} (i.e keys are boxed), as checks must not lock,
+ * and the JDK has no concurrent map with primitive keys.
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=DeviceRegistrationIndex")
+public class DeviceRegistrationIndex {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(DeviceRegistrationIndex.class);
+
+    /**
+     * Amount of change numbers before the last one seen that are polled again,
+     * as numbers are taken before the changing transaction commits (i.e a smaller number can be committed later).
+     */
+    private static final long IN_FLIGHT_MARGIN = 1000;
+
+    /**
+     * DAO used to load {@link DeviceRegistration}s.
+     */
+    private final DeviceRegistrationDao deviceRegistrationDao;
+
+    /**
+     * Time during which registration changes are kept in the log (i.e nodes must poll more often than this).
+     */
+    private final Duration changesRetention;
+
+    /**
+     * Holds the active registration of each registered device.
+     * It is read without locking, but it is only changed (or replaced) while holding {@link #updateLock}.
+     */
+    private volatile ConcurrentMap<Long, Entry> entries;
+
+    /**
+     * Lock serializing the changes in the index (including replacing it when reloading).
+     */
+    private final Object updateLock;
+
+    /**
+     * Changes applied while the index is being reloaded, which are applied again into the reloaded index
+     * ({@code null} if it is not being reloaded). Guarded by {@link #updateLock}.
+     */
+    private List<Consumer<Map<Long, Entry>>> changesWhileReloading;
+
+    /**
+     * Lock serializing reloads.
+     */
+    private final Object reloadLock;
+
+    /**
+     * The change numbers seen that are polled again (i.e those within the in-flight margin).
+     * Only accessed by the polling task.
+     */
+    private final NavigableSet<Long> seenChanges;
+
+    /**
+     * The greatest change number seen.
+     */
+    private volatile long lastSequence;
+
+    /**
+     * Amount of ownership checks performed.
+     */
+    private final AtomicLong ownershipChecks;
+
+    /**
+     * Amount of ownership checks over a registered device (i.e regardless of its owner).
+     */
+    private final AtomicLong registeredChecks;
+
+    /**
+     * Amount of registration changes learned by polling.
+     */
+    private final AtomicLong polledChanges;
+
+
+    @Autowired
+    /* package */ DeviceRegistrationIndex(
+            DeviceRegistrationDao deviceRegistrationDao,
+            @Value("${custom.devices.registration-index.changes-retention:3600000}") long changesRetention) {
+        this.deviceRegistrationDao = deviceRegistrationDao;
+        this.changesRetention = Duration.ofMillis(changesRetention);
+        this.entries = new ConcurrentHashMap<>();
+        this.updateLock = new Object();
+        this.changesWhileReloading = null;
+        this.reloadLock = new Object();
+        this.seenChanges = new TreeSet<>();
+        this.lastSequence = 0;
+        this.ownershipChecks = new AtomicLong();
+        this.registeredChecks = new AtomicLong();
+        this.polledChanges = new AtomicLong();
+    }
+
+
+    // ================================
+    // Queries
+    // ================================
+
+    /**
+     * Indicates whether the device with the given id has an active registration.
+     *
+     * @param deviceId The id of the device.
+     * @return {@code true} if it is registered, or {@code false} otherwise.
+     */
+    public boolean isRegistered(long deviceId) {
+        return entries.containsKey(deviceId);
+    }
+
+    /**
+     * Indicates whether all the devices with the given ids have an active registration.
+     *
+     * @param deviceIds The ids of the devices.
+     * @return {@code true} if all of them are registered, or {@code false} otherwise.
+     */
+    public boolean areRegistered(Collection<Long> deviceIds) {
+        final ConcurrentMap<Long, Entry> actual = entries;
+        return deviceIds.stream().allMatch(actual::containsKey);
+    }
+
+    /**
+     * Indicates whether the device with the given id is registered to the user with the given id.
+     *
+     * @param deviceId The id of the device.
+     * @param ownerId  The id of the user.
+     * @return {@code true} if it is registered to the user, or {@code false} otherwise.
+     */
+    public boolean isRegisteredTo(long deviceId, long ownerId) {
+        final Entry entry = entries.get(deviceId);
+        ownershipChecks.incrementAndGet();
+        if (entry == null) {
+            return false;
+        }
+        registeredChecks.incrementAndGet();
+        return entry.ownerId == ownerId;
+    }
+
+    /**
+     * Returns the nickname given to the device with the given id by its owner.
+     *
+     * @param deviceId The id of the device.
+     * @return A nullable {@link Optional} containing the nickname, or empty if the device is not registered
+     * or it has no nickname.
+     */
+    public Optional<String> getNickname(long deviceId) {
+        return Optional.ofNullable(entries.get(deviceId)).map(entry -> entry.nickname);
+    }
+
+    @ManagedAttribute(description = "Amount of registered devices in the index")
+    public int getSize() {
+        return entries.size();
+    }
+
+    @ManagedAttribute(description = "Amount of ownership checks performed")
+    public long getOwnershipChecks() {
+        return ownershipChecks.get();
+    }
+
+    @ManagedAttribute(description = "Ratio of ownership checks over a registered device " +
+            "(i.e the index is authoritative, so all checks are answered without accessing the database)")
+    public double getRegisteredCheckRatio() {
+        final long checks = ownershipChecks.get();
+        return checks == 0 ? 0 : (double) registeredChecks.get() / checks;
+    }
+
+    @ManagedAttribute(description = "The greatest registration change number seen")
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    @ManagedAttribute(description = "Amount of registration changes learned by polling " +
+            "(including those performed by this node)")
+    public long getPolledChanges() {
+        return polledChanges.get();
+    }
+
+
+    // ================================
+    // Updates
+    // ================================
+
+    /**
+     * Indexes the given {@link DeviceRegistration} (or removes it from the index if it is not active),
+     * once the ongoing transaction (if any) commits.
+     *
+     * @param registration The {@link DeviceRegistration} that changed.
+     */
+    /* package */ void update(DeviceRegistration registration) {
+        final long deviceId = registration.getDevice().getId();
+        final Entry entry = registration.isActive() ? new Entry(registration) : null;
+        afterCommit(() -> apply(index -> put(index, deviceId, entry)));
+    }
+
+    /**
+     * Removes the registrations of the devices owned by the user with the given id
+     * (i.e the user is being deleted, and its registrations are deleted with it),
+     * once the ongoing transaction (if any) commits.
+     *
+     * @param ownerId The id of the user.
+     */
+    /* package */ void removeOwner(long ownerId) {
+        afterCommit(() -> apply(index -> index.values().removeIf(entry -> entry.ownerId == ownerId)));
+    }
+
+    /**
+     * Invalidation hook. Reloads the registration of the device with the given id from the database
+     * (e.g to be executed when another node changes it).
+     *
+     * @param deviceId The id of the device whose registration changed.
+     */
+    @ManagedOperation(description = "Reloads the registration of the given device")
+    public void invalidate(long deviceId) {
+        final Optional<DeviceRegistration> registration = deviceRegistrationDao.findByDeviceIdAndActiveTrue(deviceId);
+        final Entry entry = registration.map(Entry::new).orElse(null);
+        apply(index -> put(index, deviceId, entry));
+    }
+
+    /**
+     * Polls the registration changes performed since the last poll (e.g by other nodes),
+     * reloading the registrations of the affected devices.
+     */
+    @Scheduled(fixedDelayString = "${custom.devices.registration-index.poll-interval:5000}")
+    /* package */ void poll() {
+        final long from = Math.max(0, lastSequence - IN_FLIGHT_MARGIN);
+        final Set<Long> changedDevices = new HashSet<>();
+        long greatest = lastSequence;
+        for (Object[] row : deviceRegistrationDao.findChangesAfter(from)) {
+            final long sequence = (Long) row[0];
+            if (seenChanges.add(sequence)) {
+                changedDevices.add((Long) row[1]);
+                greatest = Math.max(greatest, sequence);
+            }
+        }
+        seenChanges.headSet(greatest - IN_FLIGHT_MARGIN).clear();
+        this.lastSequence = greatest;
+        if (changedDevices.isEmpty()) {
+            return;
+        }
+        final Map<Long, Entry> registrations = deviceRegistrationDao.findActiveRegistrationsData(changedDevices)
+                .stream()
+                .collect(Collectors.toMap(row -> (Long) row[0], DeviceRegistrationIndex::fromRow, (a, b) -> b));
+        apply(index -> changedDevices.forEach(deviceId -> put(index, deviceId, registrations.get(deviceId))));
+        polledChanges.addAndGet(changedDevices.size());
+    }
+
+    /**
+     * Invalidation hook. Reloads the whole index from the database.
+     * Changes applied while it is being reloaded are applied again into the reloaded index.
+     * It also removes registration changes older than the retention time from the log.
+     */
+    @PostConstruct
+    @Scheduled(initialDelayString = "${custom.devices.registration-index.reload-interval:300000}",
+            fixedDelayString = "${custom.devices.registration-index.reload-interval:300000}")
+    @ManagedOperation(description = "Reloads the whole index")
+    public void reload() {
+        synchronized (reloadLock) {
+            synchronized (updateLock) {
+                changesWhileReloading = new ArrayList<>();
+            }
+            final ConcurrentMap<Long, Entry> newEntries;
+            try {
+                newEntries = deviceRegistrationDao.findActiveRegistrationsData().stream()
+                        .collect(Collectors.toConcurrentMap(row -> (Long) row[0], DeviceRegistrationIndex::fromRow,
+                                (a, b) -> b));
+            } catch (RuntimeException e) {
+                synchronized (updateLock) {
+                    changesWhileReloading = null;
+                }
+                throw e;
+            }
+            synchronized (updateLock) {
+                changesWhileReloading.forEach(change -> change.accept(newEntries));
+                changesWhileReloading = null;
+                this.entries = newEntries;
+            }
+            LOGGER.debug("Device registration index loaded with {} registrations", newEntries.size());
+        }
+        final int removed = deviceRegistrationDao.deleteChangesBefore(Instant.now().minus(changesRetention));
+        LOGGER.debug("Removed {} old device registration changes", removed);
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Applies the given {@code change} into the index, serialized with the rest of the changes.
+     * If the index is being reloaded, the change is also applied into the reloaded index.
+     *
+     * @param change The change to be applied.
+     */
+    private void apply(Consumer<Map<Long, Entry>> change) {
+        synchronized (updateLock) {
+            change.accept(entries);
+            if (changesWhileReloading != null) {
+                changesWhileReloading.add(change);
+            }
+        }
+    }
+
+    /**
+     * Sets the {@link Entry} of the device with the given id in the given {@code index}.
+     *
+     * @param index    The index being changed.
+     * @param deviceId The id of the device.
+     * @param entry    The {@link Entry}, or {@code null} if the device is not registered.
+     */
+    private static void put(Map<Long, Entry> index, long deviceId, Entry entry) {
+        if (entry == null) {
+            index.remove(deviceId);
+        } else {
+            index.put(deviceId, entry);
+        }
+    }
+
+    /**
+     * Creates an {@link Entry} from a row returned by the {@link DeviceRegistrationDao} registrations data queries.
+     *
+     * @param row The row.
+     * @return The created {@link Entry}.
+     */
+    private static Entry fromRow(Object[] row) {
+        return new Entry((Long) row[1], (String) row[2]);
+    }
+
+    /**
+     * Executes the given {@code action} after the ongoing transaction commits,
+     * or immediately if there is no transaction.
+     *
+     * @param action The action to be executed.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Container class for an indexed registration.
+     */
+    private static final class Entry {
+
+        /**
+         * The id of the user owning the device.
+         */
+        private final long ownerId;
+
+        /**
+         * The nickname given to the device by its owner.
+         */
+        private final String nickname;
+
+        /**
+         * Constructor.
+         *
+         * @param ownerId  The id of the user owning the device.
+         * @param nickname The nickname given to the device by its owner.
+         */
+        private Entry(long ownerId, String nickname) {
+            this.ownerId = ownerId;
+            this.nickname = nickname;
+        }
+
+        /**
+         * Constructor.
+         *
+         * @param registration The {@link DeviceRegistration} from which data is taken.
+         */
+        private Entry(DeviceRegistration registration) {
+            this(registration.getOwner().getId(), registration.getNickname());
+        }
+    }
+}
@@ -2,41 +2,69 @@ package ar.edu.itba.iot.carne_iot.server.services;
 
 import ar.edu.itba.iot.carne_iot.server.error_handling.errros.IllegalStateError;
 import ar.edu.itba.iot.carne_iot.server.error_handling.errros.UniqueViolationError;
+import ar.edu.itba.iot.carne_iot.server.error_handling.errros.ValidationError;
 import ar.edu.itba.iot.carne_iot.server.error_handling.helpers.UniqueViolationExceptionThrower;
+import ar.edu.itba.iot.carne_iot.server.error_handling.helpers.ValidationExceptionThrower;
 import ar.edu.itba.iot.carne_iot.server.exceptions.CustomIllegalStateException;
 import ar.edu.itba.iot.carne_iot.server.exceptions.NoSuchEntityException;
 import ar.edu.itba.iot.carne_iot.server.exceptions.UniqueViolationException;
 import ar.edu.itba.iot.carne_iot.server.models.Device;
 import ar.edu.itba.iot.carne_iot.server.models.DeviceRegistration;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate.Resolution;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
 import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.persistence.daos.DeviceDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.daos.DeviceRegistrationDao;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.TemperatureAggregateDao;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.TemperatureReadingDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.daos.UserDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.query_helpers.DeviceQueryHelper;
 import ar.edu.itba.iot.carne_iot.server.persistence.query_helpers.DeviceRegistrationQueryHelper;
+import ar.edu.itba.iot.carne_iot.server.security.AuthorizationPolicy;
+import ar.edu.itba.iot.carne_iot.server.security.Authorize;
 import ar.edu.itba.iot.carne_iot.server.security.JwtTokenGenerator;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.time.LocalDate;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.function.Consumer;
 import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * Concrete implementation of {@link DeviceService}.
  */
 @Service
 @Transactional(readOnly = true)
-public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptionThrower {
+public class DeviceServiceImpl implements DeviceService,
+        UniqueViolationExceptionThrower, ValidationExceptionThrower {
+
+    /**
+     * The max. amount of {@link TemperatureReading}s that can be applied in one operation.
+     */
+    private static final int MAX_READINGS_PER_BATCH = 1000;
 
     /**
      * A system {@link User} to be used to create device tokens.
@@ -75,39 +103,108 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
      */
     private final JwtTokenGenerator jwtTokenGenerator;
 
+    /**
+     * Buffer used to write actual temperatures in background, when enabled.
+     */
+    private final TemperatureWriteBehindBuffer temperatureWriteBehindBuffer;
+
+    /**
+     * DAO for retrieving {@link TemperatureReading}s.
+     */
+    private final TemperatureReadingDao temperatureReadingDao;
+
+    /**
+     * DAO for retrieving {@link TemperatureAggregate}s.
+     */
+    private final TemperatureAggregateDao temperatureAggregateDao;
+
+    /**
+     * Appender used to store {@link TemperatureReading}s in the history, when enabled.
+     */
+    private final TemperatureHistoryAppender temperatureHistoryAppender;
+
+    /**
+     * In-memory index of active {@link DeviceRegistration}s.
+     */
+    private final DeviceRegistrationIndex deviceRegistrationIndex;
+
+    /**
+     * {@link ApplicationEventPublisher} used to notify accepted {@link TemperatureReading}s
+     * and target temperature changes (e.g to live listeners).
+     */
+    private final ApplicationEventPublisher applicationEventPublisher;
+
 
     @Autowired
     public DeviceServiceImpl(UserDao userDao, DeviceDao deviceDao, DeviceRegistrationDao deviceRegistrationDao,
                              DeviceQueryHelper deviceQueryHelper,
                              DeviceRegistrationQueryHelper deviceRegistrationQueryHelper,
-                             JwtTokenGenerator jwtTokenGenerator) {
+                             JwtTokenGenerator jwtTokenGenerator,
+                             TemperatureWriteBehindBuffer temperatureWriteBehindBuffer,
+                             TemperatureReadingDao temperatureReadingDao,
+                             TemperatureAggregateDao temperatureAggregateDao,
+                             TemperatureHistoryAppender temperatureHistoryAppender,
+                             DeviceRegistrationIndex deviceRegistrationIndex,
+                             ApplicationEventPublisher applicationEventPublisher) {
         this.userDao = userDao;
         this.deviceDao = deviceDao;
         this.deviceRegistrationDao = deviceRegistrationDao;
         this.deviceQueryHelper = deviceQueryHelper;
         this.deviceRegistrationQueryHelper = deviceRegistrationQueryHelper;
         this.jwtTokenGenerator = jwtTokenGenerator;
+        this.temperatureWriteBehindBuffer = temperatureWriteBehindBuffer;
+        this.temperatureReadingDao = temperatureReadingDao;
+        this.temperatureAggregateDao = temperatureAggregateDao;
+        this.temperatureHistoryAppender = temperatureHistoryAppender;
+        this.deviceRegistrationIndex = deviceRegistrationIndex;
+        this.applicationEventPublisher = applicationEventPublisher;
     }
 
 
     @Override
-    @PreAuthorize("@adminPermissionProvider.isAdmin()")
-    public Page<RegisteredDeviceWrapper> listDevices(Pageable pageable) {
+    @Authorize(AuthorizationPolicy.ADMIN)
+    public Slice<RegisteredDeviceWrapper> listDevices(Pageable pageable) {
         deviceQueryHelper.validatePageable(pageable);
+        // Devices are sorted by id if no order is requested, so pages are consistent with the keyset ones
+        final Pageable sortedPageable = pageable.getSort() != null ? pageable :
+                new PageRequest(pageable.getPageNumber(), pageable.getPageSize(), new Sort("id"));
 
-        final Page<Device> devices = deviceDao.findAll(pageable);
-        return devices.map(device -> toRegisteredDeviceWrapper().apply(device));
+        return deviceDao.findAllWithOwnerData(sortedPageable).map(DeviceServiceImpl::fromOwnerDataRow);
     }
 
     @Override
-    @PreAuthorize("@adminPermissionProvider.isAdmin()")
+    @Authorize(AuthorizationPolicy.ADMIN)
+    public List<RegisteredDeviceWrapper> listDevicesAfter(Long afterId, int limit) {
+        final Pageable pageable = new PageRequest(0, limit);
+        final List<Object[]> rows = afterId == null ? deviceDao.findFirstWithOwnerData(pageable) :
+                deviceDao.findWithOwnerDataAfter(afterId, pageable);
+
+        return rows.stream().map(DeviceServiceImpl::fromOwnerDataRow).collect(Collectors.toList());
+    }
+
+    @Override
+    @Authorize(AuthorizationPolicy.ADMIN)
     public Optional<RegisteredDeviceWrapper> getDeviceWithRegistrationData(long deviceId) {
-        return deviceDao.findById(deviceId).map(toRegisteredDeviceWrapper());
+        return deviceDao.findActualById(deviceId).map(toRegisteredDeviceWrapper());
+    }
+
+    @Override
+    @Authorize(AuthorizationPolicy.ADMIN)
+    public Optional<Instant> getDeviceLastModified(long deviceId) {
+        return deviceDao.findLastModifiedById(deviceId)
+                .flatMap(deviceLastModified -> {
+                    // Inactive registrations are included, so unregistering the device is also taken into account
+                    final Object[] registrationsData = deviceRegistrationDao
+                            .findRegistrationsLastModifiedData(deviceId).stream()
+                            .findFirst()
+                            .orElse(new Object[0]);
+                    return latest(Stream.concat(Stream.of(deviceLastModified), Arrays.stream(registrationsData)));
+                });
     }
 
     @Override
     @Transactional
-    @PreAuthorize("@adminPermissionProvider.isAdmin()")
+    @Authorize(AuthorizationPolicy.ADMIN)
     public Device createDevice(long deviceId) {
         if (deviceDao.exists(deviceId)) {
             throwUniqueViolationException(Collections.singletonList(DEVICE_ALREADY_CREATED));
@@ -119,8 +216,8 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
     }
 
     @Override
-    @PreAuthorize("@userPermissionProvider.readById(#ownerId)")
-    public Page<DeviceWithNicknameWrapper> listUserDevices(long ownerId, Pageable pageable) {
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "ownerId")
+    public Slice<DeviceWithNicknameWrapper> listUserDevices(long ownerId, Pageable pageable) {
         final User owner = userDao.findById(ownerId).orElseThrow(NoSuchEntityException::new);
 
         deviceRegistrationQueryHelper.validatePageable(pageable);
@@ -132,22 +229,43 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
         final Specification<DeviceRegistration> matching = deviceRegistrationQueryHelper
                 .createDeviceSpecification(owner);
 
-        return deviceRegistrationDao.findAll(matching, adaptedPageable).map(DeviceWithNicknameWrapper::new);
+        return deviceRegistrationDao.findAllSliced(matching, adaptedPageable).map(DeviceWithNicknameWrapper::new);
+    }
+
+    @Override
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "ownerId")
+    public List<DeviceWithNicknameWrapper> listUserDevicesAfter(long ownerId, Long afterId, int limit) {
+        final User owner = userDao.findById(ownerId).orElseThrow(NoSuchEntityException::new);
+
+        final Specification<DeviceRegistration> matching = deviceRegistrationQueryHelper
+                .createDeviceSpecification(owner);
+
+        return deviceRegistrationDao.findAfter(matching, afterId, limit).stream()
+                .map(DeviceWithNicknameWrapper::new)
+                .collect(Collectors.toList());
     }
 
     @Override
-    @PreAuthorize("@devicePermissionProvider.isOwnerOrAdmin(#deviceId)")
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
     public Optional<DeviceWithNicknameWrapper> getRegisteredDevice(long ownerId, long deviceId) {
-        final Device device = deviceDao.findById(deviceId).orElseThrow(NoSuchEntityException::new);
+        final Device device = deviceDao.findActualById(deviceId).orElseThrow(NoSuchEntityException::new);
         final User owner = userDao.findById(ownerId).orElseThrow(NoSuchEntityException::new);
 
         return deviceRegistrationDao.findByDeviceAndOwnerAndActiveTrue(device, owner)
                 .map(DeviceWithNicknameWrapper::new);
     }
 
+    @Override
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
+    public Optional<Instant> getRegisteredDeviceLastModified(long ownerId, long deviceId) {
+        return deviceRegistrationDao.findActiveRegistrationLastModifiedData(deviceId, ownerId).stream()
+                .findFirst()
+                .flatMap(data -> latest(Arrays.stream(data)));
+    }
+
     @Override
     @Transactional
-    @PreAuthorize("@devicePermissionProvider.isOwnerOrAdmin(#deviceId)")
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
     public void setNickname(long ownerId, long deviceId, String nickname) {
         performRegistrationChangeOfState(ownerId, deviceId, registration -> {
             if (nickname != null
@@ -161,14 +279,14 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
 
     @Override
     @Transactional
-    @PreAuthorize("@devicePermissionProvider.isOwnerOrAdmin(#deviceId)")
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
     public void deleteNickname(long ownerId, long deviceId) {
         performRegistrationChangeOfState(ownerId, deviceId, DeviceRegistration::removeNickname);
     }
 
     @Override
     @Transactional
-    @PreAuthorize("@userPermissionProvider.writeById(#ownerId)")
+    @Authorize(value = AuthorizationPolicy.WRITE_USER, argument = "ownerId")
     public void registerDevice(long ownerId, long deviceId) {
         final Device device = deviceDao.findById(deviceId).orElseThrow(NoSuchEntityException::new);
         final User user = userDao.findById(ownerId).orElseThrow(NoSuchEntityException::new);
@@ -185,11 +303,12 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
 
         final DeviceRegistration deviceRegistration = new DeviceRegistration(device, user);
         deviceRegistrationDao.save(deviceRegistration);
+        deviceRegistrationIndex.update(deviceRegistration);
     }
 
     @Override
     @Transactional
-    @PreAuthorize("@devicePermissionProvider.isOwnerOrAdmin(#deviceId)")
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
     public void unregisterDevice(long deviceId) {
         final Device device = deviceDao.findById(deviceId).orElseThrow(NoSuchEntityException::new);
 
@@ -199,17 +318,18 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
                 .ifPresent(reg -> {
                     reg.inactivate();
                     deviceRegistrationDao.save(reg);
+                    deviceRegistrationIndex.update(reg);
                 });
     }
 
     @Override
-    @PreAuthorize("@devicePermissionProvider.isOwnerOrAdmin(#deviceId)")
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
     public String pair(long ownerId, long deviceId) {
         final User user = userDao.findById(ownerId).orElseThrow(NoSuchEntityException::new);
         final Device device = deviceDao.findById(deviceId).orElseThrow(NoSuchEntityException::new);
 
         // Verify the device is registered
-        if (!deviceRegistrationDao.existsByDeviceAndActiveTrue(device)) {
+        if (!deviceRegistrationIndex.isRegistered(deviceId)) {
             throw new CustomIllegalStateException(OPERATION_OVER_UNREGISTERED_DEVICE);
         }
 
@@ -217,7 +337,7 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
     }
 
     @Override
-    @PreAuthorize("@adminPermissionProvider.isAdmin()")
+    @Authorize(AuthorizationPolicy.ADMIN)
     public String pair(long deviceId) {
         final Device device = deviceDao.findById(deviceId).orElseThrow(NoSuchEntityException::new);
         return jwtTokenGenerator.generateDeviceToken(deviceUser, device).getToken();
@@ -225,24 +345,55 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
 
     @Override
     @Transactional
-    @PreAuthorize("hasRole(T(ar.edu.itba.iot.carne_iot.server.models.Role).ROLE_DEVICE) " +
-            "and @devicePermissionProvider.isOwnDevice(#deviceId)")
-    public void updateTemperature(long deviceId, BigDecimal temperature) {
-        performChangeOfState(deviceId, (deviceLambda) -> deviceLambda.setTemperature(temperature));
+    @Authorize(value = AuthorizationPolicy.OWN_DEVICE, argument = "deviceId")
+    public void updateTemperature(long deviceId, int temperature) {
+        acceptReadings(Collections.singletonList(new TemperatureReading(deviceId, temperature, Instant.now())));
     }
 
     @Override
     @Transactional
-    @PreAuthorize("@devicePermissionProvider.isOwnerOrAdmin(#deviceId)")
+    @Authorize(value = AuthorizationPolicy.OWN_DEVICES, argument = "readings")
+    public void updateTemperatures(List<TemperatureReading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        if (readings.size() > MAX_READINGS_PER_BATCH) {
+            throwValidationException(Collections.singletonList(TOO_MANY_READINGS));
+        }
+        acceptReadings(readings);
+    }
+
+    @Override
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
+    public void streamTemperatureReadings(long ownerId, long deviceId, Instant from, Instant to,
+                                          Consumer<TemperatureReading> consumer) {
+        checkRegisteredTo(ownerId, deviceId);
+        temperatureReadingDao.forEachBetween(deviceId, from, to, consumer);
+    }
+
+    @Override
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
+    public void streamTemperatureAggregates(long ownerId, long deviceId, Resolution resolution,
+                                            Instant from, Instant to, Consumer<TemperatureAggregate> consumer) {
+        checkRegisteredTo(ownerId, deviceId);
+        final Instant bucketStart = TemperatureRollupEngine.truncate(from, resolution.getUnit());
+        temperatureAggregateDao.forEachBetween(deviceId, resolution, bucketStart, to, consumer);
+    }
+
+    @Override
+    @Transactional
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
     public void setTargetTemperature(long deviceId, BigDecimal targetTemperature) {
         performChangeOfState(deviceId, device -> device.setTargetTemperature(targetTemperature));
+        applicationEventPublisher.publishEvent(new TargetTemperatureChangedEvent(deviceId, targetTemperature));
     }
 
     @Override
     @Transactional
-    @PreAuthorize("@devicePermissionProvider.isOwnerOrAdmin(#deviceId)")
+    @Authorize(value = AuthorizationPolicy.DEVICE_OWNER_OR_ADMIN, argument = "deviceId")
     public void clearTargetTemperature(long deviceId) {
         performChangeOfState(deviceId, Device::removeTargetTemperature);
+        applicationEventPublisher.publishEvent(new TargetTemperatureChangedEvent(deviceId, null));
     }
 
     // ================================
@@ -261,6 +412,175 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
                 .orElse(new RegisteredDeviceWrapper(device));
     }
 
+    /**
+     * Creates a {@link RegisteredDeviceWrapper} from a row returned by the {@link DeviceDao} queries
+     * that include owner data (i.e the {@link Device}, and the id and username of its owner).
+     *
+     * @param row The row.
+     * @return The created {@link RegisteredDeviceWrapper}.
+     */
+    private static RegisteredDeviceWrapper fromOwnerDataRow(Object[] row) {
+        return new RegisteredDeviceWrapper((Device) row[0], (Long) row[1], (String) row[2]);
+    }
+
+    /**
+     * Returns the latest of the given moments.
+     *
+     * @param moments A {@link Stream} of {@link Instant}s (as returned by projection queries), which can contain nulls.
+     * @return A nullable {@link Optional} containing the latest moment, or empty if there are none.
+     */
+    private static Optional<Instant> latest(Stream<Object> moments) {
+        return moments.filter(Objects::nonNull)
+                .map(Instant.class::cast)
+                .max(Comparator.naturalOrder());
+    }
+
+    /**
+     * Checks that the {@link Device} with the given {@code deviceId} is registered to the {@link User}
+     * with the given {@code ownerId}.
+     *
+     * @param ownerId  The id of the {@link User}.
+     * @param deviceId The id of the {@link Device}.
+     * @throws NoSuchEntityException If any of them does not exist, or if the device is not registered to the user.
+     */
+    private void checkRegisteredTo(long ownerId, long deviceId) throws NoSuchEntityException {
+        final Device device = deviceDao.findById(deviceId).orElseThrow(NoSuchEntityException::new);
+        final User owner = userDao.findById(ownerId).orElseThrow(NoSuchEntityException::new);
+        if (!deviceRegistrationDao.existsByDeviceAndOwnerAndActiveTrue(device, owner)) {
+            throw new NoSuchEntityException();
+        }
+    }
+
+    /**
+     * Applies the given {@link TemperatureReading}s (buffering them if write-behind is enabled),
+     * performing the tasks that must be done for those that were accepted
+     * (i.e those not discarded because their device holds, or has pending, a newer reading).
+     *
+     * @param readings The {@link TemperatureReading}s to be applied.
+     * @throws NoSuchEntityException       If any of the devices does not exist.
+     * @throws CustomIllegalStateException If any of the devices is not registered.
+     */
+    private void acceptReadings(List<TemperatureReading> readings)
+            throws NoSuchEntityException, CustomIllegalStateException {
+        final List<TemperatureReading> accepted = temperatureWriteBehindBuffer.isEnabled() ?
+                bufferReadings(readings) : writeReadings(readings);
+        accepted.forEach(this::onTemperatureAccepted);
+    }
+
+    /**
+     * Applies the given {@link TemperatureReading}s to their devices in chronological order,
+     * saving all of them at once (i.e changes are flushed together when the transaction commits).
+     *
+     * @param readings The {@link TemperatureReading}s to be applied.
+     * @return The applied {@link TemperatureReading}s (i.e not discarded because the device holds a newer one).
+     * @throws NoSuchEntityException       If any of the devices does not exist.
+     * @throws CustomIllegalStateException If any of the devices is not registered.
+     */
+    private List<TemperatureReading> writeReadings(List<TemperatureReading> readings)
+            throws NoSuchEntityException, CustomIllegalStateException {
+        final Set<Long> deviceIds = deviceIds(readings);
+        // The cached devices might hold an old temperature, which would be written back when saving them
+        final Map<Long, Device> devices = deviceDao.findAllActualById(deviceIds).stream()
+                .collect(Collectors.toMap(Device::getId, Function.identity()));
+        if (devices.size() != deviceIds.size()) {
+            throw new NoSuchEntityException();
+        }
+        if (!deviceRegistrationIndex.areRegistered(deviceIds)) {
+            throw new CustomIllegalStateException(OPERATION_OVER_UNREGISTERED_DEVICE);
+        }
+
+        final List<TemperatureReading> applied = new LinkedList<>();
+        for (TemperatureReading reading : chronologically(readings)) {
+            if (devices.get(reading.getDeviceId()).setTemperature(reading.getCentiDegrees(), reading.getTimestamp())) {
+                applied.add(reading);
+            }
+        }
+        deviceDao.save(devices.values());
+        return applied;
+    }
+
+    /**
+     * Offers the given {@link TemperatureReading}s to the write-behind buffer in chronological order,
+     * once all of them are validated, and their devices registration is checked
+     * (as devices are written later, readings of unregistered devices must not be accepted).
+     *
+     * @param readings The {@link TemperatureReading}s to be buffered.
+     * @return The buffered {@link TemperatureReading}s (i.e not discarded because a newer one is pending).
+     * @throws CustomIllegalStateException If any of the devices is not registered (or does not exist).
+     */
+    private List<TemperatureReading> bufferReadings(List<TemperatureReading> readings)
+            throws CustomIllegalStateException {
+        readings.forEach(reading -> Device.validateTemperatureReading(reading.getCentiDegrees()));
+        if (!deviceRegistrationIndex.areRegistered(deviceIds(readings))) {
+            throw new CustomIllegalStateException(OPERATION_OVER_UNREGISTERED_DEVICE);
+        }
+
+        final List<TemperatureReading> buffered = new LinkedList<>();
+        for (TemperatureReading reading : chronologically(readings)) {
+            if (temperatureWriteBehindBuffer.offer(reading.getDeviceId(), reading.getCentiDegrees(),
+                    reading.getTimestamp())) {
+                buffered.add(reading);
+            }
+        }
+        return buffered;
+    }
+
+    /**
+     * Returns the ids of the devices that measured the given {@link TemperatureReading}s.
+     *
+     * @param readings The {@link TemperatureReading}s.
+     * @return A {@link Set} with the said ids.
+     */
+    private static Set<Long> deviceIds(List<TemperatureReading> readings) {
+        return readings.stream()
+                .map(TemperatureReading::getDeviceId)
+                .collect(Collectors.toSet());
+    }
+
+    /**
+     * Returns the given {@link TemperatureReading}s sorted by the moment in which they were measured.
+     *
+     * @param readings The {@link TemperatureReading}s.
+     * @return A {@link List} with the sorted {@link TemperatureReading}s.
+     */
+    private static List<TemperatureReading> chronologically(List<TemperatureReading> readings) {
+        return readings.stream()
+                .sorted(Comparator.comparing(TemperatureReading::getTimestamp))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Performs the tasks that must be done once a {@link TemperatureReading} is accepted
+     * (i.e appending it into the history, and publishing it as an event).
+     * Both the appending and the listeners take place once the ongoing transaction commits,
+     * so readings are neither stored nor aggregated if it is rolled back.
+     *
+     * @param reading The accepted {@link TemperatureReading}.
+     */
+    private void onTemperatureAccepted(TemperatureReading reading) {
+        afterCommit(() -> temperatureHistoryAppender.append(reading));
+        applicationEventPublisher.publishEvent(reading);
+    }
+
+    /**
+     * Executes the given {@code action} after the ongoing transaction commits,
+     * or immediately if there is no transaction.
+     *
+     * @param action The action to be executed.
+     */
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     /**
      * Performs a change of state operation, saving the {@link Device} with the given {@code deviceId}.
      *
@@ -268,10 +588,11 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
      * @param changeStateOperation The change of state operation (represented as a {@link Consumer}).
      */
     private void performChangeOfState(long deviceId, Consumer<Device> changeStateOperation) {
-        final Device device = deviceDao.findById(deviceId).orElseThrow(NoSuchEntityException::new);
+        // The cached device might hold an old temperature, which would be written back when saving it
+        final Device device = deviceDao.findActualById(deviceId).orElseThrow(NoSuchEntityException::new);
 
         // Check if the device is registered
-        if (!deviceRegistrationDao.existsByDeviceAndActiveTrue(device)) {
+        if (!deviceRegistrationIndex.isRegistered(deviceId)) {
             throw new CustomIllegalStateException(OPERATION_OVER_UNREGISTERED_DEVICE);
         }
 
@@ -297,6 +618,7 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
 
         changeStateOperation.accept(registration);
         deviceRegistrationDao.save(registration);
+        deviceRegistrationIndex.update(registration);
     }
 
     private static final UniqueViolationError DEVICE_ALREADY_CREATED =
@@ -309,6 +631,10 @@ public class DeviceServiceImpl implements DeviceService, UniqueViolationExceptio
             new UniqueViolationError("The nickname for the device is already in use",
                     "nickname", "userId");
 
+    private static final ValidationError TOO_MANY_READINGS =
+            new ValidationError(ValidationError.ErrorCause.ILLEGAL_VALUE, "readings",
+                    "Too many readings. The max. amount is " + MAX_READINGS_PER_BATCH);
+
     private static final IllegalStateError OPERATION_OVER_UNREGISTERED_DEVICE =
             new IllegalStateError("Device must be registered to operate over it",
                     Device.class.getSimpleName());
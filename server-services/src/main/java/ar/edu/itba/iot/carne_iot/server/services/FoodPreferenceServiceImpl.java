@@ -8,14 +8,17 @@ import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.persistence.daos.FoodPreferenceDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.daos.UserDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.query_helpers.FoodPreferenceQueryHelper;
+import ar.edu.itba.iot.carne_iot.server.security.AuthorizationPolicy;
+import ar.edu.itba.iot.carne_iot.server.security.Authorize;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.time.Instant;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -49,8 +52,8 @@ public class FoodPreferenceServiceImpl implements FoodPreferencesService {
 
 
     @Override
-    @PreAuthorize("@userPermissionProvider.readById(#userId)")
-    public Page<FoodPreference> findByOwner(long userId, Pageable pageable) {
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "userId")
+    public Slice<FoodPreference> findByOwner(long userId, Pageable pageable) {
         final User user = userDao.findById(userId).orElseThrow(NoSuchEntityException::new);
         foodPreferenceQueryHelper.validatePageable(pageable);
 
@@ -58,7 +61,15 @@ public class FoodPreferenceServiceImpl implements FoodPreferencesService {
     }
 
     @Override
-    @PreAuthorize("@userPermissionProvider.readById(#userId)")
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "userId")
+    public List<FoodPreference> findByOwnerAfter(long userId, Long afterId, int limit) {
+        final User user = userDao.findById(userId).orElseThrow(NoSuchEntityException::new);
+
+        return foodPreferenceDao.findAfter(foodPreferenceQueryHelper.createOwnerSpecification(user), afterId, limit);
+    }
+
+    @Override
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "userId")
     public Optional<FoodPreference> findByNameAndOwner(String name, long userId) {
         final User user = userDao.findById(userId).orElseThrow(NoSuchEntityException::new);
 
@@ -66,7 +77,13 @@ public class FoodPreferenceServiceImpl implements FoodPreferencesService {
     }
 
     @Override
-    @PreAuthorize("@userPermissionProvider.writeById(#userId)")
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "userId")
+    public Optional<Instant> getLastModified(String name, long userId) {
+        return foodPreferenceDao.findLastModifiedByNameAndOwnerId(name, userId);
+    }
+
+    @Override
+    @Authorize(value = AuthorizationPolicy.WRITE_USER, argument = "userId")
     public FoodPreference create(String name, BigDecimal temperature, long userId) {
         final User user = userDao.findById(userId).orElseThrow(NoSuchEntityException::new);
         validateNameUniqueness(name, user);
@@ -77,7 +94,7 @@ public class FoodPreferenceServiceImpl implements FoodPreferencesService {
     }
 
     @Override
-    @PreAuthorize("@userPermissionProvider.writeById(#ownerId)")
+    @Authorize(value = AuthorizationPolicy.WRITE_USER, argument = "ownerId")
     public void update(long ownerId, String actualName, String newName, BigDecimal newTemperature) {
         final User user = userDao.findById(ownerId).orElseThrow(NoSuchEntityException::new);
         final FoodPreference foodPreference = foodPreferenceDao.findByNameAndOwner(actualName, user)
@@ -90,7 +107,7 @@ public class FoodPreferenceServiceImpl implements FoodPreferencesService {
     }
 
     @Override
-    @PreAuthorize("@userPermissionProvider.deleteById(#ownerId)")
+    @Authorize(value = AuthorizationPolicy.DELETE_USER, argument = "ownerId")
     public void delete(long ownerId, String name) {
         final User user = userDao.findById(ownerId).orElseThrow(NoSuchEntityException::new);
         foodPreferenceDao.findByNameAndOwner(name, user).ifPresent(foodPreferenceDao::delete);
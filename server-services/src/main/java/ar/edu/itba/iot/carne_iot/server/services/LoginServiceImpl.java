@@ -11,15 +11,19 @@ import ar.edu.itba.iot.carne_iot.server.persistence.daos.SessionDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.daos.UserDao;
 import ar.edu.itba.iot.carne_iot.server.security.JwtTokenGenerator;
 import ar.edu.itba.iot.carne_iot.server.security.PasswordValidatorImpl;
+import ar.edu.itba.iot.carne_iot.server.security.RehashingPasswordEncoder;
 import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.security.SecureRandom;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Objects;
+import java.util.Optional;
 
 /**
  * Concrete implementation of {@link LoginService}.
@@ -33,6 +37,12 @@ public class LoginServiceImpl implements LoginService, ValidationExceptionThrowe
      */
     private static final int MAX_TRIES = 10;
 
+    /**
+     * Shared (thread safe) random source for sessions ids, seeded once
+     * (i.e instead of creating, and seeding, one each time a session is created).
+     */
+    private static final SecureRandom JTI_RANDOM = new SecureRandom();
+
     /**
      * DAO for retrieving {@link User}s data.
      */
@@ -44,37 +54,83 @@ public class LoginServiceImpl implements LoginService, ValidationExceptionThrowe
     private final SessionDao sessionDao;
 
     /**
-     * {@link PasswordEncoder} used for hashing passwords when authenticating a {@link User}.
+     * {@link RehashingPasswordEncoder} used for hashing passwords when authenticating a {@link User}.
      */
-    private final PasswordEncoder passwordEncoder;
+    private final RehashingPasswordEncoder passwordEncoder;
 
     /**
      * A {@link JwtTokenGenerator} to create tokens when login is performed.
      */
     private final JwtTokenGenerator jwtTokenGenerator;
 
+    /**
+     * {@link TransactionTemplate} used to load the {@link User} logging in, in a read-only transaction.
+     */
+    private final TransactionTemplate readOnlyTransactionTemplate;
+
+    /**
+     * {@link TransactionTemplate} used to create the {@link Session} (and rehash the password, if needed).
+     */
+    private final TransactionTemplate transactionTemplate;
+
     @Autowired
-    public LoginServiceImpl(UserDao userDao, SessionDao sessionDao, PasswordEncoder passwordEncoder,
-                            JwtTokenGenerator jwtTokenGenerator) {
+    public LoginServiceImpl(UserDao userDao, SessionDao sessionDao, RehashingPasswordEncoder passwordEncoder,
+                            JwtTokenGenerator jwtTokenGenerator, PlatformTransactionManager transactionManager) {
         this.userDao = userDao;
         this.sessionDao = sessionDao;
         this.passwordEncoder = passwordEncoder;
         this.jwtTokenGenerator = jwtTokenGenerator;
+        this.readOnlyTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.readOnlyTransactionTemplate.setReadOnly(true);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
     }
 
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The password is verified outside any transaction, as it can wait for a hashing thread
+     * (i.e no database connection is held meanwhile). The {@link User} is loaded in a short read-only transaction
+     * before, and the {@link Session} is created in another transaction after.
+     */
     @Override
-    @Transactional
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public UserTokenAndJtiContainer login(String username, String password) throws InvalidCredentialsException {
         validateCredentials(username, password);
-        final User user = userDao.findByUsername(username)
-                .orElseThrow(() -> new InvalidCredentialsException("Unknown user"));
-        final boolean validPassword = passwordEncoder.matches(password, user.getHashedPassword());
+        final User user = readOnlyTransactionTemplate.execute(status -> {
+            final User found = userDao.findByUsername(username)
+                    .orElseThrow(() -> new InvalidCredentialsException("Unknown user"));
+            Hibernate.initialize(found.getRoles());
+            return found;
+        });
+        final String hashedPassword = user.getHashedPassword();
+        final boolean validPassword = passwordEncoder.matches(password, hashedPassword);
         if (!validPassword) {
             throw new InvalidCredentialsException("Password does not match");
         }
+        // The password is available in plain text only now, so it is hashed again if the hashing cost changed
+        final String rehashedPassword = passwordEncoder.needsRehash(hashedPassword) ?
+                passwordEncoder.encode(password) : null;
+
+        return transactionTemplate.execute(status -> {
+            if (rehashedPassword != null) {
+                // Not changed if the password was changed meanwhile (i.e the verified hash is not the actual one)
+                Optional.ofNullable(userDao.findOne(user.getId()))
+                        .filter(actual -> hashedPassword.equals(actual.getHashedPassword()))
+                        .ifPresent(actual -> actual.changePassword(rehashedPassword));
+            }
+            return createSession(user); // Retries with another jti if the chosen one is already in use
+        });
+    }
+
+    @Override
+    public String refresh(long ownerId, long jti) throws InvalidCredentialsException {
+        final Session session = sessionDao.findByOwnerIdAndJti(ownerId, jti)
+                .filter(Session::isValid)
+                .orElseThrow(() -> new InvalidCredentialsException("Invalid session"));
+        final User user = session.getOwner();
         Hibernate.initialize(user.getRoles());
 
-        return createSession(user); // Tries to create the token, retrying if the jti is already in use
+        return jwtTokenGenerator.generateAccessToken(user, jti);
     }
 
     // ================================
@@ -97,31 +153,25 @@ public class LoginServiceImpl implements LoginService, ValidationExceptionThrowe
     }
 
     /**
-     * Tries to create a {@link Session}. Might fail if it already exists a {@link Session}
-     * with the same session id for the given {@code user}. This is a rare situation.
+     * Creates a {@link Session} for the given {@code user}, with a random session id.
+     * The session is inserted before signing any token, and the insertion is skipped by the database
+     * if the {@code user} already has a {@link Session} with the same session id (a rare situation),
+     * in which case another id is tried. No query is needed to check the id beforehand.
      *
      * @param user The {@link User} to which the {@link Session} belongs to.
-     * @return The token representing the {@link Session}.
-     * @throws RuntimeException If the session could not be created.
+     * @return The refresh token representing the {@link Session}, together with an access token for it.
+     * @throws IllegalStateException If the session could not be created.
      */
-    private UserTokenAndJtiContainer createSession(User user) throws RuntimeException {
-        boolean validSession = false;
-        int tries = 0;
-        JwtTokenGenerator.TokenAndSessionContainer container = null;
-        while (!validSession && tries < MAX_TRIES) {
-            container = jwtTokenGenerator.generateUserToken(user);
-            validSession = !sessionDao.existsByOwnerAndJti(user, container.getJti());
-            tries++;
-        }
-        if (tries >= MAX_TRIES) {
-            throw new RuntimeException("Could not create a session after " + MAX_TRIES + "tries");
+    private UserTokenAndJtiContainer createSession(User user) throws IllegalStateException {
+        for (int tries = 0; tries < MAX_TRIES; tries++) {
+            final long jti = JTI_RANDOM.nextLong();
+            if (sessionDao.createIfAbsent(user.getId(), jti) > 0) {
+                final String refreshToken = jwtTokenGenerator.generateRefreshToken(user, jti);
+                final String accessToken = jwtTokenGenerator.generateAccessToken(user, jti);
+                return new UserTokenAndJtiContainer(user, accessToken, refreshToken, jti);
+            }
         }
-
-        Objects.requireNonNull(container, "The container was not initialized correctly");
-        final Session session = new Session(user, container.getJti());
-        sessionDao.save(session);
-
-        return new UserTokenAndJtiContainer(user, container.getToken(), container.getJti());
+        throw new IllegalStateException("Could not create a session after " + MAX_TRIES + " tries");
     }
 
     private static final ValidationError MISSING_USERNAME =
@@ -0,0 +1,232 @@
+package ar.edu.itba.iot.carne_iot.server.services;
+
+/**
+ * Immutable set of revoked sessions, identified by their owner id and jti, together with their revocation moment.
+ * Sessions are stored in primitive arrays using open addressing (i.e no object is created per session,
+ * and no object is created when checking whether a session is revoked).
+ * Adding sessions creates a new set, so instances can be shared between threads without synchronization.
+ */
+/* package */ final class RevokedSessionSet {
+
+    /**
+     * An empty set.
+     */
+    /* package */ static final RevokedSessionSet EMPTY =
+            new RevokedSessionSet(new long[2], new long[2], new long[2], new boolean[2], 0);
+
+    /**
+     * Owner ids of the stored sessions (indexed by slot).
+     */
+    private final long[] ownerIds;
+
+    /**
+     * Jtis of the stored sessions (indexed by slot).
+     */
+    private final long[] jtis;
+
+    /**
+     * Moments (in milliseconds) in which the stored sessions were revoked (indexed by slot).
+     */
+    private final long[] revokedAts;
+
+    /**
+     * Indicates which slots are used (as any owner id and jti pair is valid).
+     */
+    private final boolean[] used;
+
+    /**
+     * Amount of stored sessions.
+     */
+    private final int size;
+
+    /**
+     * Private constructor.
+     *
+     * @param ownerIds   Owner ids of the stored sessions.
+     * @param jtis       Jtis of the stored sessions.
+     * @param revokedAts Moments in which the stored sessions were revoked.
+     * @param used       Indicates which slots are used.
+     * @param size       Amount of stored sessions.
+     */
+    private RevokedSessionSet(long[] ownerIds, long[] jtis, long[] revokedAts, boolean[] used, int size) {
+        this.ownerIds = ownerIds;
+        this.jtis = jtis;
+        this.revokedAts = revokedAts;
+        this.used = used;
+        this.size = size;
+    }
+
+
+    /**
+     * @return Amount of stored sessions.
+     */
+    /* package */ int size() {
+        return size;
+    }
+
+    /**
+     * Indicates whether the session with the given {@code ownerId} and {@code jti} is in this set.
+     *
+     * @param ownerId The id of the user owning the session.
+     * @param jti     The unique identifier of the session.
+     * @return {@code true} if the session is in this set, or {@code false} otherwise.
+     */
+    /* package */ boolean contains(long ownerId, long jti) {
+        final int mask = used.length - 1;
+        for (int slot = slot(ownerId, jti, mask); used[slot]; slot = (slot + 1) & mask) {
+            if (jtis[slot] == jti && ownerIds[slot] == ownerId) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates a new set containing the sessions in this set, and the given ones.
+     *
+     * @param newOwnerIds   Owner ids of the sessions to be added.
+     * @param newJtis       Jtis of the sessions to be added (in the same order as the {@code newOwnerIds}).
+     * @param newRevokedAts Moments (in milliseconds) in which the sessions to be added were revoked
+     *                      (in the same order as the {@code newOwnerIds}).
+     * @return The new set.
+     */
+    /* package */ RevokedSessionSet with(long[] newOwnerIds, long[] newJtis, long[] newRevokedAts) {
+        if (newOwnerIds.length != newJtis.length || newOwnerIds.length != newRevokedAts.length) {
+            throw new IllegalArgumentException("Owner ids, jtis and revocation moments must have the same length");
+        }
+        final Builder builder = new Builder(size + newOwnerIds.length);
+        builder.addAll(this, Long.MIN_VALUE);
+        for (int i = 0; i < newOwnerIds.length; i++) {
+            builder.add(newOwnerIds[i], newJtis[i], newRevokedAts[i]);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Creates a new set containing the sessions in the given {@code sets} that were revoked at, or after,
+     * the given moment (i.e older revocations are pruned).
+     *
+     * @param revokedSince The moment (in milliseconds) since which revocations are kept.
+     * @param sets         The sets to be joined.
+     * @return The new set.
+     */
+    /* package */ static RevokedSessionSet union(long revokedSince, RevokedSessionSet... sets) {
+        int capacity = 0;
+        for (RevokedSessionSet set : sets) {
+            capacity += set.size;
+        }
+        final Builder builder = new Builder(capacity);
+        for (RevokedSessionSet set : sets) {
+            builder.addAll(set, revokedSince);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the initial slot for the given session.
+     *
+     * @param ownerId The id of the user owning the session.
+     * @param jti     The unique identifier of the session.
+     * @param mask    The mask used to keep the slot within the arrays bounds.
+     * @return The slot.
+     */
+    private static int slot(long ownerId, long jti, int mask) {
+        // Jtis are random, but mixing avoids clustering if they are not
+        long hash = jti * 0x9E3779B97F4A7C15L + ownerId;
+        hash ^= hash >>> 32;
+        return (int) hash & mask;
+    }
+
+    /**
+     * Builds a {@link RevokedSessionSet} with room for a given amount of sessions.
+     */
+    private static final class Builder {
+
+        /**
+         * Owner ids array.
+         */
+        private final long[] ownerIds;
+
+        /**
+         * Jtis array.
+         */
+        private final long[] jtis;
+
+        /**
+         * Revocation moments array.
+         */
+        private final long[] revokedAts;
+
+        /**
+         * Used slots array.
+         */
+        private final boolean[] used;
+
+        /**
+         * Amount of added sessions.
+         */
+        private int size;
+
+        /**
+         * Constructor.
+         *
+         * @param maxSize Max. amount of sessions that will be added.
+         */
+        private Builder(int maxSize) {
+            // Capacity is kept as a power of two, at most half used
+            int capacity = 2;
+            while (capacity < 2 * maxSize) {
+                capacity *= 2;
+            }
+            this.ownerIds = new long[capacity];
+            this.jtis = new long[capacity];
+            this.revokedAts = new long[capacity];
+            this.used = new boolean[capacity];
+            this.size = 0;
+        }
+
+        /**
+         * Adds the sessions of the given {@code set} that were revoked at, or after, the given moment.
+         *
+         * @param set          The {@link RevokedSessionSet} whose sessions are added.
+         * @param revokedSince The moment (in milliseconds) since which revocations are added.
+         */
+        private void addAll(RevokedSessionSet set, long revokedSince) {
+            for (int i = 0; i < set.used.length; i++) {
+                if (set.used[i] && set.revokedAts[i] >= revokedSince) {
+                    add(set.ownerIds[i], set.jtis[i], set.revokedAts[i]);
+                }
+            }
+        }
+
+        /**
+         * Adds the given session, unless it was already added.
+         *
+         * @param ownerId   The id of the user owning the session.
+         * @param jti       The unique identifier of the session.
+         * @param revokedAt The moment (in milliseconds) in which the session was revoked.
+         */
+        private void add(long ownerId, long jti, long revokedAt) {
+            final int mask = used.length - 1;
+            int slot = slot(ownerId, jti, mask);
+            while (used[slot]) {
+                if (jtis[slot] == jti && ownerIds[slot] == ownerId) {
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            ownerIds[slot] = ownerId;
+            jtis[slot] = jti;
+            revokedAts[slot] = revokedAt;
+            used[slot] = true;
+            size++;
+        }
+
+        /**
+         * @return The built {@link RevokedSessionSet}.
+         */
+        private RevokedSessionSet build() {
+            return new RevokedSessionSet(ownerIds, jtis, revokedAts, used, size);
+        }
+    }
+}
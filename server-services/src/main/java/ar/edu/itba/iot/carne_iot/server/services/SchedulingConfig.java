@@ -0,0 +1,59 @@
+package ar.edu.itba.iot.carne_iot.server.services;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+import org.springframework.scheduling.annotation.SchedulingConfigurer;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+import org.springframework.scheduling.config.ScheduledTaskRegistrar;
+
+/**
+ * Configuration class that enables scheduled tasks (e.g background flushing of buffered data).
+ * Tasks run in a pool of threads, so a long task (e.g reloading an index) does not delay the rest of them
+ * (e.g flushing buffered temperatures).
+ */
+@Configuration
+@EnableScheduling
+public class SchedulingConfig implements SchedulingConfigurer {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(SchedulingConfig.class);
+
+    /**
+     * Amount of threads running scheduled tasks.
+     */
+    private final int poolSize;
+
+
+    @Autowired
+    public SchedulingConfig(@Value("${custom.scheduling.pool-size:4}") int poolSize) {
+        this.poolSize = poolSize;
+    }
+
+
+    @Override
+    public void configureTasks(ScheduledTaskRegistrar taskRegistrar) {
+        taskRegistrar.setTaskScheduler(taskScheduler());
+    }
+
+    /**
+     * @return The {@link ThreadPoolTaskScheduler} running scheduled tasks.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ThreadPoolTaskScheduler taskScheduler() {
+        final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(poolSize);
+        scheduler.setThreadNamePrefix("scheduled-task-");
+        scheduler.setErrorHandler(e -> LOGGER.error("Unexpected error in scheduled task", e));
+        // Buffered data is flushed when shutting down, so running flushes must be allowed to finish
+        scheduler.setWaitForTasksToCompleteOnShutdown(true);
+        scheduler.setAwaitTerminationSeconds(30);
+        return scheduler;
+    }
+}
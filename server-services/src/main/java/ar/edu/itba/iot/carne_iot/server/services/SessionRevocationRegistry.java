@@ -0,0 +1,316 @@
+package ar.edu.itba.iot.carne_iot.server.services;
+
+import ar.edu.itba.iot.carne_iot.server.models.Session;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.SessionDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.annotation.PostConstruct;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-memory registry of revoked (i.e blacklisted) {@link Session}s, allowing to check whether a session is revoked
+ * without accessing the database (revoked sessions are a tiny fraction of all sessions).
+ * <p>
+ * The registry is loaded at startup, and kept up to date by revocations performed in this node.
+ * Valid sessions deleted together with their user are registered as revoked ones.
+ * Revocations performed by other nodes are learned by periodically polling those with a revocation number
+ * greater than the last one seen.
+ * <p>
+ * Revocations are only kept while access tokens issued for the revoked sessions can still be used
+ * (refresh tokens are always checked against the database), so the registry is bounded by the revocations
+ * performed during an access token lifetime. Revocations performed in this node are added into a small set,
+ * which is merged into the rest of them (pruning old ones) when polling, so a revocation does not copy all of them.
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=SessionRevocationRegistry")
+/* package */ class SessionRevocationRegistry {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(SessionRevocationRegistry.class);
+
+    /**
+     * Amount of revocation numbers before the last one seen that are polled again,
+     * as numbers are taken before the revoking transaction commits (i.e a smaller number can be committed later).
+     */
+    private static final long IN_FLIGHT_MARGIN = 1000;
+
+    /**
+     * Amount of milliseconds revocations are kept after access tokens expire,
+     * allowing for clock differences between nodes and the database.
+     */
+    private static final long CLOCK_SKEW_MARGIN = 60_000;
+
+    /**
+     * DAO used to load revoked {@link Session}s.
+     */
+    private final SessionDao sessionDao;
+
+    /**
+     * Amount of milliseconds revocations are kept (i.e the access tokens lifetime, plus the clock skew margin).
+     */
+    private final long retention;
+
+    /**
+     * Amount of revocations learned by polling.
+     */
+    private final AtomicLong polledRevocations;
+
+    /**
+     * The revoked sessions. Replaced (while holding this registry lock) each time it changes,
+     * so readers never need to synchronize.
+     */
+    private volatile Snapshot revoked;
+
+    /**
+     * The greatest revocation number seen.
+     */
+    private volatile long lastSequence;
+
+
+    @Autowired
+    /* package */ SessionRevocationRegistry(
+            SessionDao sessionDao,
+            @Value("${custom.security.jwt.access-token-duration:900}") long accessTokenDuration) {
+        this.sessionDao = sessionDao;
+        this.retention = accessTokenDuration * 1000 + CLOCK_SKEW_MARGIN;
+        this.polledRevocations = new AtomicLong();
+        this.revoked = Snapshot.EMPTY;
+        this.lastSequence = 0;
+    }
+
+
+    /**
+     * Indicates whether the {@link Session} identified by the given {@code ownerId} and {@code jti} is revoked.
+     * Sessions revoked longer than an access token lifetime ago are eventually forgotten (i.e their tokens expired).
+     *
+     * @param ownerId The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User} owning the session.
+     * @param jti     The unique identifier of the session.
+     * @return {@code true} if the session is revoked, or {@code false} otherwise.
+     */
+    /* package */ boolean isRevoked(long ownerId, long jti) {
+        return revoked.contains(ownerId, jti);
+    }
+
+    /**
+     * Registers the revocation of the {@link Session} identified by the given {@code ownerId} and {@code jti},
+     * once the ongoing transaction commits (or immediately if there is no transaction).
+     *
+     * @param ownerId The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User} owning the session.
+     * @param jti     The unique identifier of the session.
+     */
+    /* package */ void revoked(long ownerId, long jti) {
+        revoked(ownerId, Collections.singletonList(jti));
+    }
+
+    /**
+     * Registers the revocation of the {@link Session}s belonging to the given {@code ownerId} and identified by
+     * the given {@code jtis} (e.g all the valid ones of a deleted user),
+     * once the ongoing transaction commits (or immediately if there is no transaction).
+     *
+     * @param ownerId The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User} owning the sessions.
+     * @param jtis    The unique identifiers of the sessions.
+     */
+    /* package */ void revoked(long ownerId, List<Long> jtis) {
+        if (jtis.isEmpty()) {
+            return;
+        }
+        final Runnable action = () -> addRecent(ownerId, jtis, System.currentTimeMillis());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
+    /**
+     * Polls the revocations performed since the last poll (e.g by other nodes),
+     * merging them with those performed in this node, and pruning old ones.
+     */
+    @Scheduled(fixedDelayString = "${custom.security.sessions.revocations.poll-interval:5000}")
+    /* package */ void poll() {
+        final long from = Math.max(0, lastSequence - IN_FLIGHT_MARGIN);
+        final long revokedSince = revokedSince();
+        final List<Object[]> rows = sessionDao.findRevocationsDataAfter(from, Instant.ofEpochMilli(revokedSince));
+        final RevokedSessionSet polled = toSet(rows);
+        synchronized (this) {
+            final Snapshot actual = revoked;
+            polledRevocations.addAndGet(rows.stream()
+                    .filter(row -> !actual.contains((Long) row[0], (Long) row[1]))
+                    .count());
+            this.revoked = new Snapshot(RevokedSessionSet.union(revokedSince, actual.polled, actual.recent, polled),
+                    RevokedSessionSet.EMPTY);
+            updateLastSequence(rows);
+        }
+    }
+
+    /**
+     * Reloads the whole registry from the database (i.e including revocations that could have been missed
+     * by polling). The registry is replaced once it is loaded, keeping revocations registered meanwhile.
+     * Deletions of valid sessions older than the kept revocations are removed from the database.
+     */
+    @PostConstruct
+    @Scheduled(initialDelayString = "${custom.security.sessions.revocations.reload-interval:3600000}",
+            fixedDelayString = "${custom.security.sessions.revocations.reload-interval:3600000}")
+    @ManagedOperation(description = "Reloads the whole registry")
+    public void reload() {
+        final long revokedSince = revokedSince();
+        final List<Object[]> rows = sessionDao.findRevocationsDataAfter(0, Instant.ofEpochMilli(revokedSince));
+        final RevokedSessionSet loaded = toSet(rows);
+        synchronized (this) {
+            final Snapshot actual = revoked;
+            this.revoked = new Snapshot(RevokedSessionSet.union(revokedSince, loaded, actual.polled, actual.recent),
+                    RevokedSessionSet.EMPTY);
+            updateLastSequence(rows);
+        }
+        LOGGER.debug("Session revocation registry loaded with {} revoked sessions", getRevokedSessions());
+        final int removed = sessionDao.deleteDeletedSessionsBefore(Instant.ofEpochMilli(revokedSince));
+        LOGGER.debug("Removed {} old deleted sessions", removed);
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Amount of revoked sessions kept (i.e whose access tokens could still be used)")
+    public int getRevokedSessions() {
+        final Snapshot actual = revoked;
+        return actual.polled.size() + actual.recent.size();
+    }
+
+    @ManagedAttribute(description = "The greatest revocation number seen")
+    public long getLastSequence() {
+        return lastSequence;
+    }
+
+    @ManagedAttribute(description = "Amount of revocations learned by polling (i.e performed by other nodes)")
+    public long getPolledRevocations() {
+        return polledRevocations.get();
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * @return The moment (in milliseconds) since which revocations are kept.
+     */
+    private long revokedSince() {
+        return System.currentTimeMillis() - retention;
+    }
+
+    /**
+     * Adds the given revoked sessions into the set of revocations performed in this node since the last poll.
+     *
+     * @param ownerId   The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User} owning the sessions.
+     * @param jtis      The unique identifiers of the sessions.
+     * @param revokedAt The moment (in milliseconds) in which the sessions were revoked.
+     */
+    private synchronized void addRecent(long ownerId, List<Long> jtis, long revokedAt) {
+        final long[] ownerIds = new long[jtis.size()];
+        final long[] jtisArray = new long[jtis.size()];
+        final long[] revokedAts = new long[jtis.size()];
+        for (int i = 0; i < jtis.size(); i++) {
+            ownerIds[i] = ownerId;
+            jtisArray[i] = jtis.get(i);
+            revokedAts[i] = revokedAt;
+        }
+        final Snapshot actual = revoked;
+        this.revoked = new Snapshot(actual.polled, actual.recent.with(ownerIds, jtisArray, revokedAts));
+    }
+
+    /**
+     * Updates the greatest revocation number seen with the given revocations data.
+     *
+     * @param rows The revocations data (as returned by {@link SessionDao#findRevocationsDataAfter(long, Instant)}).
+     */
+    private void updateLastSequence(List<Object[]> rows) {
+        // Rows are sorted by revocation number
+        if (!rows.isEmpty()) {
+            this.lastSequence = Math.max(lastSequence, (Long) rows.get(rows.size() - 1)[2]);
+        }
+    }
+
+    /**
+     * Creates a {@link RevokedSessionSet} with the given revocations data.
+     *
+     * @param rows The revocations data (as returned by {@link SessionDao#findRevocationsDataAfter(long, Instant)}).
+     * @return The created {@link RevokedSessionSet}.
+     */
+    private static RevokedSessionSet toSet(List<Object[]> rows) {
+        final long[] ownerIds = new long[rows.size()];
+        final long[] jtis = new long[rows.size()];
+        final long[] revokedAts = new long[rows.size()];
+        for (int i = 0; i < rows.size(); i++) {
+            final Object[] row = rows.get(i);
+            ownerIds[i] = (Long) row[0];
+            jtis[i] = (Long) row[1];
+            revokedAts[i] = ((Instant) row[3]).toEpochMilli();
+        }
+        return RevokedSessionSet.EMPTY.with(ownerIds, jtis, revokedAts);
+    }
+
+    /**
+     * Immutable container of the revoked sessions.
+     */
+    private static final class Snapshot {
+
+        /**
+         * A snapshot without revoked sessions.
+         */
+        private static final Snapshot EMPTY = new Snapshot(RevokedSessionSet.EMPTY, RevokedSessionSet.EMPTY);
+
+        /**
+         * Revocations loaded from the database (i.e learned by polling or reloading).
+         */
+        private final RevokedSessionSet polled;
+
+        /**
+         * Revocations performed in this node since the last poll.
+         */
+        private final RevokedSessionSet recent;
+
+        /**
+         * Constructor.
+         *
+         * @param polled Revocations loaded from the database.
+         * @param recent Revocations performed in this node since the last poll.
+         */
+        private Snapshot(RevokedSessionSet polled, RevokedSessionSet recent) {
+            this.polled = polled;
+            this.recent = recent;
+        }
+
+        /**
+         * Indicates whether the given session is revoked in this snapshot.
+         *
+         * @param ownerId The id of the user owning the session.
+         * @param jti     The unique identifier of the session.
+         * @return {@code true} if it is revoked, or {@code false} otherwise.
+         */
+        private boolean contains(long ownerId, long jti) {
+            return recent.contains(ownerId, jti) || polled.contains(ownerId, jti);
+        }
+    }
+}
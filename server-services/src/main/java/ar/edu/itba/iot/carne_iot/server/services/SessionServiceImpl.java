@@ -6,14 +6,17 @@ import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.persistence.daos.SessionDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.daos.UserDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.query_helpers.SessionQueryHelper;
+import ar.edu.itba.iot.carne_iot.server.security.AuthorizationPolicy;
+import ar.edu.itba.iot.carne_iot.server.security.Authorize;
 import ar.edu.itba.iot.carne_iot.server.security.CurrentUserIdProvider;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.data.domain.Slice;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
 import java.util.Optional;
 
 /**
@@ -43,37 +46,71 @@ public class SessionServiceImpl implements SessionService {
      */
     private final UserDao userDao;
 
+    /**
+     * Cache of {@link Session}s validity, checked before querying the database.
+     */
+    private final SessionValidityCache sessionValidityCache;
+
+    /**
+     * Registry of revoked {@link Session}s.
+     */
+    private final SessionRevocationRegistry sessionRevocationRegistry;
+
     @Autowired
     public SessionServiceImpl(SessionDao sessionDao, UserDao userDao,
-                              SessionQueryHelper sessionQueryHelper, CurrentUserIdProvider currentUserIdProvider) {
+                              SessionQueryHelper sessionQueryHelper, CurrentUserIdProvider currentUserIdProvider,
+                              SessionValidityCache sessionValidityCache,
+                              SessionRevocationRegistry sessionRevocationRegistry) {
         this.sessionDao = sessionDao;
         this.sessionQueryHelper = sessionQueryHelper;
         this.currentUserIdProvider = currentUserIdProvider;
         this.userDao = userDao;
+        this.sessionValidityCache = sessionValidityCache;
+        this.sessionRevocationRegistry = sessionRevocationRegistry;
     }
 
 
     @Override
-    @PreAuthorize("@userPermissionProvider.readById(#owner.id)")
-    public Page<Session> listSessions(User owner, Pageable pageable) {
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "owner")
+    public Slice<Session> listSessions(User owner, Pageable pageable) {
         sessionQueryHelper.validatePageable(pageable);
         return sessionDao.findByOwner(owner, pageable);
     }
 
+    @Override
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "owner")
+    public List<Session> listSessionsAfter(User owner, Long afterId, int limit) {
+        return sessionDao.findAfter(sessionQueryHelper.createOwnerSpecification(owner), afterId, limit);
+    }
+
 
     @Override
+    // Checked each time a request is authenticated, so no transaction is started (i.e the cache answers most of them)
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public boolean validSession(long ownerId, long jti) {
-        return sessionDao.findByOwnerIdAndJti(ownerId, jti).map(Session::isValid).orElse(false);
+        return sessionValidityCache.isValid(ownerId, jti, () -> sessionDao.findByOwnerIdAndJti(ownerId, jti)
+                .map(Session::isValid)
+                .orElse(false));
+    }
+
+    @Override
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public boolean revokedSession(long ownerId, long jti) {
+        return sessionRevocationRegistry.isRevoked(ownerId, jti);
     }
 
     @Override
     @Transactional
-    @PreAuthorize("@userPermissionProvider.writeById(#ownerId)")
+    @Authorize(value = AuthorizationPolicy.WRITE_USER, argument = "ownerId")
     public void invalidateSession(long ownerId, long jti) {
-        final Session session = sessionDao.findByOwnerIdAndJti(ownerId, jti)
-                .orElseThrow(NoSuchEntityException::new);
-        session.blacklist();
-        sessionDao.save(session);
+        if (!sessionDao.findByOwnerIdAndJti(ownerId, jti).isPresent()) {
+            throw new NoSuchEntityException();
+        }
+        // The revocation number is given by the database
+        if (sessionDao.revoke(ownerId, jti) > 0) {
+            sessionValidityCache.invalidate(ownerId, jti);
+            sessionRevocationRegistry.revoked(ownerId, jti);
+        }
     }
 
     @Override
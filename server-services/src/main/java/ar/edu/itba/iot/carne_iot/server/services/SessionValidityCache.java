@@ -0,0 +1,189 @@
+package ar.edu.itba.iot.carne_iot.server.services;
+
+import ar.edu.itba.iot.carne_iot.server.models.Session;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Bounded, time-to-live based cache of {@link Session}s validity, in order to avoid querying the database
+ * each time a request is authenticated (sessions only change when users log in or out).
+ * Sessions invalidated through this node are invalidated in the cache immediately.
+ * Sessions invalidated through other nodes are noticed once the entry expires
+ * (meanwhile, they are reported by the {@link SessionRevocationRegistry}, which is checked first).
+ * Sessions deleted together with their owners are also noticed once the entry expires.
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=SessionValidityCache")
+/* package */ class SessionValidityCache {
+
+    /**
+     * Flag indicating whether the cache is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * The cache of sessions validity.
+     */
+    private final Cache<SessionKey, Boolean> cache;
+
+
+    @Autowired
+    /* package */ SessionValidityCache(@Value("${custom.security.sessions.cache.enabled:true}") boolean enabled,
+                                       @Value("${custom.security.sessions.cache.max-size:100000}") long maxSize,
+                                       @Value("${custom.security.sessions.cache.ttl:60000}") long ttl) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl, TimeUnit.MILLISECONDS)
+                .recordStats()
+                .build();
+    }
+
+
+    /**
+     * Indicates whether the {@link Session} identified by the given {@code ownerId} and {@code jti} is valid,
+     * using the given {@code loader} to check it if it is not cached (or if the cache is disabled).
+     *
+     * @param ownerId The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User} owning the session.
+     * @param jti     The unique identifier of the session.
+     * @param loader  A {@link BooleanSupplier} that checks the validity of the session in the database.
+     * @return {@code true} if the session is valid, or {@code false} otherwise.
+     */
+    /* package */ boolean isValid(long ownerId, long jti, BooleanSupplier loader) {
+        if (!enabled) {
+            return loader.getAsBoolean();
+        }
+        final SessionKey key = new SessionKey(ownerId, jti);
+        final Boolean cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+        final boolean valid = loader.getAsBoolean();
+        // An invalidation performed while loading must not be overridden
+        final Boolean previous = cache.asMap().putIfAbsent(key, valid);
+        return previous == null ? valid : previous;
+    }
+
+    /**
+     * Invalidates the {@link Session} identified by the given {@code ownerId} and {@code jti}.
+     * The session is considered not valid immediately (i.e before the ongoing transaction commits,
+     * as sessions never become valid again). If the transaction is rolled back, the entry is removed.
+     *
+     * @param ownerId The id of the {@link ar.edu.itba.iot.carne_iot.server.models.User} owning the session.
+     * @param jti     The unique identifier of the session.
+     */
+    /* package */ void invalidate(long ownerId, long jti) {
+        final SessionKey key = new SessionKey(ownerId, jti);
+        cache.put(key, false);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != TransactionSynchronization.STATUS_COMMITTED) {
+                        cache.invalidate(key);
+                    }
+                }
+            });
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    @ManagedOperation(description = "Removes all cached sessions")
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Whether the cache is enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description = "Amount of cached sessions")
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    @ManagedAttribute(description = "Amount of lookups answered by the cache")
+    public long getHits() {
+        return cache.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Amount of lookups that required querying the database")
+    public long getMisses() {
+        return cache.stats().missCount();
+    }
+
+    @ManagedAttribute(description = "Ratio of lookups answered by the cache")
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @ManagedAttribute(description = "Amount of sessions evicted because the cache was full or they expired")
+    public long getEvictions() {
+        return cache.stats().evictionCount();
+    }
+
+
+    /**
+     * Key identifying a session.
+     */
+    private static final class SessionKey {
+
+        /**
+         * The id of the user owning the session.
+         */
+        private final long ownerId;
+
+        /**
+         * The unique identifier of the session.
+         */
+        private final long jti;
+
+        /**
+         * Constructor.
+         *
+         * @param ownerId The id of the user owning the session.
+         * @param jti     The unique identifier of the session.
+         */
+        private SessionKey(long ownerId, long jti) {
+            this.ownerId = ownerId;
+            this.jti = jti;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof SessionKey)) {
+                return false;
+            }
+            final SessionKey that = (SessionKey) o;
+            return ownerId == that.ownerId && jti == that.jti;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Long.hashCode(ownerId) + Long.hashCode(jti);
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package ar.edu.itba.iot.carne_iot.server.services;
+
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.TemperatureReadingDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Asynchronous appender of {@link TemperatureReading}s into the readings history.
+ * Readings are queued in a bounded buffer (never blocking the caller, dropping readings when full),
+ * and are appended in batches by a background task,
+ * which also aggregates them with the {@link TemperatureRollupEngine}.
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=TemperatureHistoryAppender")
+/* package */ class TemperatureHistoryAppender {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(TemperatureHistoryAppender.class);
+
+    /**
+     * DAO for appending {@link TemperatureReading}s.
+     */
+    private final TemperatureReadingDao temperatureReadingDao;
+
+    /**
+     * Engine that aggregates appended readings.
+     */
+    private final TemperatureRollupEngine temperatureRollupEngine;
+
+    /**
+     * {@link TransactionTemplate} used to append and aggregate each batch in the same transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Flag indicating whether history is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * Max. amount of readings appended in one batch.
+     */
+    private final int batchSize;
+
+    /**
+     * Holds readings not yet appended.
+     */
+    private final BlockingQueue<TemperatureReading> queue;
+
+    /**
+     * Amount of readings appended.
+     */
+    private final AtomicLong appendedReadings;
+
+    /**
+     * Amount of readings dropped because the buffer was full.
+     */
+    private final AtomicLong droppedReadings;
+
+    /**
+     * Amount of readings lost because appending them failed.
+     */
+    private final AtomicLong failedReadings;
+
+
+    @Autowired
+    /* package */ TemperatureHistoryAppender(TemperatureReadingDao temperatureReadingDao,
+                                             TemperatureRollupEngine temperatureRollupEngine,
+                                             PlatformTransactionManager transactionManager,
+                                             @Value("${custom.devices.temperature.history.enabled:false}")
+                                                     boolean enabled,
+                                             @Value("${custom.devices.temperature.history.buffer-size:10000}")
+                                                     int bufferSize,
+                                             @Value("${custom.devices.temperature.history.batch-size:500}")
+                                                     int batchSize) {
+        this.temperatureReadingDao = temperatureReadingDao;
+        this.temperatureRollupEngine = temperatureRollupEngine;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(bufferSize);
+        this.appendedReadings = new AtomicLong();
+        this.droppedReadings = new AtomicLong();
+        this.failedReadings = new AtomicLong();
+    }
+
+
+    /**
+     * Queues the given {@link TemperatureReading} to be appended into the history.
+     * Does nothing if history is not enabled.
+     *
+     * @param reading The {@link TemperatureReading} to be appended.
+     */
+    /* package */ void append(TemperatureReading reading) {
+        if (!enabled) {
+            return;
+        }
+        // Readings in the future are truncated to the actual moment (as it is done when setting device temperature)
+        final Instant now = Instant.now();
+        final TemperatureReading toAppend = reading.getTimestamp().isAfter(now) ?
+                new TemperatureReading(reading.getDeviceId(), reading.getCentiDegrees(), now) : reading;
+        if (!queue.offer(toAppend)) {
+            droppedReadings.incrementAndGet();
+        }
+    }
+
+    /**
+     * Appends all queued readings, in batches.
+     * Each batch is appended and aggregated in one transaction.
+     */
+    @Scheduled(fixedDelayString = "${custom.devices.temperature.history.flush-interval:500}")
+    /* package */ void flush() {
+        final List<TemperatureReading> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            try {
+                transactionTemplate.execute(status -> {
+                    temperatureReadingDao.appendAll(batch);
+                    temperatureRollupEngine.roll(batch);
+                    return null;
+                });
+                appendedReadings.addAndGet(batch.size());
+            } catch (Throwable e) {
+                LOGGER.error("Could not append {} temperature readings", batch.size(), e);
+                failedReadings.addAndGet(batch.size());
+            }
+            batch.clear();
+        }
+    }
+
+    /**
+     * Appends queued readings before shutting down.
+     */
+    @PreDestroy
+    /* package */ void shutdown() {
+        flush();
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Amount of temperature readings appended into the history")
+    public long getAppendedReadings() {
+        return appendedReadings.get();
+    }
+
+    @ManagedAttribute(description = "Amount of temperature readings dropped because the buffer was full")
+    public long getDroppedReadings() {
+        return droppedReadings.get();
+    }
+
+    @ManagedAttribute(description = "Amount of temperature readings lost because appending them failed")
+    public long getFailedReadings() {
+        return failedReadings.get();
+    }
+
+    @ManagedAttribute(description = "Amount of temperature readings waiting to be appended")
+    public int getPendingReadings() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,254 @@
+package ar.edu.itba.iot.carne_iot.server.services;
+
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate.Resolution;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.TemperatureAggregateDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Engine in charge of maintaining {@link TemperatureAggregate}s (i.e rollups of the readings history)
+ * for each {@link Resolution}. Aggregates are updated incrementally as readings are appended into the history,
+ * and can be recomputed from the history for a given period of time (e.g after backfilling readings).
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=TemperatureRollupEngine")
+/* package */ class TemperatureRollupEngine {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(TemperatureRollupEngine.class);
+
+    /**
+     * DAO for managing {@link TemperatureAggregate}s.
+     */
+    private final TemperatureAggregateDao temperatureAggregateDao;
+
+    /**
+     * {@link TransactionTemplate} used to recompute aggregates in one transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * Amount of readings aggregated.
+     */
+    private final AtomicLong rolledReadings;
+
+    /**
+     * Amount of partial aggregates merged into the stored ones.
+     */
+    private final AtomicLong mergedAggregates;
+
+    /**
+     * Amount of aggregates recomputed from the history.
+     */
+    private final AtomicLong recomputedAggregates;
+
+
+    @Autowired
+    /* package */ TemperatureRollupEngine(TemperatureAggregateDao temperatureAggregateDao,
+                                          PlatformTransactionManager transactionManager) {
+        this.temperatureAggregateDao = temperatureAggregateDao;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.rolledReadings = new AtomicLong();
+        this.mergedAggregates = new AtomicLong();
+        this.recomputedAggregates = new AtomicLong();
+    }
+
+
+    /**
+     * Aggregates the given {@link TemperatureReading}s into the stored {@link TemperatureAggregate}s.
+     * Must be called within the transaction that appends the readings into the history,
+     * so readings are aggregated exactly once.
+     *
+     * @param readings The {@link TemperatureReading}s being appended into the history.
+     */
+    /* package */ void roll(Collection<TemperatureReading> readings) {
+        if (readings.isEmpty()) {
+            return;
+        }
+        // Readings are aggregated in memory first, so each aggregate is written once per batch
+        final Map<BucketKey, Accumulator> accumulators = new HashMap<>();
+        for (TemperatureReading reading : readings) {
+            for (Resolution resolution : Resolution.values()) {
+                final BucketKey key = new BucketKey(reading.getDeviceId(), resolution,
+                        truncate(reading.getTimestamp(), resolution.getUnit()));
+                accumulators.computeIfAbsent(key, ignored -> new Accumulator()).add(reading.getCentiDegrees());
+            }
+        }
+        final List<TemperatureAggregate> aggregates = accumulators.entrySet().stream()
+                .map(entry -> entry.getValue().toAggregate(entry.getKey()))
+                .collect(Collectors.toList());
+        temperatureAggregateDao.mergeAll(aggregates);
+
+        rolledReadings.addAndGet(readings.size());
+        mergedAggregates.addAndGet(aggregates.size());
+    }
+
+    /**
+     * Recomputes from the readings history all the {@link TemperatureAggregate}s of the given period of time.
+     * The period is widened to whole hours, so no bucket is partially recomputed.
+     * Should be used for periods in which readings are not being appended anymore (e.g backfills of past data).
+     *
+     * @param from The moment from which aggregates are recomputed, in ISO-8601 format (e.g 2017-11-24T18:00:00Z).
+     * @param to   The moment until which aggregates are recomputed, in ISO-8601 format.
+     * @return The amount of recomputed {@link TemperatureAggregate}s.
+     */
+    @ManagedOperation(description = "Recomputes the temperature aggregates of the given period of time " +
+            "(ISO-8601 moments) from the readings history")
+    public int recompute(String from, String to) {
+        final ChronoUnit largestUnit = Resolution.HOUR.getUnit();
+        final Instant fromInstant = truncate(Instant.parse(from), largestUnit);
+        final Instant toInstant = Instant.parse(to);
+        final Instant toTruncated = truncate(toInstant, largestUnit);
+        final Instant alignedTo = toTruncated.equals(toInstant) ? toInstant : toTruncated.plus(1, largestUnit);
+        if (!fromInstant.isBefore(alignedTo)) {
+            throw new IllegalArgumentException("The 'from' moment must be before the 'to' moment");
+        }
+
+        LOGGER.info("Recomputing temperature aggregates between {} and {}", fromInstant, alignedTo);
+        final Integer recomputed = transactionTemplate
+                .execute(status -> temperatureAggregateDao.recompute(fromInstant, alignedTo));
+        recomputedAggregates.addAndGet(recomputed);
+        return recomputed;
+    }
+
+    /**
+     * Truncates the given {@code instant} to the start of the bucket of the given {@code unit} that contains it.
+     * Moments are stored as UTC timestamps, so buckets are aligned in UTC, regardless of the host time zone
+     * (i.e in the same way the database truncates them when recomputing aggregates).
+     *
+     * @param instant The {@link Instant} to be truncated.
+     * @param unit    The {@link ChronoUnit} defining the length of the bucket.
+     * @return The moment in which the bucket starts.
+     */
+    /* package */
+    static Instant truncate(Instant instant, ChronoUnit unit) {
+        return instant.truncatedTo(unit);
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Amount of temperature readings aggregated")
+    public long getRolledReadings() {
+        return rolledReadings.get();
+    }
+
+    @ManagedAttribute(description = "Amount of partial temperature aggregates merged into the stored ones")
+    public long getMergedAggregates() {
+        return mergedAggregates.get();
+    }
+
+    @ManagedAttribute(description = "Amount of temperature aggregates recomputed from the history")
+    public long getRecomputedAggregates() {
+        return recomputedAggregates.get();
+    }
+
+
+    /**
+     * Key identifying the bucket of an aggregate.
+     */
+    private static final class BucketKey {
+
+        /**
+         * The id of the device that measured the aggregated temperatures.
+         */
+        private final long deviceId;
+
+        /**
+         * The {@link Resolution} of the aggregate.
+         */
+        private final Resolution resolution;
+
+        /**
+         * The moment in which the bucket starts.
+         */
+        private final Instant from;
+
+        /**
+         * Constructor.
+         *
+         * @param deviceId   The id of the device that measured the aggregated temperatures.
+         * @param resolution The {@link Resolution} of the aggregate.
+         * @param from       The moment in which the bucket starts.
+         */
+        private BucketKey(long deviceId, Resolution resolution, Instant from) {
+            this.deviceId = deviceId;
+            this.resolution = resolution;
+            this.from = from;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof BucketKey)) {
+                return false;
+            }
+            final BucketKey bucketKey = (BucketKey) o;
+            return deviceId == bucketKey.deviceId && resolution == bucketKey.resolution
+                    && from.equals(bucketKey.from);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(deviceId, resolution, from);
+        }
+    }
+
+    /**
+     * Accumulates the temperatures of a bucket.
+     */
+    private static final class Accumulator {
+
+        private int min = Integer.MAX_VALUE;
+        private int max = Integer.MIN_VALUE;
+        private long sum;
+        private long count;
+
+        /**
+         * Adds the given {@code temperature} to this accumulator.
+         *
+         * @param temperature The temperature, in hundredths of degree.
+         */
+        private void add(int temperature) {
+            min = Math.min(min, temperature);
+            max = Math.max(max, temperature);
+            sum += temperature;
+            count++;
+        }
+
+        /**
+         * Creates a {@link TemperatureAggregate} with the accumulated values.
+         *
+         * @param key The {@link BucketKey} of the aggregate.
+         * @return The created {@link TemperatureAggregate}.
+         */
+        private TemperatureAggregate toAggregate(BucketKey key) {
+            return new TemperatureAggregate(key.deviceId, key.resolution, key.from, min, max, sum, count);
+        }
+    }
+}
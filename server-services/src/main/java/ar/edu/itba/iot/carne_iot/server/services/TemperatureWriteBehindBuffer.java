@@ -0,0 +1,309 @@
+package ar.edu.itba.iot.carne_iot.server.services;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.DeviceDao;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.annotation.PreDestroy;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Write-behind buffer for {@link Device}s actual temperature.
+ * Readings are stored in a per-device slot (where the newest reading, by measurement moment, wins),
+ * and dirty devices are written in batches by a background task.
+ * Only enabled when {@link Durability#WRITE_BEHIND} durability is configured.
+ * <p>
+ * The amount of devices with a pending reading is bounded (e.g if flushes keep failing),
+ * so readings of new devices are dropped (and counted) once the buffer is full.
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=TemperatureWriteBehindBuffer")
+/* package */ class TemperatureWriteBehindBuffer {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(TemperatureWriteBehindBuffer.class);
+
+    /**
+     * Holds the not yet written reading for each device.
+     */
+    private final ConcurrentMap<Long, PendingReading> slots;
+
+    /**
+     * DAO for managing {@link Device}s data.
+     */
+    private final DeviceDao deviceDao;
+
+    /**
+     * Index used to check which devices are registered.
+     */
+    private final DeviceRegistrationIndex deviceRegistrationIndex;
+
+    /**
+     * {@link TransactionTemplate} used to write each batch in its own transaction.
+     */
+    private final TransactionTemplate transactionTemplate;
+
+    /**
+     * The configured {@link Durability}.
+     */
+    private final Durability durability;
+
+    /**
+     * Max. amount of devices that can have a pending reading.
+     */
+    private final int maxPendingDevices;
+
+    /**
+     * Amount of readings received.
+     */
+    private final AtomicLong receivedReadings;
+
+    /**
+     * Amount of readings coalesced with a not yet written reading (i.e only the newest of them is written).
+     */
+    private final AtomicLong coalescedReadings;
+
+    /**
+     * Amount of devices written.
+     */
+    private final AtomicLong flushedWrites;
+
+    /**
+     * Amount of readings discarded when written (i.e the device was unregistered after the reading was accepted,
+     * or it already holds a newer temperature).
+     */
+    private final AtomicLong discardedWrites;
+
+    /**
+     * Amount of readings dropped because the buffer was full.
+     */
+    private final AtomicLong droppedReadings;
+
+
+    @Autowired
+    /* package */ TemperatureWriteBehindBuffer(DeviceDao deviceDao, DeviceRegistrationIndex deviceRegistrationIndex,
+                                               PlatformTransactionManager transactionManager,
+                                               @Value("${custom.devices.temperature.durability:SYNCHRONOUS}")
+                                                       Durability durability,
+                                               @Value("${custom.devices.temperature.max-pending-devices:100000}")
+                                                       int maxPendingDevices) {
+        this.slots = new ConcurrentHashMap<>();
+        this.deviceDao = deviceDao;
+        this.deviceRegistrationIndex = deviceRegistrationIndex;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.durability = durability;
+        this.maxPendingDevices = maxPendingDevices;
+        this.receivedReadings = new AtomicLong();
+        this.coalescedReadings = new AtomicLong();
+        this.flushedWrites = new AtomicLong();
+        this.discardedWrites = new AtomicLong();
+        this.droppedReadings = new AtomicLong();
+    }
+
+
+    /**
+     * @return {@code true} if readings must be buffered by this component, or {@code false} if they must be
+     * written synchronously.
+     */
+    /* package */ boolean isEnabled() {
+        return durability == Durability.WRITE_BEHIND;
+    }
+
+    /**
+     * Stores the given {@code temperature} as the pending reading for the {@link Device} with the given id,
+     * replacing any not yet written reading measured before it (i.e the newest reading is the one written).
+     * The reading is dropped if the device has no pending reading and the buffer is full.
+     *
+     * @param deviceId    The id of the {@link Device} that measured the temperature
+     *                    (its registration must be already checked).
+     * @param temperature The measured temperature, in hundredths of degree (must be already validated).
+     * @param measuredAt  The moment in which the temperature was measured.
+     * @return {@code true} if the reading is the pending one for the device,
+     * or {@code false} if it was dropped, or discarded because a newer one is pending.
+     */
+    /* package */ boolean offer(long deviceId, int temperature, Instant measuredAt) {
+        receivedReadings.incrementAndGet();
+        // The bound is approximate (concurrent offers can exceed it slightly), which is enough to bound memory
+        if (slots.size() >= maxPendingDevices && !slots.containsKey(deviceId)) {
+            droppedReadings.incrementAndGet();
+            return false;
+        }
+        final PendingReading offered = new PendingReading(temperature, measuredAt);
+        PendingReading pending = slots.putIfAbsent(deviceId, offered);
+        while (pending != null) {
+            if (pending.measuredAt.isAfter(measuredAt)) {
+                coalescedReadings.incrementAndGet();
+                return false;
+            }
+            if (slots.replace(deviceId, pending, offered)) {
+                coalescedReadings.incrementAndGet();
+                return true;
+            }
+            // The pending reading was flushed or replaced in the meantime
+            pending = slots.putIfAbsent(deviceId, offered);
+        }
+        return true;
+    }
+
+    /**
+     * Writes all pending readings in one transaction.
+     * Readings offered while flushing are kept for the next execution.
+     */
+    @Scheduled(fixedDelayString = "${custom.devices.temperature.flush-interval:1000}")
+    /* package */ void flush() {
+        if (slots.isEmpty()) {
+            return;
+        }
+        final Map<Long, PendingReading> batch = new HashMap<>();
+        for (Long deviceId : slots.keySet()) {
+            final PendingReading reading = slots.remove(deviceId);
+            if (reading != null) {
+                batch.put(deviceId, reading);
+            }
+        }
+        try {
+            transactionTemplate.execute(status -> {
+                write(batch);
+                return null;
+            });
+        } catch (Throwable e) {
+            LOGGER.error("Could not flush {} temperature readings. Will retry in next execution", batch.size(), e);
+            // Give back the readings, unless a newer one arrived in the meantime
+            batch.forEach(slots::putIfAbsent);
+        }
+    }
+
+    /**
+     * Flushes pending readings before shutting down.
+     */
+    @PreDestroy
+    /* package */ void shutdown() {
+        flush();
+    }
+
+    /**
+     * Writes the given batch of readings. Must be called within a transaction.
+     *
+     * @param batch The readings to be written, by device id.
+     */
+    private void write(Map<Long, PendingReading> batch) {
+        final Set<Long> registered = batch.keySet().stream()
+                .filter(deviceRegistrationIndex::isRegistered)
+                .collect(Collectors.toSet());
+        if (registered.isEmpty()) {
+            discardedWrites.addAndGet(batch.size());
+            return;
+        }
+        // The cached devices might hold an old temperature, which would be written back when saving them
+        final List<Device> devices = deviceDao.findAllActualById(registered);
+        int written = 0;
+        for (Device device : devices) {
+            final PendingReading reading = batch.get(device.getId());
+            if (device.setTemperature(reading.temperature, reading.measuredAt)) {
+                written++;
+            }
+        }
+        deviceDao.save(devices);
+
+        flushedWrites.addAndGet(written);
+        discardedWrites.addAndGet(batch.size() - written);
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Amount of temperature readings received")
+    public long getReceivedReadings() {
+        return receivedReadings.get();
+    }
+
+    @ManagedAttribute(description = "Amount of temperature readings coalesced with a not yet written one")
+    public long getCoalescedReadings() {
+        return coalescedReadings.get();
+    }
+
+    @ManagedAttribute(description = "Amount of device temperatures written to the database")
+    public long getFlushedWrites() {
+        return flushedWrites.get();
+    }
+
+    @ManagedAttribute(description = "Amount of readings discarded because the device is not registered " +
+            "or holds a newer temperature")
+    public long getDiscardedWrites() {
+        return discardedWrites.get();
+    }
+
+    @ManagedAttribute(description = "Amount of temperature readings dropped because the buffer was full")
+    public long getDroppedReadings() {
+        return droppedReadings.get();
+    }
+
+    @ManagedAttribute(description = "Amount of devices with a not yet written reading")
+    public int getPendingDevices() {
+        return slots.size();
+    }
+
+
+    /**
+     * Enum indicating how temperature readings are persisted.
+     */
+    /* package */ enum Durability {
+        /**
+         * Each reading is written in the request that informs it.
+         */
+        SYNCHRONOUS,
+        /**
+         * Readings are buffered in memory and written periodically
+         * (i.e readings not yet written are lost if the server crashes).
+         */
+        WRITE_BEHIND,
+    }
+
+    /**
+     * Container class for a not yet written reading.
+     */
+    private static final class PendingReading {
+
+        /**
+         * The measured temperature, in hundredths of degree.
+         */
+        private final int temperature;
+
+        /**
+         * The moment in which the temperature was measured.
+         */
+        private final Instant measuredAt;
+
+        /**
+         * Constructor.
+         *
+         * @param temperature The measured temperature, in hundredths of degree.
+         * @param measuredAt  The moment in which the temperature was measured.
+         */
+        private PendingReading(int temperature, Instant measuredAt) {
+            this.temperature = temperature;
+            this.measuredAt = measuredAt;
+        }
+    }
+}
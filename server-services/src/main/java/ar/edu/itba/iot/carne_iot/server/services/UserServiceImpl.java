@@ -6,19 +6,22 @@ import ar.edu.itba.iot.carne_iot.server.exceptions.NoSuchEntityException;
 import ar.edu.itba.iot.carne_iot.server.exceptions.UnauthorizedException;
 import ar.edu.itba.iot.carne_iot.server.models.Role;
 import ar.edu.itba.iot.carne_iot.server.models.User;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.SessionDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.daos.UserDao;
 import ar.edu.itba.iot.carne_iot.server.persistence.query_helpers.UserQueryHelper;
+import ar.edu.itba.iot.carne_iot.server.security.AuthorizationPolicy;
+import ar.edu.itba.iot.carne_iot.server.security.Authorize;
 import ar.edu.itba.iot.carne_iot.server.security.PasswordValidator;
 import org.hibernate.Hibernate;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.domain.Specification;
-import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.function.Function;
@@ -50,41 +53,77 @@ public class UserServiceImpl implements UserService, UniqueViolationExceptionThr
      */
     private final PasswordEncoder passwordEncoder;
 
+    /**
+     * Index of active device registrations, updated when a {@link User} (and its registrations) is deleted.
+     */
+    private final DeviceRegistrationIndex deviceRegistrationIndex;
+
+    /**
+     * DAO used to get the valid sessions of a {@link User} being deleted.
+     */
+    private final SessionDao sessionDao;
+
+    /**
+     * Registry of revoked sessions, into which the valid sessions of a deleted {@link User} are added.
+     */
+    private final SessionRevocationRegistry sessionRevocationRegistry;
+
     @Autowired
     public UserServiceImpl(UserDao userDao, UserQueryHelper userQueryHelper,
-                           PasswordValidator passwordValidator, PasswordEncoder passwordEncoder) {
+                           PasswordValidator passwordValidator, PasswordEncoder passwordEncoder,
+                           DeviceRegistrationIndex deviceRegistrationIndex,
+                           SessionDao sessionDao, SessionRevocationRegistry sessionRevocationRegistry) {
         this.userDao = userDao;
         this.userQueryHelper = userQueryHelper;
         this.passwordValidator = passwordValidator;
         this.passwordEncoder = passwordEncoder;
+        this.deviceRegistrationIndex = deviceRegistrationIndex;
+        this.sessionDao = sessionDao;
+        this.sessionRevocationRegistry = sessionRevocationRegistry;
     }
 
 
     @Override
-    @PreAuthorize("@adminPermissionProvider.isAdmin()")
-    public Page<User> findMatching(String fullName, LocalDate minBirthDate, LocalDate maxBirthDate,
-                                   String username, String email, Pageable pageable) {
+    @Authorize(AuthorizationPolicy.ADMIN)
+    public Slice<User> findMatching(String fullName, LocalDate minBirthDate, LocalDate maxBirthDate,
+                                    String username, String email, Pageable pageable) {
         userQueryHelper.validatePageable(pageable);
         final Specification<User> matching = userQueryHelper
                 .createUserSpecification(fullName, minBirthDate, maxBirthDate, username, email);
 
-        return userDao.findAll(matching, pageable);
+        return userDao.findAllSliced(matching, pageable);
     }
 
     @Override
-    @PreAuthorize("@userPermissionProvider.readById(#id)")
+    @Authorize(AuthorizationPolicy.ADMIN)
+    public List<User> findMatchingAfter(String fullName, LocalDate minBirthDate, LocalDate maxBirthDate,
+                                        String username, String email, Long afterId, int limit) {
+        final Specification<User> matching = userQueryHelper
+                .createUserSpecification(fullName, minBirthDate, maxBirthDate, username, email);
+
+        return userDao.findAfter(matching, afterId, limit);
+    }
+
+    @Override
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "id")
     public Optional<User> getById(long id) {
         return getInitializing(userDao::findById, id);
     }
 
     @Override
-    @PreAuthorize("@userPermissionProvider.readByUsername(#username)")
+    @Authorize(value = AuthorizationPolicy.READ_USER, argument = "id")
+    public Optional<Instant> getLastModified(long id) {
+        return userDao.findLastModifiedById(id);
+    }
+
+    @Override
+    @Authorize(value = AuthorizationPolicy.READ_USER_BY_USERNAME, argument = "username")
     public Optional<User> getByUsername(String username) {
         return getInitializing(userDao::findByUsername, username);
     }
 
     @Override
-    @PreAuthorize("@userPermissionProvider.readByEmail(#email)")
+    @Authorize(value = AuthorizationPolicy.READ_USER_BY_EMAIL, argument = "email")
     public Optional<User> getByEmail(String email) {
         return getInitializing(userDao::findByEmail, email);
     }
@@ -107,7 +146,7 @@ public class UserServiceImpl implements UserService, UniqueViolationExceptionThr
 
     @Override
     @Transactional
-    @PreAuthorize("@userPermissionProvider.writeById(#id)")
+    @Authorize(value = AuthorizationPolicy.WRITE_USER, argument = "id")
     public void update(long id, String newFullName, LocalDate newBirthDate) {
         final User user = userDao.findById(id).orElseThrow(NoSuchEntityException::new);
         user.update(newFullName, newBirthDate);
@@ -116,7 +155,7 @@ public class UserServiceImpl implements UserService, UniqueViolationExceptionThr
 
     @Override
     @Transactional
-    @PreAuthorize("@userPermissionProvider.writeById(#id)")
+    @Authorize(value = AuthorizationPolicy.WRITE_USER, argument = "id")
     public void changeUsername(long id, String newUsername) {
         final List<UniqueViolationError> errorList = new LinkedList<>();
         checkUsernameUniqueness(newUsername, errorList);
@@ -129,7 +168,7 @@ public class UserServiceImpl implements UserService, UniqueViolationExceptionThr
 
     @Override
     @Transactional
-    @PreAuthorize("@userPermissionProvider.writeById(#id)")
+    @Authorize(value = AuthorizationPolicy.WRITE_USER, argument = "id")
     public void changeEmail(long id, String newEmail) {
         final List<UniqueViolationError> errorList = new LinkedList<>();
         checkEmailUniqueness(newEmail, errorList);
@@ -142,7 +181,7 @@ public class UserServiceImpl implements UserService, UniqueViolationExceptionThr
 
     @Override
     @Transactional
-    @PreAuthorize("@userPermissionProvider.writeById(#id)")
+    @Authorize(value = AuthorizationPolicy.WRITE_USER, argument = "id")
     public void changePassword(long id, String currentPassword, String newPassword) {
         final User user = userDao.findById(id).orElseThrow(NoSuchEntityException::new);
 
@@ -158,14 +197,14 @@ public class UserServiceImpl implements UserService, UniqueViolationExceptionThr
     }
 
     @Override
-    @PreAuthorize("@adminPermissionProvider.isAdmin()")
+    @Authorize(AuthorizationPolicy.ADMIN)
     public Set<Role> getRoles(long id) {
         return getInitializing(userDao::findById, id).map(User::getRoles).orElseThrow(NoSuchEntityException::new);
     }
 
     @Override
     @Transactional
-    @PreAuthorize("@adminPermissionProvider.isAdmin()")
+    @Authorize(AuthorizationPolicy.ADMIN)
     public void addRole(long id, Role role) {
         final User user = userDao.findById(id).orElseThrow(NoSuchEntityException::new);
         user.addRole(role);
@@ -174,7 +213,7 @@ public class UserServiceImpl implements UserService, UniqueViolationExceptionThr
 
     @Override
     @Transactional
-    @PreAuthorize("@adminPermissionProvider.isAdmin()")
+    @Authorize(AuthorizationPolicy.ADMIN)
     public void removeRole(long id, Role role) {
         final User user = userDao.findById(id).orElseThrow(NoSuchEntityException::new);
         user.removeRole(role);
@@ -183,23 +222,23 @@ public class UserServiceImpl implements UserService, UniqueViolationExceptionThr
 
     @Override
     @Transactional
-    @PreAuthorize("@userPermissionProvider.deleteById(#id)")
+    @Authorize(value = AuthorizationPolicy.DELETE_USER, argument = "id")
     public void deleteById(long id) {
-        userDao.findById(id).ifPresent(userDao::delete);
+        userDao.findById(id).ifPresent(this::delete);
     }
 
     @Override
     @Transactional
-    @PreAuthorize("@userPermissionProvider.deleteByUsername(#username)")
+    @Authorize(value = AuthorizationPolicy.DELETE_USER_BY_USERNAME, argument = "username")
     public void deleteByUsername(String username) {
-        userDao.findByUsername(username).ifPresent(userDao::delete);
+        userDao.findByUsername(username).ifPresent(this::delete);
     }
 
     @Override
     @Transactional
-    @PreAuthorize("@userPermissionProvider.deleteByEmail(#email)")
+    @Authorize(value = AuthorizationPolicy.DELETE_USER_BY_EMAIL, argument = "email")
     public void deleteByEmail(String email) {
-        userDao.findByEmail(email).ifPresent(userDao::delete);
+        userDao.findByEmail(email).ifPresent(this::delete);
     }
 
 
@@ -207,6 +246,19 @@ public class UserServiceImpl implements UserService, UniqueViolationExceptionThr
     // Helpers
     // ================================
 
+    /**
+     * Deletes the given {@link User}, removing its device registrations from the index,
+     * and registering its valid sessions as revoked (other nodes learn them from the log of deleted sessions).
+     *
+     * @param user The {@link User} to be deleted.
+     */
+    private void delete(User user) {
+        final List<Long> validJtis = sessionDao.findValidJtisByOwnerId(user.getId());
+        userDao.delete(user);
+        deviceRegistrationIndex.removeOwner(user.getId());
+        sessionRevocationRegistry.revoked(user.getId(), validJtis);
+    }
+
     /**
      * Checks that no {@link User} exists with the given {@code email},
      * adding the {@link UserServiceImpl#EMAIL_IN_USE} {@link UniqueViolationError} to the given {@code errorList}
@@ -0,0 +1,136 @@
+package ar.edu.itba.iot.carne_iot.server.security;
+
+import ar.edu.itba.iot.carne_iot.server.models.User;
+import ar.edu.itba.iot.carne_iot.server.persistence.daos.UserDao;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.Optional;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the amount of database round trips performed by the {@link UserPermissionProviderImpl}
+ * (i.e calls to the {@link UserDao}, as each of them is a query).
+ * Operations by id must be authorized with the user id in the token only, and operations by username or email
+ * must perform a single lookup, and only for non administrators.
+ */
+public class UserPermissionProviderImplTest {
+
+    private static final long USER_ID = 10L;
+
+    private static final long OTHER_USER_ID = 20L;
+
+    private UserDao userDao;
+
+    private CurrentUserIdProvider currentUserIdProvider;
+
+    private UserPermissionProviderImpl permissionProvider;
+
+
+    @Before
+    public void setUp() {
+        userDao = mock(UserDao.class);
+        currentUserIdProvider = mock(CurrentUserIdProvider.class);
+        permissionProvider = new UserPermissionProviderImpl(userDao, currentUserIdProvider);
+    }
+
+    @After
+    public void tearDown() {
+        SecurityContextHolder.clearContext();
+    }
+
+
+    @Test
+    public void testOperationsByIdDoNotQueryTheDatabase() {
+        authenticate(USER_ID, "ROLE_USER");
+
+        assertTrue(permissionProvider.readById(USER_ID));
+        assertTrue(permissionProvider.writeById(USER_ID));
+        assertTrue(permissionProvider.deleteById(USER_ID));
+        assertFalse(permissionProvider.readById(OTHER_USER_ID));
+        assertFalse(permissionProvider.writeById(OTHER_USER_ID));
+        assertFalse(permissionProvider.deleteById(OTHER_USER_ID));
+
+        verifyZeroInteractions(userDao);
+    }
+
+    @Test
+    public void testAdministratorOperationsDoNotQueryTheDatabase() {
+        authenticate(USER_ID, "ROLE_USER", "ROLE_ADMIN");
+
+        assertTrue(permissionProvider.readById(OTHER_USER_ID));
+        assertTrue(permissionProvider.deleteById(OTHER_USER_ID));
+        assertTrue(permissionProvider.readByUsername("other"));
+        assertTrue(permissionProvider.readByEmail("other@example.com"));
+        assertTrue(permissionProvider.deleteByUsername("other"));
+        assertTrue(permissionProvider.deleteByEmail("other@example.com"));
+
+        verifyZeroInteractions(userDao);
+    }
+
+    @Test
+    public void testOperationsByUsernameQueryTheDatabaseOnce() {
+        authenticate(USER_ID, "ROLE_USER");
+        final User user = user(USER_ID);
+        when(userDao.findByUsername("user")).thenReturn(Optional.of(user));
+
+        assertTrue(permissionProvider.readByUsername("user"));
+
+        verify(userDao).findByUsername("user");
+        verifyNoMoreInteractions(userDao);
+    }
+
+    @Test
+    public void testOperationsByEmailOfAnotherUserAreDenied() {
+        authenticate(USER_ID, "ROLE_USER");
+        final User other = user(OTHER_USER_ID);
+        when(userDao.findByEmail("other@example.com")).thenReturn(Optional.of(other));
+
+        assertFalse(permissionProvider.deleteByEmail("other@example.com"));
+
+        verify(userDao).findByEmail("other@example.com");
+        verifyNoMoreInteractions(userDao);
+    }
+
+    @Test
+    public void testUnauthenticatedOperationsAreDenied() {
+        assertFalse(permissionProvider.readById(USER_ID));
+        assertFalse(permissionProvider.readByUsername("user"));
+
+        verifyZeroInteractions(userDao);
+    }
+
+
+    /**
+     * Authenticates the user with the given {@code userId}, with the given {@code roles}.
+     *
+     * @param userId The id of the authenticated user (i.e the one in the token).
+     * @param roles  The roles of the authenticated user.
+     */
+    private void authenticate(long userId, String... roles) {
+        SecurityContextHolder.getContext().setAuthentication(new TestingAuthenticationToken("user", null, roles));
+        when(currentUserIdProvider.currentUserIdOptional()).thenReturn(Optional.of(userId));
+    }
+
+    /**
+     * Creates a mocked {@link User} with the given {@code id}.
+     *
+     * @param id The user id.
+     * @return The mocked {@link User}.
+     */
+    private static User user(long id) {
+        final User user = mock(User.class);
+        when(user.getId()).thenReturn(id);
+        return user;
+    }
+}
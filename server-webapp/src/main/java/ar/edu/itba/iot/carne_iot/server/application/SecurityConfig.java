@@ -1,10 +1,11 @@
 package ar.edu.itba.iot.carne_iot.server.application;
 
+import ar.edu.itba.iot.carne_iot.server.security.RehashingPasswordEncoder;
+import ar.edu.itba.iot.carne_iot.server.web.security.BoundedPasswordEncoder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
-import org.springframework.security.crypto.password.PasswordEncoder;
 
 /**
  * Spring Security main configuration.
@@ -17,7 +18,11 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 public class SecurityConfig {
 
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public RehashingPasswordEncoder passwordEncoder(
+            @Value("${custom.security.passwords.bcrypt-cost:10}") int cost,
+            @Value("${custom.security.passwords.hashing-threads:4}") int threads,
+            @Value("${custom.security.passwords.queue-capacity:64}") int queueCapacity,
+            @Value("${custom.security.passwords.retry-after:1}") long retryAfter) {
+        return new BoundedPasswordEncoder(cost, threads, queueCapacity, retryAfter);
     }
 }
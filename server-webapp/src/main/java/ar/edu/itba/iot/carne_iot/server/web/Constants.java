@@ -49,7 +49,8 @@ public class Constants {
      * not included in {@link javax.ws.rs.core.Response.Status} enum.
      */
     public enum MissingHttpStatuses implements Response.StatusType {
-        UNPROCESSABLE_ENTITY(422, "Unprocessable Entity");
+        UNPROCESSABLE_ENTITY(422, "Unprocessable Entity"),
+        TOO_MANY_REQUESTS(429, "Too Many Requests");
 
         /**
          * The associated status code.
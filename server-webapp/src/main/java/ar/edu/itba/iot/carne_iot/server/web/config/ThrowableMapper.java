@@ -1,5 +1,6 @@
 package ar.edu.itba.iot.carne_iot.server.web.config;
 
+import ar.edu.itba.iot.carne_iot.server.exceptions.TooManyRequestsException;
 import com.bellotapps.utils.error_handler.ErrorHandler;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -30,8 +31,12 @@ import java.util.Optional;
     @Override
     public Response toResponse(Throwable exception) {
         final ErrorHandler.HandlingResult result = errorHandler.handle(exception);
-        return Response.status(result.getHttpErrorCode())
-                .entity(Optional.ofNullable(result.getErrorRepresentationEntity()).orElse(""))
-                .build();
+        final Response.ResponseBuilder builder = Response.status(result.getHttpErrorCode())
+                .entity(Optional.ofNullable(result.getErrorRepresentationEntity()).orElse(""));
+        // Shed requests tell clients when to retry (headers are not part of the handling result)
+        if (exception instanceof TooManyRequestsException) {
+            builder.header("Retry-After", ((TooManyRequestsException) exception).getRetryAfter());
+        }
+        return builder.build();
     }
 }
@@ -0,0 +1,93 @@
+package ar.edu.itba.iot.carne_iot.server.web.config;
+
+import ar.edu.itba.iot.carne_iot.server.web.controller.live_updates.DeviceChannel;
+import ar.edu.itba.iot.carne_iot.server.web.security.authentication.JwtAuthenticationProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.web.socket.server.standard.ServerEndpointExporter;
+import org.springframework.web.socket.server.standard.ServerEndpointRegistration;
+
+import javax.websocket.HandshakeResponse;
+import javax.websocket.server.HandshakeRequest;
+import javax.websocket.server.ServerEndpointConfig;
+import javax.ws.rs.core.HttpHeaders;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Configuration class in charge of registering WebSocket endpoints in the servlet container.
+ * WebSocket handshakes are answered by the container before reaching the Spring Security filters,
+ * so endpoints authenticate their handshakes by themselves.
+ */
+@Configuration
+public class WebSocketConfig {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(WebSocketConfig.class);
+
+    /**
+     * Prefix of the authorization header value (i.e the supported authentication scheme).
+     */
+    private static final String BEARER_PREFIX = "Bearer ";
+
+
+    /**
+     * @return A {@link ServerEndpointExporter} that registers the {@link ServerEndpointRegistration} beans.
+     */
+    @Bean
+    public ServerEndpointExporter serverEndpointExporter() {
+        return new ServerEndpointExporter();
+    }
+
+    /**
+     * Registers the {@link DeviceChannel}, whose handshake must be authenticated with a device JWT.
+     *
+     * @param deviceChannel             The {@link DeviceChannel}.
+     * @param jwtAuthenticationProvider The {@link JwtAuthenticationProvider} used to authenticate handshakes.
+     * @return The {@link ServerEndpointRegistration} for the {@link DeviceChannel}.
+     */
+    @Bean
+    public ServerEndpointRegistration deviceChannelRegistration(DeviceChannel deviceChannel,
+                                                                JwtAuthenticationProvider jwtAuthenticationProvider) {
+        return new ServerEndpointRegistration(DeviceChannel.DEVICE_CHANNEL_ENDPOINT, deviceChannel) {
+            @Override
+            public void modifyHandshake(ServerEndpointConfig config, HandshakeRequest request,
+                                        HandshakeResponse response) {
+                super.modifyHandshake(config, request, response);
+                // The channel rejects the connection when no authentication is set
+                authenticateDevice(request, jwtAuthenticationProvider)
+                        .ifPresent(authentication ->
+                                config.getUserProperties().put(DeviceChannel.AUTHENTICATION_PROPERTY, authentication));
+            }
+        };
+    }
+
+    /**
+     * Authenticates the given handshake {@code request} with the device JWT in its authorization header.
+     *
+     * @param request                   The {@link HandshakeRequest}.
+     * @param jwtAuthenticationProvider The {@link JwtAuthenticationProvider} used to authenticate the JWT.
+     * @return A nullable {@link Optional} containing the device {@link Authentication},
+     * or empty if the request does not contain a valid device JWT.
+     */
+    private static Optional<Authentication> authenticateDevice(HandshakeRequest request,
+                                                               JwtAuthenticationProvider jwtAuthenticationProvider) {
+        final List<String> headers = request.getHeaders().get(HttpHeaders.AUTHORIZATION);
+        if (headers == null || headers.isEmpty() || !headers.get(0).startsWith(BEARER_PREFIX)) {
+            return Optional.empty();
+        }
+        try {
+            return jwtAuthenticationProvider
+                    .authenticateDevice(headers.get(0).substring(BEARER_PREFIX.length()).trim());
+        } catch (AuthenticationException e) {
+            LOGGER.debug("Device channel handshake with invalid JWT", e);
+            return Optional.empty();
+        }
+    }
+}
@@ -0,0 +1,290 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.coap;
+
+import ar.edu.itba.iot.carne_iot.server.exceptions.CustomIllegalStateException;
+import ar.edu.itba.iot.carne_iot.server.exceptions.NoSuchEntityException;
+import ar.edu.itba.iot.carne_iot.server.exceptions.ValidationException;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+import ar.edu.itba.iot.carne_iot.server.services.DeviceService;
+import ar.edu.itba.iot.carne_iot.server.web.security.authentication.JwtAuthenticationProvider;
+import org.eclipse.californium.core.CoapResource;
+import org.eclipse.californium.core.CoapServer;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Option;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.eclipse.californium.core.server.resources.CoapExchange;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.access.AccessDeniedException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CoAP (i.e UDP) listener for temperature readings, for constrained devices that can not afford HTTP.
+ * <p>
+ * Devices send a {@code PUT} request to the {@code /temperature} resource, including their device JWT in the
+ * {@link #AUTHORIZATION_OPTION} option (the same token used as bearer token in the HTTP API), and a binary payload
+ * containing the temperature in hundredths of degree, as a big-endian signed 32 bits integer.
+ * The payload may be followed by the moment in which the temperature was measured, in seconds since the epoch,
+ * as a big-endian unsigned 32 bits integer (if not present, the actual moment is used).
+ * <p>
+ * The listener is disabled by default. Note that plain CoAP is not encrypted (i.e tokens travel in clear text),
+ * so it should only be enabled in trusted networks, or behind a DTLS terminating proxy.
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=CoapTemperatureListener")
+public class CoapTemperatureListener {
+
+    /**
+     * Number of the CoAP option holding the device JWT
+     * (a critical option in the experimental range, so it can not be silently ignored).
+     */
+    public static final int AUTHORIZATION_OPTION = 65001;
+
+    /**
+     * Name of the resource to which readings are sent.
+     */
+    public static final String TEMPERATURE_RESOURCE = "temperature";
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(CoapTemperatureListener.class);
+
+    /**
+     * Size of a payload containing only the temperature.
+     */
+    private static final int TEMPERATURE_PAYLOAD_SIZE = Integer.BYTES;
+
+    /**
+     * Size of a payload containing the temperature and the moment in which it was measured.
+     */
+    private static final int TIMESTAMPED_PAYLOAD_SIZE = 2 * Integer.BYTES;
+
+    /**
+     * The {@link DeviceService} to which readings are passed.
+     */
+    private final DeviceService deviceService;
+
+    /**
+     * The {@link JwtAuthenticationProvider} used to authenticate devices.
+     */
+    private final JwtAuthenticationProvider jwtAuthenticationProvider;
+
+    /**
+     * Flag indicating whether the listener is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * The UDP port in which the listener listens.
+     */
+    private final int port;
+
+    /**
+     * Amount of requests received.
+     */
+    private final AtomicLong receivedRequests;
+
+    /**
+     * Amount of readings accepted.
+     */
+    private final AtomicLong acceptedReadings;
+
+    /**
+     * Amount of requests rejected.
+     */
+    private final AtomicLong rejectedRequests;
+
+    /**
+     * The CoAP server (null if the listener is not enabled).
+     */
+    private CoapServer server;
+
+
+    @Autowired
+    public CoapTemperatureListener(DeviceService deviceService, JwtAuthenticationProvider jwtAuthenticationProvider,
+                                   @Value("${custom.coap.enabled:false}") boolean enabled,
+                                   @Value("${custom.coap.port:5683}") int port) {
+        this.deviceService = deviceService;
+        this.jwtAuthenticationProvider = jwtAuthenticationProvider;
+        this.enabled = enabled;
+        this.port = port;
+        this.receivedRequests = new AtomicLong();
+        this.acceptedReadings = new AtomicLong();
+        this.rejectedRequests = new AtomicLong();
+    }
+
+
+    /**
+     * Starts listening, if enabled.
+     */
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // A NetworkConfig is created in order to avoid Californium reading (and writing) a properties file
+        final NetworkConfig networkConfig = new NetworkConfig();
+        server = new CoapServer(networkConfig);
+        server.addEndpoint(new CoapEndpoint(new InetSocketAddress(port), networkConfig));
+        server.add(new TemperatureResource());
+        server.start();
+        LOGGER.info("CoAP temperature listener started in port {}", port);
+    }
+
+    /**
+     * Stops listening.
+     */
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.destroy();
+            server = null;
+        }
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Amount of CoAP requests received")
+    public long getReceivedRequests() {
+        return receivedRequests.get();
+    }
+
+    @ManagedAttribute(description = "Amount of temperature readings accepted through CoAP")
+    public long getAcceptedReadings() {
+        return acceptedReadings.get();
+    }
+
+    @ManagedAttribute(description = "Amount of CoAP requests rejected")
+    public long getRejectedRequests() {
+        return rejectedRequests.get();
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Handles a {@code PUT} request to the temperature resource.
+     *
+     * @param exchange The {@link CoapExchange} containing the request.
+     */
+    private void handleTemperature(CoapExchange exchange) {
+        receivedRequests.incrementAndGet();
+
+        final Optional<Authentication> authentication = authenticate(exchange);
+        if (!authentication.isPresent()) {
+            reject(exchange, CoAP.ResponseCode.UNAUTHORIZED);
+            return;
+        }
+        final long deviceId = (Long) authentication.get().getDetails();
+        final byte[] payload = exchange.getRequestPayload();
+        if (payload == null
+                || (payload.length != TEMPERATURE_PAYLOAD_SIZE && payload.length != TIMESTAMPED_PAYLOAD_SIZE)) {
+            reject(exchange, CoAP.ResponseCode.BAD_REQUEST);
+            return;
+        }
+        final ByteBuffer buffer = ByteBuffer.wrap(payload); // Big-endian by default
+        final int temperature = buffer.getInt(); // Already in hundredths of degree
+
+        // Services are secured, so the device authentication is set while the reading is processed
+        final SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(authentication.get());
+        SecurityContextHolder.setContext(securityContext);
+        try {
+            if (buffer.hasRemaining()) {
+                final Instant measuredAt = Instant.ofEpochSecond(Integer.toUnsignedLong(buffer.getInt()));
+                deviceService.updateTemperatures(Collections
+                        .singletonList(new TemperatureReading(deviceId, temperature, measuredAt)));
+            } else {
+                deviceService.updateTemperature(deviceId, temperature);
+            }
+            acceptedReadings.incrementAndGet();
+            exchange.respond(CoAP.ResponseCode.CHANGED);
+        } catch (ValidationException e) {
+            reject(exchange, CoAP.ResponseCode.BAD_REQUEST);
+        } catch (AccessDeniedException e) {
+            reject(exchange, CoAP.ResponseCode.FORBIDDEN);
+        } catch (NoSuchEntityException e) {
+            reject(exchange, CoAP.ResponseCode.NOT_FOUND);
+        } catch (CustomIllegalStateException e) {
+            reject(exchange, CoAP.ResponseCode.PRECONDITION_FAILED);
+        } catch (RuntimeException e) {
+            LOGGER.error("Could not process CoAP temperature reading of device {}", deviceId, e);
+            reject(exchange, CoAP.ResponseCode.INTERNAL_SERVER_ERROR);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Authenticates the request in the given {@code exchange} with the device JWT in its
+     * {@link #AUTHORIZATION_OPTION} option.
+     *
+     * @param exchange The {@link CoapExchange} containing the request.
+     * @return A nullable {@link Optional} containing the device {@link Authentication},
+     * or empty if the request does not contain a valid device JWT.
+     */
+    private Optional<Authentication> authenticate(CoapExchange exchange) {
+        final Optional<String> token = exchange.getRequestOptions().getOthers().stream()
+                .filter(option -> option.getNumber() == AUTHORIZATION_OPTION)
+                .map(Option::getStringValue)
+                .findFirst();
+        if (!token.isPresent()) {
+            return Optional.empty();
+        }
+        try {
+            return jwtAuthenticationProvider.authenticateDevice(token.get());
+        } catch (AuthenticationException e) {
+            LOGGER.debug("CoAP request with invalid JWT", e);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Responds the given {@code exchange} with the given error {@code code}.
+     *
+     * @param exchange The {@link CoapExchange} to be responded.
+     * @param code     The {@link CoAP.ResponseCode}.
+     */
+    private void reject(CoapExchange exchange, CoAP.ResponseCode code) {
+        rejectedRequests.incrementAndGet();
+        exchange.respond(code);
+    }
+
+    /**
+     * The CoAP resource to which readings are sent.
+     */
+    private final class TemperatureResource extends CoapResource {
+
+        private TemperatureResource() {
+            super(TEMPERATURE_RESOURCE);
+        }
+
+        @Override
+        public void handlePUT(CoapExchange exchange) {
+            handleTemperature(exchange);
+        }
+    }
+}
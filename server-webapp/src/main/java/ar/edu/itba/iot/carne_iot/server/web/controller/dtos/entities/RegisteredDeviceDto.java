@@ -1,7 +1,6 @@
 package ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities;
 
 import ar.edu.itba.iot.carne_iot.server.models.Device;
-import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.services.DeviceService.RegisteredDeviceWrapper;
 import ar.edu.itba.iot.carne_iot.server.web.controller.hateoas.HateoasResourceHelper;
 import ar.edu.itba.iot.carne_iot.server.web.controller.hateoas.LinkCreator;
@@ -11,6 +10,8 @@ import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.Base64UrlHelpe
 import com.fasterxml.jackson.annotation.JsonProperty;
 import org.springframework.hateoas.Resource;
 
+import java.util.function.Function;
+
 /**
  * Data transfer object for {@link Device} class, including registration data.
  */
@@ -34,9 +35,7 @@ public class RegisteredDeviceDto extends DeviceDto {
      */
     private RegisteredDeviceDto(RegisteredDeviceWrapper wrapper) {
         super(wrapper.getDevice());
-        this.ownerUsername = wrapper.getUser()
-                .map(User::getUsername)
-                .orElse(null);
+        this.ownerUsername = wrapper.getOwnerUsername().orElse(null);
     }
 
     /**
@@ -52,8 +51,8 @@ public class RegisteredDeviceDto extends DeviceDto {
                 .toIdentifiableResource(new RegisteredDeviceDto(wrapper),
                         dto -> Base64UrlHelper.encodeFromNumber(dto.getId(), Object::toString),
                         DevicesEndpoint.class);
-        wrapper.getUser().ifPresent(user ->
-                resource.add(LinkCreator.createLink(user, User::getId, "owner", UserEndpoint.class)));
+        wrapper.getOwnerId().ifPresent(ownerId ->
+                resource.add(LinkCreator.createLink(ownerId, Function.identity(), "owner", UserEndpoint.class)));
 
         return resource;
     }
@@ -0,0 +1,42 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.services.DeviceService.TargetTemperatureChangedEvent;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.math.BigDecimal;
+
+/**
+ * Data transfer object for a {@link Device}'s target temperature change, pushed to the {@link Device}.
+ */
+public class TargetTemperatureDto {
+
+    /**
+     * The type of message, so devices can tell it apart from other messages sent through their channel.
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private final String type = "targetTemperature";
+
+    /**
+     * The new target temperature ({@code null} if it was removed).
+     */
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private final BigDecimal value;
+
+    /**
+     * Constructor.
+     *
+     * @param event The {@link TargetTemperatureChangedEvent} from which the dto will be built.
+     */
+    public TargetTemperatureDto(TargetTemperatureChangedEvent event) {
+        this.value = event.getTargetTemperature().orElse(null);
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+}
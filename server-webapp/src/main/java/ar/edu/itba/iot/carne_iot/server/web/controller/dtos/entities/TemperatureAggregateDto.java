@@ -0,0 +1,86 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate;
+import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.json.serializers.Java8InstantSerializer;
+import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.json.serializers.LongToUrlSafeBase64Serializer;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Data transfer object for {@link TemperatureAggregate} class
+ * (i.e the temperatures measured by a {@link Device} during a period of time).
+ * The {@code timestamp} and {@code value} properties hold the start of the period and the average temperature,
+ * so aggregates can be consumed in the same way as {@link TemperatureReadingDto}s.
+ */
+public class TemperatureAggregateDto {
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @JsonSerialize(using = LongToUrlSafeBase64Serializer.class)
+    private final Long deviceId;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private final String resolution;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    @JsonSerialize(using = Java8InstantSerializer.class)
+    private final Instant timestamp;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private final BigDecimal value;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private final BigDecimal min;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private final BigDecimal max;
+
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private final long count;
+
+    /**
+     * Constructor.
+     *
+     * @param aggregate The {@link TemperatureAggregate} from which the dto will be built.
+     */
+    public TemperatureAggregateDto(TemperatureAggregate aggregate) {
+        this.deviceId = aggregate.getDeviceId();
+        this.resolution = aggregate.getResolution().toString().toLowerCase();
+        this.timestamp = aggregate.getFrom();
+        this.value = aggregate.getAverage();
+        this.min = aggregate.getMin();
+        this.max = aggregate.getMax();
+        this.count = aggregate.getCount();
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public String getResolution() {
+        return resolution;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public BigDecimal getMin() {
+        return min;
+    }
+
+    public BigDecimal getMax() {
+        return max;
+    }
+
+    public long getCount() {
+        return count;
+    }
+}
@@ -0,0 +1,68 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.json.deserializers.Java8InstantDeserializer;
+import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.json.deserializers.UrlSafeBase64ToLongDeserializer;
+import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.json.serializers.Java8InstantSerializer;
+import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.json.serializers.LongToUrlSafeBase64Serializer;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Data transfer object for {@link TemperatureReading} class
+ * (i.e a temperature measured by a {@link Device} at a given moment).
+ */
+public class TemperatureReadingDto {
+
+    @JsonProperty
+    @JsonSerialize(using = LongToUrlSafeBase64Serializer.class)
+    @JsonDeserialize(using = UrlSafeBase64ToLongDeserializer.class)
+    private Long deviceId;
+
+    @JsonProperty
+    private BigDecimal value;
+
+    @JsonProperty
+    @JsonSerialize(using = Java8InstantSerializer.class)
+    @JsonDeserialize(using = Java8InstantDeserializer.class)
+    private Instant timestamp;
+
+    public TemperatureReadingDto() {
+        // For Jersey
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param reading The {@link TemperatureReading} from which the dto will be built.
+     */
+    public TemperatureReadingDto(TemperatureReading reading) {
+        this.deviceId = reading.getDeviceId();
+        this.value = reading.getValue();
+        this.timestamp = reading.getTimestamp();
+    }
+
+    public Long getDeviceId() {
+        return deviceId;
+    }
+
+    public BigDecimal getValue() {
+        return value;
+    }
+
+    public Instant getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * @return The {@link TemperatureReading} represented by this dto.
+     */
+    public TemperatureReading toTemperatureReading() {
+        return new TemperatureReading(deviceId, value, timestamp);
+    }
+}
@@ -0,0 +1,442 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.live_updates;
+
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+import ar.edu.itba.iot.carne_iot.server.services.DeviceService;
+import ar.edu.itba.iot.carne_iot.server.services.DeviceService.TargetTemperatureChangedEvent;
+import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.TargetTemperatureDto;
+import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.TemperatureReadingDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.websocket.CloseReason;
+import javax.websocket.Endpoint;
+import javax.websocket.EndpointConfig;
+import javax.websocket.MessageHandler;
+import javax.websocket.Session;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * WebSocket endpoint through which devices keep a persistent channel with the server.
+ * The channel is authenticated once, in the handshake, with the device JWT (see {@link #AUTHENTICATION_PROPERTY}).
+ * <p>
+ * Upstream, devices send {@link TemperatureReading}s, as JSON text messages containing one reading or an array of them
+ * (like {@link TemperatureReadingDto}, where a missing device id means the connected device).
+ * Downstream, changes of the device target temperature are pushed (see {@link TargetTemperatureDto}),
+ * together with error messages for those upstream messages that could not be processed.
+ * <p>
+ * Each device holds at most one channel (a new connection replaces the previous one).
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=DeviceChannel")
+public class DeviceChannel extends Endpoint {
+
+    /**
+     * Path in which the channel listens.
+     */
+    public static final String DEVICE_CHANNEL_ENDPOINT = "/channels/devices";
+
+    /**
+     * Name of the handshake user property that must contain the device {@link Authentication}
+     * (i.e an authenticated device JWT, holding the device id as its details).
+     */
+    public static final String AUTHENTICATION_PROPERTY = "authentication";
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(DeviceChannel.class);
+
+    /**
+     * Name of the session user property holding the {@link Connection}.
+     */
+    private static final String CONNECTION_PROPERTY = "connection";
+
+    /**
+     * Message sent when an upstream message is not valid JSON or does not contain readings.
+     */
+    private static final String INVALID_MESSAGE = "{\"type\":\"error\",\"reason\":\"INVALID_MESSAGE\"}";
+
+    /**
+     * Message sent when the readings of an upstream message are rejected (e.g invalid values, not owned devices).
+     */
+    private static final String REJECTED_MESSAGE = "{\"type\":\"error\",\"reason\":\"REJECTED\"}";
+
+    /**
+     * The {@link DeviceService} to which readings are passed.
+     */
+    private final DeviceService deviceService;
+
+    /**
+     * The {@link ObjectMapper} used to read and write messages.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * {@link ObjectReader} used to read arrays of readings.
+     */
+    private final ObjectReader readingsReader;
+
+    /**
+     * Amount of milliseconds a channel can be idle before it is closed.
+     */
+    private final long maxIdleTimeout;
+
+    /**
+     * Max. size (in bytes) of upstream messages.
+     */
+    private final int maxMessageSize;
+
+    /**
+     * Max. amount of downstream messages buffered for each channel.
+     */
+    private final int bufferSize;
+
+    /**
+     * The open channel of each device.
+     */
+    private final ConcurrentMap<Long, Connection> connections;
+
+    /**
+     * Amount of handshakes rejected because they were not authenticated.
+     */
+    private final AtomicLong rejectedConnections;
+
+    /**
+     * Amount of upstream messages received.
+     */
+    private final AtomicLong receivedMessages;
+
+    /**
+     * Amount of upstream messages that could not be processed.
+     */
+    private final AtomicLong failedMessages;
+
+    /**
+     * Amount of target temperature changes pushed.
+     */
+    private final AtomicLong pushedChanges;
+
+    /**
+     * Amount of downstream messages dropped because a buffer was full.
+     */
+    private final AtomicLong droppedMessages;
+
+
+    @Autowired
+    public DeviceChannel(DeviceService deviceService, ObjectMapper objectMapper,
+                         @Value("${custom.websocket.devices.max-idle-timeout:300000}") long maxIdleTimeout,
+                         @Value("${custom.websocket.devices.max-message-size:65536}") int maxMessageSize,
+                         @Value("${custom.websocket.devices.buffer-size:16}") int bufferSize) {
+        this.deviceService = deviceService;
+        this.objectMapper = objectMapper;
+        this.readingsReader = objectMapper.readerFor(objectMapper.getTypeFactory()
+                .constructCollectionType(List.class, TemperatureReadingDto.class));
+        this.maxIdleTimeout = maxIdleTimeout;
+        this.maxMessageSize = maxMessageSize;
+        this.bufferSize = bufferSize;
+        this.connections = new ConcurrentHashMap<>();
+        this.rejectedConnections = new AtomicLong();
+        this.receivedMessages = new AtomicLong();
+        this.failedMessages = new AtomicLong();
+        this.pushedChanges = new AtomicLong();
+        this.droppedMessages = new AtomicLong();
+    }
+
+
+    @Override
+    public void onOpen(Session session, EndpointConfig config) {
+        final Object authentication = config.getUserProperties().get(AUTHENTICATION_PROPERTY);
+        if (!(authentication instanceof Authentication)
+                || !(((Authentication) authentication).getDetails() instanceof Long)) {
+            rejectedConnections.incrementAndGet();
+            close(session, new CloseReason(CloseReason.CloseCodes.VIOLATED_POLICY, "Not authenticated"));
+            return;
+        }
+        final Connection connection = new Connection(session, (Authentication) authentication);
+        session.getUserProperties().put(CONNECTION_PROPERTY, connection);
+        session.setMaxIdleTimeout(maxIdleTimeout);
+        session.setMaxTextMessageBufferSize(maxMessageSize);
+        session.addMessageHandler(new MessageHandler.Whole<String>() {
+            @Override
+            public void onMessage(String message) {
+                receive(connection, message);
+            }
+        });
+
+        final Connection previous = connections.put(connection.deviceId, connection);
+        if (previous != null) {
+            close(previous.session, new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE, "Replaced"));
+        }
+        LOGGER.debug("Opened channel of device {}", connection.deviceId);
+    }
+
+    @Override
+    public void onClose(Session session, CloseReason closeReason) {
+        final Object connection = session.getUserProperties().get(CONNECTION_PROPERTY);
+        if (connection != null) {
+            final long deviceId = ((Connection) connection).deviceId;
+            connections.remove(deviceId, connection);
+            LOGGER.debug("Closed channel of device {} ({})", deviceId, closeReason);
+        }
+    }
+
+    @Override
+    public void onError(Session session, Throwable thr) {
+        LOGGER.debug("Error in device channel", thr);
+    }
+
+    /**
+     * Pushes the given target temperature change to the channel of its device (if any).
+     * Executed once the transaction in which the change was made commits.
+     *
+     * @param event The {@link TargetTemperatureChangedEvent}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTargetTemperatureChanged(TargetTemperatureChangedEvent event) {
+        final Connection connection = connections.get(event.getDeviceId());
+        if (connection == null) {
+            return;
+        }
+        try {
+            connection.send(objectMapper.writeValueAsString(new TargetTemperatureDto(event)));
+            pushedChanges.incrementAndGet();
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Could not serialize target temperature change", e);
+        }
+    }
+
+    /**
+     * Closes all channels before shutting down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        connections.values().forEach(connection -> close(connection.session,
+                new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Shutting down")));
+        connections.clear();
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Amount of open device channels")
+    public int getOpenChannels() {
+        return connections.size();
+    }
+
+    @ManagedAttribute(description = "Amount of device channel handshakes rejected because of missing authentication")
+    public long getRejectedConnections() {
+        return rejectedConnections.get();
+    }
+
+    @ManagedAttribute(description = "Amount of messages received through device channels")
+    public long getReceivedMessages() {
+        return receivedMessages.get();
+    }
+
+    @ManagedAttribute(description = "Amount of messages received through device channels that could not be processed")
+    public long getFailedMessages() {
+        return failedMessages.get();
+    }
+
+    @ManagedAttribute(description = "Amount of target temperature changes pushed through device channels")
+    public long getPushedChanges() {
+        return pushedChanges.get();
+    }
+
+    @ManagedAttribute(description = "Amount of device channel messages dropped because a buffer was full")
+    public long getDroppedMessages() {
+        return droppedMessages.get();
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Processes an upstream message, passing its readings to the {@link DeviceService}
+     * on behalf of the device that owns the given {@code connection}.
+     *
+     * @param connection The {@link Connection} through which the message was received.
+     * @param message    The received message.
+     */
+    private void receive(Connection connection, String message) {
+        receivedMessages.incrementAndGet();
+        final List<TemperatureReading> readings;
+        try {
+            readings = readReadings(message).stream()
+                    .map(dto -> new TemperatureReading(Optional.ofNullable(dto.getDeviceId())
+                            .orElse(connection.deviceId), dto.getValue(), dto.getTimestamp()))
+                    .collect(Collectors.toList());
+        } catch (IOException | RuntimeException e) {
+            failedMessages.incrementAndGet();
+            connection.send(INVALID_MESSAGE);
+            return;
+        }
+
+        // Services are secured, so the device authentication is set while the readings are processed
+        final SecurityContext securityContext = SecurityContextHolder.createEmptyContext();
+        securityContext.setAuthentication(connection.authentication);
+        SecurityContextHolder.setContext(securityContext);
+        try {
+            deviceService.updateTemperatures(readings);
+        } catch (RuntimeException e) {
+            LOGGER.debug("Rejected readings from device {}", connection.deviceId, e);
+            failedMessages.incrementAndGet();
+            connection.send(REJECTED_MESSAGE);
+        } finally {
+            SecurityContextHolder.clearContext();
+        }
+    }
+
+    /**
+     * Reads the readings contained in the given message (i.e one reading, or an array of them).
+     *
+     * @param message The message to be read.
+     * @return The {@link List} of read {@link TemperatureReadingDto}.
+     * @throws IOException If the message is not valid.
+     */
+    private List<TemperatureReadingDto> readReadings(String message) throws IOException {
+        final JsonNode node = objectMapper.readTree(message);
+        if (node == null || !node.isContainerNode()) {
+            throw new IOException("Not a reading nor an array of readings");
+        }
+        if (node.isArray()) {
+            return readingsReader.readValue(node);
+        }
+        return Collections.singletonList(objectMapper.treeToValue(node, TemperatureReadingDto.class));
+    }
+
+    /**
+     * Closes the given {@link Session}.
+     *
+     * @param session     The {@link Session} to be closed.
+     * @param closeReason The {@link CloseReason}.
+     */
+    private static void close(Session session, CloseReason closeReason) {
+        try {
+            session.close(closeReason);
+        } catch (IOException e) {
+            LOGGER.trace("Could not close device channel", e);
+        }
+    }
+
+    /**
+     * An open channel of a device, with its own bounded buffer of pending downstream messages
+     * (which are sent asynchronously, one at a time, so pushing never blocks the pushing thread).
+     */
+    private final class Connection {
+
+        /**
+         * The id of the device that opened this channel.
+         */
+        private final long deviceId;
+
+        /**
+         * The {@link Session} of this channel.
+         */
+        private final Session session;
+
+        /**
+         * The {@link Authentication} of the device, obtained in the handshake.
+         */
+        private final Authentication authentication;
+
+        /**
+         * Messages not yet sent (guarded by itself).
+         */
+        private final Deque<String> pending;
+
+        /**
+         * Flag indicating whether a message is being sent (guarded by {@link #pending}).
+         */
+        private boolean sending;
+
+        /**
+         * Constructor.
+         *
+         * @param session        The {@link Session} of this channel.
+         * @param authentication The {@link Authentication} of the device, obtained in the handshake.
+         */
+        private Connection(Session session, Authentication authentication) {
+            this.deviceId = (Long) authentication.getDetails();
+            this.session = session;
+            this.authentication = authentication;
+            this.pending = new ArrayDeque<>(bufferSize);
+            this.sending = false;
+        }
+
+        /**
+         * Buffers the given message (dropping the oldest one if the buffer is full),
+         * and starts sending if there is no message being sent.
+         *
+         * @param message The message to be sent.
+         */
+        private void send(String message) {
+            synchronized (pending) {
+                if (pending.size() >= bufferSize) {
+                    pending.pollFirst();
+                    droppedMessages.incrementAndGet();
+                }
+                pending.addLast(message);
+                if (sending) {
+                    return;
+                }
+                sending = true;
+            }
+            sendNext();
+        }
+
+        /**
+         * Sends the next buffered message, chaining the following one once it is sent.
+         */
+        private void sendNext() {
+            final String message;
+            synchronized (pending) {
+                message = pending.pollFirst();
+                if (message == null) {
+                    sending = false;
+                    return;
+                }
+            }
+            try {
+                session.getAsyncRemote().sendText(message, result -> {
+                    if (result.isOK()) {
+                        sendNext();
+                    } else {
+                        LOGGER.debug("Could not send message to device {}", deviceId, result.getException());
+                        close(session, new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Send failed"));
+                    }
+                });
+            } catch (RuntimeException e) {
+                LOGGER.debug("Could not send message to device {}", deviceId, e);
+                close(session, new CloseReason(CloseReason.CloseCodes.UNEXPECTED_CONDITION, "Send failed"));
+            }
+        }
+    }
+}
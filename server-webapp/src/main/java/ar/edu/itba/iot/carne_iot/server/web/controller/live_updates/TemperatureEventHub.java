@@ -0,0 +1,455 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.live_updates;
+
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.TemperatureReadingDto;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.OutboundEvent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Per-device fan-out hub of live temperature events, sent to subscribers as Server-Sent Events.
+ * <p>
+ * Publishing never blocks the publishing thread: each subscriber has a bounded buffer (dropping the oldest events
+ * when full), which is drained into its connection by a small pool of writer threads.
+ * Subscribers that fall behind (i.e miss too many events in a row), or whose connection takes longer than the write
+ * timeout to accept an event, are disconnected, so slow clients can not keep writer threads from the rest of them.
+ * Idle connections receive a heartbeat comment periodically, so dead connections are detected and released.
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=TemperatureEventHub")
+public class TemperatureEventHub {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TemperatureEventHub.class);
+
+    /**
+     * The name of the events sent to subscribers.
+     */
+    private static final String EVENT_NAME = "temperature";
+
+    /**
+     * The heartbeat event (i.e an SSE comment, which is ignored by clients).
+     */
+    private static final OutboundEvent HEARTBEAT = new OutboundEvent.Builder().comment("heartbeat").build();
+
+    /**
+     * Subscribers of each device.
+     */
+    private final ConcurrentMap<Long, Set<Subscriber>> subscribers;
+
+    /**
+     * The {@link ObjectMapper} used to serialize events (once per event, instead of once per subscriber).
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * {@link ExecutorService} in charge of writing events into connections.
+     */
+    private final ExecutorService writers;
+
+    /**
+     * Max. amount of events buffered for each subscriber.
+     */
+    private final int bufferSize;
+
+    /**
+     * Max. amount of events a subscriber can miss in a row (i.e dropped because its buffer was full)
+     * before being disconnected.
+     */
+    private final int maxDroppedEvents;
+
+    /**
+     * Amount of milliseconds a connection can be idle before a heartbeat is sent.
+     */
+    private final long heartbeatInterval;
+
+    /**
+     * Amount of milliseconds a write into a connection can take before the subscriber is disconnected.
+     */
+    private final long writeTimeout;
+
+    /**
+     * Amount of subscribers.
+     */
+    private final AtomicInteger subscribersCount;
+
+    /**
+     * Amount of events published.
+     */
+    private final AtomicLong publishedEvents;
+
+    /**
+     * Amount of events dropped because a subscriber buffer was full.
+     */
+    private final AtomicLong droppedEvents;
+
+    /**
+     * Amount of subscribers disconnected because they fell behind or a write timed out.
+     */
+    private final AtomicLong disconnectedSubscribers;
+
+
+    @Autowired
+    public TemperatureEventHub(ObjectMapper objectMapper,
+                               @Value("${custom.sse.buffer-size:16}") int bufferSize,
+                               @Value("${custom.sse.max-dropped-events:16}") int maxDroppedEvents,
+                               @Value("${custom.sse.heartbeat-interval:15000}") long heartbeatInterval,
+                               @Value("${custom.sse.write-timeout:5000}") long writeTimeout,
+                               @Value("${custom.sse.writer-threads:4}") int writerThreads) {
+        this.subscribers = new ConcurrentHashMap<>();
+        this.objectMapper = objectMapper;
+        this.writers = Executors.newFixedThreadPool(writerThreads, runnable -> {
+            final Thread thread = new Thread(runnable, "sse-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.bufferSize = bufferSize;
+        this.maxDroppedEvents = maxDroppedEvents;
+        this.heartbeatInterval = heartbeatInterval;
+        this.writeTimeout = writeTimeout;
+        this.subscribersCount = new AtomicInteger();
+        this.publishedEvents = new AtomicLong();
+        this.droppedEvents = new AtomicLong();
+        this.disconnectedSubscribers = new AtomicLong();
+    }
+
+
+    /**
+     * Subscribes to live temperature events of the device with the given id.
+     *
+     * @param deviceId The id of the device.
+     * @return The {@link EventOutput} through which events will be sent.
+     */
+    public EventOutput subscribe(long deviceId) {
+        final EventOutput output = new EventOutput();
+        subscribers.computeIfAbsent(deviceId, id -> ConcurrentHashMap.newKeySet())
+                .add(new Subscriber(deviceId, output));
+        subscribersCount.incrementAndGet();
+
+        return output;
+    }
+
+    /**
+     * Publishes the given {@link TemperatureReading} to the subscribers of its device.
+     * Executed once the transaction in which the reading was accepted commits.
+     *
+     * @param reading The accepted {@link TemperatureReading}.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void publish(TemperatureReading reading) {
+        final Set<Subscriber> deviceSubscribers = subscribers.get(reading.getDeviceId());
+        if (deviceSubscribers == null || deviceSubscribers.isEmpty()) {
+            return;
+        }
+        final String data;
+        try {
+            data = objectMapper.writeValueAsString(new TemperatureReadingDto(reading));
+        } catch (JsonProcessingException e) {
+            LOGGER.error("Could not serialize temperature event", e);
+            return;
+        }
+        final OutboundEvent event = new OutboundEvent.Builder()
+                .name(EVENT_NAME)
+                .mediaType(MediaType.APPLICATION_JSON_TYPE)
+                .data(String.class, data)
+                .build();
+        deviceSubscribers.forEach(subscriber -> subscriber.offer(event));
+        publishedEvents.incrementAndGet();
+    }
+
+    /**
+     * Sends a heartbeat to those subscribers that have been idle for more than the heartbeat interval.
+     */
+    @Scheduled(fixedDelayString = "${custom.sse.heartbeat-interval:15000}")
+    public void heartbeat() {
+        final long idleSince = System.currentTimeMillis() - heartbeatInterval;
+        subscribers.values().forEach(deviceSubscribers -> deviceSubscribers.stream()
+                .filter(subscriber -> subscriber.lastWrite < idleSince)
+                .forEach(subscriber -> subscriber.offer(HEARTBEAT)));
+    }
+
+    /**
+     * Disconnects those subscribers whose ongoing write has taken more than the write timeout,
+     * interrupting the writer thread so it can serve the rest of the subscribers
+     * (i.e a write is interrupted after taking between one and two times the write timeout).
+     */
+    @Scheduled(fixedDelayString = "${custom.sse.write-timeout:5000}")
+    public void checkWriteTimeouts() {
+        final long startedBefore = System.currentTimeMillis() - writeTimeout;
+        subscribers.values().forEach(deviceSubscribers -> deviceSubscribers.stream()
+                .filter(subscriber -> subscriber.interruptWriteStartedBefore(startedBefore))
+                .forEach(subscriber -> {
+                    LOGGER.debug("Write timed out for live temperature subscriber of device {}", subscriber.deviceId);
+                    subscriber.disconnect();
+                    unsubscribe(subscriber);
+                }));
+    }
+
+    /**
+     * Closes all connections before shutting down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        writers.shutdownNow();
+        subscribers.values().forEach(deviceSubscribers -> deviceSubscribers.forEach(Subscriber::close));
+        subscribers.clear();
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Amount of live temperature subscribers")
+    public int getSubscribers() {
+        return subscribersCount.get();
+    }
+
+    @ManagedAttribute(description = "Amount of live temperature events published")
+    public long getPublishedEvents() {
+        return publishedEvents.get();
+    }
+
+    @ManagedAttribute(description = "Amount of live temperature events dropped because a buffer was full")
+    public long getDroppedEvents() {
+        return droppedEvents.get();
+    }
+
+    @ManagedAttribute(description = "Amount of live temperature subscribers disconnected " +
+            "because they fell behind or a write timed out")
+    public long getDisconnectedSubscribers() {
+        return disconnectedSubscribers.get();
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Removes the given {@link Subscriber}, closing its connection.
+     *
+     * @param subscriber The {@link Subscriber} to be removed.
+     */
+    private void unsubscribe(Subscriber subscriber) {
+        subscriber.close();
+        subscribers.computeIfPresent(subscriber.deviceId, (id, deviceSubscribers) -> {
+            if (deviceSubscribers.remove(subscriber)) {
+                subscribersCount.decrementAndGet();
+            }
+            return deviceSubscribers.isEmpty() ? null : deviceSubscribers;
+        });
+    }
+
+    /**
+     * A subscriber of live temperature events, with its own bounded buffer of pending events.
+     */
+    private final class Subscriber {
+
+        /**
+         * The id of the device to which this subscriber is subscribed.
+         */
+        private final long deviceId;
+
+        /**
+         * The {@link EventOutput} through which events are sent.
+         */
+        private final EventOutput output;
+
+        /**
+         * Events not yet sent (guarded by itself).
+         */
+        private final Deque<OutboundEvent> pending;
+
+        /**
+         * Amount of events dropped since the last write (guarded by {@link #pending}).
+         */
+        private int droppedSinceWrite;
+
+        /**
+         * Flag indicating whether this subscriber fell behind or a write timed out,
+         * so its connection must be closed by its writer (guarded by {@link #pending} when set).
+         */
+        private volatile boolean disconnected;
+
+        /**
+         * The thread writing an event into the connection, or {@code null} if none (guarded by this subscriber).
+         */
+        private Thread writer;
+
+        /**
+         * The moment (in milliseconds) in which the ongoing write started (guarded by this subscriber).
+         */
+        private long writeStartedAt;
+
+        /**
+         * Flag indicating whether a drain task is scheduled for this subscriber.
+         */
+        private final AtomicBoolean draining;
+
+        /**
+         * The moment (in milliseconds) in which an event was last written.
+         */
+        private volatile long lastWrite;
+
+        /**
+         * Constructor.
+         *
+         * @param deviceId The id of the device to which this subscriber is subscribed.
+         * @param output   The {@link EventOutput} through which events are sent.
+         */
+        private Subscriber(long deviceId, EventOutput output) {
+            this.deviceId = deviceId;
+            this.output = output;
+            this.pending = new ArrayDeque<>(bufferSize);
+            this.draining = new AtomicBoolean(false);
+            this.lastWrite = System.currentTimeMillis();
+        }
+
+        /**
+         * Buffers the given event (dropping the oldest one if the buffer is full),
+         * and schedules a drain task if there is none.
+         * If too many events were dropped in a row, the subscriber is disconnected
+         * (its connection is closed by the writer, so the caller is never blocked).
+         *
+         * @param event The event to be sent.
+         */
+        private void offer(OutboundEvent event) {
+            synchronized (pending) {
+                if (pending.size() >= bufferSize) {
+                    pending.pollFirst();
+                    droppedEvents.incrementAndGet();
+                    droppedSinceWrite++;
+                }
+                pending.addLast(event);
+                if (droppedSinceWrite > maxDroppedEvents && !disconnected) {
+                    LOGGER.debug("Live temperature subscriber of device {} fell behind", deviceId);
+                    disconnect();
+                }
+            }
+            if (draining.compareAndSet(false, true)) {
+                try {
+                    writers.execute(this::drain);
+                } catch (RejectedExecutionException e) {
+                    draining.set(false);
+                }
+            }
+        }
+
+        /**
+         * Writes all the buffered events into the connection.
+         */
+        private void drain() {
+            try {
+                while (true) {
+                    final OutboundEvent event;
+                    synchronized (pending) {
+                        event = pending.pollFirst();
+                        if (event == null) {
+                            draining.set(false);
+                            return;
+                        }
+                    }
+                    if (disconnected || output.isClosed()) {
+                        throw new IOException("Connection closed");
+                    }
+                    write(event);
+                    synchronized (pending) {
+                        droppedSinceWrite = 0;
+                    }
+                    lastWrite = System.currentTimeMillis();
+                }
+            } catch (Throwable e) {
+                LOGGER.debug("Releasing live temperature subscriber of device {}", deviceId);
+                unsubscribe(this);
+            }
+        }
+
+        /**
+         * Marks this subscriber as disconnected (i.e it must not be written anymore).
+         */
+        private void disconnect() {
+            synchronized (pending) {
+                if (!disconnected) {
+                    disconnected = true;
+                    disconnectedSubscribers.incrementAndGet();
+                }
+            }
+        }
+
+        /**
+         * Writes the given event into the connection, registering the ongoing write,
+         * so it can be interrupted if it takes too long.
+         *
+         * @param event The event to be written.
+         * @throws IOException If the event could not be written.
+         */
+        private void write(OutboundEvent event) throws IOException {
+            synchronized (this) {
+                writer = Thread.currentThread();
+                writeStartedAt = System.currentTimeMillis();
+            }
+            try {
+                output.write(event);
+            } finally {
+                synchronized (this) {
+                    writer = null;
+                }
+                // Clears an interruption that arrived once the write finished (i.e the thread is reused)
+                Thread.interrupted();
+            }
+        }
+
+        /**
+         * Interrupts the ongoing write if it started before the given moment.
+         *
+         * @param moment The moment (in milliseconds) before which the write must have started to be interrupted.
+         * @return {@code true} if it was interrupted, or {@code false} otherwise.
+         */
+        private synchronized boolean interruptWriteStartedBefore(long moment) {
+            if (writer == null || writeStartedAt >= moment) {
+                return false;
+            }
+            writer.interrupt();
+            return true;
+        }
+
+        /**
+         * Closes the connection of this subscriber.
+         */
+        private void close() {
+            try {
+                output.close();
+            } catch (IOException e) {
+                LOGGER.trace("Could not close live temperature connection", e);
+            }
+        }
+    }
+}
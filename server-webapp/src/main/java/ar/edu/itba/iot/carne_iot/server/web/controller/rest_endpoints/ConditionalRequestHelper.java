@@ -0,0 +1,67 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.rest_endpoints;
+
+import javax.ws.rs.core.EntityTag;
+import javax.ws.rs.core.Request;
+import javax.ws.rs.core.Response;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Helper class in charge of answering conditional requests (i.e those with {@code If-None-Match}
+ * or {@code If-Modified-Since} headers), using the moment in which the requested resource was last modified.
+ */
+/* package */ class ConditionalRequestHelper {
+
+    /**
+     * Answers a conditional GET request.
+     * If the resource did not change, a {@code 304 Not Modified} response is returned, without executing the given
+     * {@code responseSupplier} (i.e without loading the resource nor building its representation).
+     * Otherwise, the response created by the given {@code responseSupplier} is returned, adding the {@code ETag}
+     * and {@code Last-Modified} headers if it is a {@code 200 OK} response.
+     *
+     * @param request          The {@link Request} being answered.
+     * @param lastModified     A nullable {@link Optional} containing the moment in which the resource was last
+     *                         modified, or empty if it does not exist (in which case the request is answered
+     *                         by the {@code responseSupplier}).
+     * @param responseSupplier A {@link Supplier} of the {@link Response.ResponseBuilder} for the resource.
+     * @return The {@link Response}.
+     * @apiNote The {@code lastModified} moment must be retrieved before loading the resource,
+     * so that the headers never describe a version that is newer than the returned one.
+     */
+    /* package */ static Response conditionalGet(Request request,
+                                                 @SuppressWarnings("OptionalUsedAsFieldOrParameterType")
+                                                         Optional<Instant> lastModified,
+                                                 Supplier<Response.ResponseBuilder> responseSupplier) {
+        if (!lastModified.isPresent()) {
+            return responseSupplier.get().build();
+        }
+        final Date lastModifiedDate = Date.from(lastModified.get());
+        final EntityTag entityTag = toEntityTag(lastModified.get());
+        final Response.ResponseBuilder notModified = request.evaluatePreconditions(lastModifiedDate, entityTag);
+        if (notModified != null) {
+            return notModified.build();
+        }
+        final Response response = responseSupplier.get().build();
+        if (response.getStatus() != Response.Status.OK.getStatusCode()) {
+            return response;
+        }
+        return Response.fromResponse(response)
+                .tag(entityTag)
+                .lastModified(lastModifiedDate)
+                .build();
+    }
+
+    /**
+     * Creates a strong {@link EntityTag} from the given moment in which a resource was last modified
+     * (which has a higher precision than the {@code Last-Modified} header).
+     *
+     * @param lastModified The moment in which the resource was last modified.
+     * @return The {@link EntityTag}.
+     */
+    private static EntityTag toEntityTag(Instant lastModified) {
+        return new EntityTag(Long.toHexString(lastModified.getEpochSecond())
+                + "-" + Integer.toHexString(lastModified.getNano()));
+    }
+}
@@ -1,6 +1,7 @@
 package ar.edu.itba.iot.carne_iot.server.web.controller.rest_endpoints;
 
 import ar.edu.itba.iot.carne_iot.server.error_handling.helpers.ValidationExceptionThrower;
+import ar.edu.itba.iot.carne_iot.server.models.CentiDegrees;
 import ar.edu.itba.iot.carne_iot.server.models.Device;
 import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.services.DeviceService;
@@ -8,6 +9,7 @@ import ar.edu.itba.iot.carne_iot.server.services.UserService;
 import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.DeviceDto;
 import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.RegisteredDeviceDto;
 import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.StringValueDto;
+import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.TemperatureReadingDto;
 import ar.edu.itba.iot.carne_iot.server.web.controller.hateoas.LinkCreator;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.Base64url;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.JerseyController;
@@ -18,14 +20,18 @@ import ar.edu.itba.iot.carne_iot.server.web.support.exceptions.MissingJsonExcept
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import java.math.BigDecimal;
 import java.util.Collections;
+import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -70,34 +76,42 @@ public class DevicesEndpoint implements ValidationExceptionThrower {
 
 
     @GET
-    public Response listDevices(@PaginationParam final Pageable pageable) {
+    public Response listDevices(@PaginationParam final Pageable pageable,
+                                @QueryParam("cursor") @Base64url final Long cursor,
+                                @QueryParam("limit") final Integer limit,
+                                @Context final UriInfo uriInfo) {
+        if (PaginationHelper.isCursorMode(cursor, limit)) {
+            LOGGER.debug("Listing devices after cursor {}", cursor);
+            return PaginationHelper.cursorPage(limit, uriInfo,
+                    amount -> deviceService.listDevicesAfter(cursor, amount),
+                    wrapper -> wrapper.getDevice().getId(), RegisteredDeviceDto::asResource);
+        }
+
         LOGGER.debug("Listing devices");
 
-        final Page<DeviceService.RegisteredDeviceWrapper> devices = deviceService
+        final Slice<DeviceService.RegisteredDeviceWrapper> devices = deviceService
                 .listDevices(pageable);
 
-        return Response.ok(devices.getContent().stream()
-                .map(RegisteredDeviceDto::asResource)
-                .collect(Collectors.toList()))
-                .build();
+        return PaginationHelper.slicePage(devices, uriInfo, RegisteredDeviceDto::asResource);
     }
 
     @GET
     @Path("{id : .+}")
-    public Response getDeviceById(@PathParam("id") @Base64url final Long id) {
+    public Response getDeviceById(@PathParam("id") @Base64url final Long id, @Context final Request request) {
         if (id == null) {
             throw new IllegalParamValueException(Collections.singletonList("id"));
         }
 
         LOGGER.debug("Getting device by id {}", id);
 
-        final Optional<DeviceService.RegisteredDeviceWrapper> optional =
-                deviceService.getDeviceWithRegistrationData(id);
+        return ConditionalRequestHelper.conditionalGet(request, deviceService.getDeviceLastModified(id), () -> {
+            final Optional<DeviceService.RegisteredDeviceWrapper> optional =
+                    deviceService.getDeviceWithRegistrationData(id);
 
-        return optional.map(RegisteredDeviceDto::asResource)
-                .map(Response::ok)
-                .orElse(Response.status(Response.Status.NOT_FOUND).entity(""))
-                .build();
+            return optional.map(RegisteredDeviceDto::asResource)
+                    .map(Response::ok)
+                    .orElse(Response.status(Response.Status.NOT_FOUND).entity(""));
+        });
     }
 
     @POST
@@ -149,8 +163,27 @@ public class DevicesEndpoint implements ValidationExceptionThrower {
 
         LOGGER.debug("Updating temperature of device with id {}", id);
 
-        final BigDecimal value = new BigDecimal(dto.getValue());
-        deviceService.updateTemperature(id, value);
+        deviceService.updateTemperature(id, CentiDegrees.parse(dto.getValue()));
+
+        return Response.noContent().build();
+    }
+
+    @POST
+    @Path("/temperatures")
+    @Consumes(MediaType.APPLICATION_JSON)
+    public Response updateTemperatures(List<TemperatureReadingDto> dtos) {
+        if (dtos == null) {
+            throw new MissingJsonException();
+        }
+        if (dtos.stream().anyMatch(dto -> dto == null || dto.getDeviceId() == null)) {
+            throw new IllegalParamValueException(Collections.singletonList("deviceId"));
+        }
+
+        LOGGER.debug("Updating temperature of devices in bulk ({} readings)", dtos.size());
+
+        deviceService.updateTemperatures(dtos.stream()
+                .map(TemperatureReadingDto::toTemperatureReading)
+                .collect(Collectors.toList()));
 
         return Response.noContent().build();
     }
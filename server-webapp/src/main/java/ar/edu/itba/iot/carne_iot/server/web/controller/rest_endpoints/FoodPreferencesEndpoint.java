@@ -6,6 +6,7 @@ import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.services.FoodPreferencesService;
 import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.FoodPreferenceDto;
 import ar.edu.itba.iot.carne_iot.server.web.controller.hateoas.LinkCreator;
+import ar.edu.itba.iot.carne_iot.server.web.support.annotations.Base64url;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.JerseyController;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.PaginationParam;
 import ar.edu.itba.iot.carne_iot.server.web.support.exceptions.IllegalParamValueException;
@@ -13,17 +14,19 @@ import ar.edu.itba.iot.carne_iot.server.web.support.exceptions.MissingJsonExcept
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 /**
  * API endpoint for {@link FoodPreference}s management.
@@ -62,34 +65,41 @@ public class FoodPreferencesEndpoint {
 
     @GET
     public Response findByOwner(@SuppressWarnings("RSReferenceInspection") @PathParam("id") final long id,
-                                @PaginationParam final Pageable pageable) {
+                                @PaginationParam final Pageable pageable,
+                                @QueryParam("cursor") @Base64url final Long cursor,
+                                @QueryParam("limit") final Integer limit,
+                                @Context final UriInfo uriInfo) {
         if (id <= 0) {
             throw new IllegalParamValueException(Collections.singletonList("id"));
         }
+        if (PaginationHelper.isCursorMode(cursor, limit)) {
+            LOGGER.debug("Listing food preferences belonging to user with id {} after cursor {}", id, cursor);
+            return PaginationHelper.cursorPage(limit, uriInfo,
+                    amount -> foodPreferencesService.findByOwnerAfter(id, cursor, amount),
+                    FoodPreference::getId, preference -> FoodPreferenceDto.asResource(preference, id));
+        }
 
         LOGGER.debug("Listing food preferences belonging to user with id {}", id);
 
-        final Page<FoodPreference> preferences = foodPreferencesService.findByOwner(id, pageable);
+        final Slice<FoodPreference> preferences = foodPreferencesService.findByOwner(id, pageable);
 
-        return Response.ok(preferences.getContent().stream()
-                .map(wrapper -> FoodPreferenceDto.asResource(wrapper, id))
-                .collect(Collectors.toList()))
-                .build();
+        return PaginationHelper.slicePage(preferences, uriInfo, wrapper -> FoodPreferenceDto.asResource(wrapper, id));
     }
 
     @GET
     @Path("/{name : .+}")
     public Response findByName(@SuppressWarnings("RSReferenceInspection") @PathParam("id") final long id,
-                               @SuppressWarnings("RSReferenceInspection") @PathParam("name") final String name) {
+                               @SuppressWarnings("RSReferenceInspection") @PathParam("name") final String name,
+                               @Context final Request request) {
         validateFoodPreferenceParams(id, name);
 
         LOGGER.debug("Getting food preference with name {} belonging to user with id {}", name, id);
 
-        return foodPreferencesService.findByNameAndOwner(name, id)
-                .map(wrapper -> FoodPreferenceDto.asResource(wrapper, id))
-                .map(Response::ok)
-                .orElse(Response.status(Response.Status.NOT_FOUND).entity(""))
-                .build();
+        return ConditionalRequestHelper.conditionalGet(request, foodPreferencesService.getLastModified(name, id),
+                () -> foodPreferencesService.findByNameAndOwner(name, id)
+                        .map(wrapper -> FoodPreferenceDto.asResource(wrapper, id))
+                        .map(Response::ok)
+                        .orElse(Response.status(Response.Status.NOT_FOUND).entity("")));
     }
 
     @POST
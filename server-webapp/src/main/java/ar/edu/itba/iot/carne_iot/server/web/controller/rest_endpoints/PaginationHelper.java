@@ -0,0 +1,116 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.rest_endpoints;
+
+import ar.edu.itba.iot.carne_iot.server.web.Constants;
+import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.Base64UrlHelper;
+import ar.edu.itba.iot.carne_iot.server.web.support.exceptions.IllegalParamValueException;
+import org.springframework.data.domain.Slice;
+
+import javax.ws.rs.core.Link;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
+
+/**
+ * Helper class in charge of answering list requests.
+ * Those in cursor mode (i.e with the {@code cursor} or {@code limit} query params) are answered using keyset
+ * pagination, and the rest of them are answered with a {@link Slice} (i.e using the {@code page} and {@code size}
+ * query params).
+ * <p>
+ * The cursor is an opaque value (the base64url encoded key of the last element of the previous page).
+ * In both modes, a {@code Link} header with {@code rel="next"} is included in the response if there are more
+ * elements, so no count query is ever needed.
+ */
+/* package */ class PaginationHelper {
+
+    /**
+     * Name of the query param holding the cursor.
+     */
+    /* package */ static final String CURSOR_PARAM = "cursor";
+
+    /**
+     * Name of the query param holding the page number (i.e offset mode).
+     */
+    /* package */ static final String PAGE_PARAM = "page";
+
+    /**
+     * Name of the query param holding the max. amount of elements in a page.
+     */
+    /* package */ static final String LIMIT_PARAM = "limit";
+
+    /**
+     * Indicates whether a list request must be answered in cursor mode.
+     *
+     * @param cursor The value of the {@code cursor} query param.
+     * @param limit  The value of the {@code limit} query param.
+     * @return {@code true} if any of them was given, or {@code false} otherwise (i.e offset mode).
+     */
+    /* package */ static boolean isCursorMode(Long cursor, Integer limit) {
+        return cursor != null || limit != null;
+    }
+
+    /**
+     * Answers a list request in cursor mode.
+     *
+     * @param limit      The value of the {@code limit} query param (the default page size is used if missing).
+     * @param uriInfo    The {@link UriInfo} of the request, used to build the link to the next page.
+     * @param finder     An {@link IntFunction} that returns up to the given amount of elements after the cursor.
+     * @param keyGetter  A {@link ToLongFunction} that returns the key of an element (i.e the cursor of the next page).
+     * @param toResource A {@link Function} that transforms an element into the representation to be returned.
+     * @param <T>        The type of elements.
+     * @return The {@link Response}.
+     * @throws IllegalParamValueException If the {@code limit} is not valid.
+     */
+    /* package */ static <T> Response cursorPage(Integer limit, UriInfo uriInfo, IntFunction<List<T>> finder,
+                                                 ToLongFunction<T> keyGetter, Function<T, ?> toResource)
+            throws IllegalParamValueException {
+        final int actualLimit = limit == null ? Constants.DEFAULT_PAGE_SIZE : limit;
+        if (actualLimit < 1 || actualLimit > Constants.MAX_PAGE_SIZE) {
+            throw new IllegalParamValueException(Collections.singletonList(LIMIT_PARAM));
+        }
+
+        // One more element is requested to know whether there is a next page
+        final List<T> elements = finder.apply(actualLimit + 1);
+        final boolean hasNext = elements.size() > actualLimit;
+        final List<T> page = hasNext ? elements.subList(0, actualLimit) : elements;
+
+        final Response.ResponseBuilder builder = Response.ok(page.stream()
+                .map(toResource)
+                .collect(Collectors.toList()));
+        if (hasNext) {
+            final long lastKey = keyGetter.applyAsLong(page.get(page.size() - 1));
+            builder.links(Link.fromUriBuilder(uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam(CURSOR_PARAM, Base64UrlHelper.encodeFromNumber(lastKey, Object::toString))
+                    .replaceQueryParam(LIMIT_PARAM, actualLimit))
+                    .rel("next")
+                    .build());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Answers a list request in offset mode, with the given {@link Slice}.
+     *
+     * @param slice      The {@link Slice} with the elements to be returned.
+     * @param uriInfo    The {@link UriInfo} of the request, used to build the link to the next page.
+     * @param toResource A {@link Function} that transforms an element into the representation to be returned.
+     * @param <T>        The type of elements.
+     * @return The {@link Response}.
+     */
+    /* package */ static <T> Response slicePage(Slice<T> slice, UriInfo uriInfo, Function<T, ?> toResource) {
+        final Response.ResponseBuilder builder = Response.ok(slice.getContent().stream()
+                .map(toResource)
+                .collect(Collectors.toList()));
+        if (slice.hasNext()) {
+            builder.links(Link.fromUriBuilder(uriInfo.getRequestUriBuilder()
+                    .replaceQueryParam(PAGE_PARAM, slice.getNumber() + 1))
+                    .rel("next")
+                    .build());
+        }
+        return builder.build();
+    }
+}
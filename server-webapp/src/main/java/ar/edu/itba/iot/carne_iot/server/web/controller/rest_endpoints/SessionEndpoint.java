@@ -3,6 +3,7 @@ package ar.edu.itba.iot.carne_iot.server.web.controller.rest_endpoints;
 import ar.edu.itba.iot.carne_iot.server.services.LoginService;
 import ar.edu.itba.iot.carne_iot.server.services.SessionService;
 import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.authentication.LoginCredentialsDto;
+import ar.edu.itba.iot.carne_iot.server.web.security.authentication.JwtCompiler;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.Base64url;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.JerseyController;
 import ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.Base64UrlHelper;
@@ -12,11 +13,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.hateoas.jaxrs.JaxRsLinkBuilder;
+import org.springframework.util.StringUtils;
 
 import javax.ws.rs.*;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import java.net.URI;
+import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -43,6 +46,16 @@ public class SessionEndpoint {
      */
     public static final String LOGOUT_ROOT_ENDPOINT = "/logout";
 
+    /**
+     * Endpoint for access tokens refreshing mechanism.
+     */
+    public static final String REFRESH_ENDPOINT = "/refresh";
+
+    /**
+     * Header containing the refresh token (in login responses and refresh requests).
+     */
+    private static final String REFRESH_TOKEN_HEADER = "X-Refresh-Token";
+
 
     /**
      * The {@link Logger} object.
@@ -59,11 +72,17 @@ public class SessionEndpoint {
      */
     private final SessionService sessionService;
 
+    /**
+     * {@link JwtCompiler} used to verify refresh tokens.
+     */
+    private final JwtCompiler jwtCompiler;
+
 
     @Autowired
-    public SessionEndpoint(LoginService loginService, SessionService sessionService) {
+    public SessionEndpoint(LoginService loginService, SessionService sessionService, JwtCompiler jwtCompiler) {
         this.loginService = loginService;
         this.sessionService = sessionService;
+        this.jwtCompiler = jwtCompiler;
     }
 
 
@@ -91,10 +110,30 @@ public class SessionEndpoint {
 
         return Response.noContent()
                 .header("X-Token", container.getToken())
+                .header(REFRESH_TOKEN_HEADER, container.getRefreshToken())
                 .header("X-Logout-Url", logoutURI.toString())
                 .build();
     }
 
+    @POST
+    @Path(REFRESH_ENDPOINT)
+    public Response refresh(@HeaderParam(REFRESH_TOKEN_HEADER) final String refreshToken) {
+        if (!StringUtils.hasText(refreshToken)) {
+            throw new IllegalParamValueException(Collections.singletonList("refreshToken"));
+        }
+
+        // The refresh token is verified here, and the session it represents is checked by the service
+        final JwtCompiler.RefreshTokenData tokenData = jwtCompiler.compileRefreshToken(refreshToken);
+
+        LOGGER.debug("Trying to refresh the access token of user with id {}", tokenData.getUserId());
+
+        final String accessToken = loginService.refresh(tokenData.getUserId(), tokenData.getJti());
+
+        return Response.noContent()
+                .header("X-Token", accessToken)
+                .build();
+    }
+
     @DELETE
     @Path(LOGOUT_ROOT_ENDPOINT + "/{userId : \\d+}/{jti: .+}")
     public Response logout(@SuppressWarnings("RSReferenceInspection") @PathParam("userId") final long userId,
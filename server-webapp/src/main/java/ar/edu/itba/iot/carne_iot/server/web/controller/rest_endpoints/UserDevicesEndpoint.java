@@ -1,29 +1,48 @@
 package ar.edu.itba.iot.carne_iot.server.web.controller.rest_endpoints;
 
 import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureAggregate.Resolution;
 import ar.edu.itba.iot.carne_iot.server.models.User;
 import ar.edu.itba.iot.carne_iot.server.services.DeviceService;
 import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.StringValueDto;
+import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.TemperatureAggregateDto;
+import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.TemperatureReadingDto;
 import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.UserDeviceDto;
+import ar.edu.itba.iot.carne_iot.server.web.controller.live_updates.TemperatureEventHub;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.Base64url;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.JerseyController;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.PaginationParam;
 import ar.edu.itba.iot.carne_iot.server.web.support.exceptions.IllegalParamValueException;
 import ar.edu.itba.iot.carne_iot.server.web.support.exceptions.MissingJsonException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.glassfish.jersey.media.sse.EventOutput;
+import org.glassfish.jersey.media.sse.SseFeature;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 
 /**
@@ -39,14 +58,54 @@ public class UserDevicesEndpoint {
      */
     private static final Logger LOGGER = LoggerFactory.getLogger(UserDevicesEndpoint.class);
 
+    /**
+     * The period of time for which readings are returned when no range is specified.
+     */
+    private static final Duration DEFAULT_READINGS_PERIOD = Duration.ofDays(1);
+
+    /**
+     * Value of the {@code resolution} parameter requesting raw readings (the default).
+     */
+    private static final String RAW_RESOLUTION = "raw";
+
+    /**
+     * Value of the {@code resolution} parameter requesting the resolution to be chosen according to the period.
+     */
+    private static final String AUTO_RESOLUTION = "auto";
+
+    /**
+     * The longest period of time for which raw readings are returned when the resolution is chosen automatically
+     * (longer periods are aggregated).
+     */
+    private static final Duration RAW_READINGS_MAX_PERIOD = Duration.ofHours(1);
+
+    /**
+     * The longest period of time for which readings are aggregated per minute when the resolution is chosen
+     * automatically (longer periods are aggregated per hour).
+     */
+    private static final Duration MINUTE_AGGREGATES_MAX_PERIOD = Duration.ofDays(2);
+
     /**
      * The {@link DeviceService}.
      */
     private final DeviceService deviceService;
 
+    /**
+     * The {@link ObjectMapper} used to serialize streamed data.
+     */
+    private final ObjectMapper objectMapper;
+
+    /**
+     * The {@link TemperatureEventHub} to which live temperature subscribers are added.
+     */
+    private final TemperatureEventHub temperatureEventHub;
+
     @Autowired
-    public UserDevicesEndpoint(DeviceService deviceService) {
+    public UserDevicesEndpoint(DeviceService deviceService, ObjectMapper objectMapper,
+                               TemperatureEventHub temperatureEventHub) {
         this.deviceService = deviceService;
+        this.objectMapper = objectMapper;
+        this.temperatureEventHub = temperatureEventHub;
     }
 
 
@@ -61,37 +120,47 @@ public class UserDevicesEndpoint {
 
     @GET
     public Response listUserDevices(@SuppressWarnings("RSReferenceInspection") @PathParam("id") final long id,
-                                    @PaginationParam final Pageable pageable) {
+                                    @PaginationParam final Pageable pageable,
+                                    @QueryParam("cursor") @Base64url final Long cursor,
+                                    @QueryParam("limit") final Integer limit,
+                                    @Context final UriInfo uriInfo) {
         if (id <= 0) {
             throw new IllegalParamValueException(Collections.singletonList("id"));
         }
+        if (PaginationHelper.isCursorMode(cursor, limit)) {
+            LOGGER.debug("Listing devices belonging to user with id {} after cursor {}", id, cursor);
+            return PaginationHelper.cursorPage(limit, uriInfo,
+                    amount -> deviceService.listUserDevicesAfter(id, cursor, amount),
+                    DeviceService.DeviceWithNicknameWrapper::getRegistrationId,
+                    wrapper -> UserDeviceDto.asResource(wrapper, id));
+        }
 
         LOGGER.debug("Listing devices belonging to user with id {}", id);
 
-        final Page<DeviceService.DeviceWithNicknameWrapper> devices = deviceService.listUserDevices(id, pageable);
+        final Slice<DeviceService.DeviceWithNicknameWrapper> devices = deviceService.listUserDevices(id, pageable);
 
-        return Response.ok(devices.getContent().stream()
-                .map(wrapper -> UserDeviceDto.asResource(wrapper, id))
-                .collect(Collectors.toList()))
-                .build();
+        return PaginationHelper.slicePage(devices, uriInfo, wrapper -> UserDeviceDto.asResource(wrapper, id));
     }
 
     @GET
     @Path("/{deviceId : .+}")
     public Response getDevice(@SuppressWarnings("RSReferenceInspection") @PathParam("id") final long id,
                               @SuppressWarnings("RSReferenceInspection")
-                              @PathParam("deviceId") @Base64url final Long deviceId) {
+                              @PathParam("deviceId") @Base64url final Long deviceId,
+                              @Context final Request request) {
         validateUserDeviceParams(id, deviceId);
 
         LOGGER.debug("Getting device with id {} belonging to user with id {}", deviceId, id);
 
-        final Optional<DeviceService.DeviceWithNicknameWrapper> wrapperOptional =
-                deviceService.getRegisteredDevice(id, deviceId);
+        return ConditionalRequestHelper.conditionalGet(request,
+                deviceService.getRegisteredDeviceLastModified(id, deviceId), () -> {
+                    final Optional<DeviceService.DeviceWithNicknameWrapper> wrapperOptional =
+                            deviceService.getRegisteredDevice(id, deviceId);
 
-        return wrapperOptional.map(wrapper -> UserDeviceDto.asResource(wrapper, id))
-                .map(Response::ok)
-                .orElse(Response.status(Response.Status.NOT_FOUND).entity(""))
-                .build();
+                    return wrapperOptional.map(wrapper -> UserDeviceDto.asResource(wrapper, id))
+                            .map(Response::ok)
+                            .orElse(Response.status(Response.Status.NOT_FOUND).entity(""));
+                });
     }
 
     @PUT
@@ -163,6 +232,82 @@ public class UserDevicesEndpoint {
     }
 
 
+    // ======================================
+    // Device history
+    // ======================================
+
+    @GET
+    @Path("/{deviceId : .+}/readings")
+    public Response getTemperatureReadings(@SuppressWarnings("RSReferenceInspection") @PathParam("id") final long id,
+                                           @SuppressWarnings("RSReferenceInspection")
+                                           @PathParam("deviceId") @Base64url final Long deviceId,
+                                           @QueryParam("from") final Long from,
+                                           @QueryParam("to") final Long to,
+                                           @QueryParam("resolution") final String resolution) {
+        validateUserDeviceParams(id, deviceId);
+        // Moments are expressed as seconds since the epoch. By default, readings of the last day are returned.
+        final Instant toInstant = Optional.ofNullable(to).map(Instant::ofEpochSecond).orElseGet(Instant::now);
+        final Instant fromInstant = Optional.ofNullable(from).map(Instant::ofEpochSecond)
+                .orElseGet(() -> toInstant.minus(DEFAULT_READINGS_PERIOD));
+        if (fromInstant.isAfter(toInstant)) {
+            throw new IllegalParamValueException(Arrays.asList("from", "to"));
+        }
+        // Raw readings are returned by default. Aggregates are returned only if they are explicitly requested
+        // (i.e "minute" or "hour"), or if the resolution is requested to be chosen according to the period ("auto").
+        final String requestedResolution = Optional.ofNullable(resolution).orElse(RAW_RESOLUTION);
+        final Optional<Resolution> aggregatesResolution;
+        if (RAW_RESOLUTION.equalsIgnoreCase(requestedResolution)) {
+            aggregatesResolution = Optional.empty();
+        } else if (AUTO_RESOLUTION.equalsIgnoreCase(requestedResolution)) {
+            aggregatesResolution = chooseResolution(Duration.between(fromInstant, toInstant));
+        } else {
+            aggregatesResolution = Optional.of(Arrays.stream(Resolution.values())
+                    .filter(value -> value.name().equalsIgnoreCase(requestedResolution))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalParamValueException(Collections.singletonList("resolution"))));
+        }
+
+        LOGGER.debug("Getting temperature readings of device with id {} belonging to user with id {}", deviceId, id);
+
+        // Check existence and permissions before starting to stream, so errors are properly reported
+        if (!deviceService.getRegisteredDevice(id, deviceId).isPresent()) {
+            return Response.status(Response.Status.NOT_FOUND).entity("").build();
+        }
+
+        final StreamingOutput output;
+        if (!aggregatesResolution.isPresent()) {
+            output = toJsonArray(TemperatureReadingDto.class, dtoConsumer -> deviceService
+                    .streamTemperatureReadings(id, deviceId, fromInstant, toInstant,
+                            reading -> dtoConsumer.accept(new TemperatureReadingDto(reading))));
+        } else {
+            output = toJsonArray(TemperatureAggregateDto.class, dtoConsumer -> deviceService
+                    .streamTemperatureAggregates(id, deviceId, aggregatesResolution.get(), fromInstant, toInstant,
+                            aggregate -> dtoConsumer.accept(new TemperatureAggregateDto(aggregate))));
+        }
+
+        return Response.ok(output).build();
+    }
+
+    @GET
+    @Path("/{deviceId : .+}/temperature/live")
+    @Produces(SseFeature.SERVER_SENT_EVENTS)
+    public EventOutput liveTemperature(@SuppressWarnings("RSReferenceInspection") @PathParam("id") final long id,
+                                       @SuppressWarnings("RSReferenceInspection")
+                                       @PathParam("deviceId") @Base64url final Long deviceId) {
+        validateUserDeviceParams(id, deviceId);
+
+        LOGGER.debug("Subscribing to live temperature of device with id {} belonging to user with id {}",
+                deviceId, id);
+
+        // Check existence and permissions before subscribing
+        if (!deviceService.getRegisteredDevice(id, deviceId).isPresent()) {
+            throw new NotFoundException();
+        }
+
+        return temperatureEventHub.subscribe(deviceId);
+    }
+
+
     // ======================================
     // Helper Methods
     // ======================================
@@ -185,4 +330,48 @@ public class UserDevicesEndpoint {
             throw new IllegalParamValueException(wrongParams);
         }
     }
+
+    /**
+     * Chooses the resolution of the returned readings according to the requested {@code period},
+     * so the amount of returned items is bounded.
+     *
+     * @param period The requested period.
+     * @return A nullable {@link Optional} containing the {@link Resolution} of the aggregates to be returned,
+     * or empty if raw readings must be returned.
+     */
+    private static Optional<Resolution> chooseResolution(Duration period) {
+        if (period.compareTo(RAW_READINGS_MAX_PERIOD) <= 0) {
+            return Optional.empty();
+        }
+        return Optional.of(period.compareTo(MINUTE_AGGREGATES_MAX_PERIOD) <= 0 ? Resolution.MINUTE : Resolution.HOUR);
+    }
+
+    /**
+     * Creates a {@link StreamingOutput} that writes a JSON array with the dtos produced by the given
+     * {@code dtoProducer} (which passes them one by one to the {@link Consumer} it takes),
+     * without holding them in memory.
+     *
+     * @param dtoClass    The class of the dtos.
+     * @param dtoProducer A {@link Consumer} that takes the {@link Consumer} to which dtos must be passed.
+     * @param <T>         The type of the dtos.
+     * @return The {@link StreamingOutput}.
+     */
+    private <T> StreamingOutput toJsonArray(Class<T> dtoClass, Consumer<Consumer<T>> dtoProducer) {
+        // Items are not flushed one by one, so the container can buffer the output
+        final ObjectWriter writer = objectMapper.writerFor(dtoClass)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        return outputStream -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+                generator.writeStartArray();
+                dtoProducer.accept(dto -> {
+                    try {
+                        writer.writeValue(generator, dto);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                generator.writeEndArray();
+            }
+        };
+    }
 }
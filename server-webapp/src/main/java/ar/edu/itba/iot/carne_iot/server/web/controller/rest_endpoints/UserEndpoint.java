@@ -6,6 +6,7 @@ import ar.edu.itba.iot.carne_iot.server.services.UserService;
 import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.StringValueDto;
 import ar.edu.itba.iot.carne_iot.server.web.controller.dtos.entities.UserDto;
 import ar.edu.itba.iot.carne_iot.server.web.controller.hateoas.LinkCreator;
+import ar.edu.itba.iot.carne_iot.server.web.support.annotations.Base64url;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.Java8Time;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.JerseyController;
 import ar.edu.itba.iot.carne_iot.server.web.support.annotations.PaginationParam;
@@ -15,15 +16,17 @@ import ar.edu.itba.iot.carne_iot.server.web.support.exceptions.MissingJsonExcept
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 
 import javax.ws.rs.*;
+import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Request;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.UriInfo;
 import java.time.LocalDate;
 import java.util.*;
-import java.util.stream.Collectors;
 
 
 /**
@@ -76,28 +79,37 @@ public class UserEndpoint {
                                  @Java8Time(formatter = DateTimeFormatters.ISO_LOCAL_DATE) final LocalDate maxBirthDate,
                                  @QueryParam("username") final String username,
                                  @QueryParam("email") final String email,
-                                 @PaginationParam final Pageable pageable) {
+                                 @PaginationParam final Pageable pageable,
+                                 @QueryParam("cursor") @Base64url final Long cursor,
+                                 @QueryParam("limit") final Integer limit,
+                                 @Context final UriInfo uriInfo) {
+        if (PaginationHelper.isCursorMode(cursor, limit)) {
+            LOGGER.debug("Getting users matching after cursor {}", cursor);
+            return PaginationHelper.cursorPage(limit, uriInfo,
+                    amount -> userService
+                            .findMatchingAfter(fullName, minBirthDate, maxBirthDate, username, email, cursor, amount),
+                    User::getId, UserDto::asResource);
+        }
+
         LOGGER.debug("Getting users matching");
 
-        final Page<User> users = userService
+        final Slice<User> users = userService
                 .findMatching(fullName, minBirthDate, maxBirthDate, username, email, pageable);
 
-        return Response.ok(users.getContent().stream()
-                .map(UserDto::asResource)
-                .collect(Collectors.toList()))
-                .build();
+        return PaginationHelper.slicePage(users, uriInfo, UserDto::asResource);
     }
 
     @GET
     @Path("{id : \\d+}")
-    public Response getUserById(@PathParam("id") final long id) {
+    public Response getUserById(@PathParam("id") final long id, @Context final Request request) {
         if (id <= 0) {
             throw new IllegalParamValueException(Collections.singletonList("id"));
         }
 
         LOGGER.debug("Getting user by id {}", id);
 
-        return toUserResponse(userService.getById(id));
+        return ConditionalRequestHelper.conditionalGet(request, userService.getLastModified(id),
+                () -> toUserResponseBuilder(userService.getById(id)));
     }
 
     @GET
@@ -306,10 +318,21 @@ public class UserEndpoint {
      */
     private static Response toUserResponse(@SuppressWarnings("OptionalUsedAsFieldOrParameterType")
                                                    Optional<User> userOptional) {
+        return toUserResponseBuilder(userOptional).build();
+    }
+
+    /**
+     * Transforms an {@link Optional} of {@link User} into a {@link Response.ResponseBuilder},
+     * taking into account if the {@link Optional} is empty or not.
+     *
+     * @param userOptional The {@link Optional} to transform.
+     * @return The {@link Response.ResponseBuilder}.
+     */
+    private static Response.ResponseBuilder toUserResponseBuilder(
+            @SuppressWarnings("OptionalUsedAsFieldOrParameterType") Optional<User> userOptional) {
         return userOptional.map(UserDto::asResource)
                 .map(Response::ok)
-                .orElse(Response.status(Response.Status.NOT_FOUND).entity(""))
-                .build();
+                .orElse(Response.status(Response.Status.NOT_FOUND).entity(""));
     }
 
     /**
@@ -0,0 +1,30 @@
+package ar.edu.itba.iot.carne_iot.server.web.error_handlers;
+
+import ar.edu.itba.iot.carne_iot.server.exceptions.TooManyRequestsException;
+import ar.edu.itba.iot.carne_iot.server.web.Constants;
+import com.bellotapps.utils.error_handler.ErrorHandler;
+import com.bellotapps.utils.error_handler.ExceptionHandler;
+import com.bellotapps.utils.error_handler.ExceptionHandlerObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link ExceptionHandler} in charge of handling {@link TooManyRequestsException}.
+ * Will result into a <b>429 Too Many Requests</b> response.
+ */
+@ExceptionHandlerObject
+/* package */ class TooManyRequestsExceptionHandler implements ExceptionHandler<TooManyRequestsException> {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private static final Logger LOGGER = LoggerFactory.getLogger(TooManyRequestsExceptionHandler.class);
+
+    @Override
+    public ErrorHandler.HandlingResult handle(TooManyRequestsException exception) {
+        LOGGER.debug("A request was shed. TooManyRequestsException message: {}", exception.getMessage());
+
+        return new ErrorHandler.HandlingResult(Constants.MissingHttpStatuses.TOO_MANY_REQUESTS.getStatusCode(),
+                null);
+    }
+}
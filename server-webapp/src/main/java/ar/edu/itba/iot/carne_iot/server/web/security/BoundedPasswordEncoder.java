@@ -0,0 +1,243 @@
+package ar.edu.itba.iot.carne_iot.server.web.security;
+
+import ar.edu.itba.iot.carne_iot.server.exceptions.TooManyRequestsException;
+import ar.edu.itba.iot.carne_iot.server.security.RehashingPasswordEncoder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import javax.annotation.PreDestroy;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * {@link RehashingPasswordEncoder} that hashes passwords with BCrypt in a dedicated, bounded pool of threads,
+ * so bursts of logins or registrations can not use up the threads serving the rest of the API.
+ * <p>
+ * Hashing operations are queued until a hashing thread is available. When the queue is full,
+ * operations are rejected with a {@link TooManyRequestsException} (i.e the request is shed),
+ * instead of holding more request threads waiting.
+ */
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=BoundedPasswordEncoder")
+public class BoundedPasswordEncoder implements RehashingPasswordEncoder {
+
+    /**
+     * The {@link Logger} object.
+     */
+    private final static Logger LOGGER = LoggerFactory.getLogger(BoundedPasswordEncoder.class);
+
+    /**
+     * Pattern matching BCrypt hashes (of any of the "2", "2a", "2b" and "2y" versions), capturing their cost.
+     */
+    private static final Pattern BCRYPT_PATTERN = Pattern.compile("\\A\\$2[aby]?\\$(\\d\\d)\\$[./0-9A-Za-z]{53}");
+
+    /**
+     * The BCrypt encoder performing the hashing operations.
+     */
+    private final BCryptPasswordEncoder delegate;
+
+    /**
+     * The BCrypt cost (i.e log2 of the amount of rounds) with which passwords are hashed.
+     */
+    private final int cost;
+
+    /**
+     * The pool of threads in which hashing operations are performed.
+     */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Amount of seconds after which rejected operations can be retried.
+     */
+    private final long retryAfter;
+
+    /**
+     * Amount of hashing operations performed.
+     */
+    private final AtomicLong hashes;
+
+    /**
+     * Total time spent performing hashing operations, in nanoseconds.
+     */
+    private final AtomicLong hashingTime;
+
+    /**
+     * Total time hashing operations spent queued, in nanoseconds.
+     */
+    private final AtomicLong waitingTime;
+
+    /**
+     * Amount of hashing operations rejected because the queue was full.
+     */
+    private final AtomicLong rejected;
+
+
+    /**
+     * Constructor.
+     *
+     * @param cost          The BCrypt cost (i.e log2 of the amount of rounds) with which passwords are hashed.
+     * @param threads       The amount of threads performing hashing operations.
+     * @param queueCapacity The max. amount of hashing operations waiting for a thread.
+     * @param retryAfter    Amount of seconds after which rejected operations can be retried.
+     */
+    public BoundedPasswordEncoder(int cost, int threads, int queueCapacity, long retryAfter) {
+        this.delegate = new BCryptPasswordEncoder(cost);
+        this.cost = cost;
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+            final Thread thread = new Thread(runnable, "password-hashing");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.retryAfter = retryAfter;
+        this.hashes = new AtomicLong();
+        this.hashingTime = new AtomicLong();
+        this.waitingTime = new AtomicLong();
+        this.rejected = new AtomicLong();
+    }
+
+
+    @Override
+    public String encode(CharSequence rawPassword) {
+        return hash(() -> delegate.encode(rawPassword));
+    }
+
+    @Override
+    public boolean matches(CharSequence rawPassword, String encodedPassword) {
+        final String supportedPassword = toSupportedVersion(encodedPassword);
+        return hash(() -> delegate.matches(rawPassword, supportedPassword));
+    }
+
+    @Override
+    public boolean needsRehash(String encodedPassword) {
+        if (encodedPassword == null) {
+            return false;
+        }
+        final Matcher matcher = BCRYPT_PATTERN.matcher(encodedPassword);
+        return matcher.lookingAt() && Integer.parseInt(matcher.group(1)) != cost;
+    }
+
+    /**
+     * Stops the hashing threads before shutting down.
+     */
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "The BCrypt cost with which passwords are hashed")
+    public int getCost() {
+        return cost;
+    }
+
+    @ManagedAttribute(description = "Amount of hashing operations performed")
+    public long getHashes() {
+        return hashes.get();
+    }
+
+    @ManagedAttribute(description = "Average time spent performing a hashing operation, in milliseconds")
+    public double getAverageHashingTime() {
+        final long amount = hashes.get();
+        return amount == 0 ? 0 : hashingTime.get() / 1e6 / amount;
+    }
+
+    @ManagedAttribute(description = "Average time a hashing operation spent queued, in milliseconds")
+    public double getAverageWaitingTime() {
+        final long amount = hashes.get();
+        return amount == 0 ? 0 : waitingTime.get() / 1e6 / amount;
+    }
+
+    @ManagedAttribute(description = "Amount of hashing operations waiting for a thread")
+    public int getQueueDepth() {
+        return executor.getQueue().size();
+    }
+
+    @ManagedAttribute(description = "Amount of hashing operations being performed")
+    public int getActiveHashes() {
+        return executor.getActiveCount();
+    }
+
+    @ManagedAttribute(description = "Amount of hashing operations rejected because the queue was full")
+    public long getRejected() {
+        return rejected.get();
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Rewrites the version of the given {@code encodedPassword} as "2a" if it is a "2b" or "2y" BCrypt hash
+     * (i.e those produced by other implementations), as the {@link BCryptPasswordEncoder} only accepts
+     * the "2a" version. They are computed in the same way (the other versions identify fixes of bugs
+     * that the {@link BCryptPasswordEncoder} does not have), so they can be verified as "2a" hashes.
+     *
+     * @param encodedPassword The encoded password.
+     * @return The encoded password with a version supported by the {@link BCryptPasswordEncoder}.
+     */
+    private static String toSupportedVersion(String encodedPassword) {
+        if (encodedPassword != null && (encodedPassword.startsWith("$2b$") || encodedPassword.startsWith("$2y$"))) {
+            return "$2a$" + encodedPassword.substring(4);
+        }
+        return encodedPassword;
+    }
+
+    /**
+     * Performs the given hashing {@code operation} in the hashing threads, waiting for its result.
+     *
+     * @param operation The hashing operation.
+     * @param <T>       The type of result of the operation.
+     * @return The result of the operation.
+     * @throws TooManyRequestsException If the operation was rejected because the queue was full.
+     */
+    private <T> T hash(Callable<T> operation) throws TooManyRequestsException {
+        final long queuedAt = System.nanoTime();
+        final Future<T> future;
+        try {
+            future = executor.submit(() -> {
+                final long startedAt = System.nanoTime();
+                try {
+                    return operation.call();
+                } finally {
+                    final long finishedAt = System.nanoTime();
+                    waitingTime.addAndGet(startedAt - queuedAt);
+                    hashingTime.addAndGet(finishedAt - startedAt);
+                    hashes.incrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            LOGGER.debug("Password hashing operation rejected. Queue is full");
+            throw new TooManyRequestsException("Too many password hashing operations", retryAfter);
+        }
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a password hashing operation", e);
+        } catch (ExecutionException e) {
+            final Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("Password hashing operation failed", cause);
+        }
+    }
+}
@@ -92,7 +92,9 @@ public class WebSecurityConfig extends WebSecurityConfigurerAdapter implements I
      */
     private List<RequestMatcher> optionalAuthenticationMatchers() {
         return Stream.of(
-                new AntPathRequestMatcher(jerseyApplicationPath + UserEndpoint.USERS_ENDPOINT, "POST")
+                new AntPathRequestMatcher(jerseyApplicationPath + UserEndpoint.USERS_ENDPOINT, "POST"),
+                new AntPathRequestMatcher(jerseyApplicationPath +
+                        SessionEndpoint.SESSIONS_ENDPOINT + SessionEndpoint.REFRESH_ENDPOINT, "POST")
         ).collect(Collectors.toList());
     }
 }
@@ -0,0 +1,361 @@
+package ar.edu.itba.iot.carne_iot.server.web.security.authentication;
+
+import ar.edu.itba.iot.carne_iot.server.models.Role;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import io.jsonwebtoken.SignatureException;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verifier of JWTs with the exact shape of those generated by {@link JwtAgent}
+ * (i.e HS512 signed, with the "uid", "jti", "roles", "did", "sub", "iat" and "exp" claims only).
+ * <p>
+ * Signatures are checked with a per thread {@link Mac}, and the payload is read with a streaming {@link JsonParser},
+ * so no claims map is built. Tokens with any other shape (or with any problem other than a wrong signature)
+ * are not handled, so they can be compiled by the generic jjwt parser (which reports the problem, if any).
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=FastJwtVerifier")
+/* package */ class FastJwtVerifier {
+
+    /**
+     * The algorithm used to sign tokens (i.e HS512), as named by the JCA.
+     */
+    private static final String MAC_ALGORITHM = "HmacSHA512";
+
+    /**
+     * The (base64 url encoded) header of the tokens generated by {@link JwtAgent}.
+     */
+    private static final String EXPECTED_HEADER = Base64.getUrlEncoder().withoutPadding()
+            .encodeToString("{\"alg\":\"HS512\"}".getBytes(StandardCharsets.US_ASCII));
+
+    /**
+     * {@link JsonFactory} used to create the payload parsers.
+     */
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    /**
+     * Flag indicating whether the verifier is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * Per thread {@link Mac} initialized with the signing key (as {@link Mac}s are not thread safe).
+     */
+    private final ThreadLocal<Mac> mac;
+
+    /**
+     * Amount of tokens verified by this verifier.
+     */
+    private final AtomicLong verifiedTokens;
+
+    /**
+     * Amount of tokens rejected because of a wrong signature.
+     */
+    private final AtomicLong rejectedTokens;
+
+    /**
+     * Amount of tokens left to the generic parser.
+     */
+    private final AtomicLong fallbacks;
+
+
+    @Autowired
+    /* package */ FastJwtVerifier(@Value("${custom.security.jwt.signing-key}") String secretKey,
+                                  @Value("${custom.security.jwt.fast-path.enabled:true}") boolean enabled) {
+        // The same key jjwt derives from the base64 encoded key used by the JwtAgent
+        final SecretKeySpec key = new SecretKeySpec(secretKey.getBytes(), MAC_ALGORITHM);
+        this.enabled = enabled;
+        this.mac = ThreadLocal.withInitial(() -> {
+            try {
+                final Mac instance = Mac.getInstance(MAC_ALGORITHM);
+                instance.init(key);
+                return instance;
+            } catch (GeneralSecurityException e) {
+                throw new IllegalStateException("Could not initialize the JWT signature verifier", e);
+            }
+        });
+        this.verifiedTokens = new AtomicLong();
+        this.rejectedTokens = new AtomicLong();
+        this.fallbacks = new AtomicLong();
+    }
+
+
+    /**
+     * Verifies the given {@code rawToken}, returning its claims.
+     *
+     * @param rawToken The token to be verified.
+     * @return The {@link VerifiedClaims} of the token,
+     * or {@code null} if the token must be compiled by the generic parser.
+     * @throws JwtException If the token has the expected shape, but its signature is wrong.
+     */
+    /* package */ VerifiedClaims verify(String rawToken) throws JwtException {
+        if (!enabled) {
+            return null;
+        }
+        final int headerEnd = EXPECTED_HEADER.length();
+        final int payloadEnd = rawToken.indexOf('.', headerEnd + 1);
+        if (!rawToken.startsWith(EXPECTED_HEADER) || rawToken.length() <= headerEnd
+                || rawToken.charAt(headerEnd) != '.' || payloadEnd < 0 || payloadEnd == rawToken.length() - 1
+                || rawToken.indexOf('.', payloadEnd + 1) >= 0) {
+            return fallback();
+        }
+        final byte[] bytes = rawToken.getBytes(StandardCharsets.US_ASCII);
+        try {
+            if (!hasValidSignature(bytes, payloadEnd)) {
+                rejectedTokens.incrementAndGet();
+                throw new JwtException("There was a problem with the jwt token",
+                        new SignatureException("JWT signature does not match locally computed signature"));
+            }
+            final VerifiedClaims claims = readPayload(decode(bytes, headerEnd + 1, payloadEnd));
+            if (claims == null || !claims.isComplete(System.currentTimeMillis())) {
+                return fallback();
+            }
+            verifiedTokens.incrementAndGet();
+            return claims;
+        } catch (IllegalArgumentException | IOException e) {
+            // Not base64 url encoded, not a JSON object, unknown role, etc.
+            return fallback();
+        }
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Whether the verifier is enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description = "Amount of tokens verified by the fast path")
+    public long getVerifiedTokens() {
+        return verifiedTokens.get();
+    }
+
+    @ManagedAttribute(description = "Amount of tokens rejected by the fast path because of a wrong signature")
+    public long getRejectedTokens() {
+        return rejectedTokens.get();
+    }
+
+    @ManagedAttribute(description = "Amount of tokens left to the generic parser")
+    public long getFallbacks() {
+        return fallbacks.get();
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Registers a token left to the generic parser.
+     *
+     * @return {@code null}, so it can be returned by {@link #verify(String)}.
+     */
+    private VerifiedClaims fallback() {
+        fallbacks.incrementAndGet();
+        return null;
+    }
+
+    /**
+     * Checks the signature of the token with the given {@code bytes}.
+     *
+     * @param bytes      The bytes of the token.
+     * @param payloadEnd The position of the dot separating the payload and the signature.
+     * @return {@code true} if the signature is valid, or {@code false} otherwise.
+     * @throws IllegalArgumentException If the signature is not base64 url encoded.
+     */
+    private boolean hasValidSignature(byte[] bytes, int payloadEnd) throws IllegalArgumentException {
+        final byte[] signature = decode(bytes, payloadEnd + 1, bytes.length);
+        final Mac instance = mac.get();
+        instance.update(bytes, 0, payloadEnd);
+        return MessageDigest.isEqual(instance.doFinal(), signature);
+    }
+
+    /**
+     * Decodes (as base64 url) the given range of the given {@code bytes}.
+     *
+     * @param bytes The bytes containing the encoded data.
+     * @param from  The position in which the encoded data starts.
+     * @param to    The position in which the encoded data ends (exclusive).
+     * @return The decoded data.
+     * @throws IllegalArgumentException If the data is not base64 url encoded.
+     */
+    private static byte[] decode(byte[] bytes, int from, int to) throws IllegalArgumentException {
+        final ByteBuffer decoded = Base64.getUrlDecoder().decode(ByteBuffer.wrap(bytes, from, to - from));
+        return decoded.array().length == decoded.remaining() ? decoded.array()
+                : Arrays.copyOf(decoded.array(), decoded.remaining());
+    }
+
+    /**
+     * Reads the claims of the given {@code payload}.
+     *
+     * @param payload The decoded payload.
+     * @return The read claims, or {@code null} if the payload has claims not generated by the {@link JwtAgent}
+     * (or claims of unexpected types).
+     * @throws IOException              If the payload is not valid JSON.
+     * @throws IllegalArgumentException If the roles claim contains an unknown role.
+     */
+    private static VerifiedClaims readPayload(byte[] payload) throws IOException, IllegalArgumentException {
+        try (JsonParser parser = JSON_FACTORY.createParser(payload)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            final VerifiedClaims claims = new VerifiedClaims();
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String name = parser.getCurrentName();
+                final JsonToken value = parser.nextToken();
+                if (value == JsonToken.VALUE_NUMBER_INT
+                        && parser.getNumberType() != JsonParser.NumberType.BIG_INTEGER) {
+                    if (!claims.setNumber(name, parser.getLongValue())) {
+                        return null;
+                    }
+                } else if (value == JsonToken.VALUE_STRING && "sub".equals(name)) {
+                    claims.username = parser.getText();
+                } else if (value == JsonToken.START_ARRAY && "roles".equals(name)) {
+                    claims.roles = EnumSet.noneOf(Role.class);
+                    while (parser.nextToken() == JsonToken.VALUE_STRING) {
+                        claims.roles.add(Role.valueOf(parser.getText()));
+                    }
+                    if (parser.getCurrentToken() != JsonToken.END_ARRAY) {
+                        return null;
+                    }
+                } else {
+                    return null;
+                }
+            }
+            return claims;
+        }
+    }
+
+
+    /**
+     * Container class wrapping the claims of a verified token.
+     */
+    /* package */ static final class VerifiedClaims {
+
+        private long userId;
+        private long jti;
+        private long deviceId;
+        private long issuedAt;
+        private long expiration;
+        private String username;
+        private Set<Role> roles;
+
+        // Flags indicating which numeric claims are present
+        private boolean hasUserId;
+        private boolean hasJti;
+        private boolean hasDeviceId;
+        private boolean hasIssuedAt;
+        private boolean hasExpiration;
+
+        /**
+         * Private constructor (instances are only created when reading a payload).
+         */
+        private VerifiedClaims() {
+        }
+
+        /**
+         * @return The user id set in the JWT.
+         */
+        /* package */ long getUserId() {
+            return userId;
+        }
+
+        /**
+         * @return The JWT id.
+         */
+        /* package */ long getJti() {
+            return jti;
+        }
+
+        /**
+         * @return The device id set in the JWT (only meaningful for device tokens).
+         */
+        /* package */ long getDeviceId() {
+            return deviceId;
+        }
+
+        /**
+         * @return The username set in the JWT.
+         */
+        /* package */ String getUsername() {
+            return username;
+        }
+
+        /**
+         * @return The roles set in the JWT.
+         */
+        /* package */ Set<Role> getRoles() {
+            return roles;
+        }
+
+        /**
+         * Sets the numeric claim with the given {@code name}.
+         *
+         * @param name  The name of the claim.
+         * @param value The value of the claim.
+         * @return {@code true} if the claim is a known numeric one, or {@code false} otherwise.
+         */
+        private boolean setNumber(String name, long value) {
+            switch (name) {
+                case "uid":
+                    userId = value;
+                    hasUserId = true;
+                    return true;
+                case "jti":
+                    jti = value;
+                    hasJti = true;
+                    return true;
+                case "did":
+                    deviceId = value;
+                    hasDeviceId = true;
+                    return true;
+                case "iat":
+                    issuedAt = value;
+                    hasIssuedAt = true;
+                    return true;
+                case "exp":
+                    expiration = value;
+                    hasExpiration = true;
+                    return true;
+                default:
+                    return false;
+            }
+        }
+
+        /**
+         * Indicates whether all the required claims are present and valid at the given moment
+         * (i.e the same checks performed when compiling with the generic parser).
+         *
+         * @param now The actual moment, in milliseconds since the epoch.
+         * @return {@code true} if the claims are complete and valid, or {@code false} otherwise.
+         */
+        private boolean isComplete(long now) {
+            // Dates are stored in seconds since the epoch
+            return hasUserId && hasJti && roles != null && hasIssuedAt && hasExpiration
+                    && (hasDeviceId || !roles.contains(Role.ROLE_DEVICE))
+                    && issuedAt <= now / 1000 && expiration <= Long.MAX_VALUE / 1000 && now <= expiration * 1000;
+        }
+    }
+}
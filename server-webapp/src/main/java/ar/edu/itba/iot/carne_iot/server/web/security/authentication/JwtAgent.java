@@ -29,21 +29,45 @@ import java.util.stream.Collectors;
 
     private final static String DEVICE_ID_CLAIMS_NAME = "did";
 
+    private final static String TOKEN_TYPE_CLAIM_NAME = "typ";
+
+    private final static String REFRESH_TOKEN_TYPE = "refresh";
+
+    /**
+     * Shared (thread safe) random source for device tokens jtis, seeded once.
+     */
+    private final static SecureRandom JTI_RANDOM = new SecureRandom();
+
     /**
      * {@link SessionService} used to check if a given token is valid.
      */
     private final SessionService sessionService;
 
+    /**
+     * {@link VerifiedDeviceTokenCache} used to avoid verifying device tokens each time they are used.
+     */
+    private final VerifiedDeviceTokenCache verifiedDeviceTokenCache;
+
+    /**
+     * {@link FastJwtVerifier} used to verify tokens generated by this agent without the generic parser.
+     */
+    private final FastJwtVerifier fastJwtVerifier;
+
     /**
      * The secret key used to sign the tokens, encoded in base 64.
      */
     private final String base64EncodedSecretKey;
 
     /**
-     * The duration of tokens, in milliseconds.
+     * The duration of refresh tokens (i.e of sessions), in milliseconds.
      */
     private final long duration;
 
+    /**
+     * The duration of access tokens, in milliseconds.
+     */
+    private final long accessTokenDuration;
+
     /**
      * THe signing algorithm used to sign tokens.
      */
@@ -52,26 +76,56 @@ import java.util.stream.Collectors;
     /**
      * Constructor.
      *
-     * @param secretKey      The secret key used to sign the tokens
-     * @param duration       The duration of tokens, in seconds
-     * @param sessionService The {@link SessionService} used to create and check validity of a JWT.
+     * @param secretKey                The secret key used to sign the tokens
+     * @param duration                 The duration of refresh tokens (i.e of sessions), in seconds
+     * @param accessTokenDuration      The duration of access tokens, in seconds
+     * @param sessionService           The {@link SessionService} used to create and check validity of a JWT.
+     * @param verifiedDeviceTokenCache The {@link VerifiedDeviceTokenCache} used to avoid verifying device tokens
+     *                                 each time they are used.
+     * @param fastJwtVerifier          The {@link FastJwtVerifier} used to verify tokens generated by this agent
+     *                                 without the generic parser.
      */
     /* package */ JwtAgent(@Value("${custom.security.jwt.signing-key}") String secretKey,
                            @Value("${custom.security.jwt.duration}") Long duration,
-                           SessionService sessionService) {
+                           @Value("${custom.security.jwt.access-token-duration:900}") Long accessTokenDuration,
+                           SessionService sessionService,
+                           VerifiedDeviceTokenCache verifiedDeviceTokenCache,
+                           FastJwtVerifier fastJwtVerifier) {
         this.base64EncodedSecretKey = Base64.getEncoder().encodeToString(secretKey.getBytes());
         this.duration = duration * 1000;
+        this.accessTokenDuration = accessTokenDuration * 1000;
         this.sessionService = sessionService;
+        this.verifiedDeviceTokenCache = verifiedDeviceTokenCache;
+        this.fastJwtVerifier = fastJwtVerifier;
         this.signatureAlgorithm = SignatureAlgorithm.HS512;
     }
 
     @Override
-    public TokenAndSessionContainer generateUserToken(User user) {
+    public String generateRefreshToken(User user, long jti) {
+        Objects.requireNonNull(user, "The user must not be null");
+
+        // Refresh tokens do not include roles, so they can not be used to authenticate requests
+        final Claims claims = Jwts.claims();
+        claims.put(USER_ID_CLAIM_NAME, user.getId());
+        claims.put(JWT_ID_CLAIM_NAME, jti);
+        claims.put(TOKEN_TYPE_CLAIM_NAME, REFRESH_TOKEN_TYPE);
+        claims.setSubject(user.getUsername());
+        final Date now = new Date();
+
+        return Jwts.builder()
+                .setClaims(claims)
+                .setIssuedAt(now)
+                .setExpiration(new Date(now.getTime() + duration))
+                .signWith(signatureAlgorithm, base64EncodedSecretKey)
+                .compact();
+    }
+
+    @Override
+    public String generateAccessToken(User user, long jti) {
         Objects.requireNonNull(user, "The user must not be null");
         if (!Hibernate.isInitialized(user.getRoles())) {
             throw new IllegalStateException("The user is not initialized correctly");
         }
-        final long jti = new SecureRandom().nextLong();
 
         final Claims claims = Jwts.claims();
         claims.put(USER_ID_CLAIM_NAME, user.getId());
@@ -80,21 +134,19 @@ import java.util.stream.Collectors;
         claims.setSubject(user.getUsername());
         final Date now = new Date();
 
-        final String token = Jwts.builder()
+        return Jwts.builder()
                 .setClaims(claims)
                 .setIssuedAt(now)
-                .setExpiration(new Date(now.getTime() + duration))
+                .setExpiration(new Date(now.getTime() + accessTokenDuration))
                 .signWith(signatureAlgorithm, base64EncodedSecretKey)
                 .compact();
-
-        return new TokenAndSessionContainer(token, jti);
     }
 
     @Override
     public TokenAndSessionContainer generateDeviceToken(User user, Device device) {
         Objects.requireNonNull(user, "The user must not be null");
         Objects.requireNonNull(device, "The device must not be null");
-        final long jti = new SecureRandom().nextLong();
+        final long jti = JTI_RANDOM.nextLong();
 
         final Claims claims = Jwts.claims();
         claims.put(USER_ID_CLAIM_NAME, user.getId());
@@ -119,6 +171,18 @@ import java.util.stream.Collectors;
         if (!StringUtils.hasText(rawToken)) {
             throw new IllegalArgumentException("The token must not be null or empty");
         }
+        // Device tokens never expire, so a token identical to an already verified one is valid
+        final DeviceJwtTokenData cached = verifiedDeviceTokenCache.get(rawToken);
+        if (cached != null) {
+            return cached;
+        }
+
+        // Tokens generated by this agent are verified without the generic parser
+        final FastJwtVerifier.VerifiedClaims verified = fastJwtVerifier.verify(rawToken);
+        if (verified != null) {
+            return toTokenData(rawToken, verified.getUserId(), verified.getJti(), verified.getUsername(),
+                    verified.getRoles(), verified.getDeviceId());
+        }
 
         try {
             final Claims claims = Jwts.parser()
@@ -132,32 +196,85 @@ import java.util.stream.Collectors;
             @SuppressWarnings("unchecked") final Set<Role> roles = (Set<Role>) claims.get(ROLES_CLAIM_NAME);
             final String username = claims.getSubject();
 
+            long deviceId = 0;
             if (roles.contains(Role.ROLE_DEVICE)) {
                 final Object deviceIdObject = claims.get(DEVICE_ID_CLAIMS_NAME);
                 if (!(deviceIdObject instanceof Number)) {
                     throw new MalformedJwtException("The \"device id\" claim must be a number");
                 }
-                final long deviceId = ((Number) deviceIdObject).longValue();
-                return new DeviceJwtTokenData(userId, username, roles, deviceId);
+                deviceId = ((Number) deviceIdObject).longValue();
             }
-            checkJwtBlacklist(userId, jti);  // Device tokens are not blacklisted
-            return new JwtTokenData(userId, username, roles);
-        } catch (MalformedJwtException | SignatureException | ExpiredJwtException | UnsupportedJwtException
-                | MissingClaimException e) {
+            return toTokenData(rawToken, userId, jti, username, roles, deviceId);
+        } catch (MalformedJwtException | SignatureException | ExpiredJwtException | PrematureJwtException
+                | UnsupportedJwtException | MissingClaimException e) {
             throw new JwtException("There was a problem with the jwt token", e);
         }
     }
 
 
+    @Override
+    public RefreshTokenData compileRefreshToken(String rawToken) throws IllegalArgumentException, JwtException {
+        if (!StringUtils.hasText(rawToken)) {
+            throw new IllegalArgumentException("The token must not be null or empty");
+        }
+
+        try {
+            final Claims claims = Jwts.parser()
+                    .setSigningKey(base64EncodedSecretKey)
+                    .parseClaimsJws(rawToken)
+                    .getBody();
+
+            if (!REFRESH_TOKEN_TYPE.equals(claims.get(TOKEN_TYPE_CLAIM_NAME))) {
+                throw new MalformedJwtException("The token is not a refresh token");
+            }
+            final Object userIdObject = claims.get(USER_ID_CLAIM_NAME);
+            final Object jtiObject = claims.get(JWT_ID_CLAIM_NAME);
+            if (!(userIdObject instanceof Integer || userIdObject instanceof Long)
+                    || !(jtiObject instanceof Integer || jtiObject instanceof Long)) {
+                throw new MalformedJwtException("The \"user id\" and \"jwt id\" claims must be integers or longs");
+            }
+            return new RefreshTokenData(((Number) userIdObject).longValue(), ((Number) jtiObject).longValue());
+        } catch (MalformedJwtException | SignatureException | ExpiredJwtException | UnsupportedJwtException e) {
+            throw new JwtException("There was a problem with the jwt token", e);
+        }
+    }
+
+
+    /**
+     * Builds the {@link JwtTokenData} of an already verified token.
+     * Device tokens are cached (they are not blacklisted), and user tokens are checked against the blacklist.
+     *
+     * @param rawToken The verified token.
+     * @param userId   The user id set in the token.
+     * @param jti      The token id.
+     * @param username The username set in the token.
+     * @param roles    The roles set in the token.
+     * @param deviceId The device id set in the token (only used for device tokens).
+     * @return The built {@link JwtTokenData}.
+     * @throws JwtException If the token is blacklisted.
+     */
+    private JwtTokenData toTokenData(String rawToken, long userId, long jti, String username, Set<Role> roles,
+                                     long deviceId) throws JwtException {
+        if (roles.contains(Role.ROLE_DEVICE)) {
+            final DeviceJwtTokenData tokenData = new DeviceJwtTokenData(userId, username, roles, deviceId);
+            verifiedDeviceTokenCache.put(rawToken, tokenData); // Only reached if the token was verified
+            return tokenData;
+        }
+        checkJwtBlacklist(userId, jti);  // Device tokens are not blacklisted
+        return new JwtTokenData(userId, username, roles);
+    }
+
     /**
      * Validates the JWT identified by the given {@code userId} and {@code jti}
+     * (checked against the in-memory registry of revoked sessions, as the token signature was already verified).
+     * Sessions of deleted users are registered as revoked too.
      *
      * @param userId The id of the {@link User} that owns the JWT.
      * @param jti    The JWT id.
      * @throws JwtException If the JWT is blacklisted.
      */
     private void checkJwtBlacklist(long userId, long jti) throws JwtException {
-        if (sessionService.validSession(userId, jti)) {
+        if (!sessionService.revokedSession(userId, jti)) {
             return;
         }
         throw new JwtException("Blacklisted JWT");
@@ -5,9 +5,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 import org.springframework.util.Assert;
 
+import java.util.Optional;
 import java.util.Set;
 
 /**
@@ -46,6 +48,25 @@ public final class JwtAuthenticationProvider implements AuthenticationProvider {
         }
     }
 
+    /**
+     * Authenticates the given raw device JWT. To be used by those channels whose requests
+     * do not go through the {@link JwtAuthenticationFilter} (e.g WebSocket handshakes, CoAP requests).
+     *
+     * @param rawToken The raw JWT.
+     * @return A nullable {@link Optional} containing the authenticated {@link Authentication}
+     * (which holds the device id as its details), or empty if the token is valid but is not a device token.
+     * @throws AuthenticationException If the token is not valid.
+     */
+    public Optional<Authentication> authenticateDevice(String rawToken) throws AuthenticationException {
+        final Authentication authentication = authenticate(new JwtAuthenticationToken(rawToken));
+        final boolean isDevice = authentication instanceof DeviceJwtAuthenticationToken
+                && authentication.getAuthorities().stream()
+                .map(GrantedAuthority::getAuthority)
+                .anyMatch(Role.ROLE_DEVICE.toString()::equals);
+
+        return isDevice ? Optional.of(authentication) : Optional.empty();
+    }
+
     @Override
     public boolean supports(Class<?> authentication) {
         return JwtAuthenticationToken.class.isAssignableFrom(authentication);
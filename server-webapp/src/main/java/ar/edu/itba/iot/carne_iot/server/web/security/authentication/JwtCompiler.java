@@ -21,6 +21,19 @@ public interface JwtCompiler {
      */
     JwtTokenData compile(String rawToken) throws IllegalArgumentException, JwtException;
 
+    /**
+     * Compiles the given refresh token, transforming it into the {@link RefreshTokenData}
+     * with information taken from the token. Note that this method does not check the session the token represents.
+     *
+     * @param rawToken The refresh token to be compiled.
+     * @return The {@link RefreshTokenData} compiled from the token.
+     * @throws IllegalArgumentException If the given {@code rawToken} is null or if it does not have text.
+     * @throws JwtException             If the compilation process failed
+     *                                  (i.e malformed token, expired token, wrong signature, not a refresh token,
+     *                                  etc.).
+     */
+    RefreshTokenData compileRefreshToken(String rawToken) throws IllegalArgumentException, JwtException;
+
     /**
      * Container class wrapping data in a JWT.
      */
@@ -105,4 +118,45 @@ public interface JwtCompiler {
             return deviceId;
         }
     }
+
+    /**
+     * Container class wrapping data in a refresh JWT.
+     */
+    class RefreshTokenData {
+
+        /**
+         * The user id set in the JWT.
+         */
+        private final long userId;
+
+        /**
+         * The id of the session the JWT represents.
+         */
+        private final long jti;
+
+        /**
+         * Constructor.
+         *
+         * @param userId The user id set in the JWT.
+         * @param jti    The id of the session the JWT represents.
+         */
+        /* package */ RefreshTokenData(long userId, long jti) {
+            this.userId = userId;
+            this.jti = jti;
+        }
+
+        /**
+         * @return The user id set in the JWT.
+         */
+        public long getUserId() {
+            return userId;
+        }
+
+        /**
+         * @return The id of the session the JWT represents.
+         */
+        public long getJti() {
+            return jti;
+        }
+    }
 }
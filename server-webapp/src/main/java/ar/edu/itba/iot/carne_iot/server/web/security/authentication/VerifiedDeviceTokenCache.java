@@ -0,0 +1,123 @@
+package ar.edu.itba.iot.carne_iot.server.web.security.authentication;
+
+import ar.edu.itba.iot.carne_iot.server.web.security.authentication.JwtCompiler.DeviceJwtTokenData;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jmx.export.annotation.ManagedAttribute;
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedResource;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded cache of already verified device JWTs, in order to avoid parsing them and checking their signature
+ * each time a device sends a reading (device tokens never expire, so a device always sends the same token).
+ * <p>
+ * Entries are looked up by the token hash, and matched by comparing the whole token,
+ * so only tokens identical to an already verified one are answered by the cache.
+ */
+@Component
+@ManagedResource(objectName = "ar.edu.itba.iot.carne_iot.server:type=VerifiedDeviceTokenCache")
+/* package */ class VerifiedDeviceTokenCache {
+
+    /**
+     * Flag indicating whether the cache is enabled.
+     */
+    private final boolean enabled;
+
+    /**
+     * The cache of verified tokens, mapping raw tokens to the data compiled from them.
+     */
+    private final Cache<String, DeviceJwtTokenData> cache;
+
+
+    @Autowired
+    /* package */ VerifiedDeviceTokenCache(
+            @Value("${custom.security.jwt.device-token-cache.enabled:true}") boolean enabled,
+            @Value("${custom.security.jwt.device-token-cache.max-size:10000}") long maxSize) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+
+    /**
+     * Returns the data compiled from the given {@code rawToken}, if it was already verified.
+     *
+     * @param rawToken The raw token.
+     * @return The cached {@link DeviceJwtTokenData}, or {@code null} if the token is not cached.
+     */
+    /* package */ DeviceJwtTokenData get(String rawToken) {
+        return enabled ? cache.getIfPresent(rawToken) : null;
+    }
+
+    /**
+     * Caches the data compiled from the given {@code rawToken}.
+     * Must only be called after the token was successfully verified.
+     *
+     * @param rawToken  The raw token.
+     * @param tokenData The {@link DeviceJwtTokenData} compiled from the token.
+     */
+    /* package */ void put(String rawToken, DeviceJwtTokenData tokenData) {
+        if (enabled) {
+            cache.put(rawToken, tokenData);
+        }
+    }
+
+    /**
+     * Removes the tokens of the {@link ar.edu.itba.iot.carne_iot.server.models.Device} with the given id,
+     * so they are verified again the next time they are used.
+     *
+     * @param deviceId The id of the device whose tokens must be removed.
+     */
+    @ManagedOperation(description = "Removes the cached tokens of the device with the given id")
+    public void revokeDevice(long deviceId) {
+        cache.asMap().values().removeIf(tokenData -> tokenData.getDeviceId() == deviceId);
+    }
+
+    /**
+     * Removes all entries.
+     */
+    @ManagedOperation(description = "Removes all cached tokens")
+    public void clear() {
+        cache.invalidateAll();
+    }
+
+
+    // ================================
+    // Metrics
+    // ================================
+
+    @ManagedAttribute(description = "Whether the cache is enabled")
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @ManagedAttribute(description = "Amount of cached tokens")
+    public long getSize() {
+        return cache.estimatedSize();
+    }
+
+    @ManagedAttribute(description = "Amount of device tokens answered by the cache")
+    public long getHits() {
+        return cache.stats().hitCount();
+    }
+
+    @ManagedAttribute(description = "Amount of tokens not answered by the cache (including user tokens, never cached)")
+    public long getMisses() {
+        return cache.stats().missCount();
+    }
+
+    @ManagedAttribute(description = "Ratio of tokens answered by the cache")
+    public double getHitRate() {
+        return cache.stats().hitRate();
+    }
+
+    @ManagedAttribute(description = "Amount of tokens evicted because the cache was full")
+    public long getEvictions() {
+        return cache.stats().evictionCount();
+    }
+}
@@ -0,0 +1,35 @@
+package ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.json.deserializers;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+
+import java.io.IOException;
+import java.time.Instant;
+
+/**
+ * {@link com.fasterxml.jackson.databind.JsonDeserializer} to transform a {@link String} to an {@link Instant},
+ * reading it as an amount of seconds since the epoch (i.e the inverse of
+ * {@link ar.edu.itba.iot.carne_iot.server.web.support.data_transfer.json.serializers.Java8InstantSerializer}).
+ */
+public class Java8InstantDeserializer extends StdDeserializer<Instant> {
+
+    /**
+     * Default constructor.
+     */
+    protected Java8InstantDeserializer() {
+        super(Instant.class);
+    }
+
+    @Override
+    public Instant deserialize(JsonParser p, DeserializationContext context)
+            throws IOException {
+        final String epochSecondString = p.getText();
+        try {
+            return Instant.ofEpochSecond(Long.parseLong(epochSecondString));
+        } catch (NumberFormatException e) {
+            throw new JsonParseException(p, "Unable to deserialize the instant", e);
+        }
+    }
+}
@@ -0,0 +1,13 @@
+-- Each revocation (i.e blacklisting) of a session gets an increasing number, so nodes can poll for new revocations
+CREATE SEQUENCE sessions_revocation_sequence;
+
+ALTER TABLE sessions
+    ADD COLUMN revocation_sequence BIGINT;
+
+UPDATE sessions
+SET revocation_sequence = nextval('sessions_revocation_sequence')
+WHERE valid = FALSE;
+
+CREATE INDEX sessions_revocation_sequence_index
+    ON sessions (revocation_sequence)
+    WHERE revocation_sequence IS NOT NULL;
@@ -0,0 +1,4 @@
+-- Active registrations are joined by device when listing devices together with their owners
+CREATE INDEX device_registrations_active_device_id_index
+    ON device_registrations (device_id)
+    WHERE active = TRUE;
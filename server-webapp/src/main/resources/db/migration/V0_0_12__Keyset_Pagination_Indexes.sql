@@ -0,0 +1,10 @@
+-- Lists belonging to a user are paginated by id (i.e keyset pagination), so they are indexed by owner and id
+CREATE INDEX device_registrations_active_user_id_id_index
+    ON device_registrations (user_id, id)
+    WHERE active = TRUE;
+
+CREATE INDEX food_preferences_user_id_id_index
+    ON food_preferences (user_id, id);
+
+CREATE INDEX sessions_user_id_id_index
+    ON sessions (user_id, id);
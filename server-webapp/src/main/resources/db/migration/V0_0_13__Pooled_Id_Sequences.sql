@@ -0,0 +1,9 @@
+-- Ids are generated by Hibernate with a pooled optimizer (i.e each nextval reserves a block of 50 ids),
+-- so inserts can be batched. Inserts using the column defaults keep working, as they take the high value of a block.
+ALTER SEQUENCE users_id_seq INCREMENT BY 50;
+
+ALTER SEQUENCE sessions_id_seq INCREMENT BY 50;
+
+ALTER SEQUENCE device_registrations_id_seq INCREMENT BY 50;
+
+ALTER SEQUENCE food_preferences_id_seq INCREMENT BY 50;
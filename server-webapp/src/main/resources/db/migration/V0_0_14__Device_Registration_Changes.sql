@@ -0,0 +1,25 @@
+-- Each change in a device registration (including deletions in cascade) is logged with an increasing number,
+-- so nodes can poll for changes and update their registration index
+CREATE TABLE device_registration_changes (
+    sequence   BIGSERIAL PRIMARY KEY NOT NULL,
+    device_id  BIGINT                NOT NULL,
+    changed_at TIMESTAMP             NOT NULL DEFAULT now()
+);
+
+CREATE FUNCTION log_device_registration_change()
+    RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE'
+    THEN
+        INSERT INTO device_registration_changes (device_id) VALUES (OLD.device_id);
+        RETURN OLD;
+    END IF;
+    INSERT INTO device_registration_changes (device_id) VALUES (NEW.device_id);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER device_registrations_change_trigger
+    AFTER INSERT OR UPDATE OR DELETE
+    ON device_registrations
+    FOR EACH ROW EXECUTE PROCEDURE log_device_registration_change();
@@ -0,0 +1,54 @@
+-- Moments of readings and aggregates were stored as local timestamps in the application time zone
+-- (which is the session time zone, as the JDBC driver sets it when connecting), so bucket and partition boundaries
+-- depended on the host. They are now stored as UTC timestamps.
+CREATE TEMPORARY TABLE utc_temperature_readings AS
+    SELECT
+        device_id,
+        (measured_at AT TIME ZONE current_setting('TimeZone')) AT TIME ZONE 'UTC' AS measured_at,
+        temperature_centi_degrees
+    FROM temperature_readings;
+
+-- Readings are moved into partitions according to their UTC moment
+SELECT create_temperature_readings_partition(month)
+FROM (SELECT DISTINCT date_trunc('month', measured_at) AS month
+      FROM utc_temperature_readings) AS months;
+
+TRUNCATE temperature_readings;
+
+INSERT INTO temperature_readings (device_id, measured_at, temperature_centi_degrees)
+    SELECT
+        device_id,
+        measured_at,
+        temperature_centi_degrees
+    FROM utc_temperature_readings;
+
+DROP TABLE utc_temperature_readings;
+
+-- Aggregates are recomputed, as UTC buckets are not aligned with local ones in every time zone
+TRUNCATE temperature_minute_rollups;
+
+TRUNCATE temperature_hour_rollups;
+
+INSERT INTO temperature_minute_rollups (device_id, bucket_start, min_centi_degrees, max_centi_degrees,
+                                        sum_centi_degrees, readings)
+    SELECT
+        device_id,
+        date_trunc('minute', measured_at),
+        MIN(temperature_centi_degrees),
+        MAX(temperature_centi_degrees),
+        SUM(temperature_centi_degrees),
+        COUNT(*)
+    FROM temperature_readings
+    GROUP BY device_id, date_trunc('minute', measured_at);
+
+INSERT INTO temperature_hour_rollups (device_id, bucket_start, min_centi_degrees, max_centi_degrees,
+                                      sum_centi_degrees, readings)
+    SELECT
+        device_id,
+        date_trunc('hour', bucket_start),
+        MIN(min_centi_degrees),
+        MAX(max_centi_degrees),
+        SUM(sum_centi_degrees),
+        SUM(readings)
+    FROM temperature_minute_rollups
+    GROUP BY device_id, date_trunc('hour', bucket_start);
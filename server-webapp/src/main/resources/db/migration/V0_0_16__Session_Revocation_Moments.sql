@@ -0,0 +1,8 @@
+-- Revoked sessions are kept in memory only while tokens issued for them can still be used,
+-- so the moment of each revocation is stored
+ALTER TABLE sessions
+    ADD COLUMN revoked_at TIMESTAMP;
+
+UPDATE sessions
+SET revoked_at = now()
+WHERE valid = FALSE;
@@ -0,0 +1,56 @@
+-- Each change in an entity kept in the second-level cache (including deletions in cascade) is logged
+-- with an increasing number, so nodes can poll for changes performed by other nodes and evict them from their cache.
+-- The entity type is the changed table, and the entity id is the id of the changed row
+-- (or the id of the user owning the changed role).
+CREATE TABLE cached_entity_changes (
+    sequence    BIGSERIAL PRIMARY KEY NOT NULL,
+    entity_type VARCHAR(32)           NOT NULL,
+    entity_id   BIGINT                NOT NULL,
+    changed_at  TIMESTAMP             NOT NULL DEFAULT now()
+);
+
+-- The first argument is the name of the column holding the entity id
+CREATE FUNCTION log_cached_entity_change()
+    RETURNS TRIGGER AS $$
+BEGIN
+    IF TG_OP = 'DELETE'
+    THEN
+        INSERT INTO cached_entity_changes (entity_type, entity_id)
+        VALUES (TG_TABLE_NAME, (to_jsonb(OLD) ->> TG_ARGV [0]) :: BIGINT);
+        RETURN OLD;
+    END IF;
+    INSERT INTO cached_entity_changes (entity_type, entity_id)
+    VALUES (TG_TABLE_NAME, (to_jsonb(NEW) ->> TG_ARGV [0]) :: BIGINT);
+    RETURN NEW;
+END;
+$$ LANGUAGE plpgsql;
+
+-- Inserted users are not cached anywhere yet
+CREATE TRIGGER users_cached_change_trigger
+    AFTER UPDATE OR DELETE
+    ON users
+    FOR EACH ROW EXECUTE PROCEDURE log_cached_entity_change('id');
+
+CREATE TRIGGER user_roles_cached_change_trigger
+    AFTER INSERT OR UPDATE OR DELETE
+    ON user_roles
+    FOR EACH ROW EXECUTE PROCEDURE log_cached_entity_change('user_id');
+
+-- Temperatures are written too often, so they are not logged (devices are read from the database when needed)
+CREATE TRIGGER devices_cached_change_trigger
+    AFTER UPDATE
+    ON devices
+    FOR EACH ROW
+    WHEN (OLD.target_temperature IS DISTINCT FROM NEW.target_temperature)
+EXECUTE PROCEDURE log_cached_entity_change('id');
+
+CREATE TRIGGER devices_cached_delete_trigger
+    AFTER DELETE
+    ON devices
+    FOR EACH ROW EXECUTE PROCEDURE log_cached_entity_change('id');
+
+-- Inserts are also logged, as they change the results of cached queries
+CREATE TRIGGER food_preferences_cached_change_trigger
+    AFTER INSERT OR UPDATE OR DELETE
+    ON food_preferences
+    FOR EACH ROW EXECUTE PROCEDURE log_cached_entity_change('id');
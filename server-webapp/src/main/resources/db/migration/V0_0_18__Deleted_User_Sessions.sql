@@ -0,0 +1,26 @@
+-- Valid sessions deleted together with their user are logged as revoked (taking numbers from the same sequence
+-- as revoked sessions), so nodes polling for revocations keep rejecting their tokens until they expire
+CREATE TABLE deleted_sessions (
+    user_id             BIGINT    NOT NULL,
+    jti                 BIGINT    NOT NULL,
+    revocation_sequence BIGINT    NOT NULL DEFAULT nextval('sessions_revocation_sequence'),
+    revoked_at          TIMESTAMP NOT NULL DEFAULT now()
+);
+
+CREATE INDEX deleted_sessions_revocation_sequence_index
+    ON deleted_sessions (revocation_sequence);
+
+CREATE FUNCTION log_deleted_session()
+    RETURNS TRIGGER AS $$
+BEGIN
+    INSERT INTO deleted_sessions (user_id, jti) VALUES (OLD.user_id, OLD.jti);
+    RETURN OLD;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER sessions_delete_trigger
+    AFTER DELETE
+    ON sessions
+    FOR EACH ROW
+    WHEN (OLD.valid)
+EXECUTE PROCEDURE log_deleted_session();
@@ -0,0 +1,5 @@
+-- Moments of registration changes were stored by the database as local timestamps in the session time zone,
+-- while old changes are removed according to moments given by the application (which could be interpreted in
+-- another time zone). They are now stored with time zone, so both are compared as absolute moments.
+ALTER TABLE device_registration_changes
+    ALTER COLUMN changed_at TYPE TIMESTAMPTZ USING changed_at AT TIME ZONE current_setting('TimeZone');
@@ -0,0 +1,26 @@
+CREATE TABLE temperature_readings (
+    device_id   BIGINT        NOT NULL,
+    measured_at TIMESTAMP     NOT NULL,
+    temperature DECIMAL(5, 2) NOT NULL
+) PARTITION BY RANGE (measured_at);
+
+-- Creates (if not already created) the monthly partition that holds the given moment, together with its index
+CREATE OR REPLACE FUNCTION create_temperature_readings_partition(moment TIMESTAMP)
+    RETURNS VOID AS $$
+DECLARE
+    partition_start TIMESTAMP := date_trunc('month', moment);
+    partition_end   TIMESTAMP := partition_start + INTERVAL '1 month';
+    partition_name  TEXT := 'temperature_readings_' || to_char(partition_start, 'YYYY_MM');
+BEGIN
+    IF to_regclass(partition_name) IS NULL
+    THEN
+        EXECUTE format('CREATE TABLE %I PARTITION OF temperature_readings FOR VALUES FROM (%L) TO (%L)',
+                       partition_name, partition_start, partition_end);
+        EXECUTE format('CREATE INDEX %I ON %I (device_id, measured_at)',
+                       partition_name || '_device_id_measured_at_index', partition_name);
+    END IF;
+END;
+$$ LANGUAGE plpgsql;
+
+SELECT create_temperature_readings_partition(now() :: TIMESTAMP);
+SELECT create_temperature_readings_partition((now() + INTERVAL '1 month') :: TIMESTAMP);
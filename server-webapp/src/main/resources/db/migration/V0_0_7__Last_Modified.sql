@@ -0,0 +1,11 @@
+ALTER TABLE users
+    ADD COLUMN last_modified TIMESTAMP NOT NULL DEFAULT now();
+
+ALTER TABLE devices
+    ADD COLUMN last_modified TIMESTAMP NOT NULL DEFAULT now();
+
+ALTER TABLE device_registrations
+    ADD COLUMN last_modified TIMESTAMP NOT NULL DEFAULT now();
+
+ALTER TABLE food_preferences
+    ADD COLUMN last_modified TIMESTAMP NOT NULL DEFAULT now();
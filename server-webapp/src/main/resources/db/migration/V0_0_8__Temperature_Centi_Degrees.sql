@@ -0,0 +1,16 @@
+-- Actual temperatures are stored in hundredths of degree, as integers
+ALTER TABLE devices
+    ALTER COLUMN temperature TYPE INTEGER USING round(temperature * 100);
+UPDATE devices
+SET temperature = 0
+WHERE temperature IS NULL;
+ALTER TABLE devices
+    ALTER COLUMN temperature SET DEFAULT 0,
+    ALTER COLUMN temperature SET NOT NULL;
+ALTER TABLE devices
+    RENAME COLUMN temperature TO temperature_centi_degrees;
+
+ALTER TABLE temperature_readings
+    ALTER COLUMN temperature TYPE INTEGER USING round(temperature * 100);
+ALTER TABLE temperature_readings
+    RENAME COLUMN temperature TO temperature_centi_degrees;
@@ -0,0 +1,50 @@
+CREATE TABLE temperature_minute_rollups (
+    device_id         BIGINT    NOT NULL,
+    bucket_start      TIMESTAMP NOT NULL,
+    min_centi_degrees INTEGER   NOT NULL,
+    max_centi_degrees INTEGER   NOT NULL,
+    sum_centi_degrees BIGINT    NOT NULL,
+    readings          BIGINT    NOT NULL,
+    PRIMARY KEY (device_id, bucket_start)
+);
+
+CREATE TABLE temperature_hour_rollups (
+    device_id         BIGINT    NOT NULL,
+    bucket_start      TIMESTAMP NOT NULL,
+    min_centi_degrees INTEGER   NOT NULL,
+    max_centi_degrees INTEGER   NOT NULL,
+    sum_centi_degrees BIGINT    NOT NULL,
+    readings          BIGINT    NOT NULL,
+    PRIMARY KEY (device_id, bucket_start)
+);
+
+CREATE INDEX temperature_minute_rollups_bucket_start_index
+    ON temperature_minute_rollups (bucket_start);
+
+CREATE INDEX temperature_hour_rollups_bucket_start_index
+    ON temperature_hour_rollups (bucket_start);
+
+-- Aggregate readings already in the history
+INSERT INTO temperature_minute_rollups (device_id, bucket_start, min_centi_degrees, max_centi_degrees,
+                                        sum_centi_degrees, readings)
+    SELECT
+        device_id,
+        date_trunc('minute', measured_at),
+        MIN(temperature_centi_degrees),
+        MAX(temperature_centi_degrees),
+        SUM(temperature_centi_degrees),
+        COUNT(*)
+    FROM temperature_readings
+    GROUP BY device_id, date_trunc('minute', measured_at);
+
+INSERT INTO temperature_hour_rollups (device_id, bucket_start, min_centi_degrees, max_centi_degrees,
+                                      sum_centi_degrees, readings)
+    SELECT
+        device_id,
+        date_trunc('hour', bucket_start),
+        MIN(min_centi_degrees),
+        MAX(max_centi_degrees),
+        SUM(sum_centi_degrees),
+        SUM(readings)
+    FROM temperature_minute_rollups
+    GROUP BY device_id, date_trunc('hour', bucket_start);
@@ -0,0 +1,207 @@
+package ar.edu.itba.iot.carne_iot.server.web.controller.coap;
+
+import ar.edu.itba.iot.carne_iot.server.exceptions.NoSuchEntityException;
+import ar.edu.itba.iot.carne_iot.server.models.Role;
+import ar.edu.itba.iot.carne_iot.server.models.TemperatureReading;
+import ar.edu.itba.iot.carne_iot.server.services.DeviceService;
+import ar.edu.itba.iot.carne_iot.server.web.security.authentication.JwtAuthenticationProvider;
+import ar.edu.itba.iot.carne_iot.server.web.security.authentication.JwtCompiler;
+import org.eclipse.californium.core.CoapClient;
+import org.eclipse.californium.core.CoapResponse;
+import org.eclipse.californium.core.coap.CoAP;
+import org.eclipse.californium.core.coap.Option;
+import org.eclipse.californium.core.coap.Request;
+import org.eclipse.californium.core.network.CoapEndpoint;
+import org.eclipse.californium.core.network.config.NetworkConfig;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.net.DatagramSocket;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+
+/**
+ * Tests the {@link CoapTemperatureListener} through the loopback interface, using a real CoAP client.
+ */
+public class CoapTemperatureListenerTest {
+
+    private static final String DEVICE_TOKEN = "device-token";
+
+    private static final String USER_TOKEN = "user-token";
+
+    private static final String INVALID_TOKEN = "invalid-token";
+
+    private static final long DEVICE_ID = 7L;
+
+    private static final int CENTI_DEGREES = 2350;
+
+    private DeviceService deviceService;
+
+    private CoapTemperatureListener listener;
+
+    private CoapEndpoint clientEndpoint;
+
+    private CoapClient client;
+
+
+    @Before
+    public void setUp() throws Exception {
+        final JwtCompiler.DeviceJwtTokenData deviceTokenData = mock(JwtCompiler.DeviceJwtTokenData.class);
+        when(deviceTokenData.getUserId()).thenReturn(1L);
+        when(deviceTokenData.getUsername()).thenReturn("owner");
+        when(deviceTokenData.getRoles()).thenReturn(Collections.singleton(Role.ROLE_DEVICE));
+        when(deviceTokenData.getDeviceId()).thenReturn(DEVICE_ID);
+        final JwtCompiler.JwtTokenData userTokenData = mock(JwtCompiler.JwtTokenData.class);
+        when(userTokenData.getUserId()).thenReturn(1L);
+        when(userTokenData.getUsername()).thenReturn("owner");
+        when(userTokenData.getRoles()).thenReturn(Collections.singleton(Role.ROLE_USER));
+        final JwtCompiler jwtCompiler = mock(JwtCompiler.class);
+        when(jwtCompiler.compile(DEVICE_TOKEN)).thenReturn(deviceTokenData);
+        when(jwtCompiler.compile(USER_TOKEN)).thenReturn(userTokenData);
+        when(jwtCompiler.compile(INVALID_TOKEN)).thenThrow(new BadCredentialsException("Invalid token"));
+
+        final int port = freePort();
+        deviceService = mock(DeviceService.class);
+        listener = new CoapTemperatureListener(deviceService, new JwtAuthenticationProvider(jwtCompiler), true, port);
+        listener.start();
+
+        clientEndpoint = new CoapEndpoint(new NetworkConfig());
+        clientEndpoint.start();
+        client = new CoapClient("coap://localhost:" + port + "/" + CoapTemperatureListener.TEMPERATURE_RESOURCE);
+        client.setEndpoint(clientEndpoint);
+        client.setTimeout(5000);
+    }
+
+    @After
+    public void tearDown() {
+        client.shutdown();
+        clientEndpoint.destroy();
+        listener.stop();
+    }
+
+
+    @Test
+    public void testTemperatureIsUpdatedWithDeviceAuthentication() {
+        final AtomicReference<Authentication> authentication = new AtomicReference<>();
+        doAnswer(invocation -> {
+            authentication.set(SecurityContextHolder.getContext().getAuthentication());
+            return null;
+        }).when(deviceService).updateTemperature(anyLong(), anyInt());
+
+        final CoapResponse response = put(DEVICE_TOKEN, ByteBuffer.allocate(4).putInt(CENTI_DEGREES).array());
+
+        assertEquals(CoAP.ResponseCode.CHANGED, response.getCode());
+        verify(deviceService).updateTemperature(DEVICE_ID, CENTI_DEGREES);
+        assertNotNull(authentication.get());
+        assertEquals(DEVICE_ID, authentication.get().getDetails());
+        assertEquals(1, listener.getAcceptedReadings());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testTimestampedReadingKeepsItsMoment() {
+        final long measuredAt = 1_500_000_000L;
+        final byte[] payload = ByteBuffer.allocate(8).putInt(-CENTI_DEGREES).putInt((int) measuredAt).array();
+
+        final CoapResponse response = put(DEVICE_TOKEN, payload);
+
+        assertEquals(CoAP.ResponseCode.CHANGED, response.getCode());
+        final ArgumentCaptor<List> captor = ArgumentCaptor.forClass(List.class);
+        verify(deviceService).updateTemperatures(captor.capture());
+        final List<TemperatureReading> readings = captor.getValue();
+        assertEquals(1, readings.size());
+        assertEquals(DEVICE_ID, readings.get(0).getDeviceId());
+        assertEquals(-CENTI_DEGREES, readings.get(0).getCentiDegrees());
+        assertEquals(Instant.ofEpochSecond(measuredAt), readings.get(0).getTimestamp());
+    }
+
+    @Test
+    public void testRequestWithoutTokenIsUnauthorized() {
+        final CoapResponse response = put(null, ByteBuffer.allocate(4).putInt(CENTI_DEGREES).array());
+
+        assertEquals(CoAP.ResponseCode.UNAUTHORIZED, response.getCode());
+        verifyZeroInteractions(deviceService);
+    }
+
+    @Test
+    public void testRequestWithInvalidTokenIsUnauthorized() {
+        final CoapResponse response = put(INVALID_TOKEN, ByteBuffer.allocate(4).putInt(CENTI_DEGREES).array());
+
+        assertEquals(CoAP.ResponseCode.UNAUTHORIZED, response.getCode());
+        verifyZeroInteractions(deviceService);
+    }
+
+    @Test
+    public void testRequestWithUserTokenIsUnauthorized() {
+        final CoapResponse response = put(USER_TOKEN, ByteBuffer.allocate(4).putInt(CENTI_DEGREES).array());
+
+        assertEquals(CoAP.ResponseCode.UNAUTHORIZED, response.getCode());
+        verifyZeroInteractions(deviceService);
+    }
+
+    @Test
+    public void testMalformedPayloadIsBadRequest() {
+        final CoapResponse response = put(DEVICE_TOKEN, new byte[3]);
+
+        assertEquals(CoAP.ResponseCode.BAD_REQUEST, response.getCode());
+        verifyZeroInteractions(deviceService);
+        assertEquals(1, listener.getRejectedRequests());
+    }
+
+    @Test
+    public void testMissingDeviceIsNotFound() {
+        doThrow(new NoSuchEntityException()).when(deviceService).updateTemperature(DEVICE_ID, CENTI_DEGREES);
+
+        final CoapResponse response = put(DEVICE_TOKEN, ByteBuffer.allocate(4).putInt(CENTI_DEGREES).array());
+
+        assertEquals(CoAP.ResponseCode.NOT_FOUND, response.getCode());
+    }
+
+
+    /**
+     * Sends a {@code PUT} request to the temperature resource.
+     *
+     * @param token   The token to be set in the authorization option (not set if null).
+     * @param payload The request payload.
+     * @return The received {@link CoapResponse}.
+     */
+    private CoapResponse put(String token, byte[] payload) {
+        final Request request = Request.newPut();
+        request.setURI(client.getURI());
+        if (token != null) {
+            request.getOptions().addOption(new Option(CoapTemperatureListener.AUTHORIZATION_OPTION, token));
+        }
+        request.setPayload(payload);
+        final CoapResponse response = client.advanced(request);
+        assertNotNull("No response received", response);
+        return response;
+    }
+
+    /**
+     * @return A UDP port not in use.
+     */
+    private static int freePort() throws Exception {
+        try (DatagramSocket socket = new DatagramSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+}
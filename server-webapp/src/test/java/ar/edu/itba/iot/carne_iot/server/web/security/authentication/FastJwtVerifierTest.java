@@ -0,0 +1,301 @@
+package ar.edu.itba.iot.carne_iot.server.web.security.authentication;
+
+import ar.edu.itba.iot.carne_iot.server.models.Device;
+import ar.edu.itba.iot.carne_iot.server.models.User;
+import ar.edu.itba.iot.carne_iot.server.services.SessionService;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.Base64;
+import java.util.Objects;
+import java.util.TreeSet;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Tests that compiling a token with the {@link FastJwtVerifier} gives the same result as compiling it with jjwt
+ * (i.e a {@link JwtAgent} whose fast verifier is disabled), for valid tokens and for every kind of invalid token.
+ */
+public class FastJwtVerifierTest {
+
+    private static final String SIGNING_KEY = "test-signing-key";
+
+    private static final String HS512_HEADER = "{\"alg\":\"HS512\"}";
+
+    private static final String ACCEPTED = "accepted";
+
+    private static final String REJECTED = "rejected";
+
+    private FastJwtVerifier fastJwtVerifier;
+
+    private JwtAgent fastAgent;
+
+    private JwtAgent jjwtAgent;
+
+    private User user;
+
+    private long now;
+
+
+    @Before
+    public void setUp() {
+        final SessionService sessionService = mock(SessionService.class);
+        fastJwtVerifier = new FastJwtVerifier(SIGNING_KEY, true);
+        // Device token caches are disabled, so each compilation verifies the token
+        fastAgent = new JwtAgent(SIGNING_KEY, 31536000L, 900L, sessionService,
+                new VerifiedDeviceTokenCache(false, 1), fastJwtVerifier);
+        jjwtAgent = new JwtAgent(SIGNING_KEY, 31536000L, 900L, sessionService,
+                new VerifiedDeviceTokenCache(false, 1), new FastJwtVerifier(SIGNING_KEY, false));
+        user = new User("Test User", LocalDate.of(1990, 1, 1), "test_user", "test@example.com", "hash");
+        now = System.currentTimeMillis() / 1000;
+    }
+
+
+    // ================================
+    // Tokens verified by the fast path
+    // ================================
+
+    @Test
+    public void testAccessToken() {
+        assertSameOutcome(fastAgent.generateAccessToken(user, 5L), ACCEPTED);
+        assertVerifierCounts(1, 0, 0);
+    }
+
+    @Test
+    public void testDeviceToken() {
+        final String token = fastAgent.generateDeviceToken(user, new Device(7L)).getToken();
+        assertSameOutcome(token, ACCEPTED);
+        assertVerifierCounts(1, 0, 0);
+    }
+
+    @Test
+    public void testTamperedSignature() {
+        final String token = fastAgent.generateAccessToken(user, 5L);
+        final int position = token.lastIndexOf('.') + 10;
+        final char replacement = token.charAt(position) == 'A' ? 'B' : 'A';
+        final String tampered = token.substring(0, position) + replacement + token.substring(position + 1);
+        assertSameOutcome(tampered, REJECTED);
+        assertVerifierCounts(0, 1, 0);
+    }
+
+    @Test
+    public void testTamperedPayload() {
+        final String token = sign(HS512_HEADER, payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\"]"));
+        final String other = sign(HS512_HEADER, payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_ADMIN\"]"));
+        final String tampered = other.substring(0, other.lastIndexOf('.')) + token.substring(token.lastIndexOf('.'));
+        assertSameOutcome(tampered, REJECTED);
+        assertVerifierCounts(0, 1, 0);
+    }
+
+
+    // ================================
+    // Tokens left to jjwt
+    // ================================
+
+    @Test
+    public void testExpiredToken() {
+        assertSameOutcome(sign(HS512_HEADER, "{\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\"],\"sub\":\"test_user\","
+                + "\"iat\":" + (now - 120) + ",\"exp\":" + (now - 60) + "}"), REJECTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testTokenIssuedInTheFuture() {
+        assertSameOutcome(sign(HS512_HEADER, "{\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\"],\"sub\":\"test_user\","
+                + "\"iat\":" + (now + 600) + ",\"exp\":" + (now + 1200) + "}"), REJECTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testTokenNotValidYet() {
+        assertSameOutcome(sign(HS512_HEADER, payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\"],"
+                + "\"nbf\":" + (now + 600))), REJECTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testUnknownStringClaim() {
+        assertSameOutcome(sign(HS512_HEADER, payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\"],"
+                + "\"extra\":\"value\"")), ACCEPTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testUnknownNumericClaim() {
+        assertSameOutcome(sign(HS512_HEADER, payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\"],"
+                + "\"extra\":3")), ACCEPTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testMissingClaim() {
+        assertSameOutcome(sign(HS512_HEADER, payload("\"uid\":1,\"roles\":[\"ROLE_USER\"]")), REJECTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testDeviceTokenWithoutDeviceId() {
+        assertSameOutcome(sign(HS512_HEADER, payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_DEVICE\"]")), REJECTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testClaimOfWrongType() {
+        assertSameOutcome(sign(HS512_HEADER, payload("\"uid\":\"1\",\"jti\":2,\"roles\":[\"ROLE_USER\"]")),
+                REJECTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testUnknownRole() {
+        final String token = sign(HS512_HEADER, payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_ROOT\"]"));
+        assertSameOutcome(token, IllegalArgumentException.class.getSimpleName());
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testOtherSigningAlgorithm() {
+        final String token = sign("{\"alg\":\"HS256\"}", "HmacSHA256",
+                payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\"]"));
+        assertSameOutcome(token, ACCEPTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testUnsignedToken() {
+        final String token = encode("{\"alg\":\"none\"}") + "."
+                + encode(payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\"]")) + ".";
+        assertSameOutcome(token, REJECTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testExtraHeaderField() {
+        assertSameOutcome(sign("{\"alg\":\"HS512\",\"typ\":\"JWT\"}",
+                payload("\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\"]")), ACCEPTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testRefreshToken() {
+        assertSameOutcome(fastAgent.generateRefreshToken(user, 5L), REJECTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+    @Test
+    public void testMalformedJson() {
+        assertSameOutcome(sign(HS512_HEADER, "{\"uid\":1,\"jti\":2,\"roles\":[\"ROLE_USER\""), REJECTED);
+        assertVerifierCounts(0, 0, 1);
+    }
+
+
+    // ================================
+    // Helpers
+    // ================================
+
+    /**
+     * Asserts that compiling the given {@code token} with the fast verifier and with jjwt gives the same result,
+     * and that it is the {@code expected} one.
+     *
+     * @param token    The token to be compiled.
+     * @param expected The expected outcome (i.e {@link #ACCEPTED}, {@link #REJECTED}, or an exception name).
+     */
+    private void assertSameOutcome(String token, String expected) {
+        final String jjwtOutcome = outcome(jjwtAgent, token);
+        final String fastOutcome = outcome(fastAgent, token);
+        assertEquals("The fast verifier must give the same result as jjwt", jjwtOutcome, fastOutcome);
+        assertEquals(expected, fastOutcome.split(" ")[0]);
+    }
+
+    /**
+     * Asserts the metrics of the fast verifier.
+     *
+     * @param verified  The expected amount of tokens verified by the fast path.
+     * @param rejected  The expected amount of tokens rejected by the fast path.
+     * @param fallbacks The expected amount of tokens left to jjwt.
+     */
+    private void assertVerifierCounts(long verified, long rejected, long fallbacks) {
+        assertEquals("Verified tokens", verified, fastJwtVerifier.getVerifiedTokens());
+        assertEquals("Rejected tokens", rejected, fastJwtVerifier.getRejectedTokens());
+        assertEquals("Fallbacks", fallbacks, fastJwtVerifier.getFallbacks());
+    }
+
+    /**
+     * Compiles the given {@code token} with the given {@code agent}.
+     *
+     * @param agent The {@link JwtAgent} compiling the token.
+     * @param token The token to be compiled.
+     * @return A description of the result (i.e the compiled data, the rejection, or the exception thrown).
+     */
+    private static String outcome(JwtAgent agent, String token) {
+        try {
+            final JwtCompiler.JwtTokenData data = agent.compile(token);
+            final long deviceId = data instanceof JwtCompiler.DeviceJwtTokenData ?
+                    ((JwtCompiler.DeviceJwtTokenData) data).getDeviceId() : -1;
+            return ACCEPTED + " " + data.getClass().getSimpleName() + " uid=" + data.getUserId()
+                    + " sub=" + data.getUsername() + " roles=" + new TreeSet<>(data.getRoles()) + " did=" + deviceId;
+        } catch (JwtException e) {
+            return REJECTED;
+        } catch (RuntimeException e) {
+            return e.getClass().getSimpleName();
+        }
+    }
+
+    /**
+     * Creates a payload with the given {@code claims}, plus the subject, and valid issued at and expiration dates.
+     *
+     * @param claims The claims (as JSON members).
+     * @return The payload JSON.
+     */
+    private String payload(String claims) {
+        return "{" + claims + ",\"sub\":\"test_user\",\"iat\":" + now + ",\"exp\":" + (now + 600) + "}";
+    }
+
+    /**
+     * Signs a token with the given {@code header} and {@code payload} with HS512.
+     *
+     * @param header  The header JSON.
+     * @param payload The payload JSON (not necessarily valid).
+     * @return The signed token.
+     */
+    private static String sign(String header, String payload) {
+        return sign(header, "HmacSHA512", payload);
+    }
+
+    /**
+     * Signs a token with the given {@code header} and {@code payload} with the signing key
+     * (as jjwt derives it from the base 64 encoded key used by the {@link JwtAgent}).
+     *
+     * @param header       The header JSON.
+     * @param macAlgorithm The JCA name of the signing algorithm.
+     * @param payload      The payload JSON (not necessarily valid).
+     * @return The signed token.
+     */
+    private static String sign(String header, String macAlgorithm, String payload) {
+        final String signingInput = encode(header) + "." + encode(payload);
+        try {
+            final Mac mac = Mac.getInstance(macAlgorithm);
+            mac.init(new SecretKeySpec(SIGNING_KEY.getBytes(), macAlgorithm));
+            final byte[] signature = mac.doFinal(signingInput.getBytes(StandardCharsets.US_ASCII));
+            return signingInput + "." + Base64.getUrlEncoder().withoutPadding().encodeToString(signature);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Encodes the given {@code json} as base 64 url (without padding, as in JWTs).
+     *
+     * @param json The JSON to be encoded.
+     * @return The encoded JSON.
+     */
+    private static String encode(String json) {
+        return Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(Objects.requireNonNull(json).getBytes(StandardCharsets.UTF_8));
+    }
+}